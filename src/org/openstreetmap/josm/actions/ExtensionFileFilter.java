@@ -23,6 +23,7 @@ import org.openstreetmap.josm.gui.io.importexport.GpxImporter;
 import org.openstreetmap.josm.gui.io.importexport.JpgImporter;
 import org.openstreetmap.josm.gui.io.importexport.NMEAImporter;
 import org.openstreetmap.josm.gui.io.importexport.NoteImporter;
+import org.openstreetmap.josm.gui.io.importexport.OsmBinaryImporter;
 import org.openstreetmap.josm.gui.io.importexport.OsmChangeImporter;
 import org.openstreetmap.josm.gui.io.importexport.OsmImporter;
 import org.openstreetmap.josm.gui.io.importexport.WMSLayerImporter;
@@ -60,6 +61,7 @@ public class ExtensionFileFilter extends FileFilter implements java.io.FileFilte
 
         final List<Class<? extends FileImporter>> importerNames = Arrays.asList(
                 OsmImporter.class,
+                OsmBinaryImporter.class,
                 OsmChangeImporter.class,
                 GpxImporter.class,
                 NMEAImporter.class,
@@ -103,6 +105,7 @@ public class ExtensionFileFilter extends FileFilter implements java.io.FileFilte
                 org.openstreetmap.josm.gui.io.importexport.OsmGzipExporter.class,
                 org.openstreetmap.josm.gui.io.importexport.OsmBzip2Exporter.class,
                 org.openstreetmap.josm.gui.io.importexport.OsmXzExporter.class,
+                org.openstreetmap.josm.gui.io.importexport.OsmBinaryExporter.class,
                 org.openstreetmap.josm.gui.io.importexport.GeoJSONExporter.class,
                 org.openstreetmap.josm.gui.io.importexport.WMSLayerExporter.class,
                 org.openstreetmap.josm.gui.io.importexport.NoteExporter.class,
@@ -174,6 +177,15 @@ public class ExtensionFileFilter extends FileFilter implements java.io.FileFilte
         }
     }
 
+    /**
+     * Removes a file importer from the global list.
+     * @param importer file importer to remove
+     * @return {@code true} if the importer was registered
+     */
+    public static boolean removeImporter(FileImporter importer) {
+        return importers.remove(importer);
+    }
+
     /**
      * Adds a new file exporter at the end of the global list. This exporter will be evaluated after core ones.
      * @param exporter new file exporter
@@ -4,23 +4,43 @@ package org.openstreetmap.josm.actions.search;
 import java.util.Collection;
 import java.util.Collections;
 
+import javax.swing.SwingUtilities;
+
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.search.SearchCompiler.InArea;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.ViewDependentMatch;
 import org.openstreetmap.josm.gui.MainApplication;
 
 /**
  * Matches objects within current map view.
  * @since 12662 (extracted from {@code SearchCompiler})
  */
-class InView extends InArea {
+class InView extends InArea implements ViewDependentMatch {
+
+    /** The bounds of the map view, as captured in the EDT, for matching in other threads */
+    private volatile Collection<Bounds> capturedBounds;
 
     InView(boolean all) {
         super(all);
     }
 
+    @Override
+    public void captureView() {
+        Collection<Bounds> bounds = getViewBounds();
+        capturedBounds = bounds != null ? bounds : Collections.emptyList();
+    }
+
     @Override
     protected Collection<Bounds> getBounds(OsmPrimitive primitive) {
+        Collection<Bounds> bounds = capturedBounds;
+        if (bounds == null || SwingUtilities.isEventDispatchThread()) {
+            bounds = getViewBounds();
+        }
+        return bounds;
+    }
+
+    private static Collection<Bounds> getViewBounds() {
         if (!MainApplication.isDisplayingMapView()) {
             return null;
         }
@@ -43,9 +43,11 @@ import org.openstreetmap.josm.actions.ActionParameter;
 import org.openstreetmap.josm.actions.ExpertToggleAction;
 import org.openstreetmap.josm.actions.JosmAction;
 import org.openstreetmap.josm.actions.ParameterizedAction;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Filter;
 import org.openstreetmap.josm.data.osm.IPrimitive;
 import org.openstreetmap.josm.data.osm.OsmData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.search.PushbackTokenizer;
 import org.openstreetmap.josm.data.osm.search.SearchCompiler;
 import org.openstreetmap.josm.data.osm.search.SearchCompiler.Match;
@@ -71,6 +73,7 @@ import org.openstreetmap.josm.tools.GBC;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Shortcut;
+import org.openstreetmap.josm.tools.SubclassFilteredCollection;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -799,10 +802,18 @@ public class SearchAction extends JosmAction implements ParameterizedAction {
                     foundMatches = selection.size();
                 }
 
-                Collection<? extends IPrimitive> all;
-                if (setting.allElements) {
+                Collection<? extends IPrimitive> all = null;
+                if (setting.mode != SearchMode.in_selection && ds instanceof DataSet) {
+                    // only the candidates may match, the other primitives are left unchanged
+                    Set<OsmPrimitive> candidates = SearchCompiler.getCandidates(matcher, (DataSet) ds);
+                    if (candidates != null) {
+                        all = setting.allElements ? candidates
+                                : SubclassFilteredCollection.filter(candidates, p -> p.isSelectable());
+                    }
+                }
+                if (all == null && setting.allElements) {
                     all = ds.allPrimitives();
-                } else {
+                } else if (all == null) {
                     all = ds.getPrimitives(p -> p.isSelectable()); // Do not use method reference before Java 11!
                 }
                 final ProgressMonitor subMonitor = getProgressMonitor().createSubTaskMonitor(all.size(), false);
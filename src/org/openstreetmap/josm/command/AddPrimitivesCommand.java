@@ -4,6 +4,7 @@ package org.openstreetmap.josm.command;
 import static org.openstreetmap.josm.tools.I18n.trn;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -137,6 +138,19 @@ public class AddPrimitivesCommand extends Command {
         }
     }
 
+    @Override
+    public long estimateMemoryUsage() {
+        long result = super.estimateMemoryUsage();
+        for (List<PrimitiveData> list : Arrays.asList(data, preExistingData)) {
+            if (list != null) {
+                for (PrimitiveData pd : list) {
+                    result += 8 + estimateMemoryUsage(pd);
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     public String getDescriptionText() {
         int size = data != null ? data.size() : createdPrimitives.size();
@@ -72,6 +72,12 @@ public class ChangeCommand extends Command {
         modified.add(osm);
     }
 
+    @Override
+    public long estimateMemoryUsage() {
+        // the new primitive is retained for redoing
+        return super.estimateMemoryUsage() + estimateMemoryUsage(newOsm);
+    }
+
     @Override
     public String getDescriptionText() {
         String msg;
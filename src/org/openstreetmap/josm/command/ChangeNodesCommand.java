@@ -68,6 +68,12 @@ public class ChangeNodesCommand extends Command {
         modified.add(way);
     }
 
+    @Override
+    public long estimateMemoryUsage() {
+        // the new node list is retained for redoing
+        return super.estimateMemoryUsage() + 16 + 8L * newNodes.size();
+    }
+
     @Override
     public String getDescriptionText() {
         return tr("Change nodes of {0}", way.getDisplayName(DefaultNameFormatter.getInstance()));
@@ -12,6 +12,9 @@ import java.util.Objects;
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.IPrimitive;
+import org.openstreetmap.josm.data.osm.IRelation;
+import org.openstreetmap.josm.data.osm.IWay;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.PrimitiveData;
@@ -63,8 +66,14 @@ public abstract class Command implements PseudoCommand {
      */
     public static class OldNodeState {
 
-        private final LatLon latLon;
-        private final EastNorth eastNorth; // cached EastNorth to be used for applying exact displacement
+        /** Estimated memory usage of an instance, in bytes */
+        static final int MEMORY_USAGE = 56;
+
+        // coordinates are kept as primitives (NaN if unknown), as commands may remember lots of nodes
+        private final double lat;
+        private final double lon;
+        private final double east; // cached EastNorth to be used for applying exact displacement
+        private final double north;
         private final boolean modified;
 
         /**
@@ -72,8 +81,12 @@ public abstract class Command implements PseudoCommand {
          * @param node The node whose state has to be remembered
          */
         public OldNodeState(Node node) {
-            latLon = node.getCoor();
-            eastNorth = node.getEastNorth();
+            LatLon latLon = node.getCoor();
+            EastNorth eastNorth = node.getEastNorth();
+            lat = latLon != null ? latLon.lat() : Double.NaN;
+            lon = latLon != null ? latLon.lon() : Double.NaN;
+            east = eastNorth != null ? eastNorth.east() : Double.NaN;
+            north = eastNorth != null ? eastNorth.north() : Double.NaN;
             modified = node.isModified();
         }
 
@@ -84,7 +97,7 @@ public abstract class Command implements PseudoCommand {
          * @since 10248
          */
         public final LatLon getLatLon() {
-            return latLon;
+            return Double.isNaN(lat) || Double.isNaN(lon) ? null : new LatLon(lat, lon);
         }
 
         /**
@@ -93,7 +106,7 @@ public abstract class Command implements PseudoCommand {
          * @see Node#getEastNorth()
          */
         public final EastNorth getEastNorth() {
-            return eastNorth;
+            return Double.isNaN(east) || Double.isNaN(north) ? null : new EastNorth(east, north);
         }
 
         /**
@@ -107,7 +120,7 @@ public abstract class Command implements PseudoCommand {
 
         @Override
         public int hashCode() {
-            return Objects.hash(latLon, eastNorth, modified);
+            return Objects.hash(getLatLon(), getEastNorth(), modified);
         }
 
         @Override
@@ -116,11 +129,14 @@ public abstract class Command implements PseudoCommand {
             if (obj == null || getClass() != obj.getClass()) return false;
             OldNodeState that = (OldNodeState) obj;
             return modified == that.modified &&
-                    Objects.equals(latLon, that.latLon) &&
-                    Objects.equals(eastNorth, that.eastNorth);
+                    Objects.equals(getLatLon(), that.getLatLon()) &&
+                    Objects.equals(getEastNorth(), that.getEastNorth());
         }
     }
 
+    /** Estimated memory usage of a hash map entry, in bytes */
+    protected static final int MAP_ENTRY_MEMORY_USAGE = 48;
+
     /** the map of OsmPrimitives in the original state to OsmPrimitives in cloned state */
     private Map<OsmPrimitive, PrimitiveData> cloneMap = new HashMap<>();
 
@@ -173,6 +189,35 @@ public abstract class Command implements PseudoCommand {
         }
     }
 
+    /**
+     * Estimates the memory retained by this command to be able to undo it, in bytes.
+     * Subclasses remembering more than the original versions of the modified primitives should add their state.
+     * @return the estimated memory usage, in bytes
+     * @see org.openstreetmap.josm.data.UndoRedoHandler
+     */
+    public long estimateMemoryUsage() {
+        long result = 0;
+        for (PrimitiveData orig : cloneMap.values()) {
+            result += MAP_ENTRY_MEMORY_USAGE + estimateMemoryUsage(orig);
+        }
+        return result;
+    }
+
+    /**
+     * Estimates the memory used by the given primitive or primitive data, in bytes.
+     * @param data primitive or primitive data
+     * @return the estimated memory usage, in bytes
+     */
+    protected static long estimateMemoryUsage(IPrimitive data) {
+        long result = 80 + 16L * data.getNumKeys();
+        if (data instanceof IWay) {
+            result += 8L * ((IWay<?>) data).getNodesCount();
+        } else if (data instanceof IRelation) {
+            result += 40L * ((IRelation<?>) data).getMembersCount();
+        }
+        return result;
+    }
+
     /**
      * Lets other commands access the original version
      * of the object. Usually for undoing.
@@ -222,6 +222,15 @@ public class DeleteCommand extends Command {
         // Do nothing
     }
 
+    @Override
+    public long estimateMemoryUsage() {
+        long result = super.estimateMemoryUsage();
+        for (PrimitiveData orig : clonedPrimitives.values()) {
+            result += MAP_ENTRY_MEMORY_USAGE + estimateMemoryUsage(orig);
+        }
+        return result;
+    }
+
     private EnumSet<OsmPrimitiveType> getTypesToDelete() {
         EnumSet<OsmPrimitiveType> typesToDelete = EnumSet.noneOf(OsmPrimitiveType.class);
         for (OsmPrimitive osm : toDelete) {
@@ -273,6 +273,12 @@ public class MoveCommand extends Command {
         }
     }
 
+    @Override
+    public long estimateMemoryUsage() {
+        // the linked list entries are about as large as the states
+        return super.estimateMemoryUsage() + 2L * OldNodeState.MEMORY_USAGE * oldState.size();
+    }
+
     @Override
     public void fillModifiedData(Collection<OsmPrimitive> modified, Collection<OsmPrimitive> deleted, Collection<OsmPrimitive> added) {
         for (OsmPrimitive osm : nodes) {
@@ -132,6 +132,15 @@ public class SequenceCommand extends Command {
         return Arrays.<PseudoCommand>asList(sequence);
     }
 
+    @Override
+    public long estimateMemoryUsage() {
+        long result = super.estimateMemoryUsage();
+        for (Command c : sequence) {
+            result += c.estimateMemoryUsage();
+        }
+        return result;
+    }
+
     @Override
     public Collection<? extends OsmPrimitive> getParticipatingPrimitives() {
         Collection<OsmPrimitive> prims = new HashSet<>();
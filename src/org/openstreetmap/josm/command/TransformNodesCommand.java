@@ -102,6 +102,11 @@ public abstract class TransformNodesCommand extends Command {
         }
     }
 
+    @Override
+    public long estimateMemoryUsage() {
+        return super.estimateMemoryUsage() + (long) (MAP_ENTRY_MEMORY_USAGE + OldNodeState.MEMORY_USAGE) * oldStates.size();
+    }
+
     @Override
     public void fillModifiedData(Collection<OsmPrimitive> modified, Collection<OsmPrimitive> deleted, Collection<OsmPrimitive> added) {
     }
@@ -13,7 +13,12 @@ import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -26,6 +31,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -36,6 +42,7 @@ import javax.xml.stream.XMLStreamException;
 import org.openstreetmap.josm.data.preferences.ColorInfo;
 import org.openstreetmap.josm.data.preferences.JosmBaseDirectories;
 import org.openstreetmap.josm.data.preferences.NamedColorProperty;
+import org.openstreetmap.josm.data.preferences.PreferencesBinaryStore;
 import org.openstreetmap.josm.data.preferences.PreferencesReader;
 import org.openstreetmap.josm.data.preferences.PreferencesWriter;
 import org.openstreetmap.josm.gui.MainApplication;
@@ -46,7 +53,9 @@ import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.spi.preferences.IBaseDirectories;
 import org.openstreetmap.josm.spi.preferences.ListSetting;
 import org.openstreetmap.josm.spi.preferences.Setting;
+import org.openstreetmap.josm.spi.preferences.StringSetting;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
 import org.openstreetmap.josm.tools.ListenerList;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.PlatformManager;
@@ -72,6 +81,10 @@ import org.xml.sax.SAXException;
  * At the moment, you cannot put the empty string for string properties.
  * put(key, "") means, the property is removed.
  *
+ * The settings are saved in the preferences.xml file. To avoid parsing it at startup, they are mirrored
+ * in a binary store in the cache directory, which is used as long as it matches the content of the XML file.
+ * The cache of default values is only stored in binary form, its values are decoded on first access.
+ *
  * @author imi
  * @since 74
  */
@@ -94,17 +107,27 @@ public class Preferences extends AbstractPreferences {
      * The map must not contain null as key or value. The mapped setting objects
      * must not have a null value.
      */
-    protected final SortedMap<String, Setting<?>> settingsMap = new TreeMap<>();
+    protected final SortedMap<String, Setting<?>> settingsMap = new ConcurrentSkipListMap<>();
 
     /**
      * Maps the setting name to the default value of the setting.
      * The map must not contain null as key or value. The value of the mapped
      * setting objects can be null.
      */
-    protected final SortedMap<String, Setting<?>> defaultsMap = new TreeMap<>();
+    protected final SortedMap<String, Setting<?>> defaultsMap = new ConcurrentSkipListMap<>();
+
+    /**
+     * Default values read from the defaults cache file, which are not yet in {@link #defaultsMap}.
+     */
+    private volatile PreferencesBinaryStore defaultsStore;
+
+    /**
+     * Binary mirror of the preferences file.
+     */
+    private PreferencesBinaryStore settingsStore;
 
     private final Predicate<Entry<String, Setting<?>>> NO_DEFAULT_SETTINGS_ENTRY =
-            e -> !e.getValue().equals(defaultsMap.get(e.getKey()));
+            e -> !e.getValue().equals(getDefault(e.getKey()));
 
     /**
      * Indicates whether {@link #init(boolean)} completed successfully.
@@ -142,7 +165,7 @@ public class Preferences extends AbstractPreferences {
     public Preferences(Preferences pref) {
         this(pref.dirs);
         settingsMap.putAll(pref.settingsMap);
-        defaultsMap.putAll(pref.defaultsMap);
+        defaultsMap.putAll(pref.getAllDefaults());
     }
 
     /**
@@ -259,9 +282,21 @@ public class Preferences extends AbstractPreferences {
      * @return the cache file for default preferences
      */
     public File getDefaultsCacheFile() {
+        return new File(dirs.getCacheDirectory(true), "default_preferences.bin");
+    }
+
+    private File getLegacyDefaultsCacheFile() {
         return new File(dirs.getCacheDirectory(true), "default_preferences.xml");
     }
 
+    /**
+     * Returns the binary mirror of the user preferences file.
+     * @return the binary mirror of the user preferences file
+     */
+    private File getSettingsStoreFile() {
+        return new File(dirs.getCacheDirectory(true), "preferences.bin");
+    }
+
     /**
      * Returns the user plugin directory.
      * @return The user plugin directory
@@ -298,6 +333,7 @@ public class Preferences extends AbstractPreferences {
      * @return a map of all named colors (maps preference key to {@link ColorInfo})
      */
     public synchronized Map<String, ColorInfo> getAllNamedColors() {
+        loadAllDefaults();
         final Map<String, ColorInfo> all = new TreeMap<>();
         for (final Entry<String, Setting<?>> e : settingsMap.entrySet()) {
             if (!e.getKey().startsWith(NamedColorProperty.NAMED_COLOR_PREFIX))
@@ -330,7 +366,9 @@ public class Preferences extends AbstractPreferences {
      * @throws IOException if any I/O error occurs
      */
     public synchronized void save() throws IOException {
-        save(getPreferenceFile(), settingsMap.entrySet().stream().filter(NO_DEFAULT_SETTINGS_ENTRY), false);
+        File prefFile = getPreferenceFile();
+        save(prefFile, settingsMap.entrySet().stream().filter(NO_DEFAULT_SETTINGS_ENTRY), false);
+        saveSettingsStore(prefFile);
     }
 
     /**
@@ -338,7 +376,61 @@ public class Preferences extends AbstractPreferences {
      * @throws IOException If the file could not be saved
      */
     public synchronized void saveDefaults() throws IOException {
-        save(getDefaultsCacheFile(), defaultsMap.entrySet().stream(), true);
+        loadAllDefaults();
+        new PreferencesBinaryStore(getDefaultsCacheFile()).write(new TreeMap<>(defaultsMap), getDefaultsStamp());
+        Utils.deleteFileIfExists(getLegacyDefaultsCacheFile());
+    }
+
+    /**
+     * Updates the binary mirror of the preferences file, appending the changed settings.
+     * In case of a problem, the mirror is deleted, so that the XML file is parsed at next startup.
+     * @param prefFile the preferences file which has just been saved
+     */
+    private void saveSettingsStore(File prefFile) {
+        if (settingsStore == null) {
+            settingsStore = new PreferencesBinaryStore(getSettingsStoreFile());
+        }
+        try {
+            SortedMap<String, Setting<?>> settings = new TreeMap<>();
+            settingsMap.entrySet().stream().filter(NO_DEFAULT_SETTINGS_ENTRY).forEach(e -> settings.put(e.getKey(), e.getValue()));
+            settingsStore.update(settings, getStamp(prefFile));
+        } catch (IOException | InvalidPathException | SecurityException e) {
+            Logging.log(Logging.LEVEL_WARN, "Unable to save binary preferences " + settingsStore.getFile(), e);
+            Utils.deleteFileIfExists(settingsStore.getFile());
+            settingsStore = null;
+        }
+    }
+
+    /**
+     * Returns the stamp of the preferences file used to validate its binary mirror.
+     * @param prefFile the preferences file
+     * @return the hash of the content of the preferences file
+     * @throws IOException if any I/O error occurs while reading the file
+     */
+    private static String getStamp(File prefFile) throws IOException {
+        try {
+            return md5(Files.readAllBytes(prefFile.toPath()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Returns the stamp of the defaults cache file. The default values are registered by the code,
+     * so they are identified by the revision information of the running build.
+     * @return the hash of the revision information of the running build
+     */
+    private static String getDefaultsStamp() {
+        Version version = Version.getInstance();
+        try {
+            return md5((version.getVersion() + "\n" + version.getReleaseAttributes()).getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new JosmRuntimeException(e);
+        }
+    }
+
+    private static String md5(byte[] bytes) throws NoSuchAlgorithmException {
+        return Utils.toHexString(MessageDigest.getInstance("MD5").digest(bytes));
     }
 
     protected void save(File prefFile, Stream<Entry<String, Setting<?>>> settings, boolean defaults) throws IOException {
@@ -362,8 +454,13 @@ public class Preferences extends AbstractPreferences {
         }
 
         File tmpFile = new File(prefFile + "_tmp");
-        Utils.copyFile(tmpFile, prefFile);
-        Utils.deleteFile(tmpFile, marktr("Unable to delete temporary file {0}"));
+        try {
+            Files.move(tmpFile.toPath(), prefFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Logging.trace(e);
+            Utils.copyFile(tmpFile, prefFile);
+            Utils.deleteFile(tmpFile, marktr("Unable to delete temporary file {0}"));
+        }
 
         setCorrectPermissions(prefFile);
         setCorrectPermissions(backupFile);
@@ -395,16 +492,40 @@ public class Preferences extends AbstractPreferences {
      */
     protected void load() throws IOException, SAXException, XMLStreamException {
         File pref = getPreferenceFile();
+        String stamp = getStamp(pref);
+        PreferencesBinaryStore store = new PreferencesBinaryStore(getSettingsStoreFile());
+        if (store.load() && stamp.equals(store.getStamp())) {
+            settingsMap.clear();
+            settingsMap.putAll(store.getAll());
+            settingsStore = store;
+            int version = 0;
+            Setting<?> versionSetting = settingsMap.get("josm.version");
+            if (versionSetting instanceof StringSetting) {
+                try {
+                    version = Integer.parseInt(((StringSetting) versionSetting).getValue());
+                } catch (NumberFormatException e) {
+                    Logging.log(Logging.LEVEL_DEBUG, e);
+                }
+            }
+            removeObsolete(version);
+            return;
+        }
         PreferencesReader.validateXML(pref);
         PreferencesReader reader = new PreferencesReader(pref, false);
         reader.parse();
         settingsMap.clear();
         settingsMap.putAll(reader.getSettings());
         removeObsolete(reader.getVersion());
+        try {
+            store.write(reader.getSettings(), stamp);
+            settingsStore = store;
+        } catch (IOException | InvalidPathException | SecurityException e) {
+            Logging.log(Logging.LEVEL_WARN, "Unable to save binary preferences " + store.getFile(), e);
+        }
     }
 
     /**
-     * Loads default preferences from default settings cache file.
+     * Loads default preferences from the legacy XML default settings cache file.
      *
      * Discards entries older than {@link #MAX_AGE_DEFAULT_PREFERENCES}.
      *
@@ -413,7 +534,7 @@ public class Preferences extends AbstractPreferences {
      * @throws XMLStreamException if an XML error occurs while parsing the file (after validation)
      */
     protected void loadDefaults() throws IOException, XMLStreamException, SAXException {
-        File def = getDefaultsCacheFile();
+        File def = getLegacyDefaultsCacheFile();
         PreferencesReader.validateXML(def);
         PreferencesReader reader = new PreferencesReader(def, true);
         reader.parse();
@@ -531,15 +652,31 @@ public class Preferences extends AbstractPreferences {
             }
         }
         File def = getDefaultsCacheFile();
+        File legacyDef = getLegacyDefaultsCacheFile();
         if (def.exists()) {
+            PreferencesBinaryStore store = new PreferencesBinaryStore(def);
+            if (store.load() && getDefaultsStamp().equals(store.getStamp())) {
+                store.removeOlderThan(System.currentTimeMillis() / 1000 - MAX_AGE_DEFAULT_PREFERENCES);
+                defaultsMap.clear();
+                defaultsStore = store;
+            } else if (store.getStamp() != null) {
+                Logging.info(tr("Ignoring defaults cache file of another JOSM build: {0}", def));
+                Utils.deleteFileIfExists(def);
+            } else {
+                Logging.warn(tr("Failed to load defaults cache file: {0}", def));
+                if (!def.delete()) {
+                    Logging.warn(tr("Failed to delete faulty defaults cache file: {0}", def));
+                }
+            }
+        } else if (legacyDef.exists()) {
             try {
                 loadDefaults();
             } catch (IOException | XMLStreamException | SAXException e) {
                 Logging.error(e);
-                Logging.warn(tr("Failed to load defaults cache file: {0}", def));
+                Logging.warn(tr("Failed to load defaults cache file: {0}", legacyDef));
                 defaultsMap.clear();
-                if (!def.delete()) {
-                    Logging.warn(tr("Failed to delete faulty defaults cache file: {0}", def));
+                if (!legacyDef.delete()) {
+                    Logging.warn(tr("Failed to delete faulty defaults cache file: {0}", legacyDef));
                 }
             }
         }
@@ -588,7 +725,7 @@ public class Preferences extends AbstractPreferences {
                 settingOld = settingsMap.get(key);
                 if (setting.equals(settingOld))
                     return false;
-                if (settingOld == null && setting.equals(defaultsMap.get(key)))
+                if (settingOld == null && setting.equals(getDefault(key)))
                     return false;
                 settingCopy = setting.copy();
                 settingsMap.put(key, settingCopy);
@@ -618,7 +755,7 @@ public class Preferences extends AbstractPreferences {
      * @param def The default value to use if it was not found
      * @return The setting
      */
-    public synchronized Setting<?> getSetting(String key, Setting<?> def) {
+    public Setting<?> getSetting(String key, Setting<?> def) {
         return getSetting(key, def, Setting.class);
     }
 
@@ -633,12 +770,13 @@ public class Preferences extends AbstractPreferences {
      */
     @SuppressWarnings("unchecked")
     @Override
-    public synchronized <T extends Setting<?>> T getSetting(String key, T def, Class<T> klass) {
+    public <T extends Setting<?>> T getSetting(String key, T def, Class<T> klass) {
+        // Not synchronized, as it is called very often: both maps are concurrent and the update of the default is idempotent
         CheckParameterUtil.ensureParameterNotNull(key);
         CheckParameterUtil.ensureParameterNotNull(def);
-        Setting<?> oldDef = defaultsMap.get(key);
+        Setting<?> oldDef = getDefault(key);
         if (oldDef != null && oldDef.isNew() && oldDef.getValue() != null && def.getValue() != null && !def.equals(oldDef)) {
-            Logging.info("Defaults for " + key + " differ: " + def + " != " + defaultsMap.get(key));
+            Logging.info("Defaults for " + key + " differ: " + def + " != " + oldDef);
         }
         if (def.getValue() != null || oldDef == null) {
             Setting<?> defCopy = def.copy();
@@ -669,9 +807,43 @@ public class Preferences extends AbstractPreferences {
      * @return The map (key/setting)
      */
     public Map<String, Setting<?>> getAllDefaults() {
+        loadAllDefaults();
         return new TreeMap<>(defaultsMap);
     }
 
+    /**
+     * Returns the default value of a setting, decoding it from the defaults cache file if needed.
+     * @param key the setting key
+     * @return the default value of the setting, or {@code null} if unknown
+     */
+    Setting<?> getDefault(String key) {
+        Setting<?> def = defaultsMap.get(key);
+        PreferencesBinaryStore store = defaultsStore;
+        if (def == null && store != null) {
+            Setting<?> cached = store.get(key);
+            if (cached != null) {
+                def = defaultsMap.putIfAbsent(key, cached);
+                if (def == null) {
+                    def = cached;
+                }
+            }
+        }
+        return def;
+    }
+
+    /**
+     * Decodes all default values of the defaults cache file not yet in {@link #defaultsMap}.
+     */
+    void loadAllDefaults() {
+        PreferencesBinaryStore store = defaultsStore;
+        if (store != null) {
+            for (Entry<String, Setting<?>> e : store.getAll().entrySet()) {
+                defaultsMap.putIfAbsent(e.getKey(), e.getValue());
+            }
+            defaultsStore = null;
+        }
+    }
+
     /**
      * Replies the collection of plugin site URLs from where plugin lists can be downloaded.
      * @return the collection of plugin site URLs
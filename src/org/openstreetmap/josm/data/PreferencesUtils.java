@@ -226,7 +226,7 @@ public final class PreferencesUtils {
 
     private static List<String> getList(Preferences mainpref, String key, boolean warnUnknownDefault) {
         ListSetting existing = Utils.cast(mainpref.settingsMap.get(key), ListSetting.class);
-        ListSetting defaults = Utils.cast(mainpref.defaultsMap.get(key), ListSetting.class);
+        ListSetting defaults = Utils.cast(mainpref.getDefault(key), ListSetting.class);
         if (existing == null && defaults == null) {
             if (warnUnknownDefault) defaultUnknownWarning(key);
             return null;
@@ -239,7 +239,7 @@ public final class PreferencesUtils {
 
     private static List<List<String>> getListOfLists(Preferences mainpref, String key, boolean warnUnknownDefault) {
         ListListSetting existing = Utils.cast(mainpref.settingsMap.get(key), ListListSetting.class);
-        ListListSetting defaults = Utils.cast(mainpref.defaultsMap.get(key), ListListSetting.class);
+        ListListSetting defaults = Utils.cast(mainpref.getDefault(key), ListListSetting.class);
 
         if (existing == null && defaults == null) {
             if (warnUnknownDefault) defaultUnknownWarning(key);
@@ -366,7 +366,7 @@ public final class PreferencesUtils {
             tmp.put(e.getKey(), new MapListSetting(e.getValue()));
         }
         for (Entry<String, Setting<?>> e : tmp.entrySet()) {
-            if (e.getValue().equals(tmpPref.defaultsMap.get(e.getKey()))) continue;
+            if (e.getValue().equals(tmpPref.getDefault(e.getKey()))) continue;
             tmpPref.settingsMap.put(e.getKey(), e.getValue());
         }
     }
@@ -387,7 +387,7 @@ public final class PreferencesUtils {
         Map<String, List<Map<String, String>>> listmapMap = new TreeMap<>();
 
         if (includeDefaults) {
-            for (Map.Entry<String, Setting<?>> e: tmpPref.defaultsMap.entrySet()) {
+            for (Map.Entry<String, Setting<?>> e: tmpPref.getAllDefaults().entrySet()) {
                 Setting<?> setting = e.getValue();
                 if (setting instanceof StringSetting) {
                     stringMap.put(e.getKey(), ((StringSetting) setting).getValue());
@@ -2,8 +2,10 @@
 package org.openstreetmap.josm.data;
 
 import java.util.EventObject;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Objects;
 
 import org.openstreetmap.josm.command.Command;
@@ -31,6 +33,12 @@ public final class UndoRedoHandler {
      */
     public final LinkedList<Command> redoCommands = new LinkedList<>();
 
+    /** Estimated memory usage of the commands in {@link #commands}, in bytes */
+    private long commandsMemoryUsage;
+
+    /** Estimated memory usage of each command in {@link #commands} when it was added, as it may change later */
+    private final Map<Command, Long> commandMemoryUsages = new IdentityHashMap<>();
+
     private final LinkedList<CommandQueueListener> listenerCommands = new LinkedList<>();
     private final LinkedList<CommandQueuePreciseListener> preciseListenerCommands = new LinkedList<>();
 
@@ -246,16 +254,53 @@ public final class UndoRedoHandler {
     public void addNoRedraw(final Command c) {
         CheckParameterUtil.ensureParameterNotNull(c, "c");
         c.executeCommand();
-        commands.add(c);
+        addCommand(c);
         // Limit the number of commands in the undo list.
         // Currently you have to undo the commands one by one. If
         // this changes, a higher default value may be reasonable.
         if (commands.size() > Config.getPref().getInt("undo.max", 1000)) {
-            commands.removeFirst();
+            removeFirstCommand();
+        }
+        // Limit the memory retained by the undo list, but always keep the last command
+        long maxMemory = Config.getPref().getInt("undo.max-memory", 256) * 1024L * 1024L;
+        while (commandsMemoryUsage > maxMemory && commands.size() > 1) {
+            removeFirstCommand();
         }
         redoCommands.clear();
     }
 
+    private void addCommand(Command c) {
+        commands.add(c);
+        long usage = c.estimateMemoryUsage();
+        commandMemoryUsages.put(c, usage);
+        commandsMemoryUsage += usage;
+    }
+
+    private Command forgetCommand(Command c) {
+        Long usage = commandMemoryUsages.remove(c);
+        if (usage != null) {
+            commandsMemoryUsage -= usage;
+        }
+        return c;
+    }
+
+    private void removeFirstCommand() {
+        forgetCommand(commands.removeFirst());
+    }
+
+    private Command removeLastCommand() {
+        return forgetCommand(commands.removeLast());
+    }
+
+    /**
+     * Returns the estimated memory retained by the undo list, limited by the {@code undo.max-memory} preference (in MiB).
+     * @return the estimated memory usage, in bytes
+     * @see Command#estimateMemoryUsage()
+     */
+    public long getCommandsMemoryUsage() {
+        return commandsMemoryUsage;
+    }
+
     /**
      * Fires a commands change event after adding a command.
      * @param cmd command added
@@ -298,7 +343,7 @@ public final class UndoRedoHandler {
             }
             try {
                 for (int i = 1; i <= num; ++i) {
-                    final Command c = commands.removeLast();
+                    final Command c = removeLastCommand();
                     c.undoCommand();
                     redoCommands.addFirst(c);
                     fireEvent(new CommandUndoneEvent(UndoRedoHandler.this, c));
@@ -332,7 +377,7 @@ public final class UndoRedoHandler {
         for (int i = 0; i < num; ++i) {
             final Command c = redoCommands.removeFirst();
             c.executeCommand();
-            commands.add(c);
+            addCommand(c);
             fireEvent(new CommandRedoneEvent(this, c));
             if (redoCommands.isEmpty()) {
                 break;
@@ -360,6 +405,8 @@ public final class UndoRedoHandler {
     public void clean() {
         redoCommands.clear();
         commands.clear();
+        commandMemoryUsages.clear();
+        commandsMemoryUsage = 0;
         fireEvent(new CommandQueueCleanedEvent(this, null));
         fireCommandsChanged();
     }
@@ -374,8 +421,10 @@ public final class UndoRedoHandler {
             return;
         boolean changed = false;
         for (Iterator<Command> it = commands.iterator(); it.hasNext();) {
-            if (it.next().getAffectedDataSet() == dataSet) {
+            Command c = it.next();
+            if (c.getAffectedDataSet() == dataSet) {
                 it.remove();
+                forgetCommand(c);
                 changed = true;
             }
         }
@@ -41,6 +41,7 @@ import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
 import org.openstreetmap.josm.data.osm.event.ChangesetIdChangedEvent;
 import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
 import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.DatasetEventBatch;
 import org.openstreetmap.josm.data.osm.event.FilterChangedEvent;
 import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
 import org.openstreetmap.josm.data.osm.event.PrimitiveFlagsChangedEvent;
@@ -112,7 +113,7 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
     private static final int MAX_SINGLE_EVENTS = 30;
 
     /**
-     * Maximum number of events to kept between beginUpdate/endUpdate. When more events are created, that simple DatasetChangedEvent is sent)
+     * Maximum number of (coalesced) events to kept between beginUpdate/endUpdate. When more events are created, that simple DatasetChangedEvent is sent)
      */
     private static final int MAX_EVENTS = 1000;
 
@@ -131,7 +132,7 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
     // Number of open calls to beginUpdate
     private int updateCount;
     // Events that occurred while dataset was locked but should be fired after write lock is released
-    private final List<AbstractDatasetChangedEvent> cachedEvents = new ArrayList<>();
+    private final DatasetEventBatch cachedEvents = new DatasetEventBatch(this);
 
     private String name;
     private DownloadPolicy downloadPolicy = DownloadPolicy.NORMAL;
@@ -948,21 +949,22 @@ public final class DataSet implements OsmData<OsmPrimitive, Node, Way, Relation>
         if (updateCount > 0) {
             updateCount--;
             List<AbstractDatasetChangedEvent> eventsToFire = Collections.emptyList();
+            boolean tooManyEvents = false;
             if (updateCount == 0) {
-                eventsToFire = new ArrayList<>(cachedEvents);
-                cachedEvents.clear();
+                tooManyEvents = cachedEvents.size() >= MAX_EVENTS;
+                eventsToFire = cachedEvents.drain();
             }
 
             if (!eventsToFire.isEmpty()) {
                 lock.readLock().lock();
                 lock.writeLock().unlock();
                 try {
-                    if (eventsToFire.size() < MAX_SINGLE_EVENTS) {
+                    if (tooManyEvents) {
+                        fireEventToListeners(new DataChangedEvent(this));
+                    } else if (eventsToFire.size() < MAX_SINGLE_EVENTS) {
                         for (AbstractDatasetChangedEvent event : eventsToFire) {
                             fireEventToListeners(event);
                         }
-                    } else if (eventsToFire.size() == MAX_EVENTS) {
-                        fireEventToListeners(new DataChangedEvent(this));
                     } else {
                         fireEventToListeners(new DataChangedEvent(this, eventsToFire));
                     }
@@ -5,7 +5,10 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.awt.geom.Area;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -13,21 +16,43 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import org.openstreetmap.josm.data.DataSource;
 import org.openstreetmap.josm.data.conflict.Conflict;
 import org.openstreetmap.josm.data.conflict.ConflictCollection;
+import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * A dataset merger which takes a target and a source dataset and merges the source data set
  * onto the target dataset.
- *
+ * <p>
+ * {@link #merge(ProgressMonitor)} works in two phases. First, merge targets are looked up and copies of the source
+ * primitives missing in the target are created, in parallel and holding only the read lock of the target dataset.
+ * Then the results are applied under the write lock, which hence is held for a shorter time. Copies of new primitives
+ * are created in the second phase, so that their ids are allocated in the same order as by a sequential merge.
  */
 public class DataSetMerger {
 
+    private static final ForkJoinPool THREAD_POOL = newForkJoinPool();
+
+    /** Number of source primitives below which the preparation is not split further */
+    private static final int PREPARE_CHUNK_SIZE = 2048;
+
+    /**
+     * Size (in degrees) of the grid cells used to find new nodes with equal coordinates.
+     * Must be much larger than the tolerance of {@link LatLon#equalsEpsilon}.
+     */
+    private static final double NODE_GRID_SIZE = 1e-4;
+
     /** the collection of conflicts created during merging */
     private final ConflictCollection conflicts;
 
@@ -46,6 +71,8 @@ public class DataSetMerger {
      */
     private final Set<PrimitiveId> objectsWithChildrenToMerge;
     private final Set<OsmPrimitive> objectsToDelete;
+    /** target nodes updated from a source node, see {@link #getNewWaysOfMergedNodes} */
+    private final Set<Node> mergedNodes;
 
     /**
      * constructor
@@ -64,6 +91,255 @@ public class DataSetMerger {
         mergedMap = new HashMap<>();
         objectsWithChildrenToMerge = new HashSet<>();
         objectsToDelete = new HashSet<>();
+        mergedNodes = new HashSet<>();
+    }
+
+    private static ForkJoinPool newForkJoinPool() {
+        try {
+            return Utils.newForkJoinPool(
+                    "datasetmerger.numberOfThreads", "dataset-merger-%d", Thread.NORM_PRIORITY);
+        } catch (SecurityException e) {
+            Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+            return null;
+        }
+    }
+
+    /**
+     * Orders new primitives by creation, the earliest created (with the highest negative unique id) first.
+     */
+    private static final Comparator<OsmPrimitive> CREATION_ORDER =
+            Comparator.comparingLong(OsmPrimitive::getUniqueId).reversed();
+
+    /**
+     * Index of the new, not deleted primitives of the target dataset by interesting tags and coordinates (nodes),
+     * number of nodes (ways) or number of members (relations). Replaces the linear search for a primitive
+     * semantically equal to a new source primitive.
+     * The candidates are kept in {@link #CREATION_ORDER}, so that the merge target does not depend on the
+     * iteration order of the dataset.
+     */
+    private static final class CandidateIndex {
+        private final List<OsmPrimitive> candidates = new ArrayList<>();
+        private final Map<List<Object>, List<Integer>> buckets = new HashMap<>();
+
+        CandidateIndex(Collection<? extends OsmPrimitive> primitives) {
+            for (OsmPrimitive p : primitives) {
+                if (p.isNew() && !p.isDeleted()) {
+                    candidates.add(p);
+                }
+            }
+            candidates.sort(CREATION_ORDER);
+            for (int i = 0; i < candidates.size(); i++) {
+                OsmPrimitive p = candidates.get(i);
+                buckets.computeIfAbsent(key(p, p.getInterestingTags(), 0, 0), k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        private static List<Object> key(OsmPrimitive p, Map<String, String> tags, int dLat, int dLon) {
+            if (p instanceof Node) {
+                LatLon ll = ((Node) p).getCoor();
+                if (ll == null) {
+                    return Arrays.asList(tags, null, null);
+                }
+                return Arrays.asList(tags,
+                        (long) Math.floor(ll.lat() / NODE_GRID_SIZE) + dLat, (long) Math.floor(ll.lon() / NODE_GRID_SIZE) + dLon);
+            } else if (p instanceof Way) {
+                return Arrays.asList(tags, ((Way) p).getNodesCount());
+            } else {
+                return Arrays.asList(tags, ((Relation) p).getMembersCount());
+            }
+        }
+
+        /**
+         * Finds the earliest created candidate semantically equal to the given primitive.
+         * @param source source primitive
+         * @return the earliest created candidate semantically equal to {@code source}, or {@code null}
+         */
+        OsmPrimitive findEqual(OsmPrimitive source) {
+            Map<String, String> tags = source.getInterestingTags();
+            // equal coordinates may be in a neighbouring grid cell
+            int range = source instanceof Node && ((Node) source).getCoor() != null ? 1 : 0;
+            int best = -1;
+            for (int dLat = -range; dLat <= range; dLat++) {
+                for (int dLon = -range; dLon <= range; dLon++) {
+                    List<Integer> bucket = buckets.get(key(source, tags, dLat, dLon));
+                    if (bucket == null) {
+                        continue;
+                    }
+                    for (int i : bucket) {
+                        if (best >= 0 && i >= best) {
+                            break;
+                        }
+                        if (candidates.get(i).hasEqualSemanticAttributes(source)) {
+                            best = i;
+                            break;
+                        }
+                    }
+                }
+            }
+            return best >= 0 ? candidates.get(best) : null;
+        }
+    }
+
+    /**
+     * Merge targets of the source primitives of one type, computed before the target dataset is locked for writing.
+     * @param <T> type of primitives
+     */
+    private final class PreparedMerge<T extends OsmPrimitive> {
+        private final List<T> sources;
+        private final CandidateIndex index;
+        /** for new source primitives, the earliest created semantically equal new target primitive, if any */
+        private final OsmPrimitive[] matches;
+        /** detached copies of the source primitives which are not new and had no merge target */
+        private final OsmPrimitive[] clones;
+
+        PreparedMerge(Collection<T> sources, Collection<? extends OsmPrimitive> candidates) {
+            this.sources = new ArrayList<>(sources);
+            this.index = this.sources.stream().anyMatch(OsmPrimitive::isNew) ? new CandidateIndex(candidates) : null;
+            this.matches = new OsmPrimitive[this.sources.size()];
+            this.clones = new OsmPrimitive[this.sources.size()];
+        }
+
+        void prepare(int from, int to) {
+            for (int i = from; i < to; i++) {
+                T source = sources.get(i);
+                if (source.isNew()) {
+                    // copies of new primitives get a new id, they are created while applying the merge
+                    // so that the ids are allocated in the order of the source primitives
+                    if (!source.isDeleted()) {
+                        matches[i] = index.findEqual(source);
+                    }
+                } else if (targetDataSet.getPrimitiveById(source.getPrimitiveId()) == null) {
+                    clones[i] = createClone(source);
+                }
+            }
+        }
+
+        void prepare() {
+            if (THREAD_POOL != null && sources.size() > PREPARE_CHUNK_SIZE) {
+                THREAD_POOL.invoke(new PrepareWorker(this, 0, sources.size()));
+            } else {
+                prepare(0, sources.size());
+            }
+        }
+
+        /**
+         * Merges the source primitive at the given index, using the prepared results if they are still valid.
+         * @param i index of source primitive
+         * @param newWaysOfMergedNodes new target ways whose semantic attributes may have changed since preparation
+         */
+        void merge(int i, Collection<Way> newWaysOfMergedNodes) {
+            T source = sources.get(i);
+            if (!source.isNew()) {
+                if (!mergeById(source)) {
+                    addClone(source, clones[i] != null ? clones[i] : createClone(source));
+                }
+                return;
+            } else if (source.isDeleted()) {
+                return;
+            }
+            OsmPrimitive match = matches[i];
+            if (match != null && !isMergeCandidate(match, source)) {
+                // target dataset has been modified meanwhile
+                match = findMergeCandidate(source, index.candidates);
+            } else if (match == null) {
+                match = findMergeCandidate(source, newWaysOfMergedNodes);
+            }
+            if (match != null) {
+                mergeOnto(source, match);
+            } else {
+                addClone(source, createClone(source));
+            }
+        }
+    }
+
+    private static final class PrepareWorker extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        // Needed for Findbugs / Coverity because parent class is serializable
+        private final transient DataSetMerger.PreparedMerge<?> prepared;
+        private final int from;
+        private final int to;
+
+        PrepareWorker(DataSetMerger.PreparedMerge<?> prepared, int from, int to) {
+            this.prepared = prepared;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PREPARE_CHUNK_SIZE) {
+                prepared.prepare(from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                ForkJoinTask.invokeAll(new PrepareWorker(prepared, from, middle), new PrepareWorker(prepared, middle, to));
+            }
+        }
+    }
+
+    private boolean isMergeCandidate(OsmPrimitive target, OsmPrimitive source) {
+        return target.getDataSet() == targetDataSet && target.isNew() && !target.isDeleted()
+                && target.hasEqualSemanticAttributes(source);
+    }
+
+    private OsmPrimitive findMergeCandidate(OsmPrimitive source, Collection<? extends OsmPrimitive> candidates) {
+        for (OsmPrimitive target : candidates) {
+            if (isMergeCandidate(target, source)) {
+                return target;
+            }
+        }
+        return null;
+    }
+
+    private static OsmPrimitive createClone(OsmPrimitive source) {
+        OsmPrimitive target;
+        switch(source.getType()) {
+        case NODE: target = source.isNew() ? new Node() : new Node(source.getId()); break;
+        case WAY: target = source.isNew() ? new Way() : new Way(source.getId()); break;
+        case RELATION: target = source.isNew() ? new Relation() : new Relation(source.getId()); break;
+        default: throw new AssertionError();
+        }
+        target.mergeFrom(source);
+        return target;
+    }
+
+    private void addClone(OsmPrimitive source, OsmPrimitive target) {
+        targetDataSet.addPrimitive(target);
+        mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
+        objectsWithChildrenToMerge.add(source.getPrimitiveId());
+    }
+
+    private void mergeOnto(OsmPrimitive source, OsmPrimitive target) {
+        mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
+        // copy the technical attributes from other version
+        target.setVisible(source.isVisible());
+        target.setUser(source.getUser());
+        target.setRawTimestamp(source.getRawTimestamp());
+        target.setModified(source.isModified());
+        objectsWithChildrenToMerge.add(source.getPrimitiveId());
+    }
+
+    private void mergeFrom(OsmPrimitive target, OsmPrimitive source) {
+        target.mergeFrom(source);
+        if (target instanceof Node) {
+            mergedNodes.add((Node) target);
+        }
+    }
+
+    /**
+     * Replies the new target ways containing a node updated by the merge. Their semantic attributes may have changed
+     * since the preparation, so they are checked again for new source ways without prepared match.
+     * @return the new target ways containing a node updated by the merge
+     */
+    private Collection<Way> getNewWaysOfMergedNodes() {
+        Set<Way> result = new TreeSet<>(CREATION_ORDER);
+        for (Node n : mergedNodes) {
+            for (OsmPrimitive referrer : n.getReferrers()) {
+                if (referrer instanceof Way && referrer.isNew() && !referrer.isDeleted()) {
+                    result.add((Way) referrer);
+                }
+            }
+        }
+        return result;
     }
 
     /**
@@ -98,13 +374,7 @@ public class DataSetMerger {
                     continue;
                 }
                 if (target.hasEqualSemanticAttributes(source)) {
-                    mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
-                    // copy the technical attributes from other version
-                    target.setVisible(source.isVisible());
-                    target.setUser(source.getUser());
-                    target.setRawTimestamp(source.getRawTimestamp());
-                    target.setModified(source.isModified());
-                    objectsWithChildrenToMerge.add(source.getPrimitiveId());
+                    mergeOnto(source, target);
                     return;
                 }
             }
@@ -113,17 +383,7 @@ public class DataSetMerger {
         // If we get here we didn't find a suitable primitive in
         // the target dataset. Create a clone and add it to the target dataset.
         //
-        OsmPrimitive target;
-        switch(source.getType()) {
-        case NODE: target = source.isNew() ? new Node() : new Node(source.getId()); break;
-        case WAY: target = source.isNew() ? new Way() : new Way(source.getId()); break;
-        case RELATION: target = source.isNew() ? new Relation() : new Relation(source.getId()); break;
-        default: throw new AssertionError();
-        }
-        target.mergeFrom(source);
-        targetDataSet.addPrimitive(target);
-        mergedMap.put(source.getPrimitiveId(), target.getPrimitiveId());
-        objectsWithChildrenToMerge.add(source.getPrimitiveId());
+        addClone(source, createClone(source));
     }
 
     protected OsmPrimitive getMergeTarget(OsmPrimitive mergeSource) {
@@ -306,7 +566,7 @@ public class DataSetMerger {
             // target is incomplete, source completes it
             // => merge source into target
             //
-            target.mergeFrom(source);
+            mergeFrom(target, source);
             objectsWithChildrenToMerge.add(source.getPrimitiveId());
         } else if (!target.isIncomplete() && source.isIncomplete()) {
             // target is complete and source is incomplete
@@ -344,17 +604,17 @@ public class DataSetMerger {
         } else if (!target.isModified() && source.isModified()) {
             // target not modified. We can assume that source is the most recent version.
             // clone it into target.
-            target.mergeFrom(source);
+            mergeFrom(target, source);
             objectsWithChildrenToMerge.add(source.getPrimitiveId());
         } else if (!target.isModified() && !source.isModified() && target.getVersion() == source.getVersion()) {
             // both not modified. Merge nevertheless.
             // This helps when updating "empty" relations, see #4295
-            target.mergeFrom(source);
+            mergeFrom(target, source);
             objectsWithChildrenToMerge.add(source.getPrimitiveId());
         } else if (!target.isModified() && !source.isModified() && target.getVersion() < source.getVersion()) {
             // my not modified but other is newer. clone other onto mine.
             //
-            target.mergeFrom(source);
+            mergeFrom(target, source);
             objectsWithChildrenToMerge.add(source.getPrimitiveId());
         } else if (target.isModified() && !source.isModified() && target.getVersion() == source.getVersion()) {
             // target is same as source but target is modified
@@ -377,7 +637,7 @@ public class DataSetMerger {
             // technical attributes like timestamp or user information. Semantic
             // attributes should already be equal if we get here.
             //
-            target.mergeFrom(source);
+            mergeFrom(target, source);
             objectsWithChildrenToMerge.add(source.getPrimitiveId());
         }
         return true;
@@ -406,32 +666,25 @@ public class DataSetMerger {
         if (progressMonitor != null) {
             progressMonitor.beginTask(tr("Merging data..."), sourceDataSet.allPrimitives().size());
         }
+        PreparedMerge<Node> nodes;
+        PreparedMerge<Way> ways;
+        PreparedMerge<Relation> relations;
+        targetDataSet.getReadLock().lock();
+        try {
+            nodes = new PreparedMerge<>(sourceDataSet.getNodes(), targetDataSet.getNodes());
+            ways = new PreparedMerge<>(sourceDataSet.getWays(), targetDataSet.getWays());
+            relations = new PreparedMerge<>(sourceDataSet.getRelations(), targetDataSet.getRelations());
+            nodes.prepare();
+            ways.prepare();
+            relations.prepare();
+        } finally {
+            targetDataSet.getReadLock().unlock();
+        }
         targetDataSet.beginUpdate();
         try {
-            List<? extends OsmPrimitive> candidates = new ArrayList<>(targetDataSet.getNodes());
-            for (Node node: sourceDataSet.getNodes()) {
-                mergePrimitive(node, candidates);
-                if (progressMonitor != null) {
-                    progressMonitor.worked(1);
-                }
-            }
-            candidates.clear();
-            candidates = new ArrayList<>(targetDataSet.getWays());
-            for (Way way: sourceDataSet.getWays()) {
-                mergePrimitive(way, candidates);
-                if (progressMonitor != null) {
-                    progressMonitor.worked(1);
-                }
-            }
-            candidates.clear();
-            candidates = new ArrayList<>(targetDataSet.getRelations());
-            for (Relation relation: sourceDataSet.getRelations()) {
-                mergePrimitive(relation, candidates);
-                if (progressMonitor != null) {
-                    progressMonitor.worked(1);
-                }
-            }
-            candidates.clear();
+            applyPrepared(nodes, Collections.emptyList(), progressMonitor);
+            applyPrepared(ways, getNewWaysOfMergedNodes(), progressMonitor);
+            applyPrepared(relations, Collections.emptyList(), progressMonitor);
             fixReferences();
 
             Area a = targetDataSet.getDataSourceArea();
@@ -469,6 +722,16 @@ public class DataSetMerger {
         }
     }
 
+    private static void applyPrepared(PreparedMerge<?> prepared, Collection<Way> newWaysOfMergedNodes,
+            ProgressMonitor progressMonitor) {
+        for (int i = 0; i < prepared.sources.size(); i++) {
+            prepared.merge(i, newWaysOfMergedNodes);
+            if (progressMonitor != null) {
+                progressMonitor.worked(1);
+            }
+        }
+    }
+
     /**
      * replies my dataset
      *
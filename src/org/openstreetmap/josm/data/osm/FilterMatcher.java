@@ -121,6 +121,20 @@ public class FilterMatcher {
         return !hiddenFilters.isEmpty() || !disabledFilters.isEmpty();
     }
 
+    /**
+     * Captures the map view for the filters depending on it, before they are evaluated outside of the EDT.
+     * Must be called in the EDT.
+     * @see SearchCompiler#captureView(Match)
+     */
+    public void captureView() {
+        for (FilterInfo fi : hiddenFilters) {
+            SearchCompiler.captureView(fi.match);
+        }
+        for (FilterInfo fi : disabledFilters) {
+            SearchCompiler.captureView(fi.match);
+        }
+    }
+
     /**
      * Adds a filter to the currently used filters
      * @param filter the filter to add
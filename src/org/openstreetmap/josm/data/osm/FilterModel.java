@@ -157,34 +157,15 @@ public class FilterModel {
 
         ds.beginUpdate();
         try {
-            for (int i = 0; i < 2; i++) {
-                for (OsmPrimitive primitive: primitives) {
-
-                    if (i == 0 && primitive instanceof Node) {
-                        continue;
-                    }
-
-                    if (i == 1 && !(primitive instanceof Node)) {
-                        continue;
-                    }
-
-                    if (primitive.isDisabled()) {
-                        disabledCount--;
-                    }
-                    if (primitive.isDisabledAndHidden()) {
-                        disabledAndHiddenCount--;
-                    }
-                    changed |= FilterWorker.executeFilters(primitive, filterMatcher);
-                    if (primitive.isDisabled()) {
-                        disabledCount++;
-                    }
-                    if (primitive.isDisabledAndHidden()) {
-                        disabledAndHiddenCount++;
-                    }
-
-                    if (primitive.isSelected() && primitive.isDisabled()) {
-                        deselect.add(primitive);
-                    }
+            for (OsmPrimitive primitive: primitives) {
+                updateCounts(primitive, -1);
+            }
+            // the worker takes care of the order of evaluation (relations, ways, nodes)
+            changed = FilterWorker.executeFilters(new ArrayList<>(primitives), filterMatcher);
+            for (OsmPrimitive primitive: primitives) {
+                updateCounts(primitive, 1);
+                if (primitive.isSelected() && primitive.isDisabled()) {
+                    deselect.add(primitive);
                 }
             }
         } finally {
@@ -199,6 +180,44 @@ public class FilterModel {
         }
     }
 
+    private void updateCounts(OsmPrimitive primitive, int delta) {
+        // same as in executeFilters(): disabledCount does not include the hidden primitives
+        if (primitive.isDisabledAndHidden()) {
+            disabledAndHiddenCount += delta;
+        } else if (primitive.isDisabled()) {
+            disabledCount += delta;
+        }
+    }
+
+    /**
+     * Updates the filter state after primitives have been removed from the edit data set (deleted, purged or
+     * made incomplete). Only the primitives that depended on the removed ones are filtered again.
+     * @param removed the removed primitives
+     */
+    public void removePrimitives(Collection<? extends OsmPrimitive> removed) {
+        DataSet ds = OsmDataManager.getInstance().getEditDataSet();
+        if (ds == null)
+            return;
+
+        Collection<OsmPrimitive> affected = new ArrayList<>();
+        ds.beginUpdate();
+        try {
+            for (OsmPrimitive primitive: removed) {
+                updateCounts(primitive, -1);
+                // a removed primitive is not filtered any longer; it is filtered again if it is added back
+                primitive.unsetDisabledState();
+            }
+            for (OsmPrimitive primitive: getAffectedPrimitives(removed)) {
+                if (primitive.getDataSet() == ds && !primitive.isDeleted() && !primitive.isIncomplete()) {
+                    affected.add(primitive);
+                }
+            }
+        } finally {
+            ds.endUpdate();
+        }
+        executeFilters(affected);
+    }
+
     private static void updateMap() {
         MainApplication.getLayerManager().invalidateEditLayer();
     }
@@ -1,12 +1,18 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.osm;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.openstreetmap.josm.data.osm.FilterMatcher.FilterType;
 import org.openstreetmap.josm.data.osm.search.SearchParseError;
+import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.SubclassFilteredCollection;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Class for applying {@link Filter}s to {@link OsmPrimitive}s.
@@ -17,6 +23,29 @@ import org.openstreetmap.josm.tools.SubclassFilteredCollection;
  */
 public final class FilterWorker {
 
+    /**
+     * Minimal number of primitives of one type for which the filters are evaluated in parallel.
+     */
+    static final int PARALLEL_THRESHOLD = 1000;
+
+    private static final byte NOT_FILTERED = 0;
+    private static final byte HIDDEN_EXPLICIT = 1;
+    private static final byte HIDDEN_PASSIV = 2;
+    private static final byte DISABLED_EXPLICIT = 3;
+    private static final byte DISABLED_PASSIV = 4;
+
+    private static final ForkJoinPool THREAD_POOL = newForkJoinPool();
+
+    private static ForkJoinPool newForkJoinPool() {
+        try {
+            return Utils.newForkJoinPool(
+                    "filter.numberOfThreads", "filter-worker-%d", Thread.NORM_PRIORITY);
+        } catch (SecurityException e) {
+            Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+            return null;
+        }
+    }
+
     private FilterWorker() {
         // Hide default constructor for utils classes
     }
@@ -51,25 +80,98 @@ public final class FilterWorker {
     }
 
     private static boolean doExecuteFilters(Collection<OsmPrimitive> all, FilterMatcher filterMatcher) {
+        if (THREAD_POOL == null || all.size() < PARALLEL_THRESHOLD) {
+            boolean changed = false;
+            for (OsmPrimitive primitive: all) {
+                changed |= apply(primitive, evaluate(primitive, filterMatcher));
+            }
+            return changed;
+        }
 
+        // The filters only read the primitives (and the flags of their parents, set in a previous pass),
+        // so they can be evaluated concurrently. The flags are set afterwards in this thread, as it
+        // owns the write lock of the data set.
+        // The map view may only be read in the EDT, so filters depending on it use the view captured here.
+        filterMatcher.captureView();
+        List<OsmPrimitive> primitives = new ArrayList<>(all);
+        byte[] states = new byte[primitives.size()];
+        THREAD_POOL.invoke(new EvaluateWorker(filterMatcher, primitives, 0, primitives.size(), states,
+                Math.max(PARALLEL_THRESHOLD / 4, primitives.size() / THREAD_POOL.getParallelism() / 3)));
         boolean changed = false;
+        for (int i = 0; i < states.length; i++) {
+            changed |= apply(primitives.get(i), states[i]);
+        }
+        return changed;
+    }
 
-        for (OsmPrimitive primitive: all) {
-            FilterType hiddenType = filterMatcher.isHidden(primitive);
-            if (hiddenType != FilterType.NOT_FILTERED) {
-                changed |= primitive.setDisabledState(true);
-                primitive.setHiddenType(hiddenType == FilterType.EXPLICIT);
-            } else {
-                FilterType disabledType = filterMatcher.isDisabled(primitive);
-                if (disabledType != FilterType.NOT_FILTERED) {
-                    changed |= primitive.setDisabledState(false);
-                    primitive.setDisabledType(disabledType == FilterType.EXPLICIT);
-                } else {
-                    changed |= primitive.unsetDisabledState();
+    private static byte evaluate(OsmPrimitive primitive, FilterMatcher filterMatcher) {
+        FilterType hiddenType = filterMatcher.isHidden(primitive);
+        if (hiddenType != FilterType.NOT_FILTERED) {
+            return hiddenType == FilterType.EXPLICIT ? HIDDEN_EXPLICIT : HIDDEN_PASSIV;
+        }
+        FilterType disabledType = filterMatcher.isDisabled(primitive);
+        if (disabledType != FilterType.NOT_FILTERED) {
+            return disabledType == FilterType.EXPLICIT ? DISABLED_EXPLICIT : DISABLED_PASSIV;
+        }
+        return NOT_FILTERED;
+    }
+
+    private static boolean apply(OsmPrimitive primitive, byte state) {
+        boolean changed;
+        switch (state) {
+        case HIDDEN_EXPLICIT:
+        case HIDDEN_PASSIV:
+            changed = primitive.setDisabledState(true);
+            primitive.setHiddenType(state == HIDDEN_EXPLICIT);
+            break;
+        case DISABLED_EXPLICIT:
+        case DISABLED_PASSIV:
+            changed = primitive.setDisabledState(false);
+            primitive.setDisabledType(state == DISABLED_EXPLICIT);
+            break;
+        default:
+            changed = primitive.unsetDisabledState();
+        }
+        return changed;
+    }
+
+    /**
+     * Evaluates the filters for a range of primitives, without modifying them.
+     */
+    private static class EvaluateWorker extends RecursiveAction {
+
+        // Needed for Findbugs / Coverity because parent class is serializable
+        private static final long serialVersionUID = 1L;
+
+        private final transient FilterMatcher filterMatcher;
+        private final transient List<OsmPrimitive> input;
+        private final int from;
+        private final int to;
+        private final byte[] output;
+        private final int directExecutionTaskSize;
+
+        EvaluateWorker(FilterMatcher filterMatcher, List<OsmPrimitive> input, int from, int to, byte[] output,
+                int directExecutionTaskSize) {
+            this.filterMatcher = filterMatcher;
+            this.input = input;
+            this.from = from;
+            this.to = to;
+            this.output = output;
+            this.directExecutionTaskSize = directExecutionTaskSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= directExecutionTaskSize) {
+                for (int i = from; i < to; i++) {
+                    output[i] = evaluate(input.get(i), filterMatcher);
                 }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new EvaluateWorker(filterMatcher, input, from, mid, output, directExecutionTaskSize),
+                        new EvaluateWorker(filterMatcher, input, mid, to, output, directExecutionTaskSize));
             }
         }
-        return changed;
     }
 
     /**
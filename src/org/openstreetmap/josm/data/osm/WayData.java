@@ -1,8 +1,13 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.osm;
 
-import java.util.ArrayList;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
 
 import org.openstreetmap.josm.data.osm.visitor.PrimitiveVisitor;
 
@@ -12,8 +17,86 @@ import org.openstreetmap.josm.data.osm.visitor.PrimitiveVisitor;
  */
 public class WayData extends PrimitiveData implements IWay<NodeData> {
 
-    private static final long serialVersionUID = 106944939313286415L;
-    private List<Long> nodes = new ArrayList<>();
+    private static final long serialVersionUID = 4416016893838702415L;
+    private NodeIdList nodes = new NodeIdList(0);
+
+    /**
+     * A list of node ids backed by a primitive array, as way data is kept in large amounts
+     * (e.g. by commands for undoing), where boxed ids would take about four times the memory.
+     * Like ids, elements cannot be {@code null}: adding or setting {@code null} throws a {@link NullPointerException}.
+     */
+    private static final class NodeIdList extends AbstractList<Long> implements RandomAccess, Serializable {
+        private static final long serialVersionUID = 1L;
+        private long[] ids;
+        private int size;
+
+        NodeIdList(int capacity) {
+            ids = new long[capacity];
+        }
+
+        NodeIdList(Collection<Long> nodes) {
+            this(nodes.size());
+            for (Long id : nodes) {
+                ids[size++] = Objects.requireNonNull(id, "id");
+            }
+        }
+
+        long getId(int index) {
+            if (index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return ids[index];
+        }
+
+        @Override
+        public Long get(int index) {
+            return getId(index);
+        }
+
+        @Override
+        public Long set(int index, Long element) {
+            Objects.requireNonNull(element, "element");
+            long old = getId(index);
+            ids[index] = element;
+            return old;
+        }
+
+        @Override
+        public void add(int index, Long element) {
+            Objects.requireNonNull(element, "element");
+            if (index < 0 || index > size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(8, size + (size >> 1)));
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = element;
+            size++;
+            modCount++;
+        }
+
+        @Override
+        public Long remove(int index) {
+            long old = getId(index);
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            modCount++;
+            return old;
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            System.arraycopy(ids, toIndex, ids, fromIndex, size - toIndex);
+            size -= toIndex - fromIndex;
+            modCount++;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
 
     /**
      * Constructs a new {@code NodeData}.
@@ -37,7 +120,7 @@ public class WayData extends PrimitiveData implements IWay<NodeData> {
      */
     public WayData(WayData data) {
         super(data);
-        nodes.addAll(data.getNodeIds());
+        nodes = new NodeIdList(data.getNodeIds());
     }
 
     @Override
@@ -62,13 +145,13 @@ public class WayData extends PrimitiveData implements IWay<NodeData> {
 
     @Override
     public long getNodeId(int idx) {
-        return nodes.get(idx);
+        return nodes.getId(idx);
     }
 
     @Override
     public boolean isClosed() {
         if (isIncomplete()) return false;
-        return nodes.get(0).equals(nodes.get(nodes.size() - 1));
+        return nodes.getId(0) == nodes.getId(nodes.size() - 1);
     }
 
     @Override
@@ -82,7 +165,7 @@ public class WayData extends PrimitiveData implements IWay<NodeData> {
      * @since 13907
      */
     public void setNodeIds(List<Long> nodes) {
-        this.nodes = new ArrayList<>(nodes);
+        this.nodes = new NodeIdList(nodes);
     }
 
     @Override
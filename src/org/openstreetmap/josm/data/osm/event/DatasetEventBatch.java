@@ -0,0 +1,133 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent.DatasetEventType;
+
+/**
+ * Collects the events of a data set, coalescing them so that listeners get a compact view of the changes:
+ * <ul>
+ * <li>subsequent {@link PrimitivesAddedEvent}s (resp. {@link PrimitivesRemovedEvent}s) are merged into one event</li>
+ * <li>repeated changes of the same kind of the same primitive ({@link NodeMovedEvent}, {@link TagsChangedEvent},
+ * {@link WayNodesChangedEvent}, {@link RelationMembersChangedEvent}, {@link PrimitiveFlagsChangedEvent})
+ * are only reported once. Listeners read the current state of the primitive anyway, and
+ * {@link TagsChangedEvent#getOriginalKeys()} of the first event are the keys before all changes.</li>
+ * </ul>
+ * Events of other types are kept as they are. This class is not thread-safe.
+ * @see DataSet#endUpdate()
+ */
+public final class DatasetEventBatch {
+
+    private final DataSet dataSet;
+    private final List<AbstractDatasetChangedEvent> events = new ArrayList<>();
+    /** primitives of which a change of the given type has already been reported */
+    private final Map<DatasetEventType, Set<OsmPrimitive>> changed = new EnumMap<>(DatasetEventType.class);
+
+    // primitives added (resp. removed) since the last event of another type, materialized in flush()
+    private DatasetEventType pendingType;
+    private boolean pendingFlag;
+    private final List<OsmPrimitive> pending = new ArrayList<>();
+
+    /**
+     * Constructs a new {@code DatasetEventBatch}.
+     * @param dataSet the data set of the events
+     */
+    public DatasetEventBatch(DataSet dataSet) {
+        this.dataSet = dataSet;
+    }
+
+    /**
+     * Adds an event. The events of a {@link DataChangedEvent} are added one by one.
+     * @param event the event to add
+     */
+    public void add(AbstractDatasetChangedEvent event) {
+        if (event instanceof DataChangedEvent && ((DataChangedEvent) event).getEvents() != null) {
+            for (AbstractDatasetChangedEvent e : ((DataChangedEvent) event).getEvents()) {
+                add(e);
+            }
+        } else if (event instanceof PrimitivesAddedEvent) {
+            addPending(DatasetEventType.PRIMITIVES_ADDED, ((PrimitivesAddedEvent) event).wasIncomplete(), event);
+        } else if (event instanceof PrimitivesRemovedEvent) {
+            addPending(DatasetEventType.PRIMITIVES_REMOVED, ((PrimitivesRemovedEvent) event).wasComplete(), event);
+        } else if (isPerPrimitive(event)) {
+            OsmPrimitive primitive = event.getPrimitives().iterator().next();
+            if (changed.computeIfAbsent(event.getType(), t -> new HashSet<>()).add(primitive)) {
+                flush();
+                events.add(event);
+            }
+        } else {
+            flush();
+            events.add(event);
+        }
+    }
+
+    private static boolean isPerPrimitive(AbstractDatasetChangedEvent event) {
+        return (event instanceof NodeMovedEvent
+                || event instanceof TagsChangedEvent
+                || event instanceof WayNodesChangedEvent
+                || event instanceof RelationMembersChangedEvent
+                || event instanceof PrimitiveFlagsChangedEvent)
+                && event.getPrimitives().size() == 1;
+    }
+
+    private void addPending(DatasetEventType type, boolean flag, AbstractDatasetChangedEvent event) {
+        if (pendingType != type || pendingFlag != flag) {
+            flush();
+            pendingType = type;
+            pendingFlag = flag;
+        }
+        pending.addAll(event.getPrimitives());
+        // a primitive added or removed again may change again, report it
+        changed.clear();
+    }
+
+    private void flush() {
+        if (pendingType == DatasetEventType.PRIMITIVES_ADDED) {
+            events.add(new PrimitivesAddedEvent(dataSet, pending, pendingFlag));
+        } else if (pendingType == DatasetEventType.PRIMITIVES_REMOVED) {
+            events.add(new PrimitivesRemovedEvent(dataSet, pending, pendingFlag));
+        }
+        pendingType = null;
+        pending.clear();
+    }
+
+    /**
+     * Returns the number of coalesced events.
+     * @return the number of coalesced events
+     */
+    public int size() {
+        return events.size() + (pendingType != null ? 1 : 0);
+    }
+
+    /**
+     * Determines if no event has been added.
+     * @return {@code true} if no event has been added
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the coalesced events and clears this batch.
+     * @return the coalesced events, in the order they have been added
+     */
+    public List<AbstractDatasetChangedEvent> drain() {
+        flush();
+        if (events.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<AbstractDatasetChangedEvent> result = new ArrayList<>(events);
+        events.clear();
+        changed.clear();
+        return result;
+    }
+}
@@ -1,8 +1,6 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.osm.event;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Queue;
@@ -35,59 +33,37 @@ public class DatasetEventManager implements ActiveLayerChangeListener, Listener
         public void run() {
             while (!eventsInEDT.isEmpty()) {
                 DataSet dataSet = null;
-                AbstractDatasetChangedEvent consolidatedEvent = null;
+                // Dataset was completely changed, we can ignore older and newer events of the same data set
+                DataChangedEvent dataSetChangedEvent = null;
+                DatasetEventBatch batch = null;
                 AbstractDatasetChangedEvent event;
 
                 while ((event = eventsInEDT.poll()) != null) {
                     fireEvents(inEDTListeners, event);
 
                     // DataSet changed - fire consolidated event early
-                    if (consolidatedEvent != null && dataSet != event.getDataset()) {
-                        fireConsolidatedEvents(inEDTListeners, consolidatedEvent);
-                        consolidatedEvent = null;
+                    if (dataSet != event.getDataset()) {
+                        fireConsolidatedEvents(inEDTListeners, dataSet, dataSetChangedEvent, batch);
+                        dataSetChangedEvent = null;
+                        batch = null;
                     }
 
                     dataSet = event.getDataset();
 
                     // Build consolidated event
-                    if (event instanceof DataChangedEvent) {
-                        // DataChangeEvent can contains other events, so it gets special handling
-                        DataChangedEvent dataEvent = (DataChangedEvent) event;
-                        if (dataEvent.getEvents() == null) {
-                            consolidatedEvent = dataEvent; // Dataset was completely changed, we can ignore older events
-                        } else {
-                            if (consolidatedEvent == null) {
-                                consolidatedEvent = new DataChangedEvent(dataSet, dataEvent.getEvents());
-                            } else if (consolidatedEvent instanceof DataChangedEvent) {
-                                List<AbstractDatasetChangedEvent> evts = ((DataChangedEvent) consolidatedEvent).getEvents();
-                                if (evts != null) {
-                                    evts.addAll(dataEvent.getEvents());
-                                }
-                            } else {
-                                AbstractDatasetChangedEvent oldConsolidateEvent = consolidatedEvent;
-                                consolidatedEvent = new DataChangedEvent(dataSet, dataEvent.getEvents());
-                                ((DataChangedEvent) consolidatedEvent).getEvents().add(oldConsolidateEvent);
-                            }
-                        }
-                    } else {
-                        // Normal events
-                        if (consolidatedEvent == null) {
-                            consolidatedEvent = event;
-                        } else if (consolidatedEvent instanceof DataChangedEvent) {
-                            List<AbstractDatasetChangedEvent> evs = ((DataChangedEvent) consolidatedEvent).getEvents();
-                            if (evs != null) {
-                                evs.add(event);
-                            }
-                        } else {
-                            consolidatedEvent = new DataChangedEvent(dataSet, new ArrayList<>(Arrays.asList(consolidatedEvent)));
+                    if (event instanceof DataChangedEvent && ((DataChangedEvent) event).getEvents() == null) {
+                        dataSetChangedEvent = (DataChangedEvent) event;
+                        batch = null;
+                    } else if (dataSetChangedEvent == null) {
+                        if (batch == null) {
+                            batch = new DatasetEventBatch(dataSet);
                         }
+                        batch.add(event);
                     }
                 }
 
                 // Fire consolidated event
-                if (consolidatedEvent != null) {
-                    fireConsolidatedEvents(inEDTListeners, consolidatedEvent);
-                }
+                fireConsolidatedEvents(inEDTListeners, dataSet, dataSetChangedEvent, batch);
             }
         }
     }
@@ -201,6 +177,16 @@ public class DatasetEventManager implements ActiveLayerChangeListener, Listener
         }
     }
 
+    private static void fireConsolidatedEvents(List<ListenerInfo> listeners, DataSet dataSet,
+            DataChangedEvent dataSetChangedEvent, DatasetEventBatch batch) {
+        if (dataSetChangedEvent != null) {
+            fireConsolidatedEvents(listeners, dataSetChangedEvent);
+        } else if (batch != null) {
+            List<AbstractDatasetChangedEvent> events = batch.drain();
+            fireConsolidatedEvents(listeners, events.size() == 1 ? events.get(0) : new DataChangedEvent(dataSet, events));
+        }
+    }
+
     private static void fireConsolidatedEvents(List<ListenerInfo> listeners, AbstractDatasetChangedEvent event) {
         for (ListenerInfo listener: listeners) {
             if (listener.consolidate) {
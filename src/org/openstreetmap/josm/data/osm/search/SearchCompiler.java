@@ -12,10 +12,12 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -24,6 +26,7 @@ import java.util.stream.Collectors;
 
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
@@ -1782,6 +1785,18 @@ public class SearchCompiler {
         }
     }
 
+    /**
+     * A search criterion depending on the map view, which may only be accessed in the EDT.
+     * The view is captured by {@link #captureView()} before the criterion is evaluated in other threads.
+     * @see SearchCompiler#captureView(Match)
+     */
+    public interface ViewDependentMatch {
+        /**
+         * Captures the state of the map view this criterion depends on. Must be called in the EDT.
+         */
+        void captureView();
+    }
+
     /**
      * Matches objects within the given bounds.
      */
@@ -1963,6 +1978,23 @@ public class SearchCompiler {
         }
     }
 
+    /**
+     * Captures the map view for all criteria of the given search expression depending on it,
+     * before the expression is evaluated outside of the EDT. Must be called in the EDT.
+     * @param match the compiled search expression
+     * @see ViewDependentMatch
+     */
+    public static void captureView(Match match) {
+        if (match instanceof ViewDependentMatch) {
+            ((ViewDependentMatch) match).captureView();
+        } else if (match instanceof UnaryMatch) {
+            captureView(((UnaryMatch) match).getOperand());
+        } else if (match instanceof AbstractBinaryMatch) {
+            captureView(((AbstractBinaryMatch) match).getLhs());
+            captureView(((AbstractBinaryMatch) match).getRhs());
+        }
+    }
+
     /**
      * Compiles the search expression.
      * @param searchStr the search expression
@@ -2013,6 +2045,166 @@ public class SearchCompiler {
         }
     }
 
+    /**
+     * Returns the primitives of the data set which may match the given criterion, using the {@link SearchIndex}
+     * of the data set. Only the tag criteria, combined with {@code AND} and {@code OR}, can be answered by the index;
+     * the criterion has still to be checked on the returned primitives.
+     * @param m the criterion
+     * @param ds the data set
+     * @return a superset of the primitives of the data set matching the criterion,
+     * or {@code null} if the index does not allow to restrict the search
+     */
+    public static Set<OsmPrimitive> getCandidates(Match m, DataSet ds) {
+        SearchIndex index = SearchIndex.get(ds);
+        return index != null ? getCandidates(m, index) : null;
+    }
+
+    private static Set<OsmPrimitive> getCandidates(Match m, SearchIndex index) {
+        if (m instanceof And) {
+            Set<OsmPrimitive> lhs = getCandidates(((And) m).getLhs(), index);
+            Set<OsmPrimitive> rhs = getCandidates(((And) m).getRhs(), index);
+            if (lhs == null || rhs == null) {
+                return lhs == null ? rhs : lhs;
+            }
+            Set<OsmPrimitive> smaller = lhs.size() <= rhs.size() ? lhs : rhs;
+            smaller.retainAll(smaller == lhs ? rhs : lhs);
+            return smaller;
+        } else if (m instanceof Or) {
+            Set<OsmPrimitive> lhs = getCandidates(((Or) m).getLhs(), index);
+            Set<OsmPrimitive> rhs = lhs != null ? getCandidates(((Or) m).getRhs(), index) : null;
+            if (lhs == null || rhs == null) {
+                return null;
+            }
+            lhs.addAll(rhs);
+            return lhs;
+        } else if (m instanceof Never) {
+            return new HashSet<>();
+        } else if (m instanceof ExactKeyValue) {
+            return getCandidates((ExactKeyValue) m, index);
+        } else if (m instanceof KeyValue) {
+            return getCandidates((KeyValue) m, index);
+        } else if (m instanceof Any) {
+            return getCandidates((Any) m, index);
+        }
+        return null;
+    }
+
+    private static Set<OsmPrimitive> getCandidates(ExactKeyValue m, SearchIndex index) {
+        switch (m.mode) {
+        case EXACT:
+            return index.get(m.key, m.value);
+        case ANY_VALUE:
+            return index.get(m.key, v -> true);
+        case ANY_KEY:
+            return index.get(k -> true, m.value::equals);
+        case EXACT_REGEXP:
+            return index.get(k -> m.keyPattern.matcher(k).matches(), getRequiredLiteral(m.value),
+                    v -> m.valuePattern.matcher(v).matches());
+        case ANY_VALUE_REGEXP:
+            return index.get(k -> m.keyPattern.matcher(k).matches(), v -> true);
+        case ANY_KEY_REGEXP:
+            return index.get(k -> true, getRequiredLiteral(m.value), v -> m.valuePattern.matcher(v).matches());
+        default:
+            // untagged primitives may match
+            return null;
+        }
+    }
+
+    private static Set<OsmPrimitive> getCandidates(KeyValue m, SearchIndex index) {
+        if (m.keyPattern != null) {
+            return index.get(k -> m.keyPattern.matcher(k).find(), getRequiredLiteral(m.value),
+                    v -> m.valuePattern.matcher(v).find());
+        } else if ("timestamp".equals(m.key)) {
+            return null;
+        }
+        String value = Normalizer.normalize(m.caseSensitive ? m.value : m.value.toLowerCase(Locale.ENGLISH), Normalizer.Form.NFC);
+        Predicate<String> valuePredicate = v -> Normalizer.normalize(m.caseSensitive ? v : v.toLowerCase(Locale.ENGLISH),
+                Normalizer.Form.NFC).contains(value);
+        return index.get(m.caseSensitive ? m.key::equals : m.key::equalsIgnoreCase, value, valuePredicate);
+    }
+
+    private static Set<OsmPrimitive> getCandidates(Any m, SearchIndex index) {
+        if (m.search.isEmpty()) {
+            // untagged primitives match
+            return null;
+        }
+        Set<OsmPrimitive> result;
+        if (m.searchRegex != null) {
+            result = index.get(k -> m.searchRegex.matcher(k).find(), v -> true);
+            result.addAll(index.get(k -> true, getRequiredLiteral(m.searchRegex.pattern()),
+                    v -> m.searchRegex.matcher(Normalizer.normalize(v, Normalizer.Form.NFC)).find()));
+        } else {
+            result = index.get(k -> (m.caseSensitive ? k : k.toLowerCase(Locale.ENGLISH)).contains(m.search), v -> true);
+            result.addAll(index.get(k -> true, m.search, v -> Normalizer.normalize(m.caseSensitive ? v : v.toLowerCase(Locale.ENGLISH),
+                    Normalizer.Form.NFC).contains(m.search)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns a literal string which is part of every match of the given regular expression, if it can be
+     * determined easily. Only ASCII characters are considered, so that the result does not depend on the
+     * case-insensitive and canonical equivalence flags of {@link #regexFlags}.
+     * @param regex the regular expression
+     * @return the longest literal part of the regular expression which is not optional,
+     * or {@code null} if there is none or if the expression contains alternatives, flags or quotations
+     */
+    static String getRequiredLiteral(String regex) {
+        if (regex.indexOf('|') >= 0 || regex.contains("(?") || regex.contains("\\Q")) {
+            return null;
+        }
+        String best = "";
+        StringBuilder current = new StringBuilder();
+        int depth = 0;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\' && i + 1 < regex.length()) {
+                char next = regex.charAt(++i);
+                if (depth == 0 && next < 128 && !Character.isLetterOrDigit(next)) {
+                    current.append(next);
+                    continue;
+                } else if (Character.isLetterOrDigit(next) && "dDsSwWbBAGZzhHvVRX".indexOf(next) < 0) {
+                    // character codes, properties, back references: followed by characters which are not literals
+                    return null;
+                }
+            } else if (c == '[') {
+                // skip the character class
+                for (i++; i < regex.length() && (regex.charAt(i) != ']' || regex.charAt(i - 1) == '['
+                        || regex.charAt(i - 1) == '\\' || (regex.charAt(i - 1) == '^' && regex.charAt(i - 2) == '[')); i++) {
+                    if (regex.charAt(i) == '[' && regex.charAt(i - 1) != '\\') {
+                        return null;
+                    }
+                }
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '*' || c == '?' || c == '{') {
+                // the previous character is optional
+                if (current.length() > 0) {
+                    current.setLength(current.length() - 1);
+                }
+                if (c == '{') {
+                    i = regex.indexOf('}', i);
+                    if (i < 0) {
+                        return null;
+                    }
+                }
+            } else if (depth == 0 && c < 128 && ".^$+".indexOf(c) < 0) {
+                current.append(c);
+                continue;
+            }
+            if (current.length() > best.length()) {
+                best = current.toString();
+            }
+            current.setLength(0);
+        }
+        if (current.length() > best.length()) {
+            best = current.toString();
+        }
+        return best.length() >= 3 ? best : null;
+    }
+
     /**
      * Parse search string.
      *
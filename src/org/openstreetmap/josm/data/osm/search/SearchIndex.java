@@ -0,0 +1,326 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.search;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Predicate;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+
+/**
+ * Secondary index of the tags of the primitives of a data set (key &rarr; value &rarr; primitives).
+ * The distinct values are indexed by their trigrams, to speed up substring and regular expression searches.
+ * <p>
+ * The index of a data set is built on first use and then maintained incrementally from the data set events.
+ * It is used by {@link SearchCompiler#getCandidates} to restrict a search to the primitives which may match.
+ * Deleted and incomplete primitives are indexed as well, as long as they belong to the data set.
+ */
+public final class SearchIndex implements DataSetListener {
+
+    /**
+     * Whether searches use an index of the tags of the data set.
+     */
+    public static final BooleanProperty USE_INDEX = new BooleanProperty("search.index", true);
+
+    /**
+     * Minimal number of primitives of a data set for which an index is built.
+     */
+    public static final IntegerProperty MIN_SIZE = new IntegerProperty("search.index.min-size", 10_000);
+
+    // the index must not reference the data set, it is registered as listener of it
+    private static final Map<DataSet, SearchIndex> INDEXES = new WeakHashMap<>();
+
+    /** key &rarr; value &rarr; primitive, or set of primitives if there are several ones */
+    private final Map<String, Map<String, Object>> tags = new HashMap<>();
+    /** the distinct values of {@link #tags} */
+    private final TrigramIndex valueIndex = new TrigramIndex();
+    private boolean valid;
+
+    private SearchIndex() {
+        // Use get()
+    }
+
+    /**
+     * Returns the up-to-date index of the given data set, creating it if needed.
+     * @param ds the data set
+     * @return the index of the data set, or {@code null} if the index is disabled or the data set is too small
+     */
+    public static SearchIndex get(DataSet ds) {
+        SearchIndex index;
+        synchronized (INDEXES) {
+            if (!USE_INDEX.get()) {
+                return null;
+            }
+            index = INDEXES.get(ds);
+            if (index == null) {
+                if (ds.allPrimitives().size() < MIN_SIZE.get()) {
+                    return null;
+                }
+                index = new SearchIndex();
+                INDEXES.put(ds, index);
+                ds.addDataSetListener(index);
+            }
+        }
+        ds.getReadLock().lock();
+        try {
+            index.build(ds);
+        } finally {
+            ds.getReadLock().unlock();
+        }
+        return index;
+    }
+
+    private synchronized void build(DataSet ds) {
+        if (!valid) {
+            tags.clear();
+            valueIndex.clear();
+            for (OsmPrimitive p : ds.allPrimitives()) {
+                add(p, p.getKeys());
+            }
+            valid = true;
+        }
+    }
+
+    private void add(OsmPrimitive p, Map<String, String> keys) {
+        for (Entry<String, String> e : keys.entrySet()) {
+            Map<String, Object> primitives = tags.computeIfAbsent(e.getKey(), k -> new HashMap<>());
+            if (!primitives.containsKey(e.getValue())) {
+                valueIndex.add(e.getValue());
+            }
+            primitives.merge(e.getValue(), p, SearchIndex::merge);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object merge(Object current, Object added) {
+        if (current instanceof Set) {
+            ((Set<Object>) current).add(added);
+            return current;
+        } else if (current == added) {
+            return current;
+        }
+        // primitives are compared by identity, as their id (hence their hash code) changes on upload
+        Set<Object> set = Collections.newSetFromMap(new IdentityHashMap<>(4));
+        set.add(current);
+        set.add(added);
+        return set;
+    }
+
+    private void remove(OsmPrimitive p, Map<String, String> keys) {
+        for (Entry<String, String> e : keys.entrySet()) {
+            Map<String, Object> primitives = tags.get(e.getKey());
+            if (primitives != null && primitives.containsKey(e.getValue())) {
+                if (primitives.computeIfPresent(e.getValue(), (v, current) -> {
+                    if (current instanceof Set) {
+                        Set<?> set = (Set<?>) current;
+                        set.remove(p);
+                        return set.size() == 1 ? set.iterator().next() : set;
+                    }
+                    return current == p ? null : current;
+                }) == null) {
+                    valueIndex.remove(e.getValue());
+                }
+                if (primitives.isEmpty()) {
+                    tags.remove(e.getKey());
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addTo(Set<OsmPrimitive> result, Object primitives) {
+        if (primitives instanceof Set) {
+            result.addAll((Set<OsmPrimitive>) primitives);
+        } else if (primitives != null) {
+            result.add((OsmPrimitive) primitives);
+        }
+    }
+
+    /**
+     * Returns the primitives having the given tag.
+     * @param key the key
+     * @param value the value
+     * @return the primitives having the given tag
+     */
+    public synchronized Set<OsmPrimitive> get(String key, String value) {
+        Map<String, Object> values = tags.get(key);
+        if (values == null) {
+            return new HashSet<>();
+        }
+        Set<OsmPrimitive> result = new HashSet<>();
+        addTo(result, values.get(value));
+        return result;
+    }
+
+    /**
+     * Returns the primitives having a tag with the given key and a value accepted by the given predicate.
+     * @param key the key
+     * @param valuePredicate the predicate on values
+     * @return the primitives having a matching tag
+     */
+    public synchronized Set<OsmPrimitive> get(String key, Predicate<String> valuePredicate) {
+        Map<String, Object> values = tags.get(key);
+        if (values == null) {
+            return new HashSet<>();
+        }
+        Set<OsmPrimitive> result = new HashSet<>();
+        for (Entry<String, Object> e : values.entrySet()) {
+            if (valuePredicate.test(e.getKey())) {
+                addTo(result, e.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the primitives having a tag with a key and a value accepted by the given predicates.
+     * @param keyPredicate the predicate on keys
+     * @param valuePredicate the predicate on values
+     * @return the primitives having a matching tag
+     */
+    public synchronized Set<OsmPrimitive> get(Predicate<String> keyPredicate, Predicate<String> valuePredicate) {
+        Set<OsmPrimitive> result = new HashSet<>();
+        for (Entry<String, Map<String, Object>> k : tags.entrySet()) {
+            if (keyPredicate.test(k.getKey())) {
+                for (Entry<String, Object> v : k.getValue().entrySet()) {
+                    if (valuePredicate.test(v.getKey())) {
+                        addTo(result, v.getValue());
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the primitives having a tag with a key and a value accepted by the given predicates.
+     * The values are looked up in an index of their trigrams if a substring of all accepted values is known.
+     * @param keyPredicate the predicate on keys
+     * @param substring a substring of all the values accepted by {@code valuePredicate} (ignoring case, in raw,
+     * NFC-normalized or lower-cased NFC-normalized form of the values), or {@code null} if unknown
+     * @param valuePredicate the predicate on values
+     * @return the primitives having a matching tag
+     */
+    public synchronized Set<OsmPrimitive> get(Predicate<String> keyPredicate, String substring, Predicate<String> valuePredicate) {
+        Set<String> candidates = substring != null ? valueIndex.getCandidates(substring) : null;
+        if (candidates == null) {
+            return get(keyPredicate, valuePredicate);
+        }
+        Set<OsmPrimitive> result = new HashSet<>();
+        for (Entry<String, Map<String, Object>> k : tags.entrySet()) {
+            if (keyPredicate.test(k.getKey())) {
+                Map<String, Object> primitives = k.getValue();
+                if (candidates.size() < primitives.size()) {
+                    for (String v : candidates) {
+                        Object p = primitives.get(v);
+                        if (p != null && valuePredicate.test(v)) {
+                            addTo(result, p);
+                        }
+                    }
+                } else {
+                    for (Entry<String, Object> v : primitives.entrySet()) {
+                        if (candidates.contains(v.getKey()) && valuePredicate.test(v.getKey())) {
+                            addTo(result, v.getValue());
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private synchronized void handle(AbstractDatasetChangedEvent event) {
+        if (!valid) {
+            return;
+        }
+        if (event instanceof DataChangedEvent) {
+            Collection<AbstractDatasetChangedEvent> events = ((DataChangedEvent) event).getEvents();
+            if (events == null) {
+                // rebuilt on next use
+                valid = false;
+                tags.clear();
+                valueIndex.clear();
+            } else {
+                for (AbstractDatasetChangedEvent e : events) {
+                    handle(e);
+                }
+            }
+        } else if (event instanceof PrimitivesAddedEvent) {
+            for (OsmPrimitive p : event.getPrimitives()) {
+                add(p, p.getKeys());
+            }
+        } else if (event instanceof PrimitivesRemovedEvent) {
+            for (OsmPrimitive p : event.getPrimitives()) {
+                // deleted or incomplete primitives stay in the data set
+                if (p.getDataSet() != event.getDataset()) {
+                    remove(p, p.getKeys());
+                }
+            }
+        } else if (event instanceof TagsChangedEvent) {
+            OsmPrimitive p = ((TagsChangedEvent) event).getPrimitive();
+            remove(p, ((TagsChangedEvent) event).getOriginalKeys());
+            if (p.getDataSet() == event.getDataset()) {
+                add(p, p.getKeys());
+            }
+        }
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        handle(event);
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        handle(event);
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        handle(event);
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // Do nothing
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        handle(event);
+    }
+}
@@ -0,0 +1,209 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of strings by their trigrams (substrings of three characters), to find the strings containing a given
+ * substring without testing all of them. This class is not thread-safe.
+ * <p>
+ * Strings are compared after {@linkplain #fold folding} of their characters. A string is indexed under the trigrams
+ * of its raw, NFC-normalized and lower-cased NFC-normalized forms, so that the searches of {@link SearchCompiler}
+ * (which use these forms) find it. The index may return strings which do not contain the substring, never
+ * the other way round.
+ */
+final class TrigramIndex {
+
+    private static final int MIN_LENGTH = 3;
+
+    /** number of times a string has been added, and its id */
+    private final Map<String, int[]> usages = new HashMap<>();
+    /** indexed strings by id, {@code null} for unused ids */
+    private final List<String> strings = new ArrayList<>();
+    private final List<Integer> freeIds = new ArrayList<>();
+    /** trigram &rarr; ids of the strings containing it. Ids are not removed, but may be reused for other strings */
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private int stalePostings;
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * Folds a character for case-insensitive comparison, like {@link java.util.regex.Pattern#UNICODE_CASE} does.
+     * @param c the character
+     * @return the folded character
+     */
+    static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Folds all characters of a string.
+     * @param s the string
+     * @return the folded string, of the same length
+     */
+    static String fold(String s) {
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = fold(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static Set<Long> getTrigrams(String s) {
+        Set<Long> result = new HashSet<>();
+        addTrigrams(result, s);
+        String normalized = Normalizer.normalize(s, Normalizer.Form.NFC);
+        addTrigrams(result, normalized);
+        addTrigrams(result, Normalizer.normalize(s.toLowerCase(Locale.ENGLISH), Normalizer.Form.NFC));
+        return result;
+    }
+
+    private static void addTrigrams(Set<Long> result, String s) {
+        for (int i = 0; i + MIN_LENGTH <= s.length(); i++) {
+            result.add(trigram(s, i));
+        }
+    }
+
+    private static long trigram(String s, int i) {
+        return ((long) fold(s.charAt(i)) << 32) | ((long) fold(s.charAt(i + 1)) << 16) | fold(s.charAt(i + 2));
+    }
+
+    /**
+     * Adds a string. Strings are reference-counted, each call must be matched by a call to {@link #remove}.
+     * @param s the string
+     */
+    void add(String s) {
+        int[] usage = usages.get(s);
+        if (usage != null) {
+            usage[0]++;
+            return;
+        }
+        int id;
+        if (freeIds.isEmpty()) {
+            id = strings.size();
+            strings.add(s);
+        } else {
+            id = freeIds.remove(freeIds.size() - 1);
+            strings.set(id, s);
+        }
+        usages.put(s, new int[] {1, id});
+        post(s, id);
+    }
+
+    private void post(String s, int id) {
+        for (Long trigram : getTrigrams(s)) {
+            postings.computeIfAbsent(trigram, t -> new IntList()).add(id);
+        }
+    }
+
+    /**
+     * Removes a string added before.
+     * @param s the string
+     */
+    void remove(String s) {
+        int[] usage = usages.get(s);
+        if (usage == null || --usage[0] > 0) {
+            return;
+        }
+        usages.remove(s);
+        strings.set(usage[1], null);
+        freeIds.add(usage[1]);
+        stalePostings += s.length();
+        if (stalePostings > Math.max(10_000, 4 * usages.size())) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        postings.clear();
+        freeIds.clear();
+        for (int id = 0; id < strings.size(); id++) {
+            String s = strings.get(id);
+            if (s != null) {
+                post(s, id);
+            } else {
+                freeIds.add(id);
+            }
+        }
+        stalePostings = 0;
+    }
+
+    /**
+     * Removes all strings.
+     */
+    void clear() {
+        usages.clear();
+        strings.clear();
+        freeIds.clear();
+        postings.clear();
+        stalePostings = 0;
+    }
+
+    /**
+     * Returns the indexed strings which may contain the given substring (after folding).
+     * @param substring the substring
+     * @return a superset of the indexed strings containing the substring,
+     * or {@code null} if the substring is too short to use the index
+     */
+    Set<String> getCandidates(String substring) {
+        if (substring.length() < MIN_LENGTH) {
+            return null;
+        }
+        List<IntList> lists = new ArrayList<>();
+        for (int i = 0; i + MIN_LENGTH <= substring.length(); i++) {
+            IntList list = postings.get(trigram(substring, i));
+            if (list == null) {
+                return new HashSet<>();
+            }
+            lists.add(list);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        BitSet ids = toBitSet(lists.get(0));
+        for (int i = 1; i < lists.size() && !ids.isEmpty(); i++) {
+            ids.and(toBitSet(lists.get(i)));
+        }
+        Set<String> result = new HashSet<>();
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            String s = strings.get(id);
+            if (s != null) {
+                result.add(s);
+            }
+        }
+        return result;
+    }
+
+    private static BitSet toBitSet(IntList list) {
+        BitSet result = new BitSet();
+        for (int i = 0; i < list.size; i++) {
+            result.set(list.values[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of indexed strings.
+     * @return the number of indexed strings
+     */
+    int size() {
+        return usages.size();
+    }
+}
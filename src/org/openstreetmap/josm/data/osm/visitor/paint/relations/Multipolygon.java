@@ -506,6 +506,9 @@ public class Multipolygon {
 
     private boolean incomplete;
 
+    /** time of the last look-up in {@link MultipolygonCache}, in nanoseconds, used to evict the least recently used */
+    volatile long lastUsed;
+
     /**
      * Constructs a new {@code Multipolygon} from a relation.
      * @param r relation
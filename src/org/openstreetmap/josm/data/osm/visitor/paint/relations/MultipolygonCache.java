@@ -3,10 +3,18 @@ package org.openstreetmap.josm.data.osm.visitor.paint.relations;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
 
 import org.openstreetmap.josm.data.osm.DataSelectionListener;
 import org.openstreetmap.josm.data.osm.DataSet;
@@ -25,6 +33,8 @@ import org.openstreetmap.josm.data.osm.event.SelectionEventManager;
 import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
 import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
 import org.openstreetmap.josm.data.osm.visitor.paint.relations.Multipolygon.PolyData;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.data.projection.ProjectionChangeListener;
 import org.openstreetmap.josm.data.projection.ProjectionRegistry;
@@ -34,25 +44,58 @@ import org.openstreetmap.josm.gui.layer.LayerManager.LayerChangeListener;
 import org.openstreetmap.josm.gui.layer.LayerManager.LayerOrderChangeEvent;
 import org.openstreetmap.josm.gui.layer.LayerManager.LayerRemoveEvent;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * A memory cache for {@link Multipolygon} objects.
+ * <p>
+ * The multipolygons of a data layer are built in the background when the layer is added and after a projection change,
+ * so that painting does not have to build them. The cache is bounded by the total number of nodes of the cached
+ * multipolygons, the least recently used ones (i.e. usually the ones not painted recently) are evicted first,
+ * in the background.
  * @since 4623
  */
 public final class MultipolygonCache implements DataSetListener, LayerChangeListener, ProjectionChangeListener, DataSelectionListener {
 
+    /** Whether to build the multipolygons of a data layer in the background */
+    public static final BooleanProperty PREBUILD = new BooleanProperty("multipolygon.cache.prebuild", true);
+    /** Max. total number of nodes of the cached multipolygons */
+    public static final IntegerProperty MAX_NODES = new IntegerProperty("multipolygon.cache.max-nodes", 2_000_000);
+
+    /** Number of relations built in the background by one task */
+    private static final int PREBUILD_CHUNK_SIZE = 16;
+
+    private static final ForkJoinPool THREAD_POOL = newForkJoinPool();
+
     private static final MultipolygonCache INSTANCE = new MultipolygonCache();
 
     private final Map<DataSet, Map<Relation, Multipolygon>> cache = new ConcurrentHashMap<>(); // see ticket 11833
 
     private final Collection<PolyData> selectedPolyData = new ArrayList<>();
 
+    /** Number of nodes added to the cache since the last eviction, an upper bound of the number of cached nodes */
+    private final AtomicLong cachedNodes = new AtomicLong();
+
+    /** Whether an eviction is scheduled in the background */
+    private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+
     private MultipolygonCache() {
         ProjectionRegistry.addProjectionChangeListener(this);
         SelectionEventManager.getInstance().addSelectionListener(this);
         MainApplication.getLayerManager().addLayerChangeListener(this);
     }
 
+    private static ForkJoinPool newForkJoinPool() {
+        try {
+            return Utils.newForkJoinPool(
+                    "multipolygon.cache.numberOfThreads", "multipolygon-cache-%d", Thread.MIN_PRIORITY);
+        } catch (SecurityException e) {
+            Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+            return null;
+        }
+    }
+
     /**
      * Replies the unique instance.
      * @return the unique instance
@@ -81,25 +124,173 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
     public Multipolygon get(Relation r, boolean forceRefresh) {
         Multipolygon multipolygon = null;
         if (r != null && r.getDataSet() != null) {
-            Map<Relation, Multipolygon> map2 = cache.get(r.getDataSet());
-            if (map2 == null) {
-                map2 = new ConcurrentHashMap<>();
-                cache.put(r.getDataSet(), map2);
-            }
+            Map<Relation, Multipolygon> map2 = cache.computeIfAbsent(r.getDataSet(), ds -> new ConcurrentHashMap<>());
             multipolygon = map2.get(r);
             if (multipolygon == null || forceRefresh) {
                 multipolygon = new Multipolygon(r);
                 map2.put(r, multipolygon);
-                synchronized (this) {
-                    for (PolyData pd : multipolygon.getCombinedPolygons()) {
-                        if (pd.isSelected()) {
-                            selectedPolyData.add(pd);
+                added(multipolygon);
+            }
+            multipolygon.lastUsed = System.nanoTime();
+        }
+        return multipolygon;
+    }
+
+    /**
+     * Gets a multipolygon from cache, without building it.
+     * @param r The multipolygon relation
+     * @return the cached multipolygon object for the given relation, or {@code null}
+     */
+    Multipolygon getIfPresent(Relation r) {
+        Map<Relation, Multipolygon> map2 = r.getDataSet() != null ? cache.get(r.getDataSet()) : null;
+        return map2 != null ? map2.get(r) : null;
+    }
+
+    private void added(Multipolygon multipolygon) {
+        synchronized (this) {
+            for (PolyData pd : multipolygon.getCombinedPolygons()) {
+                if (pd.isSelected()) {
+                    selectedPolyData.add(pd);
+                }
+            }
+        }
+        if (cachedNodes.addAndGet(getNodesCount(multipolygon)) > MAX_NODES.get()) {
+            scheduleEviction();
+        }
+    }
+
+    /**
+     * Evicts multipolygons in the background, as this sorts the whole cache and {@link #get} is called while painting.
+     */
+    private void scheduleEviction() {
+        if (THREAD_POOL == null) {
+            evict();
+        } else if (evictionScheduled.compareAndSet(false, true)) {
+            THREAD_POOL.execute(() -> {
+                evictionScheduled.set(false);
+                evict();
+            });
+        }
+    }
+
+    private static long getNodesCount(Multipolygon multipolygon) {
+        long count = 0;
+        for (PolyData pd : multipolygon.getCombinedPolygons()) {
+            count += pd.getNodes().size();
+            for (PolyData inner : pd.getInners()) {
+                count += inner.getNodes().size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Evicts the least recently used multipolygons until the cache is filled to three quarters of its max. size.
+     */
+    private synchronized void evict() {
+        long max = MAX_NODES.get();
+        List<Entry<Relation, Multipolygon>> entries = new ArrayList<>();
+        long count = 0;
+        for (Map<Relation, Multipolygon> map : cache.values()) {
+            for (Entry<Relation, Multipolygon> e : map.entrySet()) {
+                entries.add(e);
+                count += getNodesCount(e.getValue());
+            }
+        }
+        if (count > max) {
+            entries.sort(Comparator.comparingLong(e -> e.getValue().lastUsed));
+            for (Iterator<Entry<Relation, Multipolygon>> it = entries.iterator(); it.hasNext() && count > max * 3 / 4;) {
+                Entry<Relation, Multipolygon> e = it.next();
+                for (Map<Relation, Multipolygon> map : cache.values()) {
+                    if (map.remove(e.getKey(), e.getValue())) {
+                        count -= getNodesCount(e.getValue());
+                    }
+                }
+            }
+            Logging.debug("Evicted multipolygons from cache, {0} nodes left", count);
+        }
+        cachedNodes.set(count);
+    }
+
+    /**
+     * Builds the multipolygons of the given data set in the background, if they are not cached yet.
+     * Does nothing if disabled by {@link #PREBUILD}.
+     * @param ds the data set
+     */
+    public void prebuild(DataSet ds) {
+        if (THREAD_POOL == null || ds == null || !PREBUILD.get()) {
+            return;
+        }
+        Map<Relation, Multipolygon> map = cache.computeIfAbsent(ds, k -> new ConcurrentHashMap<>());
+        List<Relation> relations;
+        Lock lock = ds.getReadLock();
+        lock.lock();
+        try {
+            relations = ds.getRelations().stream()
+                    .filter(r -> r.isMultipolygon() && r.isUsable() && !map.containsKey(r))
+                    .collect(Collectors.toList());
+        } finally {
+            lock.unlock();
+        }
+        if (!relations.isEmpty()) {
+            THREAD_POOL.execute(new PrebuildWorker(ds, map, relations));
+        }
+    }
+
+    private final class PrebuildWorker extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        // Needed for Findbugs / Coverity because parent class is serializable
+        private final transient DataSet ds;
+        private final transient Map<Relation, Multipolygon> map;
+        private final transient List<Relation> relations;
+
+        PrebuildWorker(DataSet ds, Map<Relation, Multipolygon> map, List<Relation> relations) {
+            this.ds = ds;
+            this.map = map;
+            this.relations = relations;
+        }
+
+        /**
+         * Determines if the results are still wanted, i.e. the data set has not been removed from the cache
+         * (e.g. the layer was removed or the projection changed) and the cache is not full.
+         * @return {@code true} if the results are still wanted
+         */
+        private boolean isWanted() {
+            return cache.get(ds) == map && cachedNodes.get() < MAX_NODES.get();
+        }
+
+        @Override
+        protected void compute() {
+            if (!isWanted()) {
+                return;
+            }
+            if (relations.size() > PREBUILD_CHUNK_SIZE) {
+                int middle = relations.size() / 2;
+                invokeAll(new PrebuildWorker(ds, map, relations.subList(0, middle)),
+                          new PrebuildWorker(ds, map, relations.subList(middle, relations.size())));
+                return;
+            }
+            Lock lock = ds.getReadLock();
+            for (Relation r : relations) {
+                if (!isWanted()) {
+                    return;
+                }
+                // Hold the read lock while building and caching, so that changes of the data set either happen before
+                // (and the multipolygon is built from the changed data) or after (and the change event updates the cache).
+                // It is taken for each relation only, so that edits do not wait for a whole chunk to be built.
+                lock.lock();
+                try {
+                    if (r.getDataSet() == ds && r.isUsable() && !map.containsKey(r)) {
+                        Multipolygon multipolygon = new Multipolygon(r);
+                        if (map.putIfAbsent(r, multipolygon) == null) {
+                            added(multipolygon);
                         }
                     }
+                } finally {
+                    lock.unlock();
                 }
             }
         }
-        return multipolygon;
     }
 
     /**
@@ -118,6 +309,7 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
      */
     public void clear() {
         cache.clear();
+        cachedNodes.set(0);
     }
 
     private Collection<Map<Relation, Multipolygon>> getMapsFor(DataSet ds) {
@@ -178,6 +370,11 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
             if (event.getPrimitives().contains(r)) {
                 removeMultipolygonFrom(r, maps);
             }
+        } else if (event instanceof TagsChangedEvent && !event.getPrimitives().contains(r)) {
+            // The tags of member ways do not change the geometry, only the style
+            for (OsmPrimitive member : r.getMemberPrimitivesList()) {
+                member.clearCachedStyle();
+            }
         } else {
             // Default (non-optimal) action: remove multipolygon from cache
             removeMultipolygonFrom(r, maps);
@@ -273,7 +470,9 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
 
     @Override
     public void layerAdded(LayerAddEvent e) {
-        // Do nothing
+        if (e.getAddedLayer() instanceof OsmDataLayer) {
+            prebuild(((OsmDataLayer) e.getAddedLayer()).data);
+        }
     }
 
     @Override
@@ -291,6 +490,9 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
     @Override
     public void projectionChanged(Projection oldValue, Projection newValue) {
         clear();
+        for (OsmDataLayer layer : MainApplication.getLayerManager().getLayersOfType(OsmDataLayer.class)) {
+            prebuild(layer.data);
+        }
     }
 
     @Override
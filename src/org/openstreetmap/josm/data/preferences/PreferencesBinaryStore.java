@@ -0,0 +1,532 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.preferences;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Checksum;
+
+import org.openstreetmap.josm.spi.preferences.ListListSetting;
+import org.openstreetmap.josm.spi.preferences.ListSetting;
+import org.openstreetmap.josm.spi.preferences.MapListSetting;
+import org.openstreetmap.josm.spi.preferences.Setting;
+import org.openstreetmap.josm.spi.preferences.SettingVisitor;
+import org.openstreetmap.josm.spi.preferences.StringSetting;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Binary, key-indexed store of preference settings.
+ * <p>
+ * The file is a journal of records, each one setting or removing the value of a key. A commit record closes a batch
+ * of changes with a stamp identifying the state of the settings and a checksum of the batch. Records after the last
+ * valid commit (e.g. after a crash) are ignored. When the file is loaded, only the keys are indexed, the values are
+ * decoded on first access.
+ * <p>
+ * Changes are appended to the file, after the last valid commit. The file is rewritten atomically when it contains too many outdated records.
+ * Reads are lock-free, writes must be synchronized by the caller.
+ */
+public class PreferencesBinaryStore {
+
+    private static final int MAGIC = 0x4A505246; // "JPRF"
+    private static final int FORMAT_VERSION = 2;
+
+    private static final byte RECORD_COMMIT = 0;
+    private static final byte RECORD_REMOVE = 1;
+    private static final byte TYPE_STRING = 2;
+    private static final byte TYPE_LIST = 3;
+    private static final byte TYPE_LIST_LIST = 4;
+    private static final byte TYPE_MAP_LIST = 5;
+
+    /** Number of outdated records tolerated in the file before it is rewritten */
+    private static final int COMPACTION_THRESHOLD = 256;
+
+    private final File file;
+    /** Maps the keys to the decoded {@link Setting}, or to the {@link Encoded} setting until first access */
+    private final ConcurrentSkipListMap<String, Object> entries = new ConcurrentSkipListMap<>();
+    private volatile String stamp;
+    private int recordCount;
+    /** Length of the file up to the end of the last valid commit */
+    private long validLength;
+
+    /**
+     * Encoded setting, pointing to the bytes of its value in the loaded file.
+     */
+    private static final class Encoded {
+        private final byte type;
+        private final Long time;
+        private final ByteBuffer value;
+
+        Encoded(byte type, Long time, ByteBuffer value) {
+            this.type = type;
+            this.time = time;
+            this.value = value;
+        }
+
+        Setting<?> decode() {
+            ByteBuffer buf = value == null ? null : value.duplicate();
+            Setting<?> setting;
+            switch (type) {
+            case TYPE_STRING:
+                setting = new StringSetting(buf == null ? null : readString(buf));
+                break;
+            case TYPE_LIST:
+                setting = new ListSetting(buf == null ? null : readList(buf));
+                break;
+            case TYPE_LIST_LIST:
+                List<List<String>> lists = null;
+                if (buf != null) {
+                    int size = buf.getInt();
+                    lists = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        lists.add(readList(buf));
+                    }
+                    lists = Collections.unmodifiableList(lists);
+                }
+                setting = new ListListSetting(lists);
+                break;
+            case TYPE_MAP_LIST:
+                List<Map<String, String>> maps = null;
+                if (buf != null) {
+                    int size = buf.getInt();
+                    maps = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        Map<String, String> map = new LinkedHashMap<>();
+                        for (int j = buf.getInt(); j > 0; j--) {
+                            map.put(readString(buf), readString(buf));
+                        }
+                        maps.add(Collections.unmodifiableMap(map));
+                    }
+                    maps = Collections.unmodifiableList(maps);
+                }
+                setting = new MapListSetting(maps);
+                break;
+            default:
+                throw new IllegalStateException("Unknown setting type " + type);
+            }
+            setting.setTime(time);
+            return setting;
+        }
+    }
+
+    /**
+     * Writes the records of settings, as visitor of the settings.
+     */
+    private static final class RecordWriter implements SettingVisitor {
+        private final DataOutputStream out;
+        private final Checksum checksum = new CRC32();
+        private final ByteArrayOutputStream valueBytes = new ByteArrayOutputStream();
+        private final DataOutputStream value = new DataOutputStream(valueBytes);
+        private byte type;
+
+        RecordWriter(OutputStream out) {
+            this.out = new DataOutputStream(new CheckedOutputStream(out, checksum));
+        }
+
+        void writeSetting(String key, Setting<?> setting) throws IOException {
+            valueBytes.reset();
+            try {
+                setting.visit(this);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.writeByte(type);
+            writeString(out, key);
+            out.writeLong(setting.getTime() == null ? Long.MIN_VALUE : setting.getTime());
+            if (setting.getValue() == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(valueBytes.size());
+                valueBytes.writeTo(out);
+            }
+        }
+
+        void writeRemoval(String key) throws IOException {
+            out.writeByte(RECORD_REMOVE);
+            writeString(out, key);
+        }
+
+        void writeCommit(String stamp) throws IOException {
+            out.writeByte(RECORD_COMMIT);
+            writeString(out, stamp);
+            out.writeInt((int) checksum.getValue());
+            out.flush();
+            checksum.reset();
+        }
+
+        @Override
+        public void visit(StringSetting setting) {
+            type = TYPE_STRING;
+            if (setting.getValue() != null) {
+                writeValue(() -> writeString(value, setting.getValue()));
+            }
+        }
+
+        @Override
+        public void visit(ListSetting setting) {
+            type = TYPE_LIST;
+            if (setting.getValue() != null) {
+                writeValue(() -> writeList(value, setting.getValue()));
+            }
+        }
+
+        @Override
+        public void visit(ListListSetting setting) {
+            type = TYPE_LIST_LIST;
+            if (setting.getValue() != null) {
+                writeValue(() -> {
+                    value.writeInt(setting.getValue().size());
+                    for (List<String> list : setting.getValue()) {
+                        writeList(value, list);
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void visit(MapListSetting setting) {
+            type = TYPE_MAP_LIST;
+            if (setting.getValue() != null) {
+                writeValue(() -> {
+                    value.writeInt(setting.getValue().size());
+                    for (Map<String, String> map : setting.getValue()) {
+                        value.writeInt(map.size());
+                        for (Map.Entry<String, String> e : map.entrySet()) {
+                            writeString(value, e.getKey());
+                            writeString(value, e.getValue());
+                        }
+                    }
+                });
+            }
+        }
+
+        @FunctionalInterface
+        private interface IOAction {
+            void run() throws IOException;
+        }
+
+        private static void writeValue(IOAction action) {
+            try {
+                action.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Constructs a new {@code PreferencesBinaryStore}.
+     * @param file the file of the store
+     */
+    public PreferencesBinaryStore(File file) {
+        this.file = Objects.requireNonNull(file);
+    }
+
+    /**
+     * Returns the file of this store.
+     * @return the file of this store
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Loads the index of the store file. The values are decoded on first access.
+     * @return {@code true} if the file has been loaded, {@code false} if it is missing or invalid
+     */
+    public boolean load() {
+        entries.clear();
+        stamp = null;
+        recordCount = 0;
+        validLength = 0;
+        if (!file.isFile()) {
+            return false;
+        }
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (buf.remaining() < 8 || buf.getInt() != MAGIC || buf.getInt() != FORMAT_VERSION) {
+                Logging.warn("Invalid preferences store " + file);
+                return false;
+            }
+            Map<String, Encoded> pending = new LinkedHashMap<>();
+            int batchStart = buf.position();
+            while (buf.hasRemaining()) {
+                byte type = buf.get();
+                String key = readString(buf);
+                if (type == RECORD_COMMIT) {
+                    Checksum checksum = new CRC32();
+                    checksum.update(buf.array(), batchStart, buf.position() - batchStart);
+                    if (buf.getInt() != (int) checksum.getValue()) {
+                        Logging.warn("Invalid checksum of commit " + key + " in preferences store " + file);
+                        break;
+                    }
+                    for (Map.Entry<String, Encoded> e : pending.entrySet()) {
+                        if (e.getValue() == null) {
+                            entries.remove(e.getKey());
+                        } else {
+                            entries.put(e.getKey(), e.getValue());
+                        }
+                    }
+                    recordCount += pending.size();
+                    pending.clear();
+                    stamp = key;
+                    batchStart = buf.position();
+                    validLength = batchStart;
+                } else if (type == RECORD_REMOVE) {
+                    pending.put(key, null);
+                } else {
+                    long time = buf.getLong();
+                    int length = buf.getInt();
+                    ByteBuffer value = null;
+                    if (length >= 0) {
+                        value = buf.slice();
+                        value.limit(length);
+                        buf.position(buf.position() + length);
+                    }
+                    pending.put(key, new Encoded(type, time == Long.MIN_VALUE ? null : time, value));
+                }
+            }
+            if (!pending.isEmpty()) {
+                Logging.warn("Ignoring " + pending.size() + " uncommitted records in preferences store " + file);
+            }
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException | SecurityException e) {
+            // a truncated record (e.g. after a crash) ends the journal, the previous commits are kept
+            // and the next update overwrites the bytes after them
+            Logging.log(Logging.LEVEL_WARN, "Unable to fully read preferences store " + file, e);
+        }
+        return stamp != null;
+    }
+
+    /**
+     * Returns the stamp of the last commit.
+     * @return the stamp of the last commit, or {@code null} if nothing has been loaded or written
+     */
+    public String getStamp() {
+        return stamp;
+    }
+
+    /**
+     * Returns the keys of the settings in this store.
+     * @return the sorted keys of the settings in this store
+     */
+    public Set<String> getKeys() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * Returns the setting for the given key, decoding it on first access.
+     * A value which cannot be decoded is logged and removed from this store.
+     * @param key the key of the setting
+     * @return the setting, or {@code null} if this store does not contain the key or its value is invalid
+     */
+    public Setting<?> get(String key) {
+        Object entry = entries.get(key);
+        if (entry instanceof Encoded) {
+            Setting<?> setting;
+            try {
+                setting = ((Encoded) entry).decode();
+            } catch (BufferUnderflowException | IllegalArgumentException | IllegalStateException e) {
+                Logging.log(Logging.LEVEL_WARN, "Invalid value of " + key + " in preferences store " + file, e);
+                entries.remove(key, entry);
+                return null;
+            }
+            return entries.replace(key, entry, setting) ? setting : get(key);
+        }
+        return (Setting<?>) entry;
+    }
+
+    /**
+     * Returns all settings of this store, decoding them if needed.
+     * @return all settings of this store, sorted by key
+     */
+    public SortedMap<String, Setting<?>> getAll() {
+        SortedMap<String, Setting<?>> result = new TreeMap<>();
+        for (String key : entries.keySet()) {
+            Setting<?> setting = get(key);
+            if (setting != null) {
+                result.put(key, setting);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes the settings with a time older than the given one, without decoding them.
+     * The removal is not written to the file.
+     * @param minTime the minimal time (in seconds) of the settings to keep
+     */
+    public void removeOlderThan(long minTime) {
+        entries.values().removeIf(entry -> {
+            Long time = entry instanceof Encoded ? ((Encoded) entry).time : ((Setting<?>) entry).getTime();
+            return time == null || time < minTime;
+        });
+    }
+
+    /**
+     * Rewrites the store file with the given settings. The file is replaced atomically.
+     * @param settings the settings to write
+     * @param newStamp the stamp identifying the given settings
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(SortedMap<String, Setting<?>> settings, String newStamp) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory()) {
+            Utils.mkDirs(dir);
+        }
+        File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+        long length;
+        try {
+            try (OutputStream os = new FileOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                RecordWriter writer = new RecordWriter(out);
+                for (Map.Entry<String, Setting<?>> e : settings.entrySet()) {
+                    writer.writeSetting(e.getKey(), e.getValue());
+                }
+                writer.writeCommit(newStamp);
+            }
+            length = tmp.length();
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Logging.trace(e);
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+        entries.clear();
+        entries.putAll(settings);
+        recordCount = settings.size();
+        validLength = length;
+        stamp = newStamp;
+    }
+
+    /**
+     * Updates the store file to the given settings. Only the changed settings are appended to the file, after the
+     * last valid commit, unless it has not been loaded or contains too many outdated records, in which case it is
+     * rewritten.
+     * @param settings the new settings
+     * @param newStamp the stamp identifying the given settings
+     * @throws IOException if an I/O error occurs
+     */
+    public void update(SortedMap<String, Setting<?>> settings, String newStamp) throws IOException {
+        if (stamp == null || !file.isFile()) {
+            write(settings, newStamp);
+            return;
+        }
+        Map<String, Setting<?>> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, Setting<?>> e : settings.entrySet()) {
+            Object old = entries.get(e.getKey());
+            if (old != e.getValue() && (old == null || !e.getValue().equals(get(e.getKey())))) {
+                changes.put(e.getKey(), e.getValue());
+            }
+        }
+        for (String key : entries.keySet()) {
+            if (!settings.containsKey(key)) {
+                changes.put(key, null);
+            }
+        }
+        if (changes.isEmpty() && newStamp.equals(stamp)) {
+            return;
+        }
+        if (recordCount + changes.size() > settings.size() + COMPACTION_THRESHOLD) {
+            write(settings, newStamp);
+            return;
+        }
+        // write the records in a single block, so that a failure cannot leave more than one partial commit
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RecordWriter writer = new RecordWriter(bytes);
+        for (Map.Entry<String, Setting<?>> e : changes.entrySet()) {
+            if (e.getValue() == null) {
+                writer.writeRemoval(e.getKey());
+            } else {
+                writer.writeSetting(e.getKey(), e.getValue());
+            }
+        }
+        writer.writeCommit(newStamp);
+        if (file.length() < validLength) {
+            // the file has been replaced meanwhile
+            write(settings, newStamp);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            // drop an uncommitted or truncated tail, which would hide the appended records at next load
+            channel.truncate(validLength);
+            ByteBuffer buf = ByteBuffer.wrap(bytes.toByteArray());
+            long position = validLength;
+            while (buf.hasRemaining()) {
+                position += channel.write(buf, position);
+            }
+            channel.force(false);
+        }
+        for (Map.Entry<String, Setting<?>> e : changes.entrySet()) {
+            if (e.getValue() == null) {
+                entries.remove(e.getKey());
+            } else {
+                entries.put(e.getKey(), e.getValue());
+            }
+        }
+        recordCount += changes.size();
+        validLength += bytes.size();
+        stamp = newStamp;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeList(DataOutputStream out, List<String> list) throws IOException {
+        out.writeInt(list.size());
+        for (String s : list) {
+            writeString(out, s);
+        }
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0 || length > buf.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String s = new String(buf.array(), buf.arrayOffset() + buf.position(), length, StandardCharsets.UTF_8);
+        buf.position(buf.position() + length);
+        return s;
+    }
+
+    private static List<String> readList(ByteBuffer buf) {
+        int size = buf.getInt();
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readString(buf));
+        }
+        return Collections.unmodifiableList(list);
+    }
+}
@@ -15,6 +15,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -24,6 +25,8 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -34,9 +37,12 @@ import org.openstreetmap.josm.command.Command;
 import org.openstreetmap.josm.command.DeleteCommand;
 import org.openstreetmap.josm.command.SequenceCommand;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmUtils;
+import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Tag;
+import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.preferences.sources.SourceEntry;
 import org.openstreetmap.josm.data.preferences.sources.ValidatorPrefHelper;
 import org.openstreetmap.josm.data.validation.OsmValidator;
@@ -53,8 +59,10 @@ import org.openstreetmap.josm.gui.mappaint.mapcss.Instruction;
 import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRule;
 import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRule.Declaration;
 import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource.MapCSSRuleIndex;
 import org.openstreetmap.josm.gui.mappaint.mapcss.Selector;
 import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.AbstractSelector;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.ChildOrParentSelector;
 import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.GeneralSelector;
 import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.MapCSSParser;
 import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.ParseException;
@@ -237,8 +245,122 @@ public class MapCSSTagChecker extends Test.TagTest {
         }
     }
 
+    private static final ForkJoinPool THREAD_POOL = newForkJoinPool();
+
+    /** Number of primitives checked between two progress updates when checking in parallel */
+    private static final int PARALLEL_BATCH_SIZE = 1000;
+
+    private static ForkJoinPool newForkJoinPool() {
+        try {
+            return Utils.newForkJoinPool(
+                    "validator.MapCSSTagChecker.numberOfThreads", "mapcss-tag-checker-%d", Thread.NORM_PRIORITY);
+        } catch (SecurityException e) {
+            Logging.log(Logging.LEVEL_ERROR, "Unable to create new ForkJoinPool", e);
+            return null;
+        }
+    }
+
     final MultiMap<String, TagCheck> checks = new MultiMap<>();
 
+    /** Index of {@link #checks}, built on demand and discarded whenever the checks change */
+    private volatile MapCSSTagCheckerIndex index;
+
+    /**
+     * Key/value index of tag checks, so that only the checks which might match a primitive are evaluated.
+     * Once built, the index is not modified anymore and can be used by several threads at once.
+     * @see MapCSSRuleIndex
+     */
+    static final class MapCSSTagCheckerIndex {
+        private final MapCSSRuleIndex nodeRules = new MapCSSRuleIndex();
+        private final MapCSSRuleIndex wayRules = new MapCSSRuleIndex();
+        private final MapCSSRuleIndex relationRules = new MapCSSRuleIndex();
+        private final MapCSSRuleIndex multipolygonRules = new MapCSSRuleIndex();
+        /**
+         * The checks in the order in which they are run. The declaration index of the indexed rules refers to this list,
+         * as classes set by a check must be known to the checks after it.
+         */
+        private final List<TagCheck> checks = new ArrayList<>();
+
+        /**
+         * Constructs a new {@code MapCSSTagCheckerIndex}.
+         * @param checksCol the checks to index, in the order in which they are run
+         */
+        MapCSSTagCheckerIndex(Collection<Set<TagCheck>> checksCol) {
+            for (Set<TagCheck> schecks : checksCol) {
+                for (TagCheck check : schecks) {
+                    final Declaration declaration = new Declaration(check.rule.declaration.instructions, checks.size());
+                    checks.add(check);
+                    for (Selector s : check.rule.selectors) {
+                        add(new MapCSSRule(s, declaration));
+                    }
+                }
+            }
+            nodeRules.initIndex();
+            wayRules.initIndex();
+            relationRules.initIndex();
+            multipolygonRules.initIndex();
+        }
+
+        private void add(MapCSSRule rule) {
+            // find the rightmost selector, this must be a GeneralSelector
+            Selector selRightmost = rule.selector;
+            while (selRightmost instanceof ChildOrParentSelector) {
+                selRightmost = ((ChildOrParentSelector) selRightmost).right;
+            }
+            switch (((GeneralSelector) selRightmost).getBase()) {
+                case "node":
+                    nodeRules.add(rule);
+                    break;
+                case "way":
+                    wayRules.add(rule);
+                    break;
+                case "area":
+                    wayRules.add(rule);
+                    multipolygonRules.add(rule);
+                    break;
+                case "relation":
+                    relationRules.add(rule);
+                    multipolygonRules.add(rule);
+                    break;
+                default:
+                    nodeRules.add(rule);
+                    wayRules.add(rule);
+                    relationRules.add(rule);
+                    multipolygonRules.add(rule);
+            }
+        }
+
+        /**
+         * Replies the checks which might match the given primitive, in the order in which they must be run.
+         * Checks not included in the result are guaranteed to not match this primitive.
+         * @param p the primitive to match
+         * @return the candidate checks
+         */
+        List<TagCheck> getCheckCandidates(OsmPrimitive p) {
+            final MapCSSRuleIndex matchingRuleIndex;
+            if (p instanceof Node) {
+                matchingRuleIndex = nodeRules;
+            } else if (p instanceof Way) {
+                matchingRuleIndex = wayRules;
+            } else if (p instanceof Relation && ((Relation) p).isMultipolygon()) {
+                matchingRuleIndex = multipolygonRules;
+            } else {
+                matchingRuleIndex = relationRules;
+            }
+            final List<TagCheck> result = new ArrayList<>();
+            // the declaration indices are sorted, so it suffices to save the last used index
+            int lastDeclUsed = -1;
+            for (Iterator<MapCSSRule> it = matchingRuleIndex.getRuleCandidates(p); it.hasNext();) {
+                final int idx = it.next().declaration.idx;
+                if (idx != lastDeclUsed) {
+                    lastDeclUsed = idx;
+                    result.add(checks.get(idx));
+                }
+            }
+            return result;
+        }
+    }
+
     /**
      * Result of {@link TagCheck#readMapCSS}
      * @since 8936
@@ -675,29 +797,41 @@ public class MapCSSTagChecker extends Test.TagTest {
      * @param includeOtherSeverity if {@code true}, errors of severity {@link Severity#OTHER} (info) will also be returned
      * @return all errors for the given primitive, with or without those of "info" severity
      */
-    public synchronized Collection<TestError> getErrorsForPrimitive(OsmPrimitive p, boolean includeOtherSeverity) {
-        return getErrorsForPrimitive(p, includeOtherSeverity, checks.values());
+    public Collection<TestError> getErrorsForPrimitive(OsmPrimitive p, boolean includeOtherSeverity) {
+        return getErrorsForPrimitive(p, includeOtherSeverity, getIndex());
+    }
+
+    private MapCSSTagCheckerIndex getIndex() {
+        MapCSSTagCheckerIndex result = index;
+        if (result == null) {
+            synchronized (this) {
+                result = index;
+                if (result == null) {
+                    result = new MapCSSTagCheckerIndex(checks.values());
+                    index = result;
+                }
+            }
+        }
+        return result;
     }
 
     private static Collection<TestError> getErrorsForPrimitive(OsmPrimitive p, boolean includeOtherSeverity,
-            Collection<Set<TagCheck>> checksCol) {
+            MapCSSTagCheckerIndex index) {
         final List<TestError> r = new ArrayList<>();
         final Environment env = new Environment(p, new MultiCascade(), Environment.DEFAULT_LAYER, null);
-        for (Set<TagCheck> schecks : checksCol) {
-            for (TagCheck check : schecks) {
-                boolean ignoreError = Severity.OTHER.equals(check.getSeverity()) && !includeOtherSeverity;
-                // Do not run "information" level checks if not wanted, unless they also set a MapCSS class
-                if (ignoreError && check.setClassExpressions.isEmpty()) {
-                    continue;
-                }
-                final Selector selector = check.whichSelectorMatchesEnvironment(env);
-                if (selector != null) {
-                    check.rule.declaration.execute(env);
-                    if (!ignoreError) {
-                        final TestError error = check.getErrorForPrimitive(p, selector, env, new MapCSSTagCheckerAndRule(check.rule));
-                        if (error != null) {
-                            r.add(error);
-                        }
+        for (TagCheck check : index.getCheckCandidates(p)) {
+            boolean ignoreError = Severity.OTHER.equals(check.getSeverity()) && !includeOtherSeverity;
+            // Do not run "information" level checks if not wanted, unless they also set a MapCSS class
+            if (ignoreError && check.setClassExpressions.isEmpty()) {
+                continue;
+            }
+            final Selector selector = check.whichSelectorMatchesEnvironment(env);
+            if (selector != null) {
+                check.rule.declaration.execute(env);
+                if (!ignoreError) {
+                    final TestError error = check.getErrorForPrimitive(p, selector, env, new MapCSSTagCheckerAndRule(check.rule));
+                    if (error != null) {
+                        r.add(error);
                     }
                 }
             }
@@ -715,6 +849,70 @@ public class MapCSSTagChecker extends Test.TagTest {
         errors.addAll(getErrorsForPrimitive(p, ValidatorPrefHelper.PREF_OTHER.get()));
     }
 
+    /**
+     * Checks the given primitives, in parallel if possible. The errors are reported in the order of {@code selection}.
+     */
+    @Override
+    public void visit(Collection<OsmPrimitive> selection) {
+        if (THREAD_POOL == null || selection.size() <= PARALLEL_BATCH_SIZE) {
+            super.visit(selection);
+            return;
+        }
+        if (progressMonitor != null) {
+            progressMonitor.setTicksCount(selection.size());
+        }
+        final boolean includeOtherSeverity = ValidatorPrefHelper.PREF_OTHER.get();
+        final MapCSSTagCheckerIndex checkerIndex = getIndex();
+        final List<OsmPrimitive> primitives = new ArrayList<>(selection);
+        for (int from = 0; from < primitives.size() && !isCanceled(); from += PARALLEL_BATCH_SIZE) {
+            final int to = Math.min(from + PARALLEL_BATCH_SIZE, primitives.size());
+            errors.addAll(THREAD_POOL.invoke(new CheckWorker(primitives.subList(from, to), includeOtherSeverity, checkerIndex,
+                    Math.max(20, (to - from) / THREAD_POOL.getParallelism() / 3))));
+            if (progressMonitor != null) {
+                progressMonitor.worked(to - from);
+            }
+        }
+    }
+
+    private final class CheckWorker extends RecursiveTask<List<TestError>> {
+        private static final long serialVersionUID = 1L;
+        // Needed for Findbugs / Coverity because parent class is serializable
+        private final transient List<OsmPrimitive> primitives;
+        private final boolean includeOtherSeverity;
+        private final transient MapCSSTagCheckerIndex checkerIndex;
+        private final int directExecutionTaskSize;
+
+        CheckWorker(List<OsmPrimitive> primitives, boolean includeOtherSeverity, MapCSSTagCheckerIndex checkerIndex,
+                int directExecutionTaskSize) {
+            this.primitives = primitives;
+            this.includeOtherSeverity = includeOtherSeverity;
+            this.checkerIndex = checkerIndex;
+            this.directExecutionTaskSize = directExecutionTaskSize;
+        }
+
+        @Override
+        protected List<TestError> compute() {
+            if (primitives.size() <= directExecutionTaskSize) {
+                final List<TestError> result = new ArrayList<>();
+                for (OsmPrimitive p : primitives) {
+                    if (isPrimitiveUsable(p)) {
+                        result.addAll(getErrorsForPrimitive(p, includeOtherSeverity, checkerIndex));
+                    }
+                }
+                return result;
+            }
+            final int middle = primitives.size() / 2;
+            final CheckWorker left = new CheckWorker(primitives.subList(0, middle), includeOtherSeverity, checkerIndex,
+                    directExecutionTaskSize);
+            final CheckWorker right = new CheckWorker(primitives.subList(middle, primitives.size()), includeOtherSeverity,
+                    checkerIndex, directExecutionTaskSize);
+            right.fork();
+            final List<TestError> result = left.compute();
+            result.addAll(right.join());
+            return result;
+        }
+    }
+
     /**
      * Adds a new MapCSS config file from the given URL.
      * @param url The unique URL of the MapCSS config file
@@ -735,6 +933,7 @@ public class MapCSSTagChecker extends Test.TagTest {
             result = TagCheck.readMapCSS(reader);
             checks.remove(url);
             checks.putAll(url, result.parseChecks);
+            index = null;
             // Check assertions, useful for development of local files
             if (Config.getPref().getBoolean("validator.check_assert_local_rules", false) && Utils.isLocalUrl(url)) {
                 for (String msg : checkAsserts(result.parseChecks)) {
@@ -748,6 +947,7 @@ public class MapCSSTagChecker extends Test.TagTest {
     @Override
     public synchronized void initialize() throws Exception {
         checks.clear();
+        index = null;
         for (SourceEntry source : new ValidatorPrefHelper().get()) {
             if (!source.active) {
                 continue;
@@ -796,7 +996,7 @@ public class MapCSSTagChecker extends Test.TagTest {
                 checksToRun.add(Collections.singleton(check));
                 // Add primitive to dataset to avoid DataIntegrityProblemException when evaluating selectors
                 ds.addPrimitive(p);
-                final Collection<TestError> pErrors = getErrorsForPrimitive(p, true, checksToRun);
+                final Collection<TestError> pErrors = getErrorsForPrimitive(p, true, new MapCSSTagCheckerIndex(checksToRun));
                 Logging.debug("- Errors: {0}", pErrors);
                 @SuppressWarnings({"EqualsBetweenInconvertibleTypes", "EqualsIncompatibleType"})
                 final boolean isError = pErrors.stream().anyMatch(e -> e.getTester().equals(check.rule));
@@ -38,6 +38,7 @@ import org.openstreetmap.josm.tools.OverpassTurboQueryWizard;
 import org.openstreetmap.josm.tools.PlatformManager;
 import org.openstreetmap.josm.tools.RightAndLefthandTraffic;
 import org.openstreetmap.josm.tools.Shortcut;
+import org.openstreetmap.josm.tools.SvgRasterCache;
 import org.openstreetmap.josm.tools.Territories;
 import org.openstreetmap.josm.tools.Utils;
 
@@ -69,24 +70,26 @@ public class MainInitialization implements InitializationSequence {
             }),
             new InitializationTask(tr("Starting file watcher"), FileWatcher.getDefaultInstance()::start),
             new InitializationTask(tr("Executing platform startup hook"),
-                    () -> PlatformManager.getPlatform().startupHook(MainApplication::askUpdateJava)),
-            new InitializationTask(tr("Building main menu"), application::initializeMainWindow),
-            new InitializationTask(tr("Updating user interface"), () -> {
-                UndoRedoHandler.getInstance().addCommandQueueListener(application.redoUndoListener);
-                // creating toolbar
-                GuiHelper.runInEDTAndWait(() -> MainApplication.contentPanePrivate.add(MainApplication.toolbar.control, BorderLayout.NORTH));
-                // help shortcut
-                MainApplication.registerActionShortcut(MainApplication.menu.help,
-                        Shortcut.registerShortcut("system:help", tr("Help"), KeyEvent.VK_F1, Shortcut.DIRECT));
-            }),
-            // This needs to be done before RightAndLefthandTraffic::initialize is called
-            new InitializationTask(tr("Initializing internal boundaries data"), Territories::initialize)
+                    () -> PlatformManager.getPlatform().startupHook(MainApplication::askUpdateJava))
         );
     }
 
     @Override
     public Collection<InitializationTask> parallelInitializationTasks() {
+        // The main menu is built while loading data, the tasks updating it must wait for it
+        InitializationTask mainMenu = new InitializationTask(tr("Building main menu"), application::initializeMainWindow);
+        // Presets register their actions in the toolbar
+        InitializationTask toolbar = new InitializationTask(tr("Updating user interface"), () -> {
+            UndoRedoHandler.getInstance().addCommandQueueListener(application.redoUndoListener);
+            // creating toolbar
+            GuiHelper.runInEDTAndWait(() -> MainApplication.contentPanePrivate.add(MainApplication.toolbar.control, BorderLayout.NORTH));
+            // help shortcut
+            MainApplication.registerActionShortcut(MainApplication.menu.help,
+                    Shortcut.registerShortcut("system:help", tr("Help"), KeyEvent.VK_F1, Shortcut.DIRECT));
+        }, mainMenu);
         return Arrays.asList(
+            mainMenu,
+            toolbar,
             new InitializationTask(tr("Initializing OSM API"), () -> {
                     OsmApi.addOsmApiInitializationListener(api -> {
                         // This checks if there are any layers currently displayed that are now on the blacklist, and removes them.
@@ -110,11 +113,13 @@ public class MainInitialization implements InitializationSequence {
                         Logging.warn(Logging.getErrorMessage(Utils.getRootCause(e)));
                     }
                 }),
+            // Territories are loaded on first use, including by RightAndLefthandTraffic::initialize
+            new InitializationTask(tr("Initializing internal boundaries data"), Territories::initialize),
             new InitializationTask(tr("Initializing internal traffic data"), RightAndLefthandTraffic::initialize),
             new InitializationTask(tr("Initializing validator"), OsmValidator::initialize),
-            new InitializationTask(tr("Initializing presets"), TaggingPresets::initialize),
-            new InitializationTask(tr("Initializing map styles"), MapPaintPreference::initialize),
-            new InitializationTask(tr("Loading imagery preferences"), ImageryPreference::initialize)
+            new InitializationTask(tr("Initializing presets"), TaggingPresets::initialize, mainMenu, toolbar),
+            new InitializationTask(tr("Initializing map styles"), MapPaintPreference::initialize, mainMenu),
+            new InitializationTask(tr("Loading imagery preferences"), ImageryPreference::initialize, mainMenu)
         );
     }
 
@@ -129,7 +134,8 @@ public class MainInitialization implements InitializationSequence {
     public List<Runnable> asynchronousRunnableTasks() {
         return Arrays.asList(
                 TMSLayer::getCache,
-                OsmValidator::initializeTests
+                OsmValidator::initializeTests,
+                SvgRasterCache::prewarm
             );
     }
 
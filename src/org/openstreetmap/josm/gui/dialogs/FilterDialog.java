@@ -321,7 +321,7 @@ public class FilterDialog extends ToggleDialog implements DataSetListener, MapMo
 
     @Override
     public void nodeMoved(NodeMovedEvent event) {
-        filterModel.executeFilters();
+        filterModel.executeFilters(FilterModel.getAffectedPrimitives(event.getPrimitives()));
     }
 
     @Override
@@ -338,7 +338,7 @@ public class FilterDialog extends ToggleDialog implements DataSetListener, MapMo
 
     @Override
     public void primitivesRemoved(PrimitivesRemovedEvent event) {
-        filterModel.executeFilters();
+        filterModel.removePrimitives(event.getPrimitives());
     }
 
     @Override
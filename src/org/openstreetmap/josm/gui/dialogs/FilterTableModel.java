@@ -105,6 +105,18 @@ public class FilterTableModel extends AbstractTableModel {
         }
     }
 
+    /**
+     * Updates the filter state after primitives have been removed from the edit data set, if any.
+     * Does nothing if no filter is enabled.
+     * @param primitives The removed primitives
+     */
+    public void removePrimitives(Collection<? extends OsmPrimitive> primitives) {
+        if (AutoFilterManager.getInstance().getCurrentAutoFilter() == null && model.hasFilters()) {
+            model.removePrimitives(primitives);
+            updateMap();
+        }
+    }
+
     private void updateMap() {
         MapFrame map = MainApplication.getMap();
         if (map != null && model.isChanged()) {
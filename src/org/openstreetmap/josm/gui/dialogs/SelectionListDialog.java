@@ -5,6 +5,7 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 import static org.openstreetmap.josm.tools.I18n.trn;
 
 import java.awt.Component;
+import java.awt.Dimension;
 import java.awt.GraphicsEnvironment;
 import java.awt.Rectangle;
 import java.awt.datatransfer.Transferable;
@@ -18,8 +19,10 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.swing.AbstractAction;
@@ -29,6 +32,7 @@ import javax.swing.JComponent;
 import javax.swing.JList;
 import javax.swing.JMenuItem;
 import javax.swing.JPopupMenu;
+import javax.swing.ListCellRenderer;
 import javax.swing.ListSelectionModel;
 import javax.swing.TransferHandler;
 import javax.swing.event.ListDataEvent;
@@ -148,6 +152,7 @@ public class SelectionListDialog extends ToggleDialog {
 
         buildContentPanel();
         model.addListDataListener(new TitleUpdater());
+        model.addListDataListener(new CellSizeUpdater());
         model.addListDataListener(actZoomToJOSMSelection);
 
         popupMenu = new ListPopupMenu(lstPrimitives);
@@ -274,6 +279,53 @@ public class SelectionListDialog extends ToggleDialog {
         }
     }
 
+    /**
+     * Fixes the size of the list cells for large selections, so that the list does not measure every cell.
+     * The size is computed from a sample of the cells.
+     */
+    class CellSizeUpdater implements ListDataListener {
+        private static final int SAMPLE_SIZE = 1000;
+
+        protected void updateCellSize() {
+            int size = model.getSize();
+            if (size > Config.getPref().getInt("selection.fixed_cell_size_above", 10_000)) {
+                ListCellRenderer<? super OsmPrimitive> renderer = lstPrimitives.getCellRenderer();
+                int width = 0;
+                int height = 0;
+                for (int i = 0; i < SAMPLE_SIZE; i++) {
+                    int index = (int) ((long) i * size / SAMPLE_SIZE);
+                    Dimension d = renderer.getListCellRendererComponent(lstPrimitives, model.getElementAt(index), index, false, false)
+                            .getPreferredSize();
+                    width = Math.max(width, d.width);
+                    height = Math.max(height, d.height);
+                }
+                lstPrimitives.setFixedCellWidth(width);
+                lstPrimitives.setFixedCellHeight(height);
+            } else if (lstPrimitives.getFixedCellHeight() != -1) {
+                lstPrimitives.setFixedCellWidth(-1);
+                lstPrimitives.setFixedCellHeight(-1);
+            }
+        }
+
+        @Override
+        public void contentsChanged(ListDataEvent e) {
+            // updates of single rows do not change the cell size significantly
+            if (e.getIndex0() != e.getIndex1()) {
+                updateCellSize();
+            }
+        }
+
+        @Override
+        public void intervalAdded(ListDataEvent e) {
+            updateCellSize();
+        }
+
+        @Override
+        public void intervalRemoved(ListDataEvent e) {
+            updateCellSize();
+        }
+    }
+
     /**
      * Launches the search dialog
      */
@@ -468,6 +520,8 @@ public class SelectionListDialog extends ToggleDialog {
         // Variable to store history from currentDataSet()
         private LinkedList<Collection<? extends OsmPrimitive>> history;
         private final transient List<OsmPrimitive> selection = new ArrayList<>();
+        /** index of the primitives in {@link #selection}, built on demand */
+        private transient Map<OsmPrimitive, Integer> indexes;
         private final DefaultListSelectionModel selectionModel;
 
         /**
@@ -561,7 +615,8 @@ public class SelectionListDialog extends ToggleDialog {
          */
         public synchronized Collection<OsmPrimitive> getSelected() {
             Set<OsmPrimitive> sel = new HashSet<>();
-            for (int i = 0; i < getSize(); i++) {
+            int max = Math.min(selectionModel.getMaxSelectionIndex(), getSize() - 1);
+            for (int i = Math.max(0, selectionModel.getMinSelectionIndex()); i <= max; i++) {
                 if (selectionModel.isSelectedIndex(i)) {
                     sel.add(selection.get(i));
                 }
@@ -579,7 +634,7 @@ public class SelectionListDialog extends ToggleDialog {
             selectionModel.clearSelection();
             if (sel != null) {
                 for (OsmPrimitive p: sel) {
-                    int i = selection.indexOf(p);
+                    int i = indexOf(p);
                     if (i >= 0) {
                         selectionModel.addSelectionInterval(i, i);
                     }
@@ -588,6 +643,16 @@ public class SelectionListDialog extends ToggleDialog {
             selectionModel.setValueIsAdjusting(false);
         }
 
+        private synchronized int indexOf(OsmPrimitive p) {
+            if (indexes == null) {
+                indexes = new IdentityHashMap<>(selection.size());
+                for (int i = 0; i < selection.size(); i++) {
+                    indexes.put(selection.get(i), i);
+                }
+            }
+            return indexes.getOrDefault(p, -1);
+        }
+
         @Override
         protected void fireContentsChanged(Object source, int index0, int index1) {
             Collection<OsmPrimitive> sel = getSelected();
@@ -603,6 +668,7 @@ public class SelectionListDialog extends ToggleDialog {
         public void setJOSMSelection(final Collection<? extends OsmPrimitive> selection) {
             synchronized (this) {
                 this.selection.clear();
+                this.indexes = null;
                 if (selection != null) {
                     this.selection.addAll(selection);
                     sort();
@@ -628,12 +694,19 @@ public class SelectionListDialog extends ToggleDialog {
             if (toUpdate == null) return;
             if (toUpdate.isEmpty()) return;
             Collection<OsmPrimitive> sel = getSelected();
+            // fire a single event for the range of updated rows
+            int min = Integer.MAX_VALUE;
+            int max = -1;
             for (OsmPrimitive p: toUpdate) {
-                int i = selection.indexOf(p);
+                int i = indexOf(p);
                 if (i >= 0) {
-                    super.fireContentsChanged(this, i, i);
+                    min = Math.min(min, i);
+                    max = Math.max(max, i);
                 }
             }
+            if (max >= 0) {
+                super.fireContentsChanged(this, min, max);
+            }
             setSelected(sel);
         }
 
@@ -641,6 +714,7 @@ public class SelectionListDialog extends ToggleDialog {
          * Sorts the current elements in the selection
          */
         public synchronized void sort() {
+            indexes = null;
             int size = selection.size();
             if (size > 1 && size <= Config.getPref().getInt("selection.no_sort_above", 100_000)) {
                 boolean quick = size > Config.getPref().getInt("selection.fast_sort_above", 10_000);
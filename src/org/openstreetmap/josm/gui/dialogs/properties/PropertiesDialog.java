@@ -16,13 +16,15 @@ import java.awt.event.MouseEvent;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -581,26 +583,22 @@ implements DataSelectionListener, ActiveLayerChangeListener, DataSetListenerAdap
         tagData.setRowCount(0);
 
         final boolean displayDiscardableKeys = Config.getPref().getBoolean("display.discardable-keys", false);
-        final Map<String, Integer> keyCount = new HashMap<>();
+        final Collection<String> discardableKeys = AbstractPrimitive.getDiscardableKeys();
         final Map<String, String> tags = new HashMap<>();
         valueCount.clear();
         Set<TaggingPresetType> types = EnumSet.noneOf(TaggingPresetType.class);
+        // count in hash maps, the sorted maps used by the table are filled once at the end
+        final Map<String, Map<String, Integer>> counts = new HashMap<>();
         for (IPrimitive osm : newSel) {
             types.add(TaggingPresetType.forPrimitive(osm));
-            for (String key : osm.keySet()) {
-                if (displayDiscardableKeys || !AbstractPrimitive.getDiscardableKeys().contains(key)) {
-                    String value = osm.get(key);
-                    keyCount.put(key, keyCount.containsKey(key) ? keyCount.get(key) + 1 : 1);
-                    if (valueCount.containsKey(key)) {
-                        Map<String, Integer> v = valueCount.get(key);
-                        v.put(value, v.containsKey(value) ? v.get(value) + 1 : 1);
-                    } else {
-                        Map<String, Integer> v = new TreeMap<>();
-                        v.put(value, 1);
-                        valueCount.put(key, v);
-                    }
+            osm.visitKeys((p, key, value) -> {
+                if (displayDiscardableKeys || !discardableKeys.contains(key)) {
+                    counts.computeIfAbsent(key, k -> new HashMap<>()).merge(value, 1, Integer::sum);
                 }
-            }
+            });
+        }
+        for (Entry<String, Map<String, Integer>> e : counts.entrySet()) {
+            valueCount.put(e.getKey(), new TreeMap<>(e.getValue()));
         }
         for (Entry<String, Map<String, Integer>> e : valueCount.entrySet()) {
             int count = 0;
@@ -617,20 +615,28 @@ implements DataSelectionListener, ActiveLayerChangeListener, DataSetListenerAdap
 
         membershipData.setRowCount(0);
 
-        Map<IRelation<?>, MemberInfo> roles = new HashMap<>();
+        // visit the members of each parent relation once, and not once per selected member
+        Set<IRelation<?>> parents = new LinkedHashSet<>();
         for (IPrimitive primitive: newSel) {
             for (IPrimitive ref: primitive.getReferrers(true)) {
                 if (ref instanceof IRelation && !ref.isIncomplete() && !ref.isDeleted()) {
-                    IRelation<?> r = (IRelation<?>) ref;
-                    MemberInfo mi = Optional.ofNullable(roles.get(r)).orElseGet(() -> new MemberInfo(newSel));
-                    roles.put(r, mi);
-                    int i = 1;
-                    for (IRelationMember<?> m : r.getMembers()) {
-                        if (m.getMember() == primitive) {
-                            mi.add(m, i);
-                        }
-                        ++i;
+                    parents.add((IRelation<?>) ref);
+                }
+            }
+        }
+        Map<IRelation<?>, MemberInfo> roles = new HashMap<>();
+        if (!parents.isEmpty()) {
+            Set<IPrimitive> selected = Collections.newSetFromMap(new IdentityHashMap<>(newSel.size()));
+            selected.addAll(newSel);
+            for (IRelation<?> r : parents) {
+                MemberInfo mi = new MemberInfo(newSel);
+                roles.put(r, mi);
+                int i = 1;
+                for (IRelationMember<?> m : r.getMembers()) {
+                    if (selected.contains(m.getMember())) {
+                        mi.add(m, i);
                     }
+                    ++i;
                 }
             }
         }
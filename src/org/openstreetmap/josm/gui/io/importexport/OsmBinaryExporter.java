@@ -0,0 +1,34 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.io.importexport;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.io.OsmBinaryWriter;
+
+/**
+ * Exports data to an .osmb file, the compact binary format used for autosave and sessions.
+ * @see OsmBinaryWriter
+ */
+public class OsmBinaryExporter extends OsmExporter {
+
+    /**
+     * Constructs a new {@code OsmBinaryExporter}.
+     */
+    public OsmBinaryExporter() {
+        super(new ExtensionFileFilter(
+            "osmb", "osmb", tr("JOSM binary OSM data") + " (*.osmb)"));
+    }
+
+    @Override
+    protected void doSave(File file, OsmDataLayer layer) throws IOException {
+        try (OsmBinaryWriter w = new OsmBinaryWriter(new BufferedOutputStream(getOutputStream(file)))) {
+            w.write(layer.data);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.io.importexport;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.InputStream;
+
+import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.io.OsmBinaryReader;
+
+/**
+ * File importer that reads *.osmb files, the compact binary format used for autosave and sessions.
+ * @see OsmBinaryReader
+ */
+public class OsmBinaryImporter extends OsmImporter {
+
+    /**
+     * The binary OSM file filter (*.osmb files).
+     */
+    public static final ExtensionFileFilter FILE_FILTER = new ExtensionFileFilter(
+            "osmb", "osmb", tr("JOSM binary OSM data") + " (*.osmb)");
+
+    /**
+     * Constructs a new {@code OsmBinaryImporter}.
+     */
+    public OsmBinaryImporter() {
+        super(FILE_FILTER);
+    }
+
+    @Override
+    protected DataSet parseDataSet(InputStream in, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return OsmBinaryReader.parseDataSet(in, progressMonitor);
+    }
+}
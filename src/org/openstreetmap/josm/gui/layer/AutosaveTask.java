@@ -5,9 +5,11 @@ import static org.openstreetmap.josm.tools.I18n.marktr;
 import static org.openstreetmap.josm.tools.I18n.tr;
 import static org.openstreetmap.josm.tools.Utils.getSystemProperty;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.lang.management.ManagementFactory;
@@ -17,11 +19,13 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -34,15 +38,22 @@ import org.openstreetmap.josm.actions.OpenFileAction.OpenFileTask;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.NoteData;
 import org.openstreetmap.josm.data.osm.NoteData.NoteDataUpdateListener;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
 import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
 import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
 import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter.Listener;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
 import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.Notification;
 import org.openstreetmap.josm.gui.io.importexport.NoteExporter;
 import org.openstreetmap.josm.gui.io.importexport.NoteImporter;
+import org.openstreetmap.josm.gui.io.importexport.OsmBinaryExporter;
+import org.openstreetmap.josm.gui.io.importexport.OsmBinaryImporter;
 import org.openstreetmap.josm.gui.io.importexport.OsmExporter;
 import org.openstreetmap.josm.gui.io.importexport.OsmImporter;
 import org.openstreetmap.josm.gui.layer.LayerManager.LayerAddEvent;
@@ -50,6 +61,7 @@ import org.openstreetmap.josm.gui.layer.LayerManager.LayerChangeListener;
 import org.openstreetmap.josm.gui.layer.LayerManager.LayerOrderChangeEvent;
 import org.openstreetmap.josm.gui.layer.LayerManager.LayerRemoveEvent;
 import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.io.OsmBinaryWriter;
 import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Utils;
@@ -70,6 +82,11 @@ import org.openstreetmap.josm.tools.Utils;
  *
  *      The deleted layers dir keeps at most PROP_DELETED_LAYERS files.
  *
+ * Data layers are saved in the binary .osmb format by default. The last file of a layer is then used as a journal:
+ * instead of rewriting the whole layer, only the primitives changed since the previous save are appended to it.
+ * After PROP_COMPACTION_DELTAS appends, or when the appended data outgrows the initial snapshot, a new file
+ * containing a full snapshot is started.
+ *
  * @since  3378 (creation)
  * @since 10386 (new LayerChangeListener interface)
  */
@@ -103,20 +120,68 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
      * Defines if a notification should be displayed after each autosave
      */
     public static final BooleanProperty PROP_NOTIFICATION = new BooleanProperty("autosave.notification", false);
+    /**
+     * The number of deltas appended to an autosave file before a new full snapshot is written
+     */
+    public static final IntegerProperty PROP_COMPACTION_DELTAS = new IntegerProperty("autosave.compaction-deltas", 20);
 
     protected static final class AutosaveLayerInfo<T extends AbstractModifiableLayer> {
         private final T layer;
         private String layerName;
         private String layerFileName;
         private final Deque<File> backupFiles = new LinkedList<>();
+        /** File to which deltas of this layer are appended, or {@code null} if the next save must be a snapshot */
+        private File journal;
+        private long snapshotSize;
+        private int deltas;
 
         AutosaveLayerInfo(T layer) {
             this.layer = layer;
         }
     }
 
+    /**
+     * Primitives changed or removed in a data set since it has last been saved.
+     */
+    private static final class DataSetChanges {
+        private final Set<OsmPrimitive> changed = new HashSet<>();
+        private final Set<PrimitiveId> removed = new HashSet<>();
+        /** Whether the changes are unknown, so that a full snapshot is required */
+        private boolean full;
+
+        void add(AbstractDatasetChangedEvent event) {
+            if (full) {
+                return;
+            }
+            if (event instanceof DataChangedEvent) {
+                List<AbstractDatasetChangedEvent> events = ((DataChangedEvent) event).getEvents();
+                if (events == null) {
+                    full = true;
+                    changed.clear();
+                    removed.clear();
+                } else {
+                    for (AbstractDatasetChangedEvent e : events) {
+                        add(e);
+                    }
+                }
+            } else if (event instanceof PrimitivesRemovedEvent) {
+                // Record the id now, it may change afterwards (e.g., new primitives after upload)
+                for (OsmPrimitive p : event.getPrimitives()) {
+                    removed.add(new SimplePrimitiveId(p.getUniqueId(), p.getType()));
+                }
+            } else {
+                changed.addAll(event.getPrimitives());
+            }
+        }
+
+        boolean isEmpty() {
+            return !full && changed.isEmpty() && removed.isEmpty();
+        }
+    }
+
     private final DataSetListenerAdapter datasetAdapter = new DataSetListenerAdapter(this);
-    private final Set<DataSet> changedDatasets = new HashSet<>();
+    /** Changes of data sets since their last save, guarded by itself as it is updated from the event dispatching thread */
+    private final Map<DataSet, DataSetChanges> changedDatasets = new HashMap<>();
     private final Set<NoteData> changedNoteData = new HashSet<>();
     private final List<AutosaveLayerInfo<?>> layersInfo = new ArrayList<>();
     private final Object layersLock = new Object();
@@ -202,7 +267,7 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
             File result = new File(autosaveDir, filename + '.' +
                     (layer.layer instanceof NoteLayer ?
                             Config.getPref().get("autosave.notes.extension", "osn") :
-                            Config.getPref().get("autosave.extension", "osm")));
+                            Config.getPref().get("autosave.extension", "osmb")));
             try {
                 if (index > PROP_INDEX_LIMIT.get())
                     throw new IOException("index limit exceeded");
@@ -233,15 +298,18 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
         if (!info.layer.getName().equals(info.layerName)) {
             setLayerFileName(info);
             info.layerName = info.layer.getName();
+            info.journal = null;
         }
         try {
             if (info.layer instanceof OsmDataLayer) {
                 OsmDataLayer dataLayer = (OsmDataLayer) info.layer;
-                if (changedDatasets.remove(dataLayer.data)) {
-                    File file = getNewLayerFile(info, new Date(), 0);
-                    if (file != null) {
-                        info.backupFiles.add(file);
-                        new OsmExporter().exportData(file, info.layer, true /* no backup with appended ~ */);
+                DataSetChanges changes;
+                synchronized (changedDatasets) {
+                    changes = changedDatasets.remove(dataLayer.data);
+                }
+                if (changes != null && !changes.isEmpty()) {
+                    if (!canAppendDelta(info, changes) || !appendDelta(info, dataLayer.data, changes)) {
+                        saveSnapshot(info);
                     }
                 }
             } else if (info.layer instanceof NoteLayer) {
@@ -265,6 +333,44 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
         }
     }
 
+    private static boolean canAppendDelta(AutosaveLayerInfo<?> info, DataSetChanges changes) {
+        return !changes.full && info.journal != null && info.journal.equals(info.backupFiles.peekLast())
+                && info.deltas < PROP_COMPACTION_DELTAS.get()
+                && info.journal.length() - info.snapshotSize < info.snapshotSize;
+    }
+
+    private static boolean appendDelta(AutosaveLayerInfo<?> info, DataSet data, DataSetChanges changes) {
+        try (OsmBinaryWriter w = new OsmBinaryWriter(new BufferedOutputStream(new FileOutputStream(info.journal, true)))) {
+            data.getReadLock().lock();
+            try {
+                w.writeDelta(data, changes.changed, changes.removed);
+            } finally {
+                data.getReadLock().unlock();
+            }
+            info.deltas++;
+            return true;
+        } catch (IOException e) {
+            Logging.log(Logging.LEVEL_WARN, tr("Unable to append to autosave file {0}, saving full snapshot", info.journal), e);
+            return false;
+        }
+    }
+
+    private void saveSnapshot(AutosaveLayerInfo<?> info) {
+        info.journal = null;
+        File file = getNewLayerFile(info, new Date(), 0);
+        if (file != null) {
+            info.backupFiles.add(file);
+            if (file.getName().endsWith(".osmb")) {
+                new OsmBinaryExporter().exportData(file, info.layer, true /* no backup with appended ~ */);
+                info.journal = file;
+                info.snapshotSize = file.length();
+                info.deltas = 0;
+            } else {
+                new OsmExporter().exportData(file, info.layer, true /* no backup with appended ~ */);
+            }
+        }
+    }
+
     @Override
     public void run() {
         synchronized (layersLock) {
@@ -272,7 +378,6 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
                 for (AutosaveLayerInfo<?> info: layersInfo) {
                     savelayer(info);
                 }
-                changedDatasets.clear();
                 changedNoteData.clear();
                 if (PROP_NOTIFICATION.get() && !layersInfo.isEmpty()) {
                     GuiHelper.runInEDT(this::displayNotification);
@@ -360,7 +465,9 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
 
     @Override
     public void processDatasetEvent(AbstractDatasetChangedEvent event) {
-        changedDatasets.add(event.getDataset());
+        synchronized (changedDatasets) {
+            changedDatasets.computeIfAbsent(event.getDataset(), ds -> new DataSetChanges()).add(event);
+        }
     }
 
     @Override
@@ -378,15 +485,16 @@ public class AutosaveTask extends TimerTask implements LayerChangeListener, List
     }
 
     /**
-     * Replies the list of .osm files still present in autosave dir, that are not currently managed by another instance of JOSM.
+     * Replies the list of .osm/.osmb files still present in autosave dir, that are not currently managed by another instance of JOSM.
      * These files are hence unsaved layers from an old instance of JOSM that crashed and may be recovered by this instance.
-     * @return The list of .osm files still present in autosave dir, that are not currently managed by another instance of JOSM
+     * @return The list of .osm/.osmb files still present in autosave dir, that are not currently managed by another instance of JOSM
      */
     public List<File> getUnsavedLayersFiles() {
         List<File> result = new ArrayList<>();
         try {
             File[] files = autosaveDir.listFiles((FileFilter)
-                    pathname -> OsmImporter.FILE_FILTER.accept(pathname) || NoteImporter.FILE_FILTER.accept(pathname));
+                    pathname -> OsmImporter.FILE_FILTER.accept(pathname) || OsmBinaryImporter.FILE_FILTER.accept(pathname)
+                            || NoteImporter.FILE_FILTER.accept(pathname));
             if (files == null)
                 return result;
             for (File file: files) {
@@ -22,6 +22,7 @@ import org.openstreetmap.josm.data.preferences.sources.MapPaintPrefHelper;
 import org.openstreetmap.josm.data.preferences.sources.SourceEntry;
 import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
 import org.openstreetmap.josm.gui.mappaint.styleelement.MapImage;
+import org.openstreetmap.josm.gui.mappaint.styleelement.MapImageLoader;
 import org.openstreetmap.josm.gui.mappaint.styleelement.NodeElement;
 import org.openstreetmap.josm.gui.mappaint.styleelement.StyleElement;
 import org.openstreetmap.josm.io.CachedFile;
@@ -299,6 +300,7 @@ public final class MapPaintStyles {
      * Reloads all styles from the preferences.
      */
     public static void readFromPreferences() {
+        styles.getStyleSources().forEach(MapImageLoader::forget);
         styles.clear();
 
         Collection<? extends SourceEntry> sourceEntries = MapPaintPrefHelper.INSTANCE.get();
@@ -411,6 +413,8 @@ public final class MapPaintStyles {
             s.active = !s.active;
             if (s.active && !s.isLoaded()) {
                 loadStyleForFirstTime(s);
+            } else if (!s.active) {
+                MapImageLoader.forget(s);
             }
         }
         MapPaintPrefHelper.INSTANCE.put(data);
@@ -441,6 +445,8 @@ public final class MapPaintStyles {
      */
     public static void removeStyle(SourceEntry entry) {
         StyleSource source = fromSourceEntry(entry);
+        // the loaded icons are associated with the instance in the list, which is equal to the new instance
+        styles.getStyleSources().stream().filter(source::equals).forEach(MapImageLoader::forget);
         if (styles.remove(source)) {
             refreshStyles();
         }
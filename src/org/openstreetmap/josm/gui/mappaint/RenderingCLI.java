@@ -8,6 +8,7 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -19,8 +20,9 @@ import java.util.logging.Level;
 
 import javax.imageio.ImageIO;
 
-import org.openstreetmap.gui.jmapviewer.OsmMercator;
+import org.openstreetmap.josm.actions.DeleteAction;
 import org.openstreetmap.josm.cli.CLIModule;
+import org.openstreetmap.josm.command.DeleteCommand;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.ProjectionBounds;
 import org.openstreetmap.josm.data.coor.EastNorth;
@@ -33,6 +35,8 @@ import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.data.projection.ProjectionRegistry;
 import org.openstreetmap.josm.data.projection.Projections;
 import org.openstreetmap.josm.gui.mappaint.RenderingHelper.StyleData;
+import org.openstreetmap.josm.gui.mappaint.TileBatchRenderer.Tile;
+import org.openstreetmap.josm.gui.mappaint.TileBatchRenderer.TileOutput;
 import org.openstreetmap.josm.io.IllegalDataException;
 import org.openstreetmap.josm.io.OsmReader;
 import org.openstreetmap.josm.spi.preferences.Config;
@@ -75,6 +79,10 @@ public class RenderingCLI implements CLIModule {
     private Integer argHeightPx;
     private String argProjection;
     private Integer argMaxImageSize;
+    private Integer argTilesMinZoom;
+    private Integer argTilesMaxZoom;
+    private String argTileList;
+    private Integer argThreads;
 
     private enum Option {
         HELP(false, 'h'),
@@ -93,7 +101,10 @@ public class RenderingCLI implements CLIModule {
         WIDTH_PX(true, '*'),
         HEIGHT_PX(true, '*'),
         PROJECTION(true, '*'),
-        MAX_IMAGE_SIZE(true, '*');
+        MAX_IMAGE_SIZE(true, '*'),
+        TILES(true, '*'),
+        TILE_LIST(true, '*'),
+        THREADS(true, '*');
 
         private final String name;
         private final boolean requiresArg;
@@ -159,11 +170,15 @@ public class RenderingCLI implements CLIModule {
             parseArguments(argArray);
             initialize();
             DataSet ds = loadDataset();
-            RenderingArea area = determineRenderingArea(ds);
-            RenderingHelper rh = new RenderingHelper(ds, area.bounds, area.scale, argStyles);
-            checkPreconditions(rh);
-            BufferedImage image = rh.render();
-            writeImageToFile(image);
+            if (isTileMode()) {
+                renderTiles(ds);
+            } else {
+                RenderingArea area = determineRenderingArea(ds);
+                RenderingHelper rh = new RenderingHelper(ds, area.bounds, area.scale, argStyles);
+                checkPreconditions(rh);
+                BufferedImage image = rh.render();
+                writeImageToFile(image);
+            }
         } catch (FileNotFoundException e) {
             if (Logging.isDebugEnabled()) {
                 e.printStackTrace();
@@ -338,6 +353,35 @@ public class RenderingCLI implements CLIModule {
                     if (argMaxImageSize < 0) throw new IllegalArgumentException(
                             tr("Expected integer number >= 0 for option {0}, but got ''{1}''", "--max-image-size", getopt.getOptarg()));
                     break;
+                case TILES:
+                    String[] zooms = getopt.getOptarg().split("-");
+                    try {
+                        if (zooms.length < 1 || zooms.length > 2) throw new NumberFormatException();
+                        argTilesMinZoom = Integer.valueOf(zooms[0].trim());
+                        argTilesMaxZoom = Integer.valueOf(zooms[zooms.length - 1].trim());
+                    } catch (NumberFormatException nfe) {
+                        throw new IllegalArgumentException(
+                                tr("Expected zoom level or range of zoom levels for option {0}, but got ''{1}''", "--tiles", getopt.getOptarg()),
+                                nfe);
+                    }
+                    if (argTilesMinZoom < 0 || argTilesMaxZoom < argTilesMinZoom || argTilesMaxZoom > Tile.MAX_ZOOM)
+                        throw new IllegalArgumentException(
+                                tr("Expected zoom levels between {0} and {1} for option {2}, but got ''{3}''",
+                                        0, Tile.MAX_ZOOM, "--tiles", getopt.getOptarg()));
+                    break;
+                case TILE_LIST:
+                    argTileList = getopt.getOptarg();
+                    break;
+                case THREADS:
+                    try {
+                        argThreads = Integer.valueOf(getopt.getOptarg());
+                    } catch (NumberFormatException nfe) {
+                        throw new IllegalArgumentException(
+                                tr("Expected integer number for option {0}, but got ''{1}''", "--threads", getopt.getOptarg()), nfe);
+                    }
+                    if (argThreads <= 0) throw new IllegalArgumentException(
+                            tr("Expected integer number > 0 for option {0}, but got ''{1}''", "--threads", getopt.getOptarg()));
+                    break;
                 default:
                     throw new AssertionError("Unexpected option index: " + getopt.getLongind());
                 }
@@ -392,6 +436,14 @@ public class RenderingCLI implements CLIModule {
                 "\t--projection <code>       "+tr("Projection to use, default value ''{0}'' (web-Mercator)", "epsg:3857")+"\n"+
                 "\t--max-image-size <number> "+tr("Maximum image width/height in pixel (''{0}'' means no limit), default value: {1}",
                                                     0, Integer.toString(DEFAULT_MAX_IMAGE_SIZE))+"\n"+
+                "\t--tiles <lvl>[-<max_lvl>] "+tr("Render the 256x256 pixel web-Mercator tiles covering the rendered area, "
+                                                + "at the given zoom level or range of zoom levels")+"\n"+
+                "\t--tile-list <file>        "+tr("Render the tiles listed in the file, one <zoom>/<x>/<y> tile per line")+"\n"+
+                "\t                          "+tr("With options {0} and {1}, the tiles are written to the directory given by {2} "
+                                                + "(default value ''{3}''), as <zoom>/<x>/<y>.png files, "
+                                                + "or to a zip archive of such files if its name ends with ''{4}''.",
+                                                "--tiles", "--tile-list", "--output", "tiles", ".zip")+"\n"+
+                "\t--threads <number>        "+tr("Number of tiles rendered in parallel, default value: number of processors")+"\n"+
                 "\n"+
                 tr("To specify the rendered area and scale, the options can be combined in various ways")+":\n"+
                 "  * --bounds (--zoom|--scale|--width-px|--height-px)\n"+
@@ -410,7 +462,10 @@ public class RenderingCLI implements CLIModule {
                 "  josm render -i data.osm -s style.mapcss --bounds 21.151,51.401,21.152,51.402 -z 16\n"+
                 "  josm render -i data.osm -s style.mapcss --anchor 21.151,51.401 --width-m 500 --height-m 300 -z 16\n"+
                 "  josm render -i data.osm -s style.mapcss --anchor 21.151,51.401 --width-m 500 --height-m 300 --width-px 1800\n"+
-                "  josm render -i data.osm -s style.mapcss --scale 5000 --projection epsg:4326\n";
+                "  josm render -i data.osm -s style.mapcss --scale 5000 --projection epsg:4326\n"+
+                "  josm render -i data.osm -s style.mapcss --tiles 14-17 -o tiles\n"+
+                "  josm render -i data.osm -s style.mapcss --bounds 21.151,51.401,21.152,51.402 --tiles 16-18 -o tiles.zip\n"+
+                "  josm render -i data.osm -s style.mapcss --tile-list tiles.txt --threads 8 -o tiles\n";
     }
 
     /**
@@ -428,6 +483,7 @@ public class RenderingCLI implements CLIModule {
         String projCode = Optional.ofNullable(argProjection).orElse("epsg:3857");
         ProjectionRegistry.setProjection(Projections.getProjectionByCode(projCode.toUpperCase(Locale.US)));
 
+        DeleteCommand.setDeletionCallback(DeleteAction.defaultDeletionCallback); // to compute right-left-hand traffic data
         RightAndLefthandTraffic.initialize();
     }
 
@@ -451,7 +507,7 @@ public class RenderingCLI implements CLIModule {
         Projection proj = ProjectionRegistry.getProjection();
         Double scale = null; // scale in east-north units per pixel
         if (argZoom != null) {
-            scale = OsmMercator.EARTH_RADIUS * Math.PI * 2 / Math.pow(2, argZoom) / OsmMercator.DEFAUL_TILE_SIZE / proj.getMetersPerUnit();
+            scale = Tile.getScale(argZoom);
         }
         Bounds bounds = argBounds;
         ProjectionBounds pb = null;
@@ -560,9 +616,68 @@ public class RenderingCLI implements CLIModule {
         }
     }
 
-    private void checkPreconditions(RenderingHelper rh) {
+    /**
+     * Determines if tiles are rendered, instead of a single image.
+     * @return {@code true} if tiles are rendered
+     */
+    boolean isTileMode() {
+        return argTilesMinZoom != null || argTileList != null;
+    }
+
+    /**
+     * Find the tiles to render, given the tile options and the dataset.
+     * @param ds the dataset
+     * @return the tiles to render
+     * @throws IOException if the tile list cannot be read
+     */
+    List<Tile> determineTiles(DataSet ds) throws IOException {
+        if (argTilesMinZoom != null && argTileList != null)
+            throw new IllegalArgumentException(tr("Options {0} and {1} are mutually exclusive.", "--tiles", "--tile-list"));
+        if (argProjection != null && !"epsg:3857".equalsIgnoreCase(argProjection))
+            throw new IllegalArgumentException(tr("Tiles can only be rendered in projection ''{0}''", "epsg:3857"));
+        List<Tile> tiles = new ArrayList<>();
+        if (argTileList != null) {
+            for (String line : Files.readAllLines(Paths.get(argTileList), StandardCharsets.UTF_8)) {
+                if (!line.trim().isEmpty() && !line.trim().startsWith("#")) {
+                    tiles.add(Tile.parse(line));
+                }
+            }
+        } else {
+            Bounds bounds = argBounds;
+            if (bounds == null) {
+                if (ds.getDataSourceBounds().isEmpty()) {
+                    throw new IllegalArgumentException(tr("{0} mode, but no bounds found in osm data input file", "--bounds=auto"));
+                }
+                bounds = ds.getDataSourceBounds().get(0);
+            }
+            for (int zoom = argTilesMinZoom; zoom <= argTilesMaxZoom; zoom++) {
+                tiles.addAll(Tile.covering(bounds, zoom));
+            }
+        }
+        return tiles;
+    }
+
+    private void renderTiles(DataSet ds) throws IOException, IllegalDataException {
+        List<Tile> tiles = determineTiles(ds);
+        checkStyles();
+        ElemStyles styles = RenderingHelper.loadStyles(argStyles);
+        int threads = Optional.ofNullable(argThreads).orElseGet(() -> Runtime.getRuntime().availableProcessors());
+        String output = Optional.ofNullable(argOutput).orElse("tiles");
+        Logging.info(tr("Rendering {0} tiles with {1} threads", tiles.size(), threads));
+        try (TileOutput out = output.endsWith(".zip")
+                ? TileBatchRenderer.toZipArchive(new File(output))
+                : TileBatchRenderer.toDirectory(new File(output))) {
+            new TileBatchRenderer(ds, styles, threads).render(tiles, out);
+        }
+    }
+
+    private void checkStyles() {
         if (argStyles.isEmpty())
             throw new IllegalArgumentException(tr("Missing argument - at least one style expected ({0})", "--style"));
+    }
+
+    private void checkPreconditions(RenderingHelper rh) {
+        checkStyles();
 
         Dimension imgSize = rh.getImageSize();
         Logging.debug("image size (px): {0}x{1}", imgSize.width, imgSize.height);
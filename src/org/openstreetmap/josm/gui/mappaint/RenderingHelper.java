@@ -108,7 +108,19 @@ public class RenderingHelper {
      * @throws IllegalDataException when illegal data is encountered (style has errors, etc.)
      */
     public BufferedImage render() throws IOException, IllegalDataException {
-        // load the styles
+        return render(loadStyles(styles));
+    }
+
+    /**
+     * Loads the given styles, so that they can be used for several renderings.
+     *
+     * @param styles the styles to load
+     * @return the loaded styles
+     * @throws IOException in case of an IOException
+     * @throws IllegalDataException when illegal data is encountered (style has errors, etc.)
+     * @see #render(ElemStyles)
+     */
+    public static ElemStyles loadStyles(Collection<StyleData> styles) throws IOException, IllegalDataException {
         ElemStyles elemStyles = new ElemStyles();
         MapCSSStyleSource.STYLE_SOURCE_LOCK.writeLock().lock();
         try {
@@ -140,7 +152,18 @@ public class RenderingHelper {
         } finally {
             MapCSSStyleSource.STYLE_SOURCE_LOCK.writeLock().unlock();
         }
+        return elemStyles;
+    }
 
+    /**
+     * Invoke the renderer with styles already loaded.
+     * <p>
+     * Several renderings can be executed in parallel with the same styles and dataset.
+     *
+     * @param elemStyles the loaded styles, see {@link #loadStyles(Collection)}
+     * @return the rendered image
+     */
+    public BufferedImage render(ElemStyles elemStyles) {
         Dimension imgDimPx = getImageSize();
         NavigatableComponent nc = new NavigatableComponent() {
             {
@@ -182,6 +205,7 @@ public class RenderingHelper {
         StyledMapRenderer smr = new StyledMapRenderer(g, nc, false);
         smr.setStyles(elemStyles);
         smr.render(ds, false, bounds);
+        g.dispose();
         return image;
     }
 
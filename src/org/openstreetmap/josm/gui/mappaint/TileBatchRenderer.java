@@ -0,0 +1,353 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.imageio.ImageIO;
+
+import org.openstreetmap.gui.jmapviewer.OsmMercator;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.IPrimitive;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Pair;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Renders osm data to many map tiles, in parallel.
+ * <p>
+ * The dataset and the styles are shared by all renderings, each tile is rendered by its own
+ * {@link org.openstreetmap.josm.data.osm.visitor.paint.StyledMapRenderer}. Primitives crossing tile borders are
+ * styled by several renderings at once, so the style cache of a primitive is updated by one rendering at a time.
+ * Tiles are rendered zoom level by zoom level, so that the cached styles computed for a tile are mostly valid
+ * for the other tiles rendered at the same time.
+ */
+public class TileBatchRenderer {
+
+    private final DataSet ds;
+    private final ElemStyles styles;
+    private final int threads;
+
+    /**
+     * Styles shared by concurrent renderings.
+     * <p>
+     * {@link ElemStyles#getStyleCacheWithRange} reads the style cache of a primitive, extends it and writes it back
+     * without lock, so it must not be called for the same primitive in parallel threads (see StyledMapRenderer).
+     */
+    private static final class SharedElemStyles extends ElemStyles {
+        SharedElemStyles(ElemStyles styles) {
+            setStyleSources(styles.getStyleSources());
+        }
+
+        @Override
+        public Pair<StyleElementList, Range> getStyleCacheWithRange(IPrimitive osm, double scale, NavigatableComponent nc) {
+            // ElemStyles locks the parent relations of a way while computing its styles, never the other way round
+            synchronized (osm) {
+                return super.getStyleCacheWithRange(osm, scale, nc);
+            }
+        }
+    }
+
+    /**
+     * A tile of the web-Mercator tiling scheme.
+     */
+    public static final class Tile {
+        /** Maximum zoom level, at which pixel coordinates still fit in an {@code int} */
+        public static final int MAX_ZOOM = 22;
+
+        private final int zoom;
+        private final int x;
+        private final int y;
+
+        /**
+         * Constructs a new {@code Tile}.
+         * @param zoom zoom level
+         * @param x tile column
+         * @param y tile row, from the north
+         * @throws IllegalArgumentException if the tile does not exist at this zoom level
+         */
+        public Tile(int zoom, int x, int y) {
+            if (zoom < 0 || zoom > MAX_ZOOM || x < 0 || y < 0 || x >= 1 << zoom || y >= 1 << zoom) {
+                throw new IllegalArgumentException(tr("Invalid tile: ''{0}''", zoom + "/" + x + '/' + y));
+            }
+            this.zoom = zoom;
+            this.x = x;
+            this.y = y;
+        }
+
+        /**
+         * Parses a tile given as {@code <zoom>/<x>/<y>}.
+         * @param s the tile
+         * @return the parsed tile
+         * @throws IllegalArgumentException if the tile cannot be parsed
+         */
+        public static Tile parse(String s) {
+            String[] parts = s.trim().split("/");
+            if (parts.length == 3) {
+                try {
+                    return new Tile(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+                } catch (NumberFormatException e) {
+                    Logging.trace(e);
+                }
+            }
+            throw new IllegalArgumentException(tr("Invalid tile: ''{0}''", s));
+        }
+
+        /**
+         * Returns the tiles covering the given area.
+         * @param bounds the area
+         * @param zoom zoom level
+         * @return the tiles covering the area, by row
+         */
+        public static List<Tile> covering(Bounds bounds, int zoom) {
+            OsmMercator mercator = OsmMercator.MERCATOR_256;
+            int max = (1 << zoom) - 1;
+            int minX = clamp(mercator.lonToX(bounds.getMinLon(), zoom), max);
+            int maxX = clamp(mercator.lonToX(bounds.getMaxLon(), zoom), max);
+            int minY = clamp(mercator.latToY(bounds.getMaxLat(), zoom), max);
+            int maxY = clamp(mercator.latToY(bounds.getMinLat(), zoom), max);
+            List<Tile> tiles = new ArrayList<>((maxX - minX + 1) * (maxY - minY + 1));
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    tiles.add(new Tile(zoom, x, y));
+                }
+            }
+            return tiles;
+        }
+
+        private static int clamp(double pixel, int max) {
+            return Utils.clamp((int) Math.floor(pixel / OsmMercator.DEFAUL_TILE_SIZE), 0, max);
+        }
+
+        /**
+         * Returns the zoom level.
+         * @return the zoom level
+         */
+        public int getZoom() {
+            return zoom;
+        }
+
+        /**
+         * Returns the tile column.
+         * @return the tile column
+         */
+        public int getX() {
+            return x;
+        }
+
+        /**
+         * Returns the tile row, from the north.
+         * @return the tile row
+         */
+        public int getY() {
+            return y;
+        }
+
+        /**
+         * Returns the area covered by this tile.
+         * @return the area covered by this tile
+         */
+        public Bounds getBounds() {
+            OsmMercator mercator = OsmMercator.MERCATOR_256;
+            int size = OsmMercator.DEFAUL_TILE_SIZE;
+            return new Bounds(
+                    mercator.yToLat((y + 1) * size, zoom), mercator.xToLon(x * size, zoom),
+                    mercator.yToLat(y * size, zoom), mercator.xToLon((x + 1) * size, zoom));
+        }
+
+        /**
+         * Returns the scale to render tiles at the given zoom level.
+         * @param zoom zoom level
+         * @return the scale, in east/north units of the current projection per pixel
+         */
+        public static double getScale(int zoom) {
+            return OsmMercator.EARTH_RADIUS * Math.PI * 2 / Math.pow(2, zoom) / OsmMercator.DEFAUL_TILE_SIZE
+                    / ProjectionRegistry.getProjection().getMetersPerUnit();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            Tile other = (Tile) obj;
+            return zoom == other.zoom && x == other.x && y == other.y;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(zoom, x, y);
+        }
+
+        @Override
+        public String toString() {
+            return zoom + "/" + x + '/' + y;
+        }
+    }
+
+    /**
+     * Destination of rendered tiles. Implementations must be thread safe.
+     */
+    @FunctionalInterface
+    public interface TileOutput extends Closeable {
+        /**
+         * Writes a rendered tile.
+         * @param tile the tile
+         * @param png the PNG image of the tile
+         * @throws IOException if an I/O error occurs
+         */
+        void write(Tile tile, byte[] png) throws IOException;
+
+        @Override
+        default void close() throws IOException {
+            // nothing to do by default
+        }
+    }
+
+    /**
+     * Returns an output writing tiles to {@code <dir>/<zoom>/<x>/<y>.png} files.
+     * @param dir the base directory
+     * @return the tile output
+     */
+    public static TileOutput toDirectory(File dir) {
+        return (tile, png) -> {
+            File tileDir = new File(dir, tile.getZoom() + File.separator + tile.getX());
+            Files.createDirectories(tileDir.toPath());
+            Files.write(new File(tileDir, tile.getY() + ".png").toPath(), png);
+        };
+    }
+
+    /**
+     * Returns an output writing tiles to a zip archive, as uncompressed {@code <zoom>/<x>/<y>.png} entries.
+     * Tiles are written to the archive as soon as they are rendered, the central directory of the archive
+     * allows to read them by name without extracting the archive.
+     * @param file the archive file
+     * @return the tile output
+     * @throws IOException if the file cannot be created
+     */
+    public static TileOutput toZipArchive(File file) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath())));
+        return new TileOutput() {
+            @Override
+            public synchronized void write(Tile tile, byte[] png) throws IOException {
+                // PNG images are already compressed
+                ZipEntry entry = new ZipEntry(tile + ".png");
+                CRC32 crc = new CRC32();
+                crc.update(png);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(png.length);
+                entry.setCrc(crc.getValue());
+                zip.putNextEntry(entry);
+                zip.write(png);
+                zip.closeEntry();
+            }
+
+            @Override
+            public synchronized void close() throws IOException {
+                zip.close();
+            }
+        };
+    }
+
+    /**
+     * Constructs a new {@code TileBatchRenderer}.
+     * @param ds the dataset to render
+     * @param styles the loaded styles, see {@link RenderingHelper#loadStyles(Collection)}
+     * @param threads the number of tiles rendered in parallel
+     */
+    public TileBatchRenderer(DataSet ds, ElemStyles styles, int threads) {
+        CheckParameterUtil.ensureParameterNotNull(ds, "ds");
+        CheckParameterUtil.ensureParameterNotNull(styles, "styles");
+        this.ds = ds;
+        this.styles = new SharedElemStyles(styles);
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Renders the given tiles. Duplicate tiles are rendered once.
+     * @param tiles the tiles to render
+     * @param output the destination of the rendered tiles
+     * @return the number of rendered tiles
+     * @throws IOException if a tile cannot be written
+     */
+    public int render(Collection<Tile> tiles, TileOutput output) throws IOException {
+        Map<Integer, Set<Tile>> byZoom = new TreeMap<>();
+        for (Tile tile : tiles) {
+            byZoom.computeIfAbsent(tile.getZoom(), z -> new LinkedHashSet<>()).add(tile);
+        }
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, Utils.newThreadFactory("render-tile-%d", Thread.NORM_PRIORITY));
+        try {
+            for (Map.Entry<Integer, Set<Tile>> zoomTiles : byZoom.entrySet()) {
+                long start = System.currentTimeMillis();
+                double scale = Tile.getScale(zoomTiles.getKey());
+                List<Future<?>> futures = new ArrayList<>(zoomTiles.getValue().size());
+                for (Tile tile : zoomTiles.getValue()) {
+                    futures.add(executor.submit(() -> {
+                        output.write(tile, render(tile, scale));
+                        count.incrementAndGet();
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    waitFor(future);
+                }
+                Logging.info(tr("Rendered {0} tiles at zoom level {1} in {2}", futures.size(), zoomTiles.getKey(),
+                        Utils.getDurationString(System.currentTimeMillis() - start)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return count.get();
+    }
+
+    private byte[] render(Tile tile, double scale) throws IOException {
+        BufferedImage image = new RenderingHelper(ds, tile.getBounds(), scale, new ArrayList<>()).render(styles);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        return png.toByteArray();
+    }
+
+    private static void waitFor(Future<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JosmRuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new JosmRuntimeException(e.getCause());
+        }
+    }
+}
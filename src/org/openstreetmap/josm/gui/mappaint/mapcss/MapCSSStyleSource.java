@@ -60,7 +60,10 @@ import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.MapCSSParser;
 import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.ParseException;
 import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.TokenMgrError;
 import org.openstreetmap.josm.gui.mappaint.styleelement.LineElement;
+import org.openstreetmap.josm.gui.mappaint.styleelement.MapImage;
+import org.openstreetmap.josm.gui.mappaint.styleelement.MapImageLoader;
 import org.openstreetmap.josm.io.CachedFile;
+import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.I18n;
 import org.openstreetmap.josm.tools.JosmRuntimeException;
@@ -417,6 +420,7 @@ public class MapCSSStyleSource extends StyleSource {
         STYLE_SOURCE_LOCK.writeLock().lock();
         try {
             init();
+            MapImageLoader.forget(this);
             rules.clear();
             nodeRules.clear();
             wayRules.clear();
@@ -512,6 +516,9 @@ public class MapCSSStyleSource extends StyleSource {
             relationRules.initIndex();
             multipolygonRules.initIndex();
             canvasRules.initIndex();
+            if (Config.getPref().getBoolean("mappaint.icon.preload", true)) {
+                MapImageLoader.preload(getIcons());
+            }
             loaded = true;
         } finally {
             STYLE_SOURCE_LOCK.writeLock().unlock();
@@ -567,6 +574,39 @@ public class MapCSSStyleSource extends StyleSource {
         }
     }
 
+    /**
+     * Returns the icons of nodes with a constant name, to be loaded before the style is used.
+     * The icon sizes are only taken into account if they are constant and set in the same declaration.
+     * @return the icons of nodes with a constant name
+     */
+    private Set<MapImage> getIcons() {
+        Set<MapImage> icons = new HashSet<>();
+        for (MapCSSRule r : rules) {
+            String name = null;
+            int width = -1;
+            int height = -1;
+            for (Instruction i : r.declaration.instructions) {
+                if (i instanceof Instruction.AssignmentInstruction) {
+                    Instruction.AssignmentInstruction ai = (Instruction.AssignmentInstruction) i;
+                    if (StyleKeys.ICON_IMAGE.equals(ai.key) && ai.val instanceof String) {
+                        name = (String) ai.val;
+                    } else if (StyleKeys.ICON_WIDTH.equals(ai.key) && ai.val instanceof Float) {
+                        width = Math.round((Float) ai.val);
+                    } else if (StyleKeys.ICON_HEIGHT.equals(ai.key) && ai.val instanceof Float) {
+                        height = Math.round((Float) ai.val);
+                    }
+                }
+            }
+            if (name != null) {
+                MapImage icon = new MapImage(name, this);
+                icon.width = width;
+                icon.height = height;
+                icons.add(icon);
+            }
+        }
+        return icons;
+    }
+
     private void loadCanvas() {
         Cascade c = constructSpecial("canvas");
         backgroundColorOverride = c.get("fill-color", null, Color.class);
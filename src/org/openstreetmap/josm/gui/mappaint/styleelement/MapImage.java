@@ -11,8 +11,6 @@ import java.util.Objects;
 
 import javax.swing.ImageIcon;
 
-import org.openstreetmap.josm.gui.MainApplication;
-import org.openstreetmap.josm.gui.MapView;
 import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
 import org.openstreetmap.josm.gui.mappaint.StyleSource;
 import org.openstreetmap.josm.gui.mappaint.styleelement.BoxTextElement.BoxProvider;
@@ -130,33 +128,22 @@ public class MapImage {
         if (img != null)
             return img;
         temporary = false;
-        new ImageProvider(name)
-                .setDirs(MapPaintStyles.getIconSourceDirs(source))
-                .setId("mappaint."+source.getPrefName())
-                .setArchive(source.zipIcons)
-                .setInArchiveDir(source.getZipEntryDirName())
-                .setWidth(width)
-                .setHeight(height)
-                .setOptional(true)
-                .getAsync(result -> {
-                    synchronized (this) {
-                        if (result == null) {
-                            source.logWarning(tr("Failed to locate image ''{0}''", name));
-                            ImageIcon noIcon = MapPaintStyles.getNoIconIcon(source);
-                            img = noIcon == null ? null : noIcon.getImage();
-                        } else {
-                            img = rescale(result.getImage());
-                        }
-                        if (temporary) {
-                            disabledImgCache = null;
-                            MapView mapView = MainApplication.getMap().mapView;
-                            mapView.preferenceChanged(null); // otherwise repaint is ignored, because layer hasn't changed
-                            mapView.repaint();
-                        }
-                        temporary = false;
-                    }
+        MapImageLoader.load(this, result -> {
+            synchronized (this) {
+                if (result == null) {
+                    source.logWarning(tr("Failed to locate image ''{0}''", name));
+                    ImageIcon noIcon = MapPaintStyles.getNoIconIcon(source);
+                    img = noIcon == null ? null : noIcon.getImage();
+                } else {
+                    img = rescale(result.getImage());
                 }
-        );
+                if (temporary) {
+                    disabledImgCache = null;
+                    MapImageLoader.repaintAfterBatch();
+                }
+                temporary = false;
+            }
+        });
         synchronized (this) {
             if (img == null) {
                 img = ImageProvider.get("clock").getImage();
@@ -0,0 +1,215 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint.styleelement;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.swing.ImageIcon;
+
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.MapView;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
+import org.openstreetmap.josm.gui.mappaint.StyleSource;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.ImageProvider;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Loads the icons of {@link MapImage}s.
+ * <p>
+ * Icons are loaded by a bounded pool of threads. Requests for the same icon of the same style source are only
+ * executed once, and their result is kept until the style source is reloaded, disabled or removed, see {@link #forget}. While the map view is displayed,
+ * icons are loaded in the background and the map view is repainted once per batch of loaded icons, instead of
+ * once per icon.
+ */
+public final class MapImageLoader {
+
+    /** Delay before repainting the map view while a batch of icons is still loading, in milliseconds */
+    private static final int REPAINT_DELAY = 250;
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+            getThreadCount(), getThreadCount(), 5, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            Utils.newThreadFactory("mapimage-loader-%d", Thread.NORM_PRIORITY));
+
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private static final Map<Request, CompletableFuture<ImageIcon>> REQUESTS = new ConcurrentHashMap<>();
+    private static final AtomicInteger PENDING = new AtomicInteger();
+    private static final AtomicBoolean REPAINT_NEEDED = new AtomicBoolean();
+    private static final AtomicBoolean REPAINT_SCHEDULED = new AtomicBoolean();
+
+    /**
+     * Identifies the icons which can be shared between map images.
+     */
+    private static final class Request {
+        private final String name;
+        private final StyleSource source;
+        private final int width;
+        private final int height;
+
+        Request(MapImage image) {
+            this.name = image.name;
+            this.source = image.source;
+            this.width = image.width;
+            this.height = image.height;
+        }
+
+        ImageProvider getImageProvider() {
+            return new ImageProvider(name)
+                    .setDirs(MapPaintStyles.getIconSourceDirs(source))
+                    .setId("mappaint."+source.getPrefName())
+                    .setArchive(source.zipIcons)
+                    .setInArchiveDir(source.getZipEntryDirName())
+                    .setWidth(width)
+                    .setHeight(height)
+                    .setOptional(true);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            Request other = (Request) obj;
+            // compare the style sources by identity, forget() discards the icons of a given style source instance
+            return width == other.width &&
+                    height == other.height &&
+                    source == other.source &&
+                    Objects.equals(name, other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, System.identityHashCode(source), width, height);
+        }
+    }
+
+    private MapImageLoader() {
+        // Hide implicit public constructor for utility classes
+    }
+
+    private static int getThreadCount() {
+        return Math.max(1, Config.getPref().getInt("mappaint.icon.loader.threads",
+                Math.min(4, Runtime.getRuntime().availableProcessors())));
+    }
+
+    /**
+     * Loads the icon of the given map image.
+     * <p>
+     * If the icon is already loaded, or if it is loaded synchronously, {@code action} is called before this method returns.
+     * Otherwise it is called by a loader thread once the icon is loaded, and {@code action} should call
+     * {@link #repaintAfterBatch()} if the map view must be updated.
+     * @param image the map image
+     * @param action the action that will deal with the icon, which can be {@code null} if the icon cannot be found
+     */
+    static void load(MapImage image, Consumer<? super ImageIcon> action) {
+        boolean async = MainApplication.isDisplayingMapView() && Config.getPref().getBoolean("mappaint.icon.loader.async", true);
+        CompletableFuture<ImageIcon> future = load(new Request(image), async);
+        if (!async) {
+            // the icon may be preloaded by another thread
+            future.join();
+        }
+        future.thenAccept(action);
+    }
+
+    /**
+     * Loads in the background the icons of the given map images, for instance when a style is loaded.
+     * @param images the map images
+     */
+    public static void preload(Collection<MapImage> images) {
+        for (MapImage image : images) {
+            load(new Request(image), true);
+        }
+    }
+
+    /**
+     * Discards the loaded icons of the given style source, before it is reloaded or when it is disabled or removed.
+     * @param source the style source
+     */
+    public static void forget(StyleSource source) {
+        REQUESTS.keySet().removeIf(request -> request.source == source);
+    }
+
+    /**
+     * Determines if the icon of the given map image is loaded or being loaded.
+     * @param image the map image
+     * @return {@code true} if the icon of the given map image is loaded or being loaded
+     */
+    static boolean isRequested(MapImage image) {
+        return REQUESTS.containsKey(new Request(image));
+    }
+
+    /**
+     * Requests the map view to be repainted once the current batch of icons is loaded.
+     * To be called by the loading actions of temporary map images.
+     */
+    static void repaintAfterBatch() {
+        REPAINT_NEEDED.set(true);
+    }
+
+    private static CompletableFuture<ImageIcon> load(Request request, boolean async) {
+        CompletableFuture<ImageIcon> future = REQUESTS.get(request);
+        if (future == null) {
+            CompletableFuture<ImageIcon> created = new CompletableFuture<>();
+            future = REQUESTS.putIfAbsent(request, created);
+            if (future == null) {
+                future = created;
+                if (async) {
+                    PENDING.incrementAndGet();
+                    EXECUTOR.execute(() -> {
+                        complete(request, created);
+                        batchProgress(PENDING.decrementAndGet());
+                    });
+                } else {
+                    complete(request, created);
+                }
+            }
+        }
+        return future;
+    }
+
+    private static void complete(Request request, CompletableFuture<ImageIcon> future) {
+        ImageIcon icon = null;
+        try {
+            icon = request.getImageProvider().get();
+        } catch (RuntimeException e) {
+            Logging.log(Logging.LEVEL_WARN, "Unable to load map image " + request.name, e);
+        } finally {
+            // the actions of the map images are executed here
+            future.complete(icon);
+        }
+    }
+
+    private static void batchProgress(int pending) {
+        if (!REPAINT_NEEDED.get()) {
+            return;
+        }
+        if (pending == 0) {
+            GuiHelper.runInEDT(MapImageLoader::repaint);
+        } else if (REPAINT_SCHEDULED.compareAndSet(false, true)) {
+            // show the icons already loaded if the batch is long, for instance because of remote icons
+            GuiHelper.runInEDT(() -> GuiHelper.scheduleTimer(REPAINT_DELAY, e -> repaint(), false));
+        }
+    }
+
+    private static void repaint() {
+        REPAINT_SCHEDULED.set(false);
+        if (REPAINT_NEEDED.getAndSet(false) && MainApplication.isDisplayingMapView()) {
+            MapView mapView = MainApplication.getMap().mapView;
+            mapView.preferenceChanged(null); // otherwise repaint is ignored, because layer hasn't changed
+            mapView.repaint();
+        }
+    }
+}
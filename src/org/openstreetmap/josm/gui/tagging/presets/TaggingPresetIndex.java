@@ -0,0 +1,137 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.tagging.presets;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openstreetmap.josm.gui.tagging.presets.items.Check;
+import org.openstreetmap.josm.gui.tagging.presets.items.CheckGroup;
+import org.openstreetmap.josm.gui.tagging.presets.items.Key;
+import org.openstreetmap.josm.gui.tagging.presets.items.KeyedItem;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Index of tagging presets by the tags which can match them.
+ * <p>
+ * A preset only matches tags if one of its items matches positively (see {@link TaggingPresetItem#matches(Iterable, Map)}),
+ * which requires the key of the item, and for {@link Key} items its value, to be present in the tags.
+ * The index returns the presets having such an item for the given tags, which must then be tested completely.
+ * Presets with items whose matching cannot be indexed, for instance items of plugins, are always returned.
+ */
+final class TaggingPresetIndex {
+
+    private final List<TaggingPreset> presets;
+    private final Map<String, BitSet> byKey = new HashMap<>();
+    private final Map<String, Map<String, BitSet>> byKeyValue = new HashMap<>();
+    private final BitSet always = new BitSet();
+    private final Map<Class<?>, Class<?>> matchesDeclaringClasses = new HashMap<>();
+
+    /**
+     * Constructs a new {@code TaggingPresetIndex}.
+     * @param presets the tagging presets to index
+     */
+    TaggingPresetIndex(Collection<TaggingPreset> presets) {
+        this.presets = new ArrayList<>(presets);
+        for (int i = 0; i < this.presets.size(); i++) {
+            for (TaggingPresetItem item : this.presets.get(i).data) {
+                if (!index(item, i)) {
+                    always.set(i);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexes the tags which can positively match the given item.
+     * @param item preset item
+     * @param i index of the preset
+     * @return {@code false} if the matching of the item cannot be indexed
+     */
+    private boolean index(TaggingPresetItem item, int i) {
+        Class<?> declaringClass = getMatchesDeclaringClass(item.getClass());
+        if (TaggingPresetItem.class.equals(declaringClass)) {
+            // neutral item
+            return true;
+        } else if (KeyedItem.class.equals(declaringClass)) {
+            KeyedItem ki = (KeyedItem) item;
+            if (ki.key == null) {
+                return true;
+            }
+            switch (ki.match) {
+            case "none":
+                return true;
+            case "key":
+            case "key!":
+                byKey.computeIfAbsent(ki.key, k -> new BitSet()).set(i);
+                return true;
+            case "keyvalue":
+            case "keyvalue!":
+                if (item instanceof Key) {
+                    byKeyValue.computeIfAbsent(ki.key, k -> new HashMap<>())
+                              .computeIfAbsent(((Key) item).value, v -> new BitSet()).set(i);
+                } else {
+                    // values of other items may be computed, index the key only
+                    byKey.computeIfAbsent(ki.key, k -> new BitSet()).set(i);
+                }
+                return true;
+            default:
+                return false;
+            }
+        } else if (CheckGroup.class.equals(declaringClass)) {
+            for (Check check : ((CheckGroup) item).checks) {
+                if (!index(check, i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private Class<?> getMatchesDeclaringClass(Class<?> itemClass) {
+        return matchesDeclaringClasses.computeIfAbsent(itemClass, c -> {
+            for (Class<?> cl = c; cl != null; cl = cl.getSuperclass()) {
+                try {
+                    cl.getDeclaredMethod("matches", Map.class);
+                    return cl;
+                } catch (NoSuchMethodException e) {
+                    Logging.trace(e);
+                } catch (SecurityException e) {
+                    Logging.trace(e);
+                    return null;
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Returns the presets which can match the given tags, in their original order.
+     * @param tags the tags
+     * @return the presets which can match the given tags
+     */
+    List<TaggingPreset> getCandidates(Map<String, String> tags) {
+        BitSet candidates = (BitSet) always.clone();
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            BitSet presetsWithKey = byKey.get(tag.getKey());
+            if (presetsWithKey != null) {
+                candidates.or(presetsWithKey);
+            }
+            Map<String, BitSet> values = byKeyValue.get(tag.getKey());
+            BitSet presetsWithTag = values != null ? values.get(tag.getValue()) : null;
+            if (presetsWithTag != null) {
+                candidates.or(presetsWithTag);
+            }
+        }
+        List<TaggingPreset> result = new ArrayList<>(candidates.cardinality());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            result.add(presets.get(i));
+        }
+        return result;
+    }
+}
@@ -8,6 +8,7 @@ import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -15,8 +16,11 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 import javax.swing.AbstractAction;
@@ -256,12 +260,72 @@ public class TaggingPresetSelector extends SearchTextResultListPanel<TaggingPres
         }
     }
 
+    /**
+     * Index of the words of preset classifications, sorted so that the words starting with a search word are found
+     * without scanning all words, as in a prefix tree.
+     */
+    private static final class WordIndex {
+        private final NavigableMap<String, BitSet> words = new TreeMap<>();
+
+        void add(Collection<String> values, int index) {
+            for (String value : values) {
+                if (value != null) {
+                    words.computeIfAbsent(Utils.deAccent(value).toLowerCase(Locale.ENGLISH), k -> new BitSet()).set(index);
+                }
+            }
+        }
+
+        /**
+         * Computes the same result as {@link PresetClassification#isMatching} for all indexed classifications.
+         * @param size number of indexed classifications
+         * @param searchString the search words
+         * @return the match scores, by index of classification
+         */
+        int[] isMatching(int size, String... searchString) {
+            int[] sum = new int[size];
+            BitSet matching = new BitSet(size);
+            matching.set(0, size);
+            for (String word : searchString) {
+                String deaccentedWord = Utils.deAccent(word);
+                BitSet foundFirst = new BitSet(size);
+                for (BitSet b : words.subMap(deaccentedWord, true, deaccentedWord + Character.MAX_VALUE, true).values()) {
+                    foundFirst.or(b);
+                }
+                BitSet found = new BitSet(size);
+                if (!deaccentedWord.isEmpty()) {
+                    for (Map.Entry<String, BitSet> e : words.entrySet()) {
+                        if (e.getKey().indexOf(deaccentedWord) > 0) {
+                            found.or(e.getValue());
+                        }
+                    }
+                }
+                found.andNot(foundFirst);
+                for (int i = foundFirst.nextSetBit(0); i >= 0; i = foundFirst.nextSetBit(i + 1)) {
+                    sum[i] += 2;
+                }
+                for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1)) {
+                    sum[i] += 1;
+                }
+                found.or(foundFirst);
+                matching.and(found);
+            }
+            for (int i = matching.nextClearBit(0); i < size; i = matching.nextClearBit(i + 1)) {
+                sum[i] = 0;
+            }
+            return sum;
+        }
+    }
+
     /**
      * A collection of {@link PresetClassification}s with the functionality of filtering wrt. searchString.
      */
     public static class PresetClassifications implements Iterable<PresetClassification> {
 
         private final List<PresetClassification> classifications = new ArrayList<>();
+        // word indexes of the classifications, built on first search
+        private WordIndex groupIndex;
+        private WordIndex nameIndex;
+        private WordIndex tagsIndex;
 
         public List<PresetClassification> getMatchingPresets(String searchText, boolean onlyApplicable, boolean inTags,
                 Set<TaggingPresetType> presetTypes, final Collection<? extends OsmPrimitive> selectedPrimitives) {
@@ -283,7 +347,16 @@ public class TaggingPresetSelector extends SearchTextResultListPanel<TaggingPres
                 boolean inTags, Set<TaggingPresetType> presetTypes, final Collection<? extends OsmPrimitive> selectedPrimitives) {
 
             final List<PresetClassification> result = new ArrayList<>();
-            for (PresetClassification presetClassification : classifications) {
+            final int size = classifications.size();
+            if (nameIndex == null) {
+                buildIndex();
+            }
+            final int[] groupMatches = groupWords != null ? groupIndex.isMatching(size, groupWords) : null;
+            final int[] nameMatches = nameIndex.isMatching(size, nameWords);
+            final int[] nameInGroupMatches = groupWords == null ? groupIndex.isMatching(size, nameWords) : null;
+            final int[] tagsMatches = inTags ? tagsIndex.isMatching(size, nameWords) : null;
+            for (int i = 0; i < size; i++) {
+                PresetClassification presetClassification = classifications.get(i);
                 TaggingPreset preset = presetClassification.preset;
                 presetClassification.classification = 0;
 
@@ -301,21 +374,21 @@ public class TaggingPresetSelector extends SearchTextResultListPanel<TaggingPres
                     }
                 }
 
-                if (groupWords != null && presetClassification.isMatchingGroup(groupWords) == 0) {
+                if (groupWords != null && groupMatches[i] == 0) {
                     continue;
                 }
 
-                int matchName = presetClassification.isMatchingName(nameWords);
+                int matchName = nameMatches[i];
 
                 if (matchName == 0) {
                     if (groupWords == null) {
-                        int groupMatch = presetClassification.isMatchingGroup(nameWords);
+                        int groupMatch = nameInGroupMatches[i];
                         if (groupMatch > 0) {
                             presetClassification.classification = CLASSIFICATION_GROUP_MATCH + groupMatch;
                         }
                     }
                     if (presetClassification.classification == 0 && inTags) {
-                        int tagsMatch = presetClassification.isMatchingTags(nameWords);
+                        int tagsMatch = tagsMatches[i];
                         if (tagsMatch > 0) {
                             presetClassification.classification = CLASSIFICATION_TAGS_MATCH + tagsMatch;
                         }
@@ -337,6 +410,7 @@ public class TaggingPresetSelector extends SearchTextResultListPanel<TaggingPres
 
         public void clear() {
             classifications.clear();
+            nameIndex = null;
         }
 
         public void loadPresets(Collection<TaggingPreset> presets) {
@@ -346,6 +420,20 @@ public class TaggingPresetSelector extends SearchTextResultListPanel<TaggingPres
                 }
                 classifications.add(new PresetClassification(preset));
             }
+            nameIndex = null;
+        }
+
+        private void buildIndex() {
+            groupIndex = new WordIndex();
+            tagsIndex = new WordIndex();
+            WordIndex names = new WordIndex();
+            for (int i = 0; i < classifications.size(); i++) {
+                PresetClassification classification = classifications.get(i);
+                groupIndex.add(classification.groups, i);
+                names.add(classification.names, i);
+                tagsIndex.add(classification.tags, i);
+            }
+            nameIndex = names;
         }
 
         @Override
@@ -34,6 +34,9 @@ public final class TaggingPresets {
     /** The collection of tagging presets */
     private static final Collection<TaggingPreset> taggingPresets = new ArrayList<>();
 
+    /** index of presets by the tags matching them, built on first use */
+    private static volatile TaggingPresetIndex index;
+
     /** cache for key/value pairs found in the preset */
     private static final MultiMap<String, String> PRESET_TAG_CACHE = new MultiMap<>();
     /** cache for roles found in the preset */
@@ -52,6 +55,7 @@ public final class TaggingPresets {
     public static void readFromPreferences() {
         taggingPresets.clear();
         taggingPresets.addAll(TaggingPresetReader.readFromPreferences(false, false));
+        index = null;
         cachePresets(taggingPresets);
     }
 
@@ -180,7 +184,7 @@ public final class TaggingPresets {
      */
     public static Collection<TaggingPreset> getMatchingPresets(final Collection<TaggingPresetType> t,
                                                                final Map<String, String> tags, final boolean onlyShowable) {
-        return SubclassFilteredCollection.filter(getTaggingPresets(), preset -> preset.matches(t, tags, onlyShowable));
+        return SubclassFilteredCollection.filter(getIndex().getCandidates(tags), preset -> preset.matches(t, tags, onlyShowable));
     }
 
     /**
@@ -192,7 +196,21 @@ public final class TaggingPresets {
      * @since 13623 (signature)
      */
     public static Collection<TaggingPreset> getMatchingPresets(final IPrimitive primitive) {
-        return SubclassFilteredCollection.filter(getTaggingPresets(), preset -> preset.test(primitive));
+        return SubclassFilteredCollection.filter(getIndex().getCandidates(primitive.getKeys()), preset -> preset.test(primitive));
+    }
+
+    private static TaggingPresetIndex getIndex() {
+        TaggingPresetIndex result = index;
+        if (result == null) {
+            synchronized (TaggingPresets.class) {
+                result = index;
+                if (result == null) {
+                    result = new TaggingPresetIndex(taggingPresets);
+                    index = result;
+                }
+            }
+        }
+        return result;
     }
 
     /**
@@ -201,6 +219,7 @@ public final class TaggingPresets {
      */
     public static void addTaggingPresets(Collection<TaggingPreset> presets) {
         if (presets != null && taggingPresets.addAll(presets)) {
+            index = null;
             for (TaggingPresetListener listener : listeners) {
                 listener.taggingPresetsModified();
             }
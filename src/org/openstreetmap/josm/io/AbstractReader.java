@@ -280,8 +280,28 @@ public abstract class AbstractReader {
         void accept(InputStreamReader ir) throws IllegalDataException, IOException;
     }
 
+    @FunctionalInterface
+    protected interface StreamParserWorker {
+        /**
+         * Effectively parses the raw input stream, for binary formats.
+         * @param in input stream
+         * @throws IllegalDataException in case of invalid data
+         * @throws IOException in case of I/O error
+         */
+        void accept(InputStream in) throws IllegalDataException, IOException;
+    }
+
     protected final DataSet doParseDataSet(InputStream source, ProgressMonitor progressMonitor, ParserWorker parserWorker)
             throws IllegalDataException {
+        return doParseDataSetFromStream(source, progressMonitor, in -> {
+            try (InputStreamReader ir = UTFInputStreamReader.create(in)) {
+                parserWorker.accept(ir);
+            }
+        });
+    }
+
+    protected final DataSet doParseDataSetFromStream(InputStream source, ProgressMonitor progressMonitor, StreamParserWorker parserWorker)
+            throws IllegalDataException {
         if (progressMonitor == null) {
             progressMonitor = NullProgressMonitor.INSTANCE;
         }
@@ -292,9 +312,7 @@ public abstract class AbstractReader {
             progressMonitor.beginTask(tr("Prepare OSM data...", 2));
             progressMonitor.indeterminateSubTask(tr("Parsing OSM data..."));
 
-            try (InputStreamReader ir = UTFInputStreamReader.create(source)) {
-                parserWorker.accept(ir);
-            }
+            parserWorker.accept(source);
             progressMonitor.worked(1);
 
             boolean readOnly = getDataSet().isLocked();
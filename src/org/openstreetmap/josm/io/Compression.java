@@ -18,6 +18,7 @@ import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
 import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
 import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.openstreetmap.josm.spi.preferences.Config;
 import org.openstreetmap.josm.tools.Logging;
 import org.openstreetmap.josm.tools.Utils;
 
@@ -46,6 +47,8 @@ public enum Compression {
      */
     XZ;
 
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
     /**
      * Determines the compression type depending on the suffix of {@code name}.
      * @param name File name including extension
@@ -93,7 +96,7 @@ public enum Compression {
     public InputStream getUncompressedInputStream(InputStream in) throws IOException {
         switch (this) {
             case BZIP2:
-                return getBZip2InputStream(in);
+                return isParallelBZip2Enabled() ? getParallelBZip2InputStream(in) : getBZip2InputStream(in);
             case GZIP:
                 return getGZipInputStream(in);
             case ZIP:
@@ -134,6 +137,25 @@ public enum Compression {
         return new BZip2CompressorInputStream(in, /* see #9537 */ true);
     }
 
+    /**
+     * Returns a Bzip2 input stream wrapping given input stream, decoding blocks concurrently.
+     * @param in The raw input stream
+     * @return a Bzip2 input stream wrapping given input stream, or {@code null} if {@code in} is {@code null}
+     * @throws IOException if the given input stream does not contain valid BZ2 header
+     * @see ParallelBZip2InputStream
+     */
+    public static ParallelBZip2InputStream getParallelBZip2InputStream(InputStream in) throws IOException {
+        if (in == null) {
+            return null;
+        }
+        return new ParallelBZip2InputStream(in);
+    }
+
+    private static boolean isParallelBZip2Enabled() {
+        return Config.getPref() != null && Config.getPref().getBoolean("bzip2.decompression.parallel", true)
+                && ParallelBZip2InputStream.getThreadPool().getParallelism() > 1;
+    }
+
     /**
      * Returns a Gzip input stream wrapping given input stream.
      * @param in The raw input stream
@@ -145,7 +167,8 @@ public enum Compression {
         if (in == null) {
             return null;
         }
-        return new GZIPInputStream(in);
+        // deflate streams cannot be split, but a larger buffer reduces the number of native inflater calls
+        return new GZIPInputStream(in, GZIP_BUFFER_SIZE);
     }
 
     /**
@@ -10,10 +10,12 @@ import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
@@ -33,6 +35,7 @@ import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
 import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
 import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.spi.preferences.Config;
@@ -56,15 +59,31 @@ import org.openstreetmap.josm.tools.Utils;
  *       Logging.info("There are skipped ways: " + reader.getMissingPrimitives());
  *    }
  * </pre>
+ *
+ * The ids are requested in packages, the size of which is adapted to the response time of the server
+ * (see {@link #TARGET_RESPONSE_TIME}) and limited by the length of the request URL (see {@link #MAX_URL_LENGTH}).
+ * Each package is merged into the resulting data set as soon as it has been received.
  */
 public class MultiFetchServerObjectReader extends OsmServerReader {
     /**
-     * the max. number of primitives retrieved in one step. Assuming IDs with 7 digits,
-     * this leads to a max. request URL of ~ 1600 Bytes ((7 digits +  1 Separator) * 200),
-     * which should be safe according to the
-     * <a href="http://www.boutell.com/newfaq/misc/urllength.html">WWW FAQ</a>.
+     * The number of ids requested at once until a response time is known.
+     */
+    private static final int INITIAL_PACKAGE_SIZE = 200;
+
+    /**
+     * The response time (in milliseconds) aimed at when sizing the packages of ids requested at once.
+     */
+    public static final IntegerProperty TARGET_RESPONSE_TIME = new IntegerProperty("osm.multifetch.target-response-time", 3000);
+
+    /**
+     * The max. length of a request URL.
      */
-    private static final int MAX_IDS_PER_REQUEST = 200;
+    public static final IntegerProperty MAX_URL_LENGTH = new IntegerProperty("osm.multifetch.max-url-length", 2000);
+
+    /** The min. number of ids requested at once, unless fewer remain */
+    static final int MIN_PACKAGE_SIZE = 10;
+    /** The max. number of ids requested at once, regardless of the response time */
+    static final int MAX_PACKAGE_SIZE = 1000;
 
     private final Set<Long> nodes;
     private final Set<Long> ways;
@@ -237,26 +256,31 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
     }
 
     /**
-     * extracts a subset of max {@link #MAX_IDS_PER_REQUEST} ids from <code>ids</code> and
-     * replies the subset. The extracted subset is removed from <code>ids</code>.
+     * extracts a subset of max {@code size} ids from <code>ids</code> and replies the subset.
+     * The subset is reduced further if the resulting request URL would exceed {@link #MAX_URL_LENGTH}.
+     * The extracted subset is removed from <code>ids</code>.
      *
      * @param ids a set of ids
+     * @param type The primitive type. Must be one of {@link OsmPrimitiveType#NODE NODE}, {@link OsmPrimitiveType#WAY WAY},
+     * {@link OsmPrimitiveType#RELATION RELATION}
+     * @param size the max. number of ids to extract
      * @return the subset of ids
      */
-    protected Set<Long> extractIdPackage(Set<Long> ids) {
-        Set<Long> pkg = new HashSet<>();
-        if (ids.isEmpty())
-            return pkg;
-        if (ids.size() > MAX_IDS_PER_REQUEST) {
-            Iterator<Long> it = ids.iterator();
-            for (int i = 0; i < MAX_IDS_PER_REQUEST; i++) {
-                pkg.add(it.next());
-            }
-            ids.removeAll(pkg);
-        } else {
-            pkg.addAll(ids);
-            ids.clear();
+    protected Set<Long> extractIdPackage(Set<Long> ids, OsmPrimitiveType type, int size) {
+        List<Long> candidates = new ArrayList<>(Math.min(size, ids.size()));
+        Iterator<Long> it = ids.iterator();
+        while (it.hasNext() && candidates.size() < size) {
+            candidates.add(it.next());
+        }
+        int maxLength = MAX_URL_LENGTH.get();
+        int n = candidates.size();
+        Set<Long> pkg = new LinkedHashSet<>(candidates);
+        int length;
+        while (n > 1 && (length = getBaseUrl().length() + buildRequestString(type, pkg).length()) > maxLength) {
+            n = Math.max(1, Math.min(n - 1, (int) ((long) n * maxLength / length)));
+            pkg = new LinkedHashSet<>(candidates.subList(0, n));
         }
+        ids.removeAll(pkg);
         return pkg;
     }
 
@@ -317,23 +341,33 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
         progressMonitor.setTicksCount(ids.size());
         progressMonitor.setTicks(0);
         // The complete set containing all primitives to fetch
-        Set<Long> toFetch = new HashSet<>(ids);
-        // Build a list of fetchers that will  download smaller sets containing only MAX_IDS_PER_REQUEST (200) primitives each.
-        // we will run up to MAX_DOWNLOAD_THREADS concurrent fetchers.
+        Set<Long> toFetch = new LinkedHashSet<>(ids);
+        // Fetchers download smaller sets of primitives, sized by packageSize.
+        // We run up to MAX_DOWNLOAD_THREADS concurrent fetchers, and only create a new one when a previous one has
+        // finished, so that the size of its package takes the latest response times into account.
         int threadsNumber = Config.getPref().getInt("osm.download.threads", OsmApi.MAX_DOWNLOAD_THREADS);
         threadsNumber = Utils.clamp(threadsNumber, 1, OsmApi.MAX_DOWNLOAD_THREADS);
         final ExecutorService exec = Executors.newFixedThreadPool(
                 threadsNumber, Utils.newThreadFactory(getClass() + "-%d", Thread.NORM_PRIORITY));
         CompletionService<FetchResult> ecs = new ExecutorCompletionService<>(exec);
-        List<Future<FetchResult>> jobs = new ArrayList<>();
-        while (!toFetch.isEmpty()) {
-            jobs.add(ecs.submit(new Fetcher(type, extractIdPackage(toFetch), progressMonitor)));
-        }
-        // Run the fetchers
-        for (int i = 0; i < jobs.size() && !isCanceled(); i++) {
-            progressMonitor.subTask(msg + "... " + progressMonitor.getTicks() + '/' + progressMonitor.getTicksCount());
+        Map<Future<FetchResult>, Fetcher> jobs = new HashMap<>();
+        PackageSize packageSize = new PackageSize(TARGET_RESPONSE_TIME.get());
+        long start = System.currentTimeMillis();
+        while ((!toFetch.isEmpty() || !jobs.isEmpty()) && !isCanceled()) {
+            while (jobs.size() < threadsNumber && !toFetch.isEmpty()) {
+                Fetcher fetcher = new Fetcher(type, extractIdPackage(toFetch, type, packageSize.get()), progressMonitor);
+                jobs.put(ecs.submit(fetcher), fetcher);
+            }
+            progressMonitor.subTask(msg + "... " + progressMonitor.getTicks() + '/' + progressMonitor.getTicksCount()
+                    + getRemainingTimeString(progressMonitor, start));
             try {
-                FetchResult result = ecs.take().get();
+                Future<FetchResult> job = ecs.take();
+                Fetcher fetcher = jobs.remove(job);
+                FetchResult result = job.get();
+                packageSize.update(fetcher.pkg.size(), fetcher.responseTime);
+                if (result == null) {
+                    continue;
+                }
                 if (result.missingPrimitives != null) {
                     missingPrimitives.addAll(result.missingPrimitives);
                 }
@@ -341,19 +375,76 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
                     rememberNodesOfIncompleteWaysToLoad(result.dataSet);
                     merge(result.dataSet);
                 }
-            } catch (InterruptedException | ExecutionException e) {
+            } catch (InterruptedException e) {
+                Logging.warn("Interrupted while fetching primitives");
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
                 Logging.error(e);
             }
         }
         exec.shutdown();
-        // Cancel requests if the user chose to
-        if (isCanceled()) {
-            for (Future<FetchResult> job : jobs) {
+        // Cancel requests if the user chose to, or if this thread has been interrupted
+        if (isCanceled() || Thread.currentThread().isInterrupted()) {
+            for (Future<FetchResult> job : jobs.keySet()) {
                 job.cancel(true);
             }
         }
     }
 
+    private static String getRemainingTimeString(ProgressMonitor progressMonitor, long start) {
+        int done = progressMonitor.getTicks();
+        int total = progressMonitor.getTicksCount();
+        if (done <= 0 || done >= total) {
+            return "";
+        }
+        long remaining = (System.currentTimeMillis() - start) * (total - done) / done;
+        return " (" + tr("about {0} left", Utils.getDurationString(remaining)) + ')';
+    }
+
+    /**
+     * Adapts the number of ids requested at once to the response time of the server, so that large downloads
+     * neither overload the server with huge requests nor crawl along with tiny ones.
+     */
+    static final class PackageSize {
+        private final long targetResponseTime;
+        private int size = INITIAL_PACKAGE_SIZE;
+
+        /**
+         * Constructs a new {@code PackageSize}.
+         * @param targetResponseTime the response time (in milliseconds) aimed at
+         */
+        PackageSize(long targetResponseTime) {
+            this.targetResponseTime = Math.max(1, targetResponseTime);
+        }
+
+        /**
+         * Replies the number of ids to request at once.
+         * @return the number of ids to request at once
+         */
+        int get() {
+            return size;
+        }
+
+        /**
+         * Updates the package size from the response time of a request. The size changes at most by factor two
+         * per request, in order not to overreact to single slow or fast responses.
+         * @param requested the number of ids requested
+         * @param responseTime the response time in milliseconds, or a negative value if unknown
+         */
+        void update(int requested, long responseTime) {
+            if (requested <= 0 || responseTime < 0) {
+                return;
+            }
+            long ideal = requested * targetResponseTime / Math.max(1, responseTime);
+            if (ideal > size && requested < size) {
+                // the package was limited by the URL length or the remaining ids, it does not tell whether a larger one is fine
+                return;
+            }
+            size = (int) Math.max(Math.max(MIN_PACKAGE_SIZE, size / 2), Math.min(Math.min(MAX_PACKAGE_SIZE, size * 2), ideal));
+        }
+    }
+
     /**
      * invokes one or more Multi Gets to fetch the {@link OsmPrimitive}s and replies
      * the dataset of retrieved primitives. Note that the dataset includes non visible primitives too!
@@ -449,6 +540,8 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
         private final Set<Long> pkg;
         private final OsmPrimitiveType type;
         private final ProgressMonitor progressMonitor;
+        /** the time it took to fetch the package in milliseconds, or -1 if not fetched successfully */
+        private volatile long responseTime = -1;
 
         /**
          * Constructs a {@code Fetcher}
@@ -472,7 +565,10 @@ public class MultiFetchServerObjectReader extends OsmServerReader {
 
         @Override
         public FetchResult call() throws Exception {
-            return fetch(progressMonitor);
+            long start = System.currentTimeMillis();
+            FetchResult result = fetch(progressMonitor);
+            responseTime = System.currentTimeMillis() - start;
+            return result;
         }
 
         /**
@@ -0,0 +1,51 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Constants of the compact binary OSM data format, see {@link OsmBinaryWriter} and {@link OsmBinaryReader}.
+ * <p>
+ * Layout of a file:
+ * <pre>
+ * file    := MAGIC VERSION section*
+ * section := kind:byte length:int32 payload:byte[length] crc32(payload):int32
+ * payload := strings flags version download upload datasources removed nodes ways relations
+ * node    := hasCoordinates:byte [lat lon] common tags
+ * </pre>
+ * All other integers are unsigned (or zigzag encoded signed) varints, primitive ids and coordinates are delta encoded,
+ * and strings are references into the string table at the start of each section.
+ */
+final class OsmBinaryFormat {
+
+    /** File signature */
+    static final byte[] MAGIC = "JOSMOSMB".getBytes(StandardCharsets.US_ASCII);
+    /** Format version */
+    static final int VERSION = 1;
+
+    /** Section containing a whole data set */
+    static final byte SECTION_SNAPSHOT = 'S';
+    /** Section containing the primitives changed or removed since the previous section */
+    static final byte SECTION_DELTA = 'D';
+
+    /** Data set flag: data set is locked */
+    static final int DATASET_LOCKED = 1;
+
+    /** Primitive flag: primitive is modified */
+    static final int FLAG_MODIFIED = 1;
+    /** Primitive flag: primitive is deleted */
+    static final int FLAG_DELETED = 1 << 1;
+    /** Primitive flag: primitive is not visible */
+    static final int FLAG_INVISIBLE = 1 << 2;
+    /** Primitive flag: primitive has an OSM user (uid and name) */
+    static final int FLAG_OSM_USER = 1 << 3;
+    /** Primitive flag: primitive has a local user (name only) */
+    static final int FLAG_LOCAL_USER = 1 << 4;
+
+    /** Fixed point scale of coordinates, matching the precision of the XML format */
+    static final double COORDINATE_SCALE = 1e10;
+
+    private OsmBinaryFormat() {
+        // Hide default constructor for utilities classes
+    }
+}
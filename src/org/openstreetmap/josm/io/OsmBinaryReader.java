@@ -0,0 +1,349 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.io.OsmBinaryFormat.COORDINATE_SCALE;
+import static org.openstreetmap.josm.io.OsmBinaryFormat.DATASET_LOCKED;
+import static org.openstreetmap.josm.io.OsmBinaryFormat.FLAG_DELETED;
+import static org.openstreetmap.josm.io.OsmBinaryFormat.FLAG_INVISIBLE;
+import static org.openstreetmap.josm.io.OsmBinaryFormat.FLAG_LOCAL_USER;
+import static org.openstreetmap.josm.io.OsmBinaryFormat.FLAG_MODIFIED;
+import static org.openstreetmap.josm.io.OsmBinaryFormat.FLAG_OSM_USER;
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.DownloadPolicy;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.data.osm.Tagged;
+import org.openstreetmap.josm.data.osm.UploadPolicy;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Parser for the compact binary format written by {@link OsmBinaryWriter}.
+ * <p>
+ * Sections are applied in order: a snapshot replaces everything read so far, a delta adds or replaces primitives and
+ * drops removed ones. A truncated or corrupted trailing section (for instance after a crash while appending) is
+ * ignored, so the data of all complete sections is returned.
+ */
+public class OsmBinaryReader extends AbstractReader {
+
+    private final List<DataSource> dataSources = new ArrayList<>();
+    private boolean locked;
+    private int sections;
+
+    /**
+     * Cursor over the payload of one section.
+     */
+    private static final class Decoder {
+        private final byte[] buf;
+        private int pos;
+        private String[] strings;
+
+        Decoder(byte[] buf) {
+            this.buf = buf;
+        }
+
+        int readByte() throws IllegalDataException {
+            if (pos >= buf.length) {
+                throw new IllegalDataException(tr("Unexpected end of binary OSM data"));
+            }
+            return buf[pos++] & 0xff;
+        }
+
+        long readVarLong() throws IllegalDataException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalDataException(tr("Malformed varint in binary OSM data"));
+        }
+
+        int readCount() throws IllegalDataException {
+            long count = readVarLong();
+            if (count < 0 || count > buf.length - pos) {
+                throw new IllegalDataException(tr("Invalid element count in binary OSM data: {0}", count));
+            }
+            return (int) count;
+        }
+
+        long readSignedVarLong() throws IllegalDataException {
+            long v = readVarLong();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        double readDouble() throws IllegalDataException {
+            long bits = 0;
+            for (int i = 0; i < 8; i++) {
+                bits = (bits << 8) | readByte();
+            }
+            return Double.longBitsToDouble(bits);
+        }
+
+        void readStringTable() throws IllegalDataException {
+            strings = new String[readCount()];
+            for (int i = 0; i < strings.length; i++) {
+                int length = readCount();
+                strings[i] = new String(buf, pos, length, StandardCharsets.UTF_8).intern();
+                pos += length;
+            }
+        }
+
+        String readString() throws IllegalDataException {
+            long index = readVarLong();
+            if (index < 0 || index >= strings.length) {
+                throw new IllegalDataException(tr("Invalid string reference in binary OSM data: {0}", index));
+            }
+            return strings[(int) index];
+        }
+
+        OsmPrimitiveType readType() throws IllegalDataException {
+            int ordinal = readByte();
+            if (ordinal >= OsmPrimitiveType.values().length) {
+                throw new IllegalDataException(tr("Invalid primitive type in binary OSM data: {0}", ordinal));
+            }
+            return OsmPrimitiveType.values()[ordinal];
+        }
+    }
+
+    /**
+     * constructor (for private and subclasses use only)
+     *
+     * @see #parseDataSet(InputStream, ProgressMonitor)
+     */
+    protected OsmBinaryReader() {
+        // Restricts visibility
+    }
+
+    protected void parse(InputStream source) throws IllegalDataException, IOException {
+        DataInputStream in = new DataInputStream(source instanceof BufferedInputStream ? source : new BufferedInputStream(source));
+        byte[] magic = new byte[OsmBinaryFormat.MAGIC.length];
+        try {
+            in.readFully(magic);
+        } catch (EOFException e) {
+            throw new IllegalDataException(tr("Not a binary OSM data file"), e);
+        }
+        if (!Arrays.equals(magic, OsmBinaryFormat.MAGIC)) {
+            throw new IllegalDataException(tr("Not a binary OSM data file"));
+        }
+        int version = in.readUnsignedByte();
+        if (version != OsmBinaryFormat.VERSION) {
+            throw new IllegalDataException(tr("Unsupported version: {0}", version));
+        }
+        while (!cancel) {
+            int kind = in.read();
+            if (kind == -1) {
+                break;
+            }
+            byte[] payload;
+            try {
+                int length = in.readInt();
+                if (length < 0) {
+                    throw new IllegalDataException(tr("Invalid section length in binary OSM data: {0}", length));
+                }
+                payload = new byte[length];
+                in.readFully(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if (in.readInt() != (int) crc.getValue()) {
+                    Logging.warn("Ignoring corrupted section {0} of binary OSM data and all following ones", sections);
+                    break;
+                }
+            } catch (EOFException e) {
+                Logging.warn("Ignoring truncated section {0} of binary OSM data", sections);
+                Logging.trace(e);
+                break;
+            }
+            if (kind == OsmBinaryFormat.SECTION_SNAPSHOT) {
+                resetData();
+            } else if (kind != OsmBinaryFormat.SECTION_DELTA) {
+                throw new IllegalDataException(tr("Unknown section type in binary OSM data: {0}", kind));
+            } else if (sections == 0) {
+                throw new IllegalDataException(tr("Binary OSM data does not start with a snapshot"));
+            }
+            parseSection(new Decoder(payload));
+            sections++;
+        }
+        if (sections == 0) {
+            throw new IllegalDataException(tr("Binary OSM data does not contain any complete snapshot"));
+        }
+        ds.addDataSources(dataSources);
+        if (locked) {
+            ds.lock();
+        }
+    }
+
+    private void resetData() {
+        ds = new DataSet();
+        externalIdMap.clear();
+        ways.clear();
+        relations.clear();
+    }
+
+    private void parseSection(Decoder d) throws IllegalDataException {
+        d.readStringTable();
+        locked = (d.readVarLong() & DATASET_LOCKED) != 0;
+        parseVersion(d.readString());
+        parseDownloadPolicy("download", d.readString());
+        parseUploadPolicy("upload", d.readString());
+        if (ds.getDownloadPolicy() == null) {
+            ds.setDownloadPolicy(DownloadPolicy.NORMAL);
+        }
+        if (ds.getUploadPolicy() == null) {
+            ds.setUploadPolicy(UploadPolicy.NORMAL);
+        }
+        dataSources.clear();
+        for (int i = d.readCount(); i > 0; i--) {
+            Bounds bounds = new Bounds(d.readDouble(), d.readDouble(), d.readDouble(), d.readDouble());
+            dataSources.add(new DataSource(bounds, d.readString()));
+        }
+        long id = 0;
+        for (int i = d.readCount(); i > 0; i--) {
+            OsmPrimitiveType type = d.readType();
+            id += d.readSignedVarLong();
+            externalIdMap.remove(new SimplePrimitiveId(id, type));
+            if (type == OsmPrimitiveType.WAY) {
+                ways.remove(id);
+            } else if (type == OsmPrimitiveType.RELATION) {
+                relations.remove(id);
+            }
+        }
+        parseNodes(d);
+        parseWays(d);
+        parseRelations(d);
+    }
+
+    private long lastId;
+    private long lastLat;
+    private long lastLon;
+
+    private void readCommon(Decoder d, PrimitiveData current) throws IllegalDataException {
+        lastId += d.readSignedVarLong();
+        parseId(current, lastId);
+        int flags = (int) d.readVarLong();
+        int version = (int) d.readVarLong();
+        int changeset = (int) d.readVarLong();
+        current.setRawTimestamp((int) d.readSignedVarLong());
+        if ((flags & FLAG_OSM_USER) != 0) {
+            long uid = d.readVarLong();
+            parseUser(current, d.readString(), uid);
+        } else if ((flags & FLAG_LOCAL_USER) != 0) {
+            parseUser(current, d.readString(), (String) null);
+        }
+        if ((flags & FLAG_INVISIBLE) != 0) {
+            current.setVisible(false);
+        }
+        if (version != 0) {
+            parseVersion(current, version);
+        } else {
+            parseVersion(current, (String) null);
+        }
+        if ((flags & FLAG_DELETED) != 0) {
+            parseAction(current, "delete");
+        } else if ((flags & FLAG_MODIFIED) != 0) {
+            parseAction(current, "modify");
+        }
+        if (changeset > 0) {
+            parseChangeset(current, changeset);
+        }
+    }
+
+    private void readTags(Decoder d, Tagged t) throws IllegalDataException {
+        for (int i = d.readCount(); i > 0; i--) {
+            parseTag(t, d.readString(), d.readString());
+        }
+    }
+
+    private void parseNodes(Decoder d) throws IllegalDataException {
+        lastId = 0;
+        lastLat = 0;
+        lastLon = 0;
+        for (int i = d.readCount(); i > 0 && !cancel; i--) {
+            double lat = Double.NaN;
+            double lon = Double.NaN;
+            if (d.readByte() != 0) {
+                lastLat += d.readSignedVarLong();
+                lastLon += d.readSignedVarLong();
+                lat = lastLat / COORDINATE_SCALE;
+                lon = lastLon / COORDINATE_SCALE;
+            }
+            parseNode(lat, lon, nd -> readCommon(d, nd), n -> readTags(d, n));
+        }
+    }
+
+    private void parseWays(Decoder d) throws IllegalDataException {
+        lastId = 0;
+        for (int i = d.readCount(); i > 0 && !cancel; i--) {
+            parseWay(wd -> readCommon(d, wd), (w, nodeIds) -> readWayNodesAndTags(d, w, nodeIds));
+        }
+    }
+
+    private void readWayNodesAndTags(Decoder d, Way w, Collection<Long> nodeIds) throws IllegalDataException {
+        long ref = 0;
+        for (int i = d.readCount(); i > 0; i--) {
+            ref += d.readSignedVarLong();
+            nodeIds.add(ref);
+        }
+        readTags(d, w);
+    }
+
+    private void parseRelations(Decoder d) throws IllegalDataException {
+        lastId = 0;
+        for (int i = d.readCount(); i > 0 && !cancel; i--) {
+            parseRelation(rd -> readCommon(d, rd), (r, members) -> readRelationMembersAndTags(d, r, members));
+        }
+    }
+
+    private void readRelationMembersAndTags(Decoder d, Relation r, Collection<RelationMemberData> members)
+            throws IllegalDataException {
+        long ref = 0;
+        for (int i = d.readCount(); i > 0; i--) {
+            OsmPrimitiveType type = d.readType();
+            ref += d.readSignedVarLong();
+            members.add(parseRelationMember(r, ref, type.getAPIName(), d.readString()));
+        }
+        readTags(d, r);
+    }
+
+    @Override
+    protected DataSet doParseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return doParseDataSetFromStream(source, progressMonitor, this::parse);
+    }
+
+    /**
+     * Parse the given input source and return the dataset.
+     *
+     * @param source the source input stream. Must not be null.
+     * @param progressMonitor the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     *
+     * @return the dataset with the parsed data
+     * @throws IllegalDataException if an error was found while parsing the data from the source
+     * @throws IllegalArgumentException if source is null
+     */
+    public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return new OsmBinaryReader().doParseDataSet(source, progressMonitor);
+    }
+}
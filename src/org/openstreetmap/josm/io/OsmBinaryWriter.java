@@ -0,0 +1,414 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.io.OsmBinaryFormat.COORDINATE_SCALE;
+import static org.openstreetmap.josm.io.OsmBinaryFormat.DATASET_LOCKED;
+import static org.openstreetmap.josm.io.OsmBinaryFormat.FLAG_DELETED;
+import static org.openstreetmap.josm.io.OsmBinaryFormat.FLAG_INVISIBLE;
+import static org.openstreetmap.josm.io.OsmBinaryFormat.FLAG_LOCAL_USER;
+import static org.openstreetmap.josm.io.OsmBinaryFormat.FLAG_MODIFIED;
+import static org.openstreetmap.josm.io.OsmBinaryFormat.FLAG_OSM_USER;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.CRC32;
+
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Saves a data set into a stream using the compact binary format read by {@link OsmBinaryReader}.
+ * <p>
+ * The stream starts with a {@link #header()}, followed by sections. A snapshot section contains a whole data set,
+ * a delta section only the primitives changed or removed since the previous section. A file can thus be brought up
+ * to date by appending a delta instead of being rewritten. Ids, coordinates and node references are delta and varint
+ * encoded, strings are written once per section in a string table.
+ */
+public class OsmBinaryWriter implements Closeable {
+
+    /**
+     * Sorts {@code -1} &rarr; {@code -infinity}, then {@code +1} &rarr; {@code +infinity}, like the XML writer
+     */
+    private static final Comparator<PrimitiveId> BY_ID = (o1, o2) -> {
+        final long i1 = o1.getUniqueId();
+        final long i2 = o2.getUniqueId();
+        if (i1 < 0 && i2 < 0) {
+            return Long.compare(i2, i1);
+        } else {
+            return Long.compare(i1, i2);
+        }
+    };
+
+    private final DataOutputStream out;
+
+    /**
+     * Growable byte buffer with varint encoding support.
+     */
+    private static final class Encoder {
+        private byte[] buf = new byte[256];
+        private int len;
+
+        void writeByte(int b) {
+            if (len == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            buf[len++] = (byte) b;
+        }
+
+        void writeBytes(byte[] b) {
+            if (len + b.length > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + b.length));
+            }
+            System.arraycopy(b, 0, buf, len, b.length);
+            len += b.length;
+        }
+
+        void writeEncoder(Encoder other) {
+            if (len + other.len > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + other.len));
+            }
+            System.arraycopy(other.buf, 0, buf, len, other.len);
+            len += other.len;
+        }
+
+        void writeVarLong(long value) {
+            long v = value;
+            while ((v & ~0x7fL) != 0) {
+                writeByte((int) ((v & 0x7f) | 0x80));
+                v >>>= 7;
+            }
+            writeByte((int) v);
+        }
+
+        void writeSignedVarLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeDouble(double value) {
+            long bits = Double.doubleToLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                writeByte((int) (bits >>> shift));
+            }
+        }
+    }
+
+    /**
+     * Encodes one section. Strings are collected in a table which is written in front of the section body.
+     */
+    private static final class SectionEncoder {
+        private final Map<String, Integer> stringIndex = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final Encoder body = new Encoder();
+        private long lastId;
+        private long lastLat;
+        private long lastLon;
+
+        void writeString(String s) {
+            Integer index = stringIndex.get(s);
+            if (index == null) {
+                index = strings.size();
+                strings.add(s);
+                stringIndex.put(s, index);
+            }
+            body.writeVarLong(index);
+        }
+
+        void writeHeader(DataSet ds) {
+            body.writeVarLong(ds.isLocked() ? DATASET_LOCKED : 0);
+            writeString(ds.getVersion() != null ? ds.getVersion() : OsmWriter.DEFAULT_API_VERSION);
+            writeString(ds.getDownloadPolicy().getXmlFlag());
+            writeString(ds.getUploadPolicy().getXmlFlag());
+            Collection<DataSource> sources = ds.getDataSources();
+            body.writeVarLong(sources.size());
+            for (DataSource source : sources) {
+                body.writeDouble(source.bounds.getMinLat());
+                body.writeDouble(source.bounds.getMinLon());
+                body.writeDouble(source.bounds.getMaxLat());
+                body.writeDouble(source.bounds.getMaxLon());
+                writeString(source.origin != null ? source.origin : "");
+            }
+        }
+
+        void writeRemoved(Collection<PrimitiveId> removed) {
+            body.writeVarLong(removed.size());
+            lastId = 0;
+            for (PrimitiveId p : sort(removed)) {
+                body.writeByte(p.getType().ordinal());
+                writeId(p.getUniqueId());
+            }
+        }
+
+        private void writeId(long id) {
+            body.writeSignedVarLong(id - lastId);
+            lastId = id;
+        }
+
+        private void writeCommon(OsmPrimitive p) {
+            writeId(p.getUniqueId());
+            User user = p.getUser();
+            int flags = 0;
+            if (p.isModified()) {
+                flags |= FLAG_MODIFIED;
+            }
+            if (p.isDeleted()) {
+                flags |= FLAG_DELETED;
+            }
+            if (!p.isVisible()) {
+                flags |= FLAG_INVISIBLE;
+            }
+            if (user != null && user.isLocalUser()) {
+                flags |= FLAG_LOCAL_USER;
+            } else if (user != null && user.isOsmUser()) {
+                flags |= FLAG_OSM_USER;
+            }
+            body.writeVarLong(flags);
+            body.writeVarLong(p.getVersion());
+            body.writeVarLong(p.isNew() ? 0 : Math.max(0, p.getChangesetId()));
+            body.writeSignedVarLong(p.getRawTimestamp());
+            if ((flags & FLAG_OSM_USER) != 0) {
+                body.writeVarLong(user.getId());
+            }
+            if ((flags & (FLAG_OSM_USER | FLAG_LOCAL_USER)) != 0) {
+                writeString(user.getName());
+            }
+        }
+
+        private void writeTags(OsmPrimitive p) {
+            Map<String, String> keys = p.getKeys();
+            body.writeVarLong(keys.size());
+            for (Entry<String, String> e : keys.entrySet()) {
+                writeString(e.getKey());
+                writeString(e.getValue());
+            }
+        }
+
+        void writeNodes(Collection<Node> nodes) {
+            body.writeVarLong(nodes.size());
+            lastId = 0;
+            for (Node n : sort(nodes)) {
+                LatLon ll = n.getCoor();
+                if (ll != null) {
+                    long lat = Math.round(ll.lat() * COORDINATE_SCALE);
+                    long lon = Math.round(ll.lon() * COORDINATE_SCALE);
+                    body.writeByte(1);
+                    body.writeSignedVarLong(lat - lastLat);
+                    body.writeSignedVarLong(lon - lastLon);
+                    lastLat = lat;
+                    lastLon = lon;
+                } else {
+                    body.writeByte(0);
+                }
+                writeCommon(n);
+                writeTags(n);
+            }
+        }
+
+        void writeWays(Collection<Way> ways) {
+            body.writeVarLong(ways.size());
+            lastId = 0;
+            for (Way w : sort(ways)) {
+                writeCommon(w);
+                int count = w.getNodesCount();
+                body.writeVarLong(count);
+                long lastRef = 0;
+                for (int i = 0; i < count; i++) {
+                    long ref = w.getNode(i).getUniqueId();
+                    body.writeSignedVarLong(ref - lastRef);
+                    lastRef = ref;
+                }
+                writeTags(w);
+            }
+        }
+
+        void writeRelations(Collection<Relation> relations) {
+            body.writeVarLong(relations.size());
+            lastId = 0;
+            for (Relation r : sort(relations)) {
+                writeCommon(r);
+                int count = r.getMembersCount();
+                body.writeVarLong(count);
+                long lastRef = 0;
+                for (int i = 0; i < count; i++) {
+                    RelationMember m = r.getMember(i);
+                    long ref = m.getUniqueId();
+                    body.writeByte(m.getType().ordinal());
+                    body.writeSignedVarLong(ref - lastRef);
+                    lastRef = ref;
+                    writeString(m.getRole());
+                }
+                writeTags(r);
+            }
+        }
+
+        Encoder finish() {
+            Encoder result = new Encoder();
+            result.writeVarLong(strings.size());
+            for (String s : strings) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                result.writeVarLong(bytes.length);
+                result.writeBytes(bytes);
+            }
+            result.writeEncoder(body);
+            return result;
+        }
+    }
+
+    /**
+     * Constructs a new {@code OsmBinaryWriter}.
+     * @param out the output stream. Should be buffered
+     */
+    public OsmBinaryWriter(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    private static <T extends PrimitiveId> List<T> sort(Collection<T> primitives) {
+        List<T> result = new ArrayList<>(primitives);
+        result.sort(BY_ID);
+        return result;
+    }
+
+    private static boolean shouldWrite(OsmPrimitive osm) {
+        return !osm.isIncomplete() && (!osm.isNewOrUndeleted() || !osm.isDeleted());
+    }
+
+    /**
+     * Writes the file header. Must only be called once, at the start of the file.
+     * @throws IOException if an I/O error occurs
+     */
+    public void header() throws IOException {
+        out.write(OsmBinaryFormat.MAGIC);
+        out.writeByte(OsmBinaryFormat.VERSION);
+    }
+
+    /**
+     * Writes a snapshot section containing the whole data set.
+     * The caller is responsible for holding the read lock of the data set.
+     * @param ds the data set
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeSnapshot(DataSet ds) throws IOException {
+        SectionEncoder section = new SectionEncoder();
+        section.writeHeader(ds);
+        section.writeRemoved(Collections.<PrimitiveId>emptyList());
+        section.writeNodes(filter(ds.getNodes()));
+        section.writeWays(filter(ds.getWays()));
+        section.writeRelations(filter(ds.getRelations()));
+        writeSection(OsmBinaryFormat.SECTION_SNAPSHOT, section.finish());
+    }
+
+    /**
+     * Writes a delta section containing the given changed primitives. Primitives which are no longer part of the data
+     * set (or which would not be written to a snapshot, such as incomplete ones) are recorded as removed.
+     * The caller is responsible for holding the read lock of the data set.
+     * @param ds the data set
+     * @param changed the primitives changed since the previous section
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeDelta(DataSet ds, Collection<? extends OsmPrimitive> changed) throws IOException {
+        writeDelta(ds, changed, Collections.<PrimitiveId>emptyList());
+    }
+
+    /**
+     * Writes a delta section containing the given changed and removed primitives. The removals are applied first
+     * when reading, so that a primitive both removed and changed (for instance after its id has been changed by an
+     * upload) ends up with its current state. Changed primitives which are no longer part of the data set are
+     * recorded as removed.
+     * The caller is responsible for holding the read lock of the data set.
+     * @param ds the data set
+     * @param changed the primitives changed since the previous section
+     * @param removed the ids of primitives removed since the previous section
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeDelta(DataSet ds, Collection<? extends OsmPrimitive> changed, Collection<? extends PrimitiveId> removed)
+            throws IOException {
+        List<PrimitiveId> allRemoved = new ArrayList<>(removed);
+        List<Node> nodes = new ArrayList<>();
+        List<Way> ways = new ArrayList<>();
+        List<Relation> relations = new ArrayList<>();
+        for (OsmPrimitive p : changed) {
+            if (p.getDataSet() != ds || !shouldWrite(p)) {
+                allRemoved.add(p);
+            } else if (p instanceof Node) {
+                nodes.add((Node) p);
+            } else if (p instanceof Way) {
+                ways.add((Way) p);
+            } else if (p instanceof Relation) {
+                relations.add((Relation) p);
+            }
+        }
+        SectionEncoder section = new SectionEncoder();
+        section.writeHeader(ds);
+        section.writeRemoved(allRemoved);
+        section.writeNodes(nodes);
+        section.writeWays(ways);
+        section.writeRelations(relations);
+        writeSection(OsmBinaryFormat.SECTION_DELTA, section.finish());
+    }
+
+    private static <T extends OsmPrimitive> List<T> filter(Collection<T> primitives) {
+        List<T> result = new ArrayList<>(primitives.size());
+        for (T p : primitives) {
+            if (shouldWrite(p)) {
+                result.add(p);
+            }
+        }
+        return result;
+    }
+
+    private void writeSection(byte kind, Encoder payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload.buf, 0, payload.len);
+        out.writeByte(kind);
+        out.writeInt(payload.len);
+        out.write(payload.buf, 0, payload.len);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Writes a complete file (header and snapshot) for the given data set, taking its read lock.
+     * @param ds the data set
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(DataSet ds) throws IOException {
+        ds.getReadLock().lock();
+        try {
+            header();
+            writeSnapshot(ds);
+        } finally {
+            ds.getReadLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes the underlying stream.
+     * @throws IOException if an I/O error occurs
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
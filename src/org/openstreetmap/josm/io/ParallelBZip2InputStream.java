@@ -0,0 +1,440 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * A bzip2 decompressing input stream decoding several blocks concurrently.
+ * <p>
+ * Bzip2 compresses data in independent blocks of at most 900 kB, each introduced by a 48 bit magic number
+ * (which is not byte aligned). This stream scans the compressed input for block boundaries, wraps each block into a
+ * minimal standalone bzip2 stream and decodes it with {@link BZip2CompressorInputStream} on a {@link ForkJoinPool}.
+ * The decoded blocks are handed out in their original order, so readers such as {@link OsmReader} or
+ * {@link GpxReader} see exactly the same bytes as with a sequential decoder.
+ * <p>
+ * Concatenated bzip2 streams are supported (see #9537). The block magic may also appear by chance inside compressed
+ * data; such a block fails to decode and is then decoded again merged with the following block. The end of stream
+ * magic is only accepted if it is followed by the end of input or by the header of another stream.
+ */
+public class ParallelBZip2InputStream extends InputStream {
+
+    private static final long BLOCK_MAGIC = 0x314159265359L;
+    private static final long EOS_MAGIC = 0x177245385090L;
+    private static final long MAGIC_MASK = 0xffffffffffffL;
+    private static final int MAGIC_BITS = 48;
+    private static final int CRC_BITS = 32;
+
+    private static ForkJoinPool threadPool;
+
+    private final InputStream in;
+    private final ForkJoinPool pool;
+    private final int readAhead;
+    private final Deque<Block> pending = new ArrayDeque<>();
+
+    /** Compressed data window, bit positions are relative to its start */
+    private byte[] buf = new byte[1 << 20];
+    private int bufLen;
+    private int scanBit;
+    private int blockStart = -1;
+    private long shiftRegister;
+    private int registerBits;
+    private int level;
+    private boolean inStream;
+    private boolean endOfInput;
+
+    private byte[] current = new byte[0];
+    private int currentPos;
+    private boolean closed;
+
+    /**
+     * A compressed block waiting for (or being) decoded.
+     */
+    private static final class Block {
+        private final int level;
+        private final byte[] raw;
+        private final int bitOffset;
+        private final long bitLength;
+        private boolean lastInStream;
+        private Future<byte[]> result;
+
+        Block(int level, byte[] raw, int bitOffset, long bitLength) {
+            this.level = level;
+            this.raw = raw;
+            this.bitOffset = bitOffset;
+            this.bitLength = bitLength;
+        }
+
+        byte[] decode() throws IOException {
+            return decodeBlock(level, raw, bitOffset, bitLength);
+        }
+
+        Block merge(Block next) {
+            BitWriter w = new BitWriter((int) ((bitLength + next.bitLength) / 8) + 2);
+            w.copyBits(raw, bitOffset, bitLength);
+            w.copyBits(next.raw, next.bitOffset, next.bitLength);
+            Block merged = new Block(level, w.toByteArray(), 0, bitLength + next.bitLength);
+            merged.lastInStream = next.lastInStream;
+            return merged;
+        }
+    }
+
+    /**
+     * Minimal MSB-first bit writer used to assemble standalone bzip2 streams.
+     */
+    private static final class BitWriter {
+        private byte[] out;
+        private int len;
+        private long acc;
+        private int accBits;
+
+        BitWriter(int capacity) {
+            out = new byte[Math.max(16, capacity)];
+        }
+
+        void writeBits(long value, int n) {
+            for (int remaining = n; remaining > 0;) {
+                int chunk = Math.min(remaining, 32);
+                remaining -= chunk;
+                acc = (acc << chunk) | ((value >>> remaining) & ((1L << chunk) - 1));
+                accBits += chunk;
+                while (accBits >= 8) {
+                    accBits -= 8;
+                    if (len == out.length) {
+                        out = Arrays.copyOf(out, out.length * 2);
+                    }
+                    out[len++] = (byte) (acc >>> accBits);
+                }
+            }
+        }
+
+        void copyBits(byte[] src, int bitOffset, long bitLength) {
+            long fullBytes = bitLength >>> 3;
+            int pos = bitOffset;
+            for (long i = 0; i < fullBytes; i++, pos += 8) {
+                writeBits(readBits(src, pos, 8), 8);
+            }
+            int rest = (int) (bitLength & 7);
+            if (rest > 0) {
+                writeBits(readBits(src, pos, rest), rest);
+            }
+        }
+
+        byte[] toByteArray() {
+            if (accBits > 0) {
+                writeBits(0, 8 - accBits);
+            }
+            return Arrays.copyOf(out, len);
+        }
+    }
+
+    /**
+     * Constructs a new {@code ParallelBZip2InputStream} using the shared bzip2 thread pool.
+     * @param in the compressed input stream
+     * @throws IOException if the stream does not start with a valid bzip2 header
+     */
+    public ParallelBZip2InputStream(InputStream in) throws IOException {
+        this(in, getThreadPool());
+    }
+
+    /**
+     * Constructs a new {@code ParallelBZip2InputStream}.
+     * @param in the compressed input stream
+     * @param pool the thread pool used to decode the blocks
+     * @throws IOException if the stream does not start with a valid bzip2 header
+     */
+    public ParallelBZip2InputStream(InputStream in, ForkJoinPool pool) throws IOException {
+        this.in = in;
+        this.pool = pool;
+        this.readAhead = 2 * pool.getParallelism();
+        if (!readStreamHeader()) {
+            throw new IOException("Stream is not in the BZip2 format");
+        }
+    }
+
+    /**
+     * Returns the shared thread pool used to decode bzip2 blocks.
+     * Its size is controlled by preference {@code bzip2.decompression.numberOfThreads}.
+     * @return the shared thread pool
+     */
+    public static synchronized ForkJoinPool getThreadPool() {
+        if (threadPool == null) {
+            threadPool = Utils.newForkJoinPool("bzip2.decompression.numberOfThreads", "bzip2-decoder-%d", Thread.NORM_PRIORITY);
+        }
+        return threadPool;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData()) {
+            return -1;
+        }
+        return current[currentPos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureData()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - currentPos);
+        System.arraycopy(current, currentPos, b, off, n);
+        currentPos += n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return closed ? 0 : current.length - currentPos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            for (Block block : pending) {
+                block.result.cancel(false);
+            }
+            pending.clear();
+            in.close();
+        }
+    }
+
+    private boolean ensureData() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (currentPos >= current.length) {
+            fillPipeline();
+            Block block = pending.pollFirst();
+            if (block == null) {
+                return false;
+            }
+            current = getResult(block);
+            currentPos = 0;
+        }
+        return true;
+    }
+
+    private void fillPipeline() throws IOException {
+        while (pending.size() < readAhead) {
+            Block block = nextBlock();
+            if (block == null) {
+                return;
+            }
+            submit(block);
+            pending.addLast(block);
+        }
+    }
+
+    private void submit(Block block) {
+        block.result = pool.submit(block::decode);
+    }
+
+    private byte[] getResult(Block first) throws IOException {
+        Block block = first;
+        while (true) {
+            try {
+                return block.result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                // The block magic may have been found inside compressed data: try again together with the next block.
+                // The decoder reports such a truncated block by an IOException, or by a RuntimeException
+                if (!(cause instanceof IOException || cause instanceof RuntimeException) || block.lastInStream) {
+                    throw toIOException(cause);
+                }
+                if (pending.isEmpty()) {
+                    fillPipeline();
+                }
+                Block next = pending.pollFirst();
+                if (next == null) {
+                    throw toIOException(cause);
+                }
+                Logging.debug("bzip2 block could not be decoded on its own, merging with next block: {0}", cause.getMessage());
+                next.result.cancel(false);
+                block = block.merge(next);
+                submit(block);
+            }
+        }
+    }
+
+    private static IOException toIOException(Throwable t) {
+        return t instanceof IOException ? (IOException) t : new IOException(t);
+    }
+
+    /**
+     * Decodes a single compressed block by wrapping it into a minimal bzip2 stream.
+     * @param level the block size level of the enclosing stream
+     * @param raw the compressed data
+     * @param bitOffset position of the first bit of the block magic in {@code raw}
+     * @param bitLength length of the block in bits, including its magic number and CRC
+     * @return the decompressed data
+     * @throws IOException if the block is corrupted
+     */
+    static byte[] decodeBlock(int level, byte[] raw, int bitOffset, long bitLength) throws IOException {
+        BitWriter w = new BitWriter((int) (bitLength / 8) + 16);
+        w.writeBits('B', 8);
+        w.writeBits('Z', 8);
+        w.writeBits('h', 8);
+        w.writeBits('0' + level, 8);
+        w.copyBits(raw, bitOffset, bitLength);
+        w.writeBits(EOS_MAGIC, MAGIC_BITS);
+        // The combined CRC of a stream consisting of a single block is the CRC of that block
+        w.writeBits(readBits(raw, bitOffset + MAGIC_BITS, CRC_BITS), CRC_BITS);
+        return Utils.readBytesFromStream(new BZip2CompressorInputStream(new ByteArrayInputStream(w.toByteArray()), false));
+    }
+
+    private static long readBits(byte[] src, long bitPos, int n) {
+        long value = 0;
+        for (int i = 0; i < n;) {
+            long pos = bitPos + i;
+            int bitInByte = (int) (pos & 7);
+            int take = Math.min(8 - bitInByte, n - i);
+            int b = src[(int) (pos >>> 3)] & 0xff;
+            value = (value << take) | ((b >>> (8 - bitInByte - take)) & ((1 << take) - 1));
+            i += take;
+        }
+        return value;
+    }
+
+    /**
+     * Scans the compressed input up to the end of the next block.
+     * @return the next compressed block, or {@code null} at end of input
+     * @throws IOException if an I/O error occurs or the input ends in the middle of a stream
+     */
+    private Block nextBlock() throws IOException {
+        while (true) {
+            if (!inStream && !readStreamHeader()) {
+                return null;
+            }
+            if (scanBit >= bufLen << 3 && !fill()) {
+                throw new IOException("Unexpected end of bzip2 stream");
+            }
+            while (scanBit < bufLen << 3) {
+                int bit = (buf[scanBit >>> 3] >>> (7 - (scanBit & 7))) & 1;
+                shiftRegister = (shiftRegister << 1) | bit;
+                scanBit++;
+                if (registerBits < MAGIC_BITS) {
+                    registerBits++;
+                    if (registerBits < MAGIC_BITS) {
+                        continue;
+                    }
+                }
+                long magic = shiftRegister & MAGIC_MASK;
+                if (magic == BLOCK_MAGIC) {
+                    int start = scanBit - MAGIC_BITS;
+                    Block block = blockStart >= 0 ? extract(blockStart, start) : null;
+                    blockStart = start;
+                    if (block != null) {
+                        return block;
+                    }
+                } else if (magic == EOS_MAGIC && isEndOfStream()) {
+                    Block block = blockStart >= 0 ? extract(blockStart, scanBit - MAGIC_BITS) : null;
+                    if (block != null) {
+                        block.lastInStream = true;
+                    }
+                    blockStart = -1;
+                    // skip combined CRC and padding
+                    scanBit = (scanBit + CRC_BITS + 7) & ~7;
+                    inStream = false;
+                    if (block != null) {
+                        return block;
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines if the end of stream magic just scanned really ends the stream, i.e. if it is followed by its combined
+     * CRC, padding and then the end of input or the header of another stream. Otherwise it is part of compressed data.
+     * @return {@code true} if the end of stream magic just scanned ends the stream
+     * @throws IOException if an I/O error occurs
+     */
+    private boolean isEndOfStream() throws IOException {
+        // the combined CRC, at most 7 bits of padding and a stream header
+        boolean eof = !ensureBytes(9);
+        int next = (scanBit + CRC_BITS + 7) & ~7;
+        if (eof && next == bufLen << 3) {
+            return true;
+        } else if (next + 32 > bufLen << 3) {
+            return false;
+        }
+        int pos = next >>> 3;
+        return buf[pos] == 'B' && buf[pos + 1] == 'Z' && buf[pos + 2] == 'h' && buf[pos + 3] >= '1' && buf[pos + 3] <= '9';
+    }
+
+    private Block extract(int startBit, int endBit) {
+        int from = startBit >>> 3;
+        int to = (endBit + 7) >>> 3;
+        return new Block(level, Arrays.copyOfRange(buf, from, to), startBit & 7, (long) endBit - startBit);
+    }
+
+    private boolean readStreamHeader() throws IOException {
+        if (endOfInput || !ensureBytes(4)) {
+            endOfInput = true;
+            return false;
+        }
+        int pos = scanBit >>> 3;
+        boolean valid = buf[pos] == 'B' && buf[pos + 1] == 'Z' && buf[pos + 2] == 'h'
+                && buf[pos + 3] >= '1' && buf[pos + 3] <= '9';
+        if (!valid) {
+            endOfInput = true;
+            return false;
+        }
+        level = buf[pos + 3] - '0';
+        scanBit += 32;
+        shiftRegister = 0;
+        registerBits = 0;
+        inStream = true;
+        return true;
+    }
+
+    private boolean ensureBytes(int n) throws IOException {
+        while (((long) bufLen << 3) - scanBit < (long) n << 3) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean fill() throws IOException {
+        int keepFrom = Math.min(bufLen, (blockStart >= 0 ? blockStart : Math.max(0, scanBit - MAGIC_BITS)) >>> 3);
+        if (keepFrom > 0 && (keepFrom >= buf.length / 2 || bufLen == buf.length)) {
+            System.arraycopy(buf, keepFrom, buf, 0, bufLen - keepFrom);
+            bufLen -= keepFrom;
+            scanBit -= keepFrom << 3;
+            if (blockStart >= 0) {
+                blockStart -= keepFrom << 3;
+            }
+        }
+        if (bufLen == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        int n = in.read(buf, bufLen, buf.length - bufLen);
+        if (n < 0) {
+            return false;
+        }
+        bufLen += n;
+        return true;
+    }
+}
@@ -1,13 +1,16 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.io.session;
 
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.io.OsmBinaryWriter;
 import org.openstreetmap.josm.io.OsmWriter;
 import org.openstreetmap.josm.io.OsmWriterFactory;
 
@@ -17,16 +20,35 @@ import org.openstreetmap.josm.io.OsmWriterFactory;
  */
 public class OsmDataSessionExporter extends GenericSessionExporter<OsmDataLayer> {
 
+    /**
+     * Whether data included in session files is stored in the compact binary format instead of OSM XML.
+     * Such sessions can only be read by JOSM versions supporting this format, hence the default is {@code false}.
+     */
+    public static final BooleanProperty PROP_BINARY = new BooleanProperty("session.osm-data.binary", false);
+
+    private final boolean binary;
+
     /**
      * Constructs a new {@code OsmDataSessionExporter}.
      * @param layer Data layer to export
      */
     public OsmDataSessionExporter(OsmDataLayer layer) { // NO_UCD (test only)
-        super(layer, "osm-data", "0.1", "osm");
+        this(layer, PROP_BINARY.get());
+    }
+
+    private OsmDataSessionExporter(OsmDataLayer layer, boolean binary) {
+        super(layer, "osm-data", "0.1", binary ? "osmb" : "osm");
+        this.binary = binary;
     }
 
     @Override
-    protected void addDataFile(OutputStream out) {
+    protected void addDataFile(OutputStream out) throws IOException {
+        if (binary) {
+            OsmBinaryWriter w = new OsmBinaryWriter(out);
+            w.write(layer.data);
+            w.flush();
+            return;
+        }
         Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
         OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(writer), false, layer.data.getVersion());
         layer.data.getReadLock().lock();
@@ -12,6 +12,7 @@ import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
+import org.openstreetmap.josm.gui.io.importexport.OsmBinaryImporter;
 import org.openstreetmap.josm.gui.io.importexport.OsmImporter;
 import org.openstreetmap.josm.gui.layer.Layer;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
@@ -41,7 +42,7 @@ public class OsmDataSessionImporter implements SessionLayerImporter {
                 throw new IllegalDataException(tr("File name expected for layer no. {0}", support.getLayerIndex()));
             }
 
-            OsmImporter importer = new OsmImporter();
+            OsmImporter importer = fileStr.endsWith(".osmb") ? new OsmBinaryImporter() : new OsmImporter();
             try (InputStream in = support.getInputStream(fileStr)) {
                 OsmImporter.OsmImporterData importData = importer.loadLayer(in, support.getFile(fileStr), support.getLayerName(),
                         progressMonitor);
@@ -0,0 +1,126 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.MapFrame;
+import org.openstreetmap.josm.gui.MapFrameListener;
+import org.openstreetmap.josm.gui.io.importexport.AllFormatsImporter;
+import org.openstreetmap.josm.gui.io.importexport.FileImporter;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * A plugin declaring {@code Plugin-Lazy: true} in its manifest, whose main class has not been instantiated yet.
+ * <p>
+ * The plugin is activated, i.e. its main class is instantiated, the first time one of the following happens:
+ * <ul>
+ * <li>a map frame is shown, as this is when the map modes, layers and most actions of the plugin become usable;</li>
+ * <li>a file is opened with one of the extensions listed in {@code Plugin-Lazy-Extensions}, comma-separated.
+ * A placeholder importer is registered for them, which hands the file over to the importer registered by the plugin;</li>
+ * <li>a plugin depending on it is loaded.</li>
+ * </ul>
+ * Until then, the plugin contributes no menu entries, actions or preferences.
+ */
+final class LazyPlugin implements MapFrameListener {
+
+    private final PluginInformation info;
+    private final PluginClassLoader classLoader;
+    private final Importer importer;
+    /** Only accessed in the EDT */
+    private boolean activated;
+
+    LazyPlugin(PluginInformation info, PluginClassLoader classLoader) {
+        this.info = info;
+        this.classLoader = classLoader;
+        this.importer = info.lazyExtensions.isEmpty() ? null : new Importer();
+    }
+
+    /**
+     * Registers the activation triggers of this plugin.
+     */
+    void register() {
+        Logging.info(tr("deferring plugin ''{0}'' (version {1}) until first use", info.name, info.localversion));
+        if (importer != null) {
+            ExtensionFileFilter.addImporter(importer);
+            ExtensionFileFilter.updateAllFormatsImporter();
+        }
+        MainApplication.addAndFireMapFrameListener(this);
+    }
+
+    PluginInformation getPluginInformation() {
+        return info;
+    }
+
+    PluginClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    FileImporter getImporter() {
+        return importer;
+    }
+
+    /**
+     * Instantiates the plugin main class, unless already done. Runs in the EDT, waiting for completion.
+     */
+    void activate() {
+        GuiHelper.runInEDTAndWait(() -> {
+            if (activated)
+                return;
+            activated = true;
+            MainApplication.removeMapFrameListener(this);
+            if (importer != null) {
+                ExtensionFileFilter.removeImporter(importer);
+            }
+            PluginHandler.activateLazyPlugin(MainApplication.getMainFrame(), this);
+            if (importer != null) {
+                ExtensionFileFilter.updateAllFormatsImporter();
+            }
+        });
+    }
+
+    @Override
+    public void mapFrameInitialized(MapFrame oldFrame, MapFrame newFrame) {
+        if (newFrame != null) {
+            activate();
+        }
+    }
+
+    private final class Importer extends FileImporter {
+
+        Importer() {
+            super(new ExtensionFileFilter(String.join(",", info.lazyExtensions), info.lazyExtensions.get(0),
+                    tr("{0} files", info.name) + " (*." + String.join(", *.", info.lazyExtensions) + ')'));
+        }
+
+        @Override
+        public void importData(File file, ProgressMonitor progressMonitor) throws IOException, IllegalDataException {
+            activate();
+            FileImporter delegate = getPluginImporter(file);
+            if (delegate.isBatchImporter()) {
+                delegate.importData(Collections.singletonList(file), progressMonitor);
+            } else {
+                delegate.importData(file, progressMonitor);
+            }
+        }
+
+        private FileImporter getPluginImporter(File file) throws IOException {
+            List<FileImporter> importers = ExtensionFileFilter.getImporters();
+            for (FileImporter candidate : importers) {
+                if (candidate != this && !(candidate instanceof AllFormatsImporter) && candidate.acceptFile(file)) {
+                    return candidate;
+                }
+            }
+            throw new IOException(tr("Plugin {0} did not register an importer for ''{1}''.", info.name, file.getName()));
+        }
+    }
+}
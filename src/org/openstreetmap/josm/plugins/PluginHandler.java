@@ -35,7 +35,12 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.jar.JarFile;
@@ -293,6 +298,11 @@ public final class PluginHandler {
      */
     static final Collection<PluginProxy> pluginList = new LinkedList<>();
 
+    /**
+     * All installed plugins declaring lazy activation which have not been used yet
+     */
+    static final Collection<LazyPlugin> lazyPluginList = new CopyOnWriteArrayList<>();
+
     /**
      * All exceptions that occured during plugin loading
      */
@@ -754,10 +764,11 @@ public final class PluginHandler {
      *
      * @param plugins the plugins to add
      */
-    private static void extendJoinedPluginResourceCL(Collection<PluginInformation> plugins) {
+    private static void extendJoinedPluginResourceCL(Collection<PluginInformation> plugins, Executor executor) {
         // iterate all plugins and collect all libraries of all plugins:
         File pluginDir = Preferences.main().getPluginsDirectory();
         DynamicURLClassLoader cl = getJoinedPluginResourceCL();
+        List<File> pluginJars = new ArrayList<>(plugins.size());
 
         for (PluginInformation info : plugins) {
             if (info.libraries == null) {
@@ -767,10 +778,37 @@ public final class PluginHandler {
                 cl.addURL(libUrl);
             }
             File pluginJar = new File(pluginDir, info.name + ".jar");
-            I18n.addTexts(pluginJar);
+            pluginJars.add(pluginJar);
             URL pluginJarUrl = Utils.fileToURL(pluginJar);
             cl.addURL(pluginJarUrl);
         }
+        I18n.addTexts(pluginJars, executor);
+    }
+
+    /**
+     * Opens the plugin jars and loads the main classes of the plugins in parallel, without initializing them.
+     * The plugins are then initialized and instantiated one after the other by {@link #loadPlugin}.
+     * Errors are ignored here, they are reported when loading the plugin.
+     *
+     * @param plugins the plugins
+     * @param classLoaders the class loaders of the plugins
+     * @param executor the executor used to load the classes
+     */
+    private static void preloadPluginClasses(Collection<PluginInformation> plugins, Map<PluginInformation, PluginClassLoader> classLoaders,
+            Executor executor) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(plugins.size());
+        for (PluginInformation info : plugins) {
+            if (info.className != null) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        Class.forName(info.className, false, classLoaders.get(info));
+                    } catch (ClassNotFoundException | LinkageError e) {
+                        Logging.trace(e);
+                    }
+                }, executor));
+            }
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
     }
 
     /**
@@ -808,8 +846,47 @@ public final class PluginHandler {
         }
     }
 
+    /**
+     * Instantiates a plugin declaring lazy activation on its first use.
+     *
+     * @param parent The parent component to be used for the displayed dialog
+     * @param lazyPlugin the plugin
+     */
+    static void activateLazyPlugin(Component parent, LazyPlugin lazyPlugin) {
+        lazyPluginList.remove(lazyPlugin);
+        for (String depName : lazyPlugin.getPluginInformation().getLocalRequiredPlugins()) {
+            LazyPlugin lazyDep = getLazyPlugin(depName);
+            if (lazyDep != null) {
+                lazyDep.activate();
+            }
+        }
+        loadPlugin(parent, lazyPlugin.getPluginInformation(), lazyPlugin.getClassLoader());
+    }
+
+    /**
+     * Determines the plugins declaring lazy activation which are not required by a plugin activated immediately.
+     *
+     * @param plugins the plugins to load
+     * @return the plugins to activate on first use
+     */
+    private static Set<PluginInformation> getLazyPlugins(Collection<PluginInformation> plugins) {
+        Set<PluginInformation> lazy = plugins.stream().filter(info -> info.lazy).collect(Collectors.toSet());
+        boolean changed = !lazy.isEmpty();
+        while (changed) {
+            changed = false;
+            for (PluginInformation info : plugins) {
+                if (!lazy.contains(info)) {
+                    List<String> required = info.getLocalRequiredPlugins();
+                    changed |= lazy.removeIf(dep -> required.contains(dep.getName()));
+                }
+            }
+        }
+        return lazy;
+    }
+
     /**
      * Loads the plugin in <code>plugins</code> from locally available jar files into memory.
+     * Plugins declaring lazy activation are only instantiated on first use, see {@link LazyPlugin}.
      *
      * @param parent The parent component to be used for the displayed dialog
      * @param plugins the list of plugins
@@ -824,6 +901,9 @@ public final class PluginHandler {
             monitor.subTask(tr("Checking plugin preconditions..."));
             List<PluginInformation> toLoad = new LinkedList<>();
             for (PluginInformation pi: plugins) {
+                if (getLazyPlugin(pi.getName()) != null) {
+                    continue;
+                }
                 if (checkLoadPreconditions(parent, plugins, pi)) {
                     toLoad.add(pi);
                 }
@@ -862,16 +942,37 @@ public final class PluginHandler {
                             continue DEPENDENCIES;
                         }
                     }
+                    LazyPlugin lazyDep = getLazyPlugin(depName);
+                    if (lazyDep != null) {
+                        lazyDep.activate();
+                        cl.addDependency(lazyDep.getClassLoader());
+                        continue;
+                    }
                     Logging.error("unable to find dependency " + depName + " for plugin " + info.getName());
                 }
             }
 
-            extendJoinedPluginResourceCL(toLoad);
+            Set<PluginInformation> lazy = getLazyPlugins(toLoad);
+            int threads = Math.max(1, Config.getPref().getInt("plugin.load.numberOfThreads", Runtime.getRuntime().availableProcessors()));
+            ExecutorService executor = Executors.newFixedThreadPool(threads, Utils.newThreadFactory("plugin-loader-%d", Thread.NORM_PRIORITY));
+            try {
+                extendJoinedPluginResourceCL(toLoad, executor);
+                preloadPluginClasses(toLoad.stream().filter(info -> !lazy.contains(info)).collect(Collectors.toList()),
+                        classLoaders, executor);
+            } finally {
+                executor.shutdown();
+            }
             ImageProvider.addAdditionalClassLoaders(getResourceClassLoaders());
             monitor.setTicksCount(toLoad.size());
             for (PluginInformation info : toLoad) {
                 monitor.setExtraText(tr("Loading plugin ''{0}''...", info.name));
-                loadPlugin(parent, info, classLoaders.get(info));
+                if (lazy.contains(info)) {
+                    LazyPlugin lazyPlugin = new LazyPlugin(info, classLoaders.get(info));
+                    lazyPluginList.add(lazyPlugin);
+                    lazyPlugin.register();
+                } else {
+                    loadPlugin(parent, info, classLoaders.get(info));
+                }
                 monitor.worked(1);
             }
         } finally {
@@ -1220,6 +1321,20 @@ public final class PluginHandler {
         return null;
     }
 
+    /**
+     * Returns the plugin of the specified name waiting for its first use.
+     * @param name The plugin name
+     * @return The plugin of the specified name, if installed, declaring lazy activation and not activated yet,
+     * or {@code null} otherwise.
+     */
+    static LazyPlugin getLazyPlugin(String name) {
+        for (LazyPlugin plugin : lazyPluginList) {
+            if (plugin.getPluginInformation().name.equals(name))
+                return plugin;
+        }
+        return null;
+    }
+
     /**
      * Returns the plugin class loader for the plugin of the specified name.
      * @param name The plugin name
@@ -83,6 +83,10 @@ public class PluginInformation {
     private ImageProvider icon;
     /** Plugin can be loaded at any time and not just at start. */
     public boolean canloadatruntime;
+    /** Determines if the plugin main class is only instantiated on first use, see {@link LazyPlugin}. */
+    public boolean lazy;
+    /** The file extensions opened by the plugin, activating it when it is {@link #lazy}. */
+    public List<String> lazyExtensions = new ArrayList<>();
     /** The libraries referenced in Class-Path manifest attribute. */
     public List<URL> libraries = new LinkedList<>();
     /** All manifest attributes. */
@@ -178,6 +182,8 @@ public class PluginInformation {
         this.icon = other.icon;
         this.iconPath = other.iconPath;
         this.canloadatruntime = other.canloadatruntime;
+        this.lazy = other.lazy;
+        this.lazyExtensions = other.lazyExtensions;
         this.libraries = other.libraries;
         this.attr.clear();
         this.attr.putAll(other.attr);
@@ -200,6 +206,8 @@ public class PluginInformation {
         this.early = other.early;
         this.className = other.className;
         this.canloadatruntime = other.canloadatruntime;
+        this.lazy = other.lazy;
+        this.lazyExtensions = other.lazyExtensions;
         this.libraries = other.libraries;
         this.stage = other.stage;
         this.file = other.file;
@@ -266,6 +274,15 @@ public class PluginInformation {
             }
         }
         canloadatruntime = Boolean.parseBoolean(attr.getValue("Plugin-Canloadatruntime"));
+        lazy = Boolean.parseBoolean(attr.getValue("Plugin-Lazy"));
+        s = attr.getValue("Plugin-Lazy-Extensions");
+        if (s != null) {
+            for (String ext : s.split(",")) {
+                if (!ext.trim().isEmpty()) {
+                    lazyExtensions.add(ext.trim().toLowerCase(Locale.ENGLISH));
+                }
+            }
+        }
         int myv = Version.getInstance().getVersion();
         for (Map.Entry<Object, Object> entry : attr.entrySet()) {
             String key = ((Attributes.Name) entry.getKey()).toString();
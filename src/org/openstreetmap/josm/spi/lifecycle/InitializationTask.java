@@ -1,17 +1,27 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.spi.lifecycle;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.Callable;
 
 /**
  * Initialization task notifying the current lifecycle {@link InitStatusListener}.
+ * <p>
+ * A task may depend on other tasks. Parallel tasks are only started once their dependencies are finished.
  * @since 14125
  */
 public final class InitializationTask implements Callable<Void> {
 
     private final String name;
     private final Runnable task;
+    private final List<InitializationTask> dependencies;
+
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile String threadName;
 
     /**
      * Constructs a new {@code InitializationTask}.
@@ -19,21 +29,83 @@ public final class InitializationTask implements Callable<Void> {
      * @param task runnable initialization task
      */
     public InitializationTask(String name, Runnable task) {
+        this(name, task, new InitializationTask[0]);
+    }
+
+    /**
+     * Constructs a new {@code InitializationTask} depending on other tasks.
+     * @param name translated name to be displayed to user
+     * @param task runnable initialization task
+     * @param dependencies tasks which must be finished before this task is started
+     */
+    public InitializationTask(String name, Runnable task, InitializationTask... dependencies) {
         this.name = Objects.requireNonNull(name);
         this.task = Objects.requireNonNull(task);
+        this.dependencies = Collections.unmodifiableList(Arrays.asList(dependencies.clone()));
+    }
+
+    /**
+     * Returns the name of this task.
+     * @return translated name to be displayed to user
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the tasks which must be finished before this task is started.
+     * @return the dependencies of this task
+     */
+    public List<InitializationTask> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Returns the time at which this task was started.
+     * @return the value of {@link System#nanoTime()} when this task was started, or {@code 0} if not started
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * Returns the time at which this task finished.
+     * @return the value of {@link System#nanoTime()} when this task finished, or {@code 0} if not finished
+     */
+    public long getEndNanos() {
+        return endNanos;
+    }
+
+    /**
+     * Returns the name of the thread which ran this task.
+     * @return the name of the thread which ran this task, or {@code null} if not started
+     */
+    public String getThreadName() {
+        return threadName;
     }
 
     @Override
     public Void call() {
+        threadName = Thread.currentThread().getName();
+        startNanos = System.nanoTime();
         Object status = null;
         InitStatusListener initListener = Lifecycle.getInitStatusListener();
         if (initListener != null) {
             status = initListener.updateStatus(name);
         }
-        task.run();
+        try {
+            task.run();
+        } finally {
+            endNanos = System.nanoTime();
+        }
         if (initListener != null) {
             initListener.finish(status);
         }
         return null;
     }
+
+    @Override
+    public String toString() {
+        return "InitializationTask [name=" + name + ']';
+    }
 }
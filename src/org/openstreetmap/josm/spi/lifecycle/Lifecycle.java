@@ -1,12 +1,20 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.spi.lifecycle;
 
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.openstreetmap.josm.tools.JosmRuntimeException;
 import org.openstreetmap.josm.tools.Logging;
@@ -63,20 +71,37 @@ public final class Lifecycle {
 
     /**
      * Initializes the main object. A lot of global variables are initialized here.
+     * <p>
+     * Parallel tasks are started as soon as their {@linkplain InitializationTask#getDependencies() dependencies}
+     * are finished. Dependencies which are not parallel tasks must be run before them. A task whose dependency failed
+     * is skipped, and the failure is thrown once the other parallel tasks are finished. The duration of each task
+     * is logged at debug level. If called in the EDT, parallel tasks are run in this thread, one after the other.
      * @param initSequence Initialization sequence
      * @since 14139
      */
     public static void initialize(InitializationSequence initSequence) {
+        long start = System.nanoTime();
+        List<InitializationTask> allTasks = new ArrayList<>();
+
         // Initializes tasks that must be run before parallel tasks
-        runInitializationTasks(initSequence.beforeInitializationTasks());
+        List<InitializationTask> beforeTasks = initSequence.beforeInitializationTasks();
+        allTasks.addAll(beforeTasks);
+        runInitializationTasks(beforeTasks);
 
         // Initializes tasks to be executed (in parallel) by a ExecutorService
         try {
             ExecutorService service = Executors.newFixedThreadPool(
                     Runtime.getRuntime().availableProcessors(), Utils.newThreadFactory("main-init-%d", Thread.NORM_PRIORITY));
-            for (Future<Void> i : service.invokeAll(initSequence.parallelInitializationTasks())) {
-                i.get();
+            Collection<InitializationTask> parallelTasks = initSequence.parallelInitializationTasks();
+            allTasks.addAll(parallelTasks);
+            Map<InitializationTask, CompletableFuture<Void>> futures = new IdentityHashMap<>();
+            // Tasks may wait for the EDT (e.g. to build the main window), so they are run one after the other
+            // in dependency order if the initialization is done in the EDT (e.g. by tests)
+            Executor executor = EventQueue.isDispatchThread() ? Runnable::run : service;
+            for (InitializationTask task : parallelTasks) {
+                schedule(task, parallelTasks, futures, executor);
             }
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).get();
             // asynchronous initializations to be completed eventually
             initSequence.asynchronousRunnableTasks().forEach(service::submit);
             initSequence.asynchronousCallableTasks().forEach(service::submit);
@@ -90,7 +115,36 @@ public final class Lifecycle {
         }
 
         // Initializes tasks that must be run after parallel tasks
-        runInitializationTasks(initSequence.afterInitializationTasks());
+        List<InitializationTask> afterTasks = initSequence.afterInitializationTasks();
+        allTasks.addAll(afterTasks);
+        runInitializationTasks(afterTasks);
+
+        if (Logging.isDebugEnabled()) {
+            logTimings(allTasks, start);
+        }
+    }
+
+    private static CompletableFuture<Void> schedule(InitializationTask task, Collection<InitializationTask> tasks,
+            Map<InitializationTask, CompletableFuture<Void>> futures, Executor executor) {
+        // dependencies are given at construction, so there cannot be any cycle
+        CompletableFuture<Void> future = futures.get(task);
+        if (future == null) {
+            List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+            for (InitializationTask dependency : task.getDependencies()) {
+                if (tasks.contains(dependency)) {
+                    dependencies.add(schedule(dependency, tasks, futures, executor));
+                }
+            }
+            future = CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+                    .whenComplete((r, t) -> {
+                        if (t != null) {
+                            Logging.warn("Skipping initialization task ''{0}'' because a task it depends on failed", task.getName());
+                        }
+                    })
+                    .thenRunAsync(task::call, executor);
+            futures.put(task, future);
+        }
+        return future;
     }
 
     private static void runInitializationTasks(List<InitializationTask> tasks) {
@@ -105,6 +159,18 @@ public final class Lifecycle {
         }
     }
 
+    private static void logTimings(List<InitializationTask> tasks, long start) {
+        List<InitializationTask> sorted = new ArrayList<>(tasks);
+        sorted.removeIf(t -> t.getEndNanos() == 0);
+        sorted.sort(Comparator.comparingLong(InitializationTask::getStartNanos));
+        for (InitializationTask task : sorted) {
+            Logging.debug("Initialization task ''{0}'' started at +{1} ms, took {2} ms on thread {3}", task.getName(),
+                    TimeUnit.NANOSECONDS.toMillis(task.getStartNanos() - start),
+                    TimeUnit.NANOSECONDS.toMillis(task.getEndNanos() - task.getStartNanos()), task.getThreadName());
+        }
+        Logging.debug("Initialization finished in {0} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
     /**
      * Closes JOSM and optionally terminates the Java Virtual Machine (JVM).
      * @param exit If {@code true}, the JVM is terminated by running {@link System#exit} with a given return code.
@@ -4,6 +4,7 @@ package org.openstreetmap.josm.tools;
 import java.awt.geom.Area;
 import java.awt.geom.Path2D;
 import java.util.Collection;
+import java.util.Objects;
 
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.BBox;
@@ -12,10 +13,14 @@ import org.openstreetmap.josm.data.osm.Way;
 
 /**
  * Implementation of simple boolean {@link GeoProperty}.
+ * <p>
+ * The area is kept as {@link PreparedPolygon}, so that look-ups only test the edges near the given point or box.
  */
 public class DefaultGeoProperty implements GeoProperty<Boolean> {
 
+    /** only kept if the area cannot be prepared */
     private final Area area;
+    private final PreparedPolygon polygon;
 
     /**
      * Create DefaultGeoProperty based on a collection of closed ways.
@@ -23,12 +28,7 @@ public class DefaultGeoProperty implements GeoProperty<Boolean> {
      * @param ways the ways forming the area
      */
     public DefaultGeoProperty(Collection<Way> ways) {
-        Path2D path = new Path2D.Double();
-        path.setWindingRule(Path2D.WIND_EVEN_ODD);
-        for (Way w : ways) {
-            Geometry.buildPath2DLatLon(w.getNodes(), path);
-        }
-        this.area = new Area(path);
+        this(buildArea(ways));
     }
 
     /**
@@ -37,16 +37,56 @@ public class DefaultGeoProperty implements GeoProperty<Boolean> {
      * @param multipolygon the multipolygon
      */
     public DefaultGeoProperty(Relation multipolygon) {
-        this.area = Geometry.getAreaLatLon(multipolygon);
+        this(Geometry.getAreaLatLon(multipolygon));
+    }
+
+    private DefaultGeoProperty(Area area) {
+        this.polygon = PreparedPolygon.of(area);
+        this.area = polygon == null ? area : null;
+    }
+
+    /**
+     * Create DefaultGeoProperty based on an already prepared polygon.
+     *
+     * @param polygon the polygon, in lat/lon coordinates
+     */
+    DefaultGeoProperty(PreparedPolygon polygon) {
+        this.polygon = Objects.requireNonNull(polygon);
+        this.area = null;
+    }
+
+    /**
+     * Returns the prepared polygon of this property.
+     * @return the prepared polygon, or {@code null} if the area could not be prepared
+     */
+    PreparedPolygon getPolygon() {
+        return polygon;
+    }
+
+    private static Area buildArea(Collection<Way> ways) {
+        Path2D path = new Path2D.Double();
+        path.setWindingRule(Path2D.WIND_EVEN_ODD);
+        for (Way w : ways) {
+            Geometry.buildPath2DLatLon(w.getNodes(), path);
+        }
+        return new Area(path);
     }
 
     @Override
     public Boolean get(LatLon ll) {
+        if (polygon != null) {
+            return polygon.contains(ll.lon(), ll.lat());
+        }
         return area.contains(ll.lon(), ll.lat());
     }
 
     @Override
     public Boolean get(BBox box) {
+        if (polygon != null) {
+            // null if the border crosses the box, the index will then subdivide it
+            return polygon.containsRectangle(box.getTopLeftLon(), box.getBottomRightLat(),
+                    box.getBottomRightLon(), box.getTopLeftLat());
+        }
         Area abox = new Area(box.toRectangle());
         Geometry.PolygonIntersection is = Geometry.polygonIntersection(abox, area, 1e-10 /* using deg and not meters */);
         switch (is) {
@@ -575,6 +575,10 @@ public final class Geometry {
      * @return intersection kind
      */
     public static PolygonIntersection polygonIntersection(List<? extends INode> first, List<? extends INode> second) {
+        PolygonIntersection result = PreparedPolygon.of(first).intersection(PreparedPolygon.of(second), 1.0);
+        if (result != null) {
+            return result;
+        }
         Area a1 = getArea(first);
         Area a2 = getArea(second);
         return polygonIntersection(a1, a2);
@@ -599,6 +603,13 @@ public final class Geometry {
      * @return intersection kind
      */
     public static PolygonIntersection polygonIntersection(Area a1, Area a2, double eps) {
+        // avoid the costly intersection in the common cases of disjoint or nested polygons
+        PreparedPolygon p1 = PreparedPolygon.of(a1);
+        PreparedPolygon p2 = p1 != null ? PreparedPolygon.of(a2) : null;
+        PolygonIntersection result = p2 != null ? p1.intersection(p2, eps) : null;
+        if (result != null) {
+            return result;
+        }
 
         Area inter = new Area(a1);
         inter.intersect(a2);
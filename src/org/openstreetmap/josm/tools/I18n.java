@@ -14,10 +14,14 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -382,6 +386,39 @@ public final class I18n {
     public static void addTexts(File source) {
         if ("en".equals(loadedCode))
             return;
+        addTexts(Collections.singletonList(readTexts(source)));
+    }
+
+    /**
+     * I18n initialization for several plugins, equivalent to successive calls of {@link #addTexts(File)}.
+     * The files are read in parallel, the first translation of a string is kept as usual.
+     * @param sources file paths/names of the JAR or Zip files containing translation strings
+     * @param executor the executor used to read the files
+     */
+    public static void addTexts(List<File> sources, Executor executor) {
+        if ("en".equals(loadedCode))
+            return;
+        List<CompletableFuture<Texts>> futures = new ArrayList<>(sources.size());
+        for (File source : sources) {
+            futures.add(CompletableFuture.supplyAsync(() -> readTexts(source), executor));
+        }
+        List<Texts> texts = new ArrayList<>(sources.size());
+        for (CompletableFuture<Texts> future : futures) {
+            texts.add(future.join());
+        }
+        addTexts(texts);
+    }
+
+    /**
+     * Translations read from a plugin file.
+     */
+    private static final class Texts {
+        private final Map<String, String> strings = new HashMap<>();
+        private final Map<String, String[]> pstrings = new HashMap<>();
+    }
+
+    private static Texts readTexts(File source) {
+        Texts result = new Texts();
         final ZipEntry enfile = new ZipEntry("data/en.lang");
         final ZipEntry langfile = new ZipEntry("data/"+loadedCode+".lang");
         try (
@@ -390,10 +427,25 @@ public final class I18n {
             InputStream trans = zipFile.getInputStream(langfile)
         ) {
             if (orig != null && trans != null)
-                load(orig, trans, true);
+                load(orig, trans, result.strings, result.pstrings);
         } catch (IOException | InvalidPathException e) {
             Logging.trace(e);
         }
+        return result;
+    }
+
+    private static synchronized void addTexts(List<Texts> texts) {
+        if (strings == null || pstrings == null || texts.stream().allMatch(t -> t.strings.isEmpty() && t.pstrings.isEmpty()))
+            return;
+        // copy on write, translations are looked up concurrently without synchronization
+        Map<String, String> s = new HashMap<>(strings);
+        Map<String, String[]> p = new HashMap<>(pstrings);
+        for (Texts t : texts) {
+            t.strings.forEach(s::putIfAbsent);
+            t.pstrings.forEach(p::putIfAbsent);
+        }
+        strings = s;
+        pstrings = p;
     }
 
     private static boolean load(String l) {
@@ -415,7 +467,11 @@ public final class I18n {
             InputStream enStream = Utils.openStream(en);
             InputStream trStream = Utils.openStream(tr)
         ) {
-            if (load(enStream, trStream, false)) {
+            Map<String, String> s = new HashMap<>();
+            Map<String, String[]> p = new HashMap<>();
+            if (load(enStream, trStream, s, p) && !s.isEmpty()) {
+                strings = s;
+                pstrings = p;
                 pluralMode = languages.get(l);
                 loadedCode = l;
                 return true;
@@ -427,16 +483,7 @@ public final class I18n {
         return false;
     }
 
-    private static boolean load(InputStream en, InputStream tr, boolean add) {
-        Map<String, String> s;
-        Map<String, String[]> p;
-        if (add) {
-            s = strings;
-            p = pstrings;
-        } else {
-            s = new HashMap<>();
-            p = new HashMap<>();
-        }
+    private static boolean load(InputStream en, InputStream tr, Map<String, String> s, Map<String, String[]> p) {
         /* file format:
            Files are always a group. English file and translated file must provide identical datasets.
 
@@ -551,12 +598,7 @@ public final class I18n {
             Logging.trace(e);
             return false;
         }
-        if (!s.isEmpty()) {
-            strings = s;
-            pstrings = p;
-            return true;
-        }
-        return false;
+        return true;
     }
 
     /**
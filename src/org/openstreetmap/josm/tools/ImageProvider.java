@@ -967,12 +967,13 @@ public class ImageProvider {
              InputStream is = cf.getInputStream()) {
             switch (type) {
             case SVG:
+                byte[] source = Utils.readBytesFromStream(is);
                 SVGDiagram svg = null;
                 synchronized (getSvgUniverse()) {
-                    URI uri = getSvgUniverse().loadSVG(is, Utils.fileToURL(cf.getFile()).toString());
+                    URI uri = getSvgUniverse().loadSVG(new ByteArrayInputStream(source), Utils.fileToURL(cf.getFile()).toString());
                     svg = getSvgUniverse().getDiagram(uri);
                 }
-                return svg == null ? null : new ImageResource(svg);
+                return svg == null ? null : new ImageResource(svg, source);
             case OTHER:
                 BufferedImage img = null;
                 try {
@@ -1024,7 +1025,7 @@ public class ImageProvider {
                     Logging.warn("Unable to process svg: "+s);
                     return null;
                 }
-                return new ImageResource(svg);
+                return new ImageResource(svg, bytes);
             } else {
                 try {
                     // See #10479: for PNG files, always enforce transparency to be sure tNRS chunk is used even not in paletted mode
@@ -1104,12 +1105,13 @@ public class ImageProvider {
                 try (InputStream is = zipFile.getInputStream(entry)) {
                     switch (type) {
                     case SVG:
+                        byte[] source = Utils.readBytesFromStream(is);
                         SVGDiagram svg = null;
                         synchronized (getSvgUniverse()) {
-                            URI uri = getSvgUniverse().loadSVG(is, entryName);
+                            URI uri = getSvgUniverse().loadSVG(new ByteArrayInputStream(source), entryName);
                             svg = getSvgUniverse().getDiagram(uri);
                         }
-                        return svg == null ? null : new ImageResource(svg);
+                        return svg == null ? null : new ImageResource(svg, source);
                     case OTHER:
                         while (size > 0) {
                             int l = is.read(buf, offs, size);
@@ -1153,7 +1155,7 @@ public class ImageProvider {
                     Logging.log(Logging.LEVEL_WARN, "Unable to read SVG", e);
                 }
             }
-            return svg == null ? null : new ImageResource(svg);
+            return svg == null ? null : new ImageResource(svg, readSvgSource(path));
         case OTHER:
             BufferedImage img = null;
             try {
@@ -1174,6 +1176,23 @@ public class ImageProvider {
         }
     }
 
+    /**
+     * Reads the source data of a local SVG image, to identify its rasterized images in the {@link SvgRasterCache}.
+     * @param path image file path
+     * @return the SVG source data, or {@code null} if the cache is disabled or the data cannot be read
+     */
+    private static byte[] readSvgSource(URL path) {
+        if (!SvgRasterCache.isEnabled()) {
+            return null;
+        }
+        try {
+            return Utils.readBytesFromStream(path.openStream());
+        } catch (IOException | SecurityException e) {
+            Logging.trace(e);
+            return null;
+        }
+    }
+
     private static URL getImageUrl(String path, String name) {
         if (path != null && path.startsWith("resource://")) {
             String p = path.substring("resource://".length());
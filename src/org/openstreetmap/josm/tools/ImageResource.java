@@ -35,6 +35,10 @@ public class ImageResource {
      * SVG diagram information in case of SVG vector image.
      */
     private SVGDiagram svg;
+    /**
+     * Hash of the SVG source data, used to cache the rasterized SVG images across sessions. Can be {@code null}.
+     */
+    private String svgHash;
     /**
      * Use this dimension to request original file dimension.
      */
@@ -70,6 +74,17 @@ public class ImageResource {
         this.svg = svg;
     }
 
+    /**
+     * Constructs a new {@code ImageResource} from SVG data, whose rasterized images are cached across sessions.
+     * @param svg SVG data
+     * @param source SVG source data, to identify the cached images. Can be {@code null} to disable caching
+     * @see SvgRasterCache
+     */
+    ImageResource(SVGDiagram svg, byte[] source) {
+        this(svg);
+        this.svgHash = source != null ? SvgRasterCache.hash(source) : null;
+    }
+
     /**
      * Constructs a new {@code ImageResource} from another one and sets overlays.
      * @param res the existing resource
@@ -78,6 +93,7 @@ public class ImageResource {
      */
     public ImageResource(ImageResource res, List<ImageOverlay> overlayInfo) {
         this.svg = res.svg;
+        this.svgHash = res.svgHash;
         this.baseImage = res.baseImage;
         this.overlayInfo = overlayInfo;
     }
@@ -156,11 +172,36 @@ public class ImageResource {
     public ImageIcon getImageIcon(Dimension dim, boolean multiResolution) {
         if (dim.width < -1 || dim.width == 0 || dim.height < -1 || dim.height == 0)
             throw new IllegalArgumentException(dim+" is invalid");
+        BufferedImage img = getImage(dim);
+        if (img == null) {
+            return null;
+        }
+
+        if (!multiResolution)
+            return new ImageIcon(img);
+        else {
+            try {
+                Image mrImg = HiDPISupport.getMultiResolutionImage(img, this);
+                return new ImageIcon(mrImg);
+            } catch (NoClassDefFoundError e) {
+                Logging.trace(e);
+                return new ImageIcon(img);
+            }
+        }
+    }
+
+    /**
+     * Returns the image of this resource at the given dimension, from the cache if possible.
+     * Synchronized, as the images can be requested by several threads, for instance by the map image loader.
+     * @param dim the requested dimensions
+     * @return the image, or {@code null} if it cannot be created
+     */
+    private synchronized BufferedImage getImage(Dimension dim) {
         BufferedImage img = imgCache.get(dim);
         if (img == null) {
             if (svg != null) {
                 Dimension realDim = GuiSizesHelper.getDimensionDpiAdjusted(dim);
-                img = ImageProvider.createImageFromSvg(svg, realDim);
+                img = SvgRasterCache.getImage(svg, svgHash, realDim);
                 if (img == null) {
                     return null;
                 }
@@ -200,18 +241,7 @@ public class ImageResource {
             }
             imgCache.put(dim, img);
         }
-
-        if (!multiResolution)
-            return new ImageIcon(img);
-        else {
-            try {
-                Image mrImg = HiDPISupport.getMultiResolutionImage(img, this);
-                return new ImageIcon(mrImg);
-            } catch (NoClassDefFoundError e) {
-                Logging.trace(e);
-                return new ImageIcon(img);
-            }
-        }
+        return img;
     }
 
     /**
@@ -0,0 +1,493 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.INode;
+import org.openstreetmap.josm.tools.Geometry.PolygonIntersection;
+
+/**
+ * A polygon (one or more closed rings) stored in primitive arrays, prepared for fast repeated tests.
+ * <p>
+ * Point containment only tests the edges in the horizontal band of the point. The relation between two polygons
+ * is determined by a sweep over the edges of both polygons: as long as their boundaries do not touch,
+ * the polygons are either disjoint or nested, which is decided by testing one vertex of each ring.
+ * This avoids the costly constructive operations of {@link java.awt.geom.Area} in the common cases.
+ * <p>
+ * Instances are immutable and can be used by several threads at once.
+ * @see Geometry#polygonIntersection(java.awt.geom.Area, java.awt.geom.Area, double)
+ */
+public final class PreparedPolygon {
+
+    /** Average number of edges per band of the point containment index */
+    private static final int EDGES_PER_BAND = 4;
+    /** Max. number of bands of the point containment index */
+    private static final int MAX_BANDS = 1024;
+    /** Relative tolerance below which the side of a point relative to a line is considered undecided */
+    private static final double ORIENTATION_TOLERANCE = 1e-9;
+
+    // edge i goes from (x1[i], y1[i]) to (x2[i], y2[i])
+    private final double[] x1;
+    private final double[] y1;
+    private final double[] x2;
+    private final double[] y2;
+    /** index of the first edge of each ring */
+    private final int[] ringStart;
+    private final boolean evenOdd;
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+    /** sum of the absolute areas of the rings */
+    private final double ringArea;
+    /** edges overlapping each horizontal band */
+    private final int[][] bands;
+    /**
+     * edges sorted by their min. x coordinate rounded down to float precision, computed on first use.
+     * Upper 32 bits: sortable float bits of the rounded coordinate, lower 32 bits: edge index
+     */
+    private volatile long[] sortedByMinX;
+
+    private PreparedPolygon(List<double[]> rings, boolean evenOdd) {
+        int n = 0;
+        for (double[] ring : rings) {
+            n += ring.length / 2;
+        }
+        x1 = new double[n];
+        y1 = new double[n];
+        x2 = new double[n];
+        y2 = new double[n];
+        ringStart = new int[rings.size()];
+        this.evenOdd = evenOdd;
+        double bMinX = Double.POSITIVE_INFINITY;
+        double bMinY = Double.POSITIVE_INFINITY;
+        double bMaxX = Double.NEGATIVE_INFINITY;
+        double bMaxY = Double.NEGATIVE_INFINITY;
+        double area = 0;
+        int e = 0;
+        for (int r = 0; r < rings.size(); r++) {
+            double[] ring = rings.get(r);
+            int count = ring.length / 2;
+            ringStart[r] = e;
+            double signedArea = 0;
+            for (int i = 0; i < count; i++) {
+                int j = (i + 1) % count;
+                x1[e] = ring[2 * i];
+                y1[e] = ring[2 * i + 1];
+                x2[e] = ring[2 * j];
+                y2[e] = ring[2 * j + 1];
+                signedArea += x1[e] * y2[e] - x2[e] * y1[e];
+                bMinX = Math.min(bMinX, x1[e]);
+                bMinY = Math.min(bMinY, y1[e]);
+                bMaxX = Math.max(bMaxX, x1[e]);
+                bMaxY = Math.max(bMaxY, y1[e]);
+                e++;
+            }
+            area += Math.abs(signedArea) / 2;
+        }
+        minX = bMinX;
+        minY = bMinY;
+        maxX = bMaxX;
+        maxY = bMaxY;
+        ringArea = area;
+        bands = buildBands();
+    }
+
+    private int[][] buildBands() {
+        int n = x1.length;
+        int count = Utils.clamp(n / EDGES_PER_BAND, 1, MAX_BANDS);
+        if (n == 0 || !(maxY > minY)) {
+            int[] all = new int[n];
+            Arrays.setAll(all, i -> i);
+            return new int[][] {all};
+        }
+        int[] sizes = new int[count];
+        for (int i = 0; i < n; i++) {
+            for (int b = band(Math.min(y1[i], y2[i]), count); b <= band(Math.max(y1[i], y2[i]), count); b++) {
+                sizes[b]++;
+            }
+        }
+        int[][] result = new int[count][];
+        for (int b = 0; b < count; b++) {
+            result[b] = new int[sizes[b]];
+            sizes[b] = 0;
+        }
+        for (int i = 0; i < n; i++) {
+            for (int b = band(Math.min(y1[i], y2[i]), count); b <= band(Math.max(y1[i], y2[i]), count); b++) {
+                result[b][sizes[b]++] = i;
+            }
+        }
+        return result;
+    }
+
+    private int band(double y, int count) {
+        return Utils.clamp((int) ((y - minY) / (maxY - minY) * count), 0, count - 1);
+    }
+
+    /**
+     * Prepares the polygon formed by the given nodes (east/north coordinates), like {@link Geometry#getArea(List)}.
+     * @param polygon nodes forming the polygon, nodes without coordinates are skipped
+     * @return the prepared polygon
+     */
+    public static PreparedPolygon of(List<? extends INode> polygon) {
+        double[] ring = new double[2 * polygon.size()];
+        int n = 0;
+        for (INode node : polygon) {
+            EastNorth en = node.getEastNorth();
+            if (en != null) {
+                ring[n++] = en.getX();
+                ring[n++] = en.getY();
+            }
+        }
+        List<double[]> rings = new ArrayList<>(1);
+        if (n > 0) {
+            rings.add(Arrays.copyOf(ring, n));
+        }
+        // same winding rule as the path built by Geometry.getArea
+        return new PreparedPolygon(rings, false);
+    }
+
+    /**
+     * Prepares the polygon formed by the given shape, e.g. an {@link java.awt.geom.Area}.
+     * @param shape the shape
+     * @return the prepared polygon, or {@code null} if the shape contains curves
+     */
+    public static PreparedPolygon of(Shape shape) {
+        List<double[]> rings = new ArrayList<>();
+        double[] coords = new double[6];
+        double[] ring = new double[16];
+        int n = 0;
+        PathIterator it = shape.getPathIterator(null);
+        for (; !it.isDone(); it.next()) {
+            switch (it.currentSegment(coords)) {
+            case PathIterator.SEG_MOVETO:
+                if (n > 0) {
+                    rings.add(Arrays.copyOf(ring, n));
+                }
+                n = 0;
+                // fall through
+            case PathIterator.SEG_LINETO:
+                if (n + 2 > ring.length) {
+                    ring = Arrays.copyOf(ring, ring.length * 2);
+                }
+                ring[n++] = coords[0];
+                ring[n++] = coords[1];
+                break;
+            case PathIterator.SEG_CLOSE:
+                break;
+            default:
+                return null;
+            }
+        }
+        if (n > 0) {
+            rings.add(Arrays.copyOf(ring, n));
+        }
+        return new PreparedPolygon(rings, it.getWindingRule() == Path2D.WIND_EVEN_ODD);
+    }
+
+    /**
+     * Writes this polygon, to be read by {@link #readFrom}.
+     * @param out the output
+     * @throws IOException if an I/O error occurs
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeBoolean(evenOdd);
+        out.writeInt(ringStart.length);
+        for (int r = 0; r < ringStart.length; r++) {
+            int end = r + 1 < ringStart.length ? ringStart[r + 1] : x1.length;
+            out.writeInt(end - ringStart[r]);
+            for (int e = ringStart[r]; e < end; e++) {
+                out.writeDouble(x1[e]);
+                out.writeDouble(y1[e]);
+            }
+        }
+    }
+
+    /**
+     * Reads a polygon written by {@link #writeTo}.
+     * @param in the input
+     * @return the polygon
+     * @throws IOException if an I/O error occurs
+     */
+    static PreparedPolygon readFrom(DataInput in) throws IOException {
+        boolean evenOdd = in.readBoolean();
+        int ringCount = in.readInt();
+        List<double[]> rings = new ArrayList<>(ringCount);
+        for (int r = 0; r < ringCount; r++) {
+            double[] ring = new double[2 * in.readInt()];
+            for (int i = 0; i < ring.length; i++) {
+                ring[i] = in.readDouble();
+            }
+            rings.add(ring);
+        }
+        return new PreparedPolygon(rings, evenOdd);
+    }
+
+    /**
+     * Determines if the given point is inside this polygon. The result for points on the boundary is unspecified.
+     * @param x x coordinate (east or longitude)
+     * @param y y coordinate (north or latitude)
+     * @return {@code true} if the point is inside this polygon
+     */
+    public boolean contains(double x, double y) {
+        if (!(x >= minX && x <= maxX && y >= minY && y <= maxY)) {
+            return false;
+        }
+        int[] edges = bands.length == 1 ? bands[0] : bands[band(y, bands.length)];
+        int winding = 0;
+        for (int i : edges) {
+            double ay = y1[i];
+            double by = y2[i];
+            if ((ay <= y) != (by <= y)) {
+                double xi = x1[i] + (y - ay) * (x2[i] - x1[i]) / (by - ay);
+                if (x < xi) {
+                    winding += by > ay ? 1 : -1;
+                }
+            }
+        }
+        return evenOdd ? (winding & 1) != 0 : winding != 0;
+    }
+
+    /**
+     * Determines if the given rectangle is inside this polygon. Only the edges in the horizontal bands of the
+     * rectangle are tested, so this is much cheaper than an intersection with another polygon.
+     * @param rMinX min. x coordinate of the rectangle
+     * @param rMinY min. y coordinate of the rectangle
+     * @param rMaxX max. x coordinate of the rectangle
+     * @param rMaxY max. y coordinate of the rectangle
+     * @return {@code true} if the rectangle is inside this polygon, {@code false} if they are disjoint,
+     * {@code null} if the boundary of this polygon may touch the rectangle
+     */
+    public Boolean containsRectangle(double rMinX, double rMinY, double rMaxX, double rMaxY) {
+        if (rMaxX < minX || maxX < rMinX || rMaxY < minY || maxY < rMinY) {
+            return Boolean.FALSE;
+        }
+        int first = bands.length == 1 ? 0 : band(rMinY, bands.length);
+        int last = bands.length == 1 ? 0 : band(rMaxY, bands.length);
+        for (int b = first; b <= last; b++) {
+            for (int i : bands[b]) {
+                if (mayTouchRectangle(i, rMinX, rMinY, rMaxX, rMaxY)) {
+                    return null;
+                }
+            }
+        }
+        // no edge touches the rectangle, so it is either completely inside or outside
+        return contains((rMinX + rMaxX) / 2, (rMinY + rMaxY) / 2);
+    }
+
+    private boolean mayTouchRectangle(int i, double rMinX, double rMinY, double rMaxX, double rMaxY) {
+        double ax = x1[i];
+        double ay = y1[i];
+        double bx = x2[i];
+        double by = y2[i];
+        if (Math.max(ax, bx) < rMinX || rMaxX < Math.min(ax, bx) || Math.max(ay, by) < rMinY || rMaxY < Math.min(ay, by)) {
+            return false;
+        }
+        // separating axis: the line through the edge separates the rectangle from the edge if all corners are on one side
+        return !(sameSide(ax, ay, bx, by, rMinX, rMinY, rMaxX, rMaxY)
+              && sameSide(ax, ay, bx, by, rMinX, rMaxY, rMaxX, rMinY)
+              && sameSide(ax, ay, bx, by, rMinX, rMinY, rMinX, rMaxY));
+    }
+
+    /**
+     * Determines the relation between this polygon and another one, with the semantics of
+     * {@link Geometry#polygonIntersection(java.awt.geom.Area, java.awt.geom.Area, double)}.
+     * @param other the other polygon
+     * @param eps an area threshold, everything below is considered an empty intersection
+     * @return the intersection kind, or {@code null} if it cannot be determined without computing the intersection,
+     * i.e. if the boundaries of both polygons touch or cross each other
+     */
+    public PolygonIntersection intersection(PreparedPolygon other, double eps) {
+        if (ringArea <= 0 || other.ringArea <= 0) {
+            return null;
+        } else if (maxX < other.minX || other.maxX < minX || maxY < other.minY || other.maxY < minY) {
+            return PolygonIntersection.OUTSIDE;
+        } else if (boundariesMayTouch(other)) {
+            return null;
+        }
+        Boolean thisInOther = ringsInside(other);
+        Boolean otherInThis = other.ringsInside(this);
+        if (thisInOther == null || otherInThis == null) {
+            return null;
+        } else if (!thisInOther && !otherInThis) {
+            return PolygonIntersection.OUTSIDE;
+        } else if (thisInOther && !otherInThis) {
+            return boundsArea() <= eps ? PolygonIntersection.OUTSIDE : PolygonIntersection.FIRST_INSIDE_SECOND;
+        } else if (!thisInOther) {
+            return other.boundsArea() <= eps ? PolygonIntersection.OUTSIDE : PolygonIntersection.SECOND_INSIDE_FIRST;
+        }
+        return null;
+    }
+
+    /**
+     * Area of the integer bounds, like {@code java.awt.geom.Area.getBounds()}.
+     * @return area of the integer bounds
+     */
+    private double boundsArea() {
+        double width = (int) Math.ceil(maxX) - (int) Math.floor(minX);
+        double height = (int) Math.ceil(maxY) - (int) Math.floor(minY);
+        return width * height;
+    }
+
+    /**
+     * Tests a vertex of each ring. Only meaningful if the boundaries of both polygons do not touch.
+     * @param other the other polygon
+     * @return {@code true} if all rings are inside {@code other}, {@code false} if all are outside, {@code null} if mixed
+     */
+    private Boolean ringsInside(PreparedPolygon other) {
+        Boolean result = null;
+        for (int start : ringStart) {
+            boolean inside = other.contains(x1[start], y1[start]);
+            if (result == null) {
+                result = inside;
+            } else if (result != inside) {
+                return null;
+            }
+        }
+        return result;
+    }
+
+    private long[] getSortedByMinX() {
+        long[] result = sortedByMinX;
+        if (result == null) {
+            result = new long[x1.length];
+            for (int i = 0; i < result.length; i++) {
+                int bits = Float.floatToIntBits(floorFloat(Math.min(x1[i], x2[i])));
+                result[i] = ((long) (bits ^ ((bits >> 31) & 0x7fffffff)) << 32) | i;
+            }
+            Arrays.sort(result);
+            sortedByMinX = result;
+        }
+        return result;
+    }
+
+    /**
+     * Rounds down to float precision. Sorting by the rounded coordinate is cheaper and still allows to expire edges
+     * safely, as long as they are compared with the rounded coordinate as well.
+     */
+    private static float floorFloat(double x) {
+        float f = (float) x;
+        return f > x ? Math.nextDown(f) : f;
+    }
+
+    private static int edge(long sortKey) {
+        return (int) sortKey;
+    }
+
+    /**
+     * Sweeps over the edges of both polygons in the order of their min. x coordinate, testing each edge against the
+     * active edges (overlapping in x) of the other polygon.
+     * @param other the other polygon
+     * @return {@code false} if the boundaries of both polygons certainly do not touch each other
+     */
+    private boolean boundariesMayTouch(PreparedPolygon other) {
+        long[] a = getSortedByMinX();
+        long[] b = other.getSortedByMinX();
+        int[] activeA = new int[16];
+        int[] activeB = new int[16];
+        int nA = 0;
+        int nB = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] >> 32 <= b[j] >> 32) {
+                int e = edge(a[i++]);
+                nB = other.expire(activeB, nB, floorFloat(Math.min(x1[e], x2[e])));
+                for (int k = 0; k < nB; k++) {
+                    if (mayTouch(this, e, other, activeB[k])) {
+                        return true;
+                    }
+                }
+                if (nA == activeA.length) {
+                    activeA = Arrays.copyOf(activeA, nA * 2);
+                }
+                activeA[nA++] = e;
+            } else {
+                int e = edge(b[j++]);
+                nA = expire(activeA, nA, floorFloat(Math.min(other.x1[e], other.x2[e])));
+                for (int k = 0; k < nA; k++) {
+                    if (mayTouch(this, activeA[k], other, e)) {
+                        return true;
+                    }
+                }
+                if (nB == activeB.length) {
+                    activeB = Arrays.copyOf(activeB, nB * 2);
+                }
+                activeB[nB++] = e;
+            }
+        }
+        // remaining edges of one polygon still have to be tested against the active edges of the other one
+        for (; i < a.length; i++) {
+            int e = edge(a[i]);
+            nB = other.expire(activeB, nB, floorFloat(Math.min(x1[e], x2[e])));
+            for (int k = 0; k < nB; k++) {
+                if (mayTouch(this, e, other, activeB[k])) {
+                    return true;
+                }
+            }
+        }
+        for (; j < b.length; j++) {
+            int e = edge(b[j]);
+            nA = expire(activeA, nA, floorFloat(Math.min(other.x1[e], other.x2[e])));
+            for (int k = 0; k < nA; k++) {
+                if (mayTouch(this, activeA[k], other, e)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the edges ending before {@code x} from the active edges.
+     * @param x the (rounded) min. x coordinate of the current edge
+     * @return the new number of active edges
+     */
+    private int expire(int[] active, int n, double x) {
+        int m = 0;
+        for (int k = 0; k < n; k++) {
+            if (Math.max(x1[active[k]], x2[active[k]]) >= x) {
+                active[m++] = active[k];
+            }
+        }
+        return m;
+    }
+
+    private static boolean mayTouch(PreparedPolygon p, int i, PreparedPolygon q, int j) {
+        double ax = p.x1[i];
+        double ay = p.y1[i];
+        double bx = p.x2[i];
+        double by = p.y2[i];
+        double cx = q.x1[j];
+        double cy = q.y1[j];
+        double dx = q.x2[j];
+        double dy = q.y2[j];
+        if (Math.max(ay, by) < Math.min(cy, dy) || Math.max(cy, dy) < Math.min(ay, by)
+         || Math.max(ax, bx) < Math.min(cx, dx) || Math.max(cx, dx) < Math.min(ax, bx)) {
+            return false;
+        }
+        return !sameSide(ax, ay, bx, by, cx, cy, dx, dy) && !sameSide(cx, cy, dx, dy, ax, ay, bx, by);
+    }
+
+    /**
+     * Determines if both points c and d are certainly on the same side of the line through a and b.
+     */
+    private static boolean sameSide(double ax, double ay, double bx, double by, double cx, double cy, double dx, double dy) {
+        double ex = bx - ax;
+        double ey = by - ay;
+        double oc = ex * (cy - ay) - ey * (cx - ax);
+        double od = ex * (dy - ay) - ey * (dx - ax);
+        double tolC = ORIENTATION_TOLERANCE * (Math.abs(ex * (cy - ay)) + Math.abs(ey * (cx - ax)));
+        double tolD = ORIENTATION_TOLERANCE * (Math.abs(ex * (dy - ay)) + Math.abs(ey * (dx - ax)));
+        return (oc > tolC && od > tolD) || (oc < -tolC && od < -tolD);
+    }
+}
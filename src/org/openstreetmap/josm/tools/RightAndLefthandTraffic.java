@@ -1,16 +1,15 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.tools;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.io.Writer;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
-import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -23,16 +22,10 @@ import org.openstreetmap.josm.actions.JoinAreasAction.Multipolygon;
 import org.openstreetmap.josm.command.PurgeCommand;
 import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
-import org.openstreetmap.josm.data.osm.DownloadPolicy;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
-import org.openstreetmap.josm.data.osm.UploadPolicy;
 import org.openstreetmap.josm.data.osm.Way;
-import org.openstreetmap.josm.io.IllegalDataException;
-import org.openstreetmap.josm.io.OsmReader;
-import org.openstreetmap.josm.io.OsmWriter;
-import org.openstreetmap.josm.io.OsmWriterFactory;
 import org.openstreetmap.josm.spi.preferences.Config;
 
 /**
@@ -45,6 +38,11 @@ public final class RightAndLefthandTraffic {
     private static final String LEFT = "left";
     private static final String RIGHT = "right";
 
+    /** Name of the optimized boundaries in the cache directory */
+    private static final String CACHE_FILENAME = "left-right-hand-traffic.bin";
+    /** Format version of the optimized boundaries, to increment when the format or their computation changes */
+    private static final int CACHE_VERSION = 1;
+
     private static volatile GeoPropertyIndex<Boolean> rlCache;
 
     private RightAndLefthandTraffic() {
@@ -67,16 +65,21 @@ public final class RightAndLefthandTraffic {
      * TODO: Synchronization can be refined inside the {@link GeoPropertyIndex} as most look-ups are read-only.
      */
     public static synchronized void initialize() {
-        Collection<Way> optimizedWays = loadOptimizedBoundaries();
-        if (optimizedWays.isEmpty()) {
-            optimizedWays = computeOptimizedBoundaries();
+        PreparedPolygon polygon = loadOptimizedBoundaries();
+        if (polygon == null) {
+            DefaultGeoProperty gp = new DefaultGeoProperty(computeOptimizedBoundaries());
+            polygon = gp.getPolygon();
+            if (polygon == null) {
+                rlCache = new GeoPropertyIndex<>(gp, 24);
+                return;
+            }
             try {
-                saveOptimizedBoundaries(optimizedWays);
-            } catch (IOException | SecurityException e) {
+                saveOptimizedBoundaries(polygon);
+            } catch (IOException | InvalidPathException | SecurityException e) {
                 Logging.log(Logging.LEVEL_ERROR, "Unable to save optimized boundaries", e);
             }
         }
-        rlCache = new GeoPropertyIndex<>(new DefaultGeoProperty(optimizedWays), 24);
+        rlCache = new GeoPropertyIndex<>(new DefaultGeoProperty(polygon), 24);
     }
 
     private static Collection<Way> computeOptimizedBoundaries() {
@@ -159,25 +162,38 @@ public final class RightAndLefthandTraffic {
         ways.add(w);
     }
 
-    private static void saveOptimizedBoundaries(Collection<Way> optimizedWays) throws IOException {
-        DataSet ds = optimizedWays.iterator().next().getDataSet();
-        File file = new File(Config.getDirs().getCacheDirectory(true), "left-right-hand-traffic.osm");
-        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8);
-             OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(writer), false, ds.getVersion())
-            ) {
-            w.header(DownloadPolicy.NORMAL, UploadPolicy.DISCOURAGED);
-            w.writeContent(ds);
-            w.footer();
+    private static File getCacheFile(boolean createIfMissing) {
+        return new File(Config.getDirs().getCacheDirectory(createIfMissing), CACHE_FILENAME);
+    }
+
+    private static String getCacheHeader() {
+        return CACHE_VERSION + " " + Territories.getDataHash();
+    }
+
+    private static void saveOptimizedBoundaries(PreparedPolygon polygon) throws IOException {
+        File file = getCacheFile(true);
+        File tmp = File.createTempFile("left-right-hand-traffic", ".tmp", file.getParentFile());
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+                out.writeUTF(getCacheHeader());
+                polygon.writeTo(out);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
         }
     }
 
-    private static Collection<Way> loadOptimizedBoundaries() {
-        try (InputStream is = Files.newInputStream(Paths.get(
-                Config.getDirs().getCacheDirectory(false).getPath(), "left-right-hand-traffic.osm"))) {
-           return OsmReader.parseDataSet(is, null).getWays();
-        } catch (IllegalDataException | IOException | InvalidPathException | SecurityException ex) {
+    private static PreparedPolygon loadOptimizedBoundaries() {
+        File file = getCacheFile(false);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            return getCacheHeader().equals(in.readUTF()) ? PreparedPolygon.readFrom(in) : null;
+        } catch (IOException | InvalidPathException | SecurityException ex) {
             Logging.trace(ex);
-            return Collections.emptyList();
+            return null;
         }
     }
 }
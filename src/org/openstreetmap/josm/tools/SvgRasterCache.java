@@ -0,0 +1,241 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.spi.preferences.Config;
+
+import com.kitfox.svg.SVGDiagram;
+
+/**
+ * Persistent cache of rasterized SVG images.
+ * <p>
+ * Rendering SVG images is slow, and hundreds of icons are rendered at each startup for presets, map styles and toolbar.
+ * The rendered images are thus stored as PNG files in the cache directory, keyed by the SVG resource, its content hash,
+ * the requested size and the display scale. {@link #prewarm()} decodes the most recently used images in the background,
+ * so that they are available in memory when first requested. The decoded images which are not requested shortly after
+ * are released.
+ */
+public final class SvgRasterCache {
+
+    /** Name of the directory of the cache, in the JOSM cache directory */
+    private static final String DIRNAME = "svg-icons";
+    /** Format version of the cache, to increment when the rendering of SVG images changes */
+    private static final int FORMAT_VERSION = 1;
+    /** Extension of the cached images */
+    private static final String EXTENSION = ".png";
+
+    private static final Map<String, BufferedImage> PREWARMED = new ConcurrentHashMap<>();
+
+    // a single idle thread, stopped after a few seconds so that it does not prevent command line tools to exit
+    private static final ExecutorService WRITER = new ThreadPoolExecutor(0, 1, 5, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), Utils.newThreadFactory("svg-cache-writer-%d", Thread.MIN_PRIORITY));
+
+    private SvgRasterCache() {
+        // Hide implicit public constructor for utility classes
+    }
+
+    /**
+     * Determines if the cache is enabled.
+     * @return {@code true} if rasterized SVG images are stored in the cache directory
+     */
+    public static boolean isEnabled() {
+        return Config.getPref().getBoolean("image-provider.svg-cache", true);
+    }
+
+    /**
+     * Returns a hash of SVG source data, identifying the cached images of this SVG image.
+     * @param source SVG source data
+     * @return hash of SVG source data
+     */
+    static String hash(byte[] source) {
+        try {
+            return Utils.toHexString(MessageDigest.getInstance("MD5").digest(source));
+        } catch (NoSuchAlgorithmException e) {
+            throw new JosmRuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the given SVG image rendered at the given dimension, from the cache if possible.
+     * The returned image is never shared and may be modified by the caller.
+     * @param svg the SVG data
+     * @param sourceHash hash of the SVG source data, see {@link #hash(byte[])}. Can be {@code null} to disable caching
+     * @param dim the desired image dimension
+     * @return an image from the given SVG data at the desired dimension
+     * @see ImageProvider#createImageFromSvg(SVGDiagram, Dimension)
+     */
+    static BufferedImage getImage(SVGDiagram svg, String sourceHash, Dimension dim) {
+        if (sourceHash == null || !isEnabled()) {
+            return ImageProvider.createImageFromSvg(svg, dim);
+        }
+        String key = getKey(svg, sourceHash, dim);
+        BufferedImage img = PREWARMED.remove(key);
+        if (img != null) {
+            return img;
+        }
+        File file = getFile(key);
+        if (file.isFile()) {
+            img = read(file);
+            if (img != null) {
+                touch(file);
+                return img;
+            }
+        }
+        img = ImageProvider.createImageFromSvg(svg, dim);
+        if (img != null) {
+            BufferedImage copy = copy(img);
+            WRITER.execute(() -> write(file, copy));
+        }
+        return img;
+    }
+
+    /**
+     * Decodes the most recently used cached images, and removes the images which have not been used for a long time.
+     * Called in the background during startup. The decoded images are released after
+     * {@code image-provider.svg-cache.prewarm.release} seconds.
+     */
+    public static void prewarm() {
+        if (!isEnabled()) {
+            return;
+        }
+        File[] files = getDirectory().listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (files == null) {
+            return;
+        }
+        long expiry = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(Config.getPref().getInt("image-provider.svg-cache.max-age", 30));
+        Map<File, Long> lastModified = new HashMap<>();
+        List<File> recent = new ArrayList<>();
+        for (File file : files) {
+            long time = file.lastModified();
+            if (time < expiry) {
+                Utils.deleteFile(file);
+            } else {
+                lastModified.put(file, time);
+                recent.add(file);
+            }
+        }
+        recent.sort(Comparator.comparing(lastModified::get, Comparator.reverseOrder()));
+        int count = 0;
+        int max = Math.min(recent.size(), Config.getPref().getInt("image-provider.svg-cache.prewarm", 1000));
+        for (File file : recent.subList(0, max)) {
+            String name = file.getName();
+            BufferedImage img = read(file);
+            if (img != null) {
+                PREWARMED.putIfAbsent(name.substring(0, name.length() - EXTENSION.length()), img);
+                count++;
+            }
+        }
+        Logging.debug("Pre-loaded {0} rasterized SVG images", count);
+        if (count > 0) {
+            // the images which have not been requested until then are probably not needed anymore
+            int release = Config.getPref().getInt("image-provider.svg-cache.prewarm.release", 120);
+            GuiHelper.scheduleTimer((int) TimeUnit.SECONDS.toMillis(release), e -> clearPrewarmed(), false);
+        }
+    }
+
+    /**
+     * Discards the images decoded by {@link #prewarm()}.
+     */
+    static void clearPrewarmed() {
+        PREWARMED.clear();
+    }
+
+    /**
+     * Waits until the pending images are written to the cache directory.
+     */
+    static void flush() {
+        try {
+            WRITER.submit(() -> { }).get();
+        } catch (InterruptedException | ExecutionException e) {
+            Logging.warn(e);
+        }
+    }
+
+    static File getDirectory() {
+        return new File(Config.getDirs().getCacheDirectory(true), DIRNAME);
+    }
+
+    private static String getKey(SVGDiagram svg, String sourceHash, Dimension dim) {
+        return Utils.md5Hex(FORMAT_VERSION + "\n" + svg.getXMLBase() + '\n' + sourceHash + '\n'
+                + dim.width + 'x' + dim.height + '@' + GuiSizesHelper.getPixelDensity());
+    }
+
+    private static File getFile(String key) {
+        return new File(getDirectory(), key + EXTENSION);
+    }
+
+    private static BufferedImage read(File file) {
+        try {
+            BufferedImage img = ImageIO.read(file);
+            if (img == null || img.getType() == BufferedImage.TYPE_INT_ARGB) {
+                return img;
+            }
+            // same image type as ImageProvider#createImageFromSvg
+            BufferedImage argb = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = argb.createGraphics();
+            g.drawImage(img, 0, 0, null);
+            g.dispose();
+            return argb;
+        } catch (IOException | SecurityException e) {
+            Logging.log(Logging.LEVEL_WARN, "Unable to read cached SVG image " + file, e);
+            Utils.deleteFile(file);
+            return null;
+        }
+    }
+
+    private static void touch(File file) {
+        // the modification date is used to remove unused images, update it daily at most
+        long now = System.currentTimeMillis();
+        if (file.lastModified() < now - TimeUnit.DAYS.toMillis(1) && !file.setLastModified(now)) {
+            Logging.debug("Unable to update modification date of {0}", file);
+        }
+    }
+
+    private static BufferedImage copy(BufferedImage img) {
+        ColorModel cm = img.getColorModel();
+        return new BufferedImage(cm, img.copyData(null), cm.isAlphaPremultiplied(), null);
+    }
+
+    private static void write(File file, BufferedImage img) {
+        try {
+            File dir = file.getParentFile();
+            if (!dir.isDirectory()) {
+                Utils.mkDirs(dir);
+            }
+            File tmp = File.createTempFile("svg", ".tmp", dir);
+            try {
+                ImageIO.write(img, "png", tmp);
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp.toPath());
+            }
+        } catch (IOException | InvalidPathException | SecurityException e) {
+            Logging.log(Logging.LEVEL_WARN, "Unable to write cached SVG image " + file, e);
+        }
+    }
+}
@@ -3,12 +3,25 @@ package org.openstreetmap.josm.tools;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -20,9 +33,14 @@ import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.io.CachedFile;
 import org.openstreetmap.josm.io.IllegalDataException;
 import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.spi.preferences.Config;
 
 /**
  * Look up territories ISO3166 codes at a certain place.
+ * <p>
+ * The territories are read from the internal {@link #FILENAME boundaries file} on first use. As parsing it and
+ * building the areas of the territories is slow, the resulting polygons are stored in a binary index in the cache
+ * directory, which is used as long as the boundaries file is unchanged.
  */
 public final class Territories {
 
@@ -32,7 +50,13 @@ public final class Territories {
     private static final String ISO3166_1 = "ISO3166-1:alpha2";
     private static final String ISO3166_2 = "ISO3166-2";
 
+    /** Name of the binary index in the cache directory */
+    private static final String INDEX_FILENAME = "territories.bin";
+    /** Format version of the binary index, to increment when the format or the computation of polygons changes */
+    private static final int INDEX_VERSION = 1;
+
     private static DataSet dataSet;
+    private static String dataHash;
 
     private static volatile Map<String, GeoPropertyIndex<Boolean>> iso3166Cache;
 
@@ -46,7 +70,7 @@ public final class Territories {
      * @return the ISO3166-1 and ISO3166-2 codes for the given location
      */
     public static synchronized Set<String> getKnownIso3166Codes() {
-        return iso3166Cache.keySet();
+        return getIso3166Cache().keySet();
     }
 
     /**
@@ -58,7 +82,7 @@ public final class Territories {
      * @return true, if the point is inside a territory with the given code
      */
     public static synchronized boolean isIso3166Code(String code, LatLon ll) {
-        GeoPropertyIndex<Boolean> gpi = iso3166Cache.get(code);
+        GeoPropertyIndex<Boolean> gpi = getIso3166Cache().get(code);
         if (gpi == null) {
             Logging.warn(tr("Unknown territory id: {0}", code));
             return false;
@@ -71,7 +95,41 @@ public final class Territories {
      * @return the territories dataset
      */
     public static synchronized DataSet getDataSet() {
-        return new DataSet(dataSet);
+        return new DataSet(getBoundaries());
+    }
+
+    private static DataSet getBoundaries() {
+        if (dataSet == null) {
+            try {
+                dataSet = OsmReader.parseDataSet(new ByteArrayInputStream(readBoundaries()), null);
+            } catch (IOException | IllegalDataException ex) {
+                throw new JosmRuntimeException(ex);
+            }
+        }
+        return dataSet;
+    }
+
+    /**
+     * Returns a hash of the internal boundaries file, to validate data derived from it.
+     * @return hash of the internal boundaries file
+     */
+    static synchronized String getDataHash() {
+        if (dataHash == null) {
+            try {
+                MessageDigest md = MessageDigest.getInstance("MD5");
+                dataHash = Utils.toHexString(md.digest(readBoundaries()));
+            } catch (IOException | NoSuchAlgorithmException ex) {
+                throw new JosmRuntimeException(ex);
+            }
+        }
+        return dataHash;
+    }
+
+    private static byte[] readBoundaries() throws IOException {
+        try (CachedFile cf = new CachedFile("resource://data/" + FILENAME);
+                InputStream is = cf.getInputStream()) {
+            return Utils.readBytesFromStream(is);
+        }
     }
 
     /**
@@ -79,33 +137,113 @@ public final class Territories {
      * TODO: Synchronization can be refined inside the {@link GeoPropertyIndex} as most look-ups are read-only.
      */
     public static synchronized void initialize() {
-        iso3166Cache = new HashMap<>();
-        try (CachedFile cf = new CachedFile("resource://data/" + FILENAME);
-                InputStream is = cf.getInputStream()) {
-            dataSet = OsmReader.parseDataSet(is, null);
-            Collection<OsmPrimitive> candidates = new ArrayList<>(dataSet.getWays());
-            candidates.addAll(dataSet.getRelations());
-            for (OsmPrimitive osm : candidates) {
-                String iso1 = osm.get(ISO3166_1);
-                String iso2 = osm.get(ISO3166_2);
-                if (iso1 != null || iso2 != null) {
-                    GeoProperty<Boolean> gp;
-                    if (osm instanceof Way) {
-                        gp = new DefaultGeoProperty(Collections.singleton((Way) osm));
-                    } else {
-                        gp = new DefaultGeoProperty((Relation) osm);
-                    }
-                    GeoPropertyIndex<Boolean> gpi = new GeoPropertyIndex<>(gp, 24);
-                    if (iso1 != null) {
-                        iso3166Cache.put(iso1, gpi);
-                    }
-                    if (iso2 != null) {
-                        iso3166Cache.put(iso2, gpi);
+        iso3166Cache = null;
+        getIso3166Cache();
+    }
+
+    private static Map<String, GeoPropertyIndex<Boolean>> getIso3166Cache() {
+        if (iso3166Cache == null) {
+            Map<List<String>, PreparedPolygon> territories = loadIndex();
+            if (territories.isEmpty()) {
+                territories = computeTerritories();
+                try {
+                    saveIndex(territories);
+                } catch (IOException | InvalidPathException | SecurityException e) {
+                    Logging.log(Logging.LEVEL_ERROR, "Unable to save territories index", e);
+                }
+            }
+            Map<String, GeoPropertyIndex<Boolean>> cache = new HashMap<>();
+            for (Map.Entry<List<String>, PreparedPolygon> e : territories.entrySet()) {
+                GeoPropertyIndex<Boolean> gpi = new GeoPropertyIndex<>(new DefaultGeoProperty(e.getValue()), 24);
+                for (String code : e.getKey()) {
+                    cache.put(code, gpi);
+                }
+            }
+            iso3166Cache = cache;
+        }
+        return iso3166Cache;
+    }
+
+    private static Map<List<String>, PreparedPolygon> computeTerritories() {
+        Map<List<String>, PreparedPolygon> result = new LinkedHashMap<>();
+        DataSet data = getBoundaries();
+        Collection<OsmPrimitive> candidates = new ArrayList<>(data.getWays());
+        candidates.addAll(data.getRelations());
+        for (OsmPrimitive osm : candidates) {
+            List<String> codes = new ArrayList<>(2);
+            for (String key : new String[] {ISO3166_1, ISO3166_2}) {
+                String code = osm.get(key);
+                if (code != null) {
+                    codes.add(code);
+                }
+            }
+            if (!codes.isEmpty()) {
+                DefaultGeoProperty gp;
+                if (osm instanceof Way) {
+                    gp = new DefaultGeoProperty(Collections.singleton((Way) osm));
+                } else {
+                    gp = new DefaultGeoProperty((Relation) osm);
+                }
+                if (gp.getPolygon() == null) {
+                    throw new JosmRuntimeException("Unable to prepare territory " + codes);
+                }
+                result.put(codes, gp.getPolygon());
+            }
+        }
+        return result;
+    }
+
+    static File getIndexFile(boolean createIfMissing) {
+        return new File(Config.getDirs().getCacheDirectory(createIfMissing), INDEX_FILENAME);
+    }
+
+    private static String getIndexHeader() {
+        return INDEX_VERSION + " " + getDataHash();
+    }
+
+    private static void saveIndex(Map<List<String>, PreparedPolygon> territories) throws IOException {
+        File file = getIndexFile(true);
+        File tmp = File.createTempFile("territories", ".tmp", file.getParentFile());
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+                out.writeUTF(getIndexHeader());
+                out.writeInt(territories.size());
+                for (Map.Entry<List<String>, PreparedPolygon> e : territories.entrySet()) {
+                    out.writeInt(e.getKey().size());
+                    for (String code : e.getKey()) {
+                        out.writeUTF(code);
                     }
+                    e.getValue().writeTo(out);
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    private static Map<List<String>, PreparedPolygon> loadIndex() {
+        File file = getIndexFile(false);
+        if (!file.isFile()) {
+            return Collections.emptyMap();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (!getIndexHeader().equals(in.readUTF())) {
+                return Collections.emptyMap();
+            }
+            int count = in.readInt();
+            Map<List<String>, PreparedPolygon> result = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                List<String> codes = new ArrayList<>(2);
+                for (int j = in.readInt(); j > 0; j--) {
+                    codes.add(in.readUTF());
                 }
+                result.put(codes, PreparedPolygon.readFrom(in));
             }
-        } catch (IOException | IllegalDataException ex) {
-            throw new JosmRuntimeException(ex);
+            return result;
+        } catch (IOException | InvalidPathException | SecurityException ex) {
+            Logging.trace(ex);
+            return Collections.emptyMap();
         }
     }
 }
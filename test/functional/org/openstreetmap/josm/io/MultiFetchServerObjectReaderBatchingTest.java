@@ -0,0 +1,145 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.SimplePrimitiveId;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.MultiFetchServerObjectReader.PackageSize;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of the package sizing of {@link MultiFetchServerObjectReader}, against a local fake API server.
+ */
+public class MultiFetchServerObjectReaderBatchingTest {
+
+    private static final long FIRST_ID = 4000000000L;
+    private static final int NODE_COUNT = 1000;
+
+    /**
+     * Setup tests
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().fakeAPI();
+
+    /**
+     * mocked OSM API server
+     */
+    @Rule
+    public WireMockRule apiServer = new WireMockRule(WireMockConfiguration.options()
+            .dynamicPort());
+
+    private static String buildNodesResponse() {
+        StringBuilder sb = new StringBuilder("<?xml version='1.0' encoding='UTF-8'?>\n<osm version='0.6' generator='test'>\n");
+        for (int i = 0; i < NODE_COUNT; i++) {
+            sb.append("  <node id='").append(FIRST_ID + i).append("' version='1' lat='").append(i / 1000.0)
+              .append("' lon='1.0'/>\n");
+        }
+        return sb.append("</osm>\n").toString();
+    }
+
+    private MultiFetchServerObjectReader createReader() {
+        return new MultiFetchServerObjectReader() {
+            @Override
+            protected String getBaseUrl() {
+                return apiServer.url("/api/0.6/");
+            }
+        };
+    }
+
+    /**
+     * Test that all ids are requested, in packages not exceeding the max. URL length.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testPackagesLimitedByUrlLength() throws Exception {
+        apiServer.stubFor(WireMock.get(WireMock.urlPathEqualTo("/api/0.6/nodes"))
+                .willReturn(WireMock.aResponse().withStatus(200).withBody(buildNodesResponse())));
+        MultiFetchServerObjectReader.MAX_URL_LENGTH.put(500);
+        MultiFetchServerObjectReader reader = createReader();
+        for (int i = 0; i < NODE_COUNT; i++) {
+            reader.remember(new SimplePrimitiveId(FIRST_ID + i, OsmPrimitiveType.NODE));
+        }
+        DataSet ds = reader.parseOsm(NullProgressMonitor.INSTANCE);
+        assertEquals(NODE_COUNT, ds.getNodes().size());
+        assertTrue(reader.getMissingPrimitives().isEmpty());
+
+        List<LoggedRequest> requests = apiServer.findAll(WireMock.getRequestedFor(WireMock.urlPathEqualTo("/api/0.6/nodes")));
+        assertTrue(requests.size() >= NODE_COUNT * 11 / 500);
+        Set<Long> requested = new HashSet<>();
+        for (LoggedRequest request : requests) {
+            assertTrue(request.getUrl(), apiServer.url(request.getUrl()).length() <= 500);
+            for (String id : request.getUrl().substring(request.getUrl().indexOf("nodes=") + 6).split(",")) {
+                assertTrue(id, requested.add(Long.valueOf(id)));
+            }
+        }
+        assertEquals(NODE_COUNT, requested.size());
+    }
+
+    /**
+     * Test that {@link MultiFetchServerObjectReader#extractIdPackage(Set, OsmPrimitiveType, int)} respects the URL length.
+     */
+    @Test
+    public void testExtractIdPackage() {
+        MultiFetchServerObjectReader.MAX_URL_LENGTH.put(100);
+        MultiFetchServerObjectReader reader = createReader();
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            ids.add(FIRST_ID + i);
+        }
+        Set<Long> pkg = reader.extractIdPackage(ids, OsmPrimitiveType.NODE, 20);
+        assertTrue(pkg.size() < 20);
+        assertTrue(reader.getBaseUrl().length() + reader.buildRequestString(OsmPrimitiveType.NODE, pkg).length() <= 100);
+        assertEquals(50 - pkg.size(), ids.size());
+
+        MultiFetchServerObjectReader.MAX_URL_LENGTH.put(10000);
+        assertEquals(20, reader.extractIdPackage(ids, OsmPrimitiveType.NODE, 20).size());
+    }
+
+    /**
+     * Test the adaptation of the package size to response times.
+     */
+    @Test
+    public void testPackageSize() {
+        PackageSize size = new PackageSize(1000);
+        assertEquals(200, size.get());
+        // fast responses: grow at most by factor two, up to the max. size
+        size.update(200, 10);
+        assertEquals(400, size.get());
+        size.update(400, 10);
+        size.update(800, 10);
+        assertEquals(MultiFetchServerObjectReader.MAX_PACKAGE_SIZE, size.get());
+        // a small (e.g. last) package does not tell whether larger ones are fine
+        size.update(5, 1);
+        assertEquals(MultiFetchServerObjectReader.MAX_PACKAGE_SIZE, size.get());
+        // slow responses: shrink at most by factor two, down to the min. size
+        size.update(1000, 1500);
+        assertEquals(666, size.get());
+        size.update(666, 100000);
+        assertEquals(333, size.get());
+        for (int i = 0; i < 10; i++) {
+            size.update(size.get(), 100000);
+        }
+        assertEquals(MultiFetchServerObjectReader.MIN_PACKAGE_SIZE, size.get());
+        // failed requests are ignored
+        size.update(10, -1);
+        assertEquals(MultiFetchServerObjectReader.MIN_PACKAGE_SIZE, size.get());
+    }
+}
@@ -0,0 +1,67 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * This test measures the performance of {@link DataSetMerger}.
+ */
+public class DataSetMergerPerformanceTest {
+    private static final int NODE_COUNT = 50000;
+    private static final int RUNS = 5;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Prepare the test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().projection();
+
+    /**
+     * Measures the merge of new primitives into an empty data set.
+     */
+    @Test
+    public void testMergeIntoEmptyDataSet() {
+        DataSet source = OsmDataGenerator.getKeyValue(NODE_COUNT, 3).generateDataSet();
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("merge " + NODE_COUNT + " new nodes " + RUNS + " times");
+        for (int i = 0; i < RUNS; i++) {
+            DataSet target = new DataSet();
+            new DataSetMerger(target, source).merge();
+            assertEquals(NODE_COUNT, target.getNodes().size());
+        }
+        timer.done();
+    }
+
+    /**
+     * Measures the merge of new primitives which all have a semantically equal primitive in the target data set.
+     */
+    @Test
+    public void testMergeEqualNewPrimitives() {
+        DataSet source = OsmDataGenerator.getKeyValue(NODE_COUNT, 3).generateDataSet();
+        DataSet target = new DataSet();
+        new DataSetMerger(target, source).merge();
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer(
+                "merge " + NODE_COUNT + " nodes onto equal new nodes " + RUNS + " times");
+        for (int i = 0; i < RUNS; i++) {
+            new DataSetMerger(target, source).merge();
+            assertEquals(NODE_COUNT, target.getNodes().size());
+        }
+        timer.done();
+    }
+}
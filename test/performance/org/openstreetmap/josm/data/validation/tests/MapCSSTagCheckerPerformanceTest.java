@@ -0,0 +1,91 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmReader;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * This performance test measures the time needed by {@link MapCSSTagChecker} with the default rules
+ * to check a test data set, and that checking in parallel gives the same result as checking sequentially.
+ */
+public class MapCSSTagCheckerPerformanceTest {
+    private static final String DATA_FILE = "data_nodist/neubrandenburg.osm.bz2";
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+    }
+
+    /**
+     * Measures the time to check all primitives of the test data set.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testCheckDataSet() throws Exception {
+        MapCSSTagChecker checker = new MapCSSTagChecker();
+        checker.initialize();
+        assertFalse(checker.checks.isEmpty());
+        DataSet ds;
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File(DATA_FILE))) {
+            ds = OsmReader.parseDataSet(in, null);
+        }
+
+        List<OsmPrimitive> primitives = new ArrayList<>(ds.allPrimitives());
+
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("check " + primitives.size() + " primitives");
+        checker.startTest(null);
+        checker.visit(primitives);
+        checker.endTest();
+        timer.done();
+        List<String> errors = toStrings(checker.getErrors());
+        System.out.println(errors.size() + " errors");
+
+        // the parallel check must report the same errors in the same order as checking one primitive after the other
+        checker.startTest(null);
+        for (OsmPrimitive p : primitives) {
+            if (checker.isPrimitiveUsable(p)) {
+                p.accept(checker);
+            }
+        }
+        checker.endTest();
+        assertEquals(toStrings(checker.getErrors()), errors);
+    }
+
+    private static List<String> toStrings(List<TestError> errors) {
+        List<String> result = new ArrayList<>(errors.size());
+        for (TestError e : errors) {
+            result.add(e.getSeverity() + " " + e.getCode() + " " + e.getMessage() + " " + e.getDescription() + " " + e.getPrimitives());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,97 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Compares the throughput of {@link ParallelBZip2InputStream} with the sequential {@link BZip2CompressorInputStream}.
+ * <p>
+ * The compressed file is read into memory first, so that only decompression is measured.
+ */
+public class ParallelBZip2InputStreamPerformanceTest {
+    private static final int TIMES = 4;
+    private static final String DATA_FILE = "data_nodist/neubrandenburg.osm.bz2";
+
+    private static byte[] compressed;
+
+    /**
+     * Global timeout applied to all test methods.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public Timeout globalTimeout = Timeout.seconds(15*60);
+
+    /**
+     * Prepare the test.
+     * @throws IOException if the data file cannot be read
+     */
+    @BeforeClass
+    public static void createJOSMFixture() throws IOException {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        compressed = Files.readAllBytes(new File(DATA_FILE).toPath());
+    }
+
+    /**
+     * Measures the sequential commons-compress decoder.
+     * @throws IOException if an error occurs
+     */
+    @Test
+    public void testSequential() throws IOException {
+        long size = runTest("sequential bzip2 decoder", () -> new BZip2CompressorInputStream(
+                new ByteArrayInputStream(compressed), true));
+        assertEquals(size, runTest("parallel bzip2 decoder (check)", this::parallel));
+    }
+
+    /**
+     * Measures the parallel decoder.
+     * @throws IOException if an error occurs
+     */
+    @Test
+    public void testParallel() throws IOException {
+        runTest("parallel bzip2 decoder", this::parallel);
+    }
+
+    private InputStream parallel() throws IOException {
+        return new ParallelBZip2InputStream(new ByteArrayInputStream(compressed));
+    }
+
+    @FunctionalInterface
+    private interface StreamSupplier {
+        InputStream get() throws IOException;
+    }
+
+    private static long runTest(String what, StreamSupplier supplier) throws IOException {
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("decompress with " + what + " " + TIMES + " times");
+        for (int i = 0; i < TIMES; i++) {
+            total = 0;
+            try (InputStream in = supplier.get()) {
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    total += n;
+                }
+            }
+        }
+        timer.done();
+        System.out.println(what + ": " + total + " bytes per run");
+        return total;
+    }
+}
@@ -0,0 +1,62 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.actions.search;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.Match;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.Not;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.MapView;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link InView} class.
+ */
+public class InViewTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().main().projection();
+
+    /**
+     * Test that the map view captured in the EDT is used when matching in other threads.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testCaptureView() throws Exception {
+        SearchAction.getSearchHistory(); // registers the keywords
+        DataSet ds = new DataSet();
+        MainApplication.getLayerManager().addLayer(new OsmDataLayer(ds, "", null));
+        MapView mapView = MainApplication.getMap().mapView;
+        GuiHelper.runInEDTAndWait(() -> mapView.zoomTo(new LatLon(10, 10)));
+        // the map view has no size in tests, its bounds are reduced to its center
+        Node node = new Node(mapView.getRealBounds().getCenter());
+        ds.addPrimitive(node);
+
+        Match match = new Not(SearchCompiler.compile("inview"));
+        GuiHelper.runInEDTAndWait(() -> SearchCompiler.captureView(match));
+        GuiHelper.runInEDTAndWait(() -> mapView.zoomTo(new LatLon(-10, -10)));
+
+        // this thread uses the captured view, the EDT the current one
+        assertFalse(match.match(node));
+        AtomicBoolean matchInEDT = new AtomicBoolean();
+        GuiHelper.runInEDTAndWait(() -> matchInEDT.set(match.match(node)));
+        assertTrue(matchInEDT.get());
+    }
+}
@@ -2,9 +2,20 @@
 package org.openstreetmap.josm.data;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.data.preferences.PreferencesBinaryStore;
+import org.openstreetmap.josm.spi.preferences.IBaseDirectories;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -21,6 +32,12 @@ public class PreferencesTest {
     @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
     public JOSMTestRules test = new JOSMTestRules().preferences().fakeAPI();
 
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     /**
      * Test {@link Preferences#toXML}.
      */
@@ -33,4 +50,66 @@ public class PreferencesTest {
             "</preferences>%n", Version.getInstance().getVersion()),
                 Preferences.main().toXML(true));
     }
+
+    private Preferences createPreferences() {
+        File dir = folder.getRoot();
+        return new Preferences(new IBaseDirectories() {
+            @Override
+            public File getPreferencesDirectory(boolean createIfMissing) {
+                return dir;
+            }
+
+            @Override
+            public File getUserDataDirectory(boolean createIfMissing) {
+                return dir;
+            }
+
+            @Override
+            public File getCacheDirectory(boolean createIfMissing) {
+                return dir;
+            }
+        });
+    }
+
+    /**
+     * Test that settings are reloaded from the binary mirror of the preferences file, unless the file has been modified.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testBinaryStore() throws Exception {
+        Preferences pref = createPreferences();
+        pref.init(false);
+        pref.put("string", "value");
+        pref.putList("list", Arrays.asList("a", "b"));
+        assertTrue(new File(folder.getRoot(), "preferences.bin").isFile());
+
+        Preferences reloaded = createPreferences();
+        reloaded.init(false);
+        assertEquals(pref.getAllSettings(), reloaded.getAllSettings());
+
+        // the XML file is parsed again after a manual modification
+        File xml = pref.getPreferenceFile();
+        String content = new String(Files.readAllBytes(xml.toPath()), StandardCharsets.UTF_8);
+        Files.write(xml.toPath(), content.replace("'value'", "'modified'").getBytes(StandardCharsets.UTF_8));
+        reloaded = createPreferences();
+        reloaded.init(false);
+        assertEquals("modified", reloaded.get("string"));
+        assertEquals(Arrays.asList("a", "b"), reloaded.getList("list"));
+
+        // the default values are cached in binary form
+        assertEquals("default", reloaded.get("default.key", "default"));
+        reloaded.saveDefaults();
+        Preferences withDefaults = createPreferences();
+        withDefaults.init(false);
+        assertEquals("default", withDefaults.getAllDefaults().get("default.key").getValue());
+
+        // the defaults cached by another build are ignored
+        PreferencesBinaryStore store = new PreferencesBinaryStore(withDefaults.getDefaultsCacheFile());
+        assertTrue(store.load());
+        store.write(store.getAll(), "other build");
+        Preferences otherBuild = createPreferences();
+        otherBuild.init(false);
+        assertNull(otherBuild.getAllDefaults().get("default.key"));
+        assertFalse(otherBuild.getDefaultsCacheFile().exists());
+    }
 }
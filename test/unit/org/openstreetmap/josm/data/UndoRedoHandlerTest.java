@@ -0,0 +1,169 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.command.ChangeCommand;
+import org.openstreetmap.josm.command.ChangeNodesCommand;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.command.MoveCommand;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link UndoRedoHandler} class.
+ */
+public class UndoRedoHandlerTest {
+
+    /**
+     * Setup tests
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    /**
+     * Cleans the undo list.
+     */
+    @After
+    public void tearDown() {
+        UndoRedoHandler.getInstance().clean();
+    }
+
+    private static Command newCommand(DataSet ds, long memoryUsage) {
+        return new Command(ds) {
+            @Override
+            public String getDescriptionText() {
+                return "";
+            }
+
+            @Override
+            public void fillModifiedData(Collection<OsmPrimitive> modified, Collection<OsmPrimitive> deleted,
+                    Collection<OsmPrimitive> added) {
+                // Do nothing
+            }
+
+            @Override
+            public long estimateMemoryUsage() {
+                return memoryUsage;
+            }
+        };
+    }
+
+    /**
+     * Test that the undo list is limited by the {@code undo.max-memory} preference.
+     */
+    @Test
+    public void testMemoryLimit() {
+        Config.getPref().putInt("undo.max-memory", 1);
+        UndoRedoHandler handler = UndoRedoHandler.getInstance();
+        DataSet ds = new DataSet();
+        List<Command> added = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Command c = newCommand(ds, 400 * 1024);
+            added.add(c);
+            handler.add(c);
+        }
+        assertEquals(2, handler.commands.size());
+        assertSame(added.get(9), handler.getLastCommand());
+        assertEquals(800 * 1024, handler.getCommandsMemoryUsage());
+
+        // the last command is kept even if it exceeds the limit alone
+        handler.add(newCommand(ds, 2 * 1024 * 1024));
+        assertEquals(1, handler.commands.size());
+
+        handler.clean();
+        assertEquals(0, handler.getCommandsMemoryUsage());
+    }
+
+    /**
+     * Test that the memory usage of a real command is estimated.
+     */
+    @Test
+    public void testEstimateMemoryUsage() {
+        DataSet ds = new DataSet();
+        List<OsmPrimitive> nodes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Node n = new Node(new LatLon(0, i / 1000.0));
+            ds.addPrimitive(n);
+            nodes.add(n);
+        }
+        MoveCommand cmd = new MoveCommand(nodes, 1, 1);
+        UndoRedoHandler.getInstance().add(cmd);
+        assertTrue(cmd.estimateMemoryUsage() > 1000 * 100);
+        assertEquals(cmd.estimateMemoryUsage(), UndoRedoHandler.getInstance().getCommandsMemoryUsage());
+    }
+
+    /**
+     * Test that the state retained for redoing is estimated.
+     */
+    @Test
+    public void testEstimateMemoryUsageRedoState() {
+        DataSet ds = new DataSet();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Node n = new Node(new LatLon(0, i / 1000.0));
+            ds.addPrimitive(n);
+            nodes.add(n);
+        }
+        Way way = new Way();
+        way.setNodes(nodes.subList(0, 2));
+        ds.addPrimitive(way);
+        Way newWay = new Way(way);
+        newWay.setNodes(nodes);
+        assertTrue(new ChangeCommand(way, newWay).estimateMemoryUsage() > 1000 * 8);
+        assertTrue(new ChangeNodesCommand(way, nodes).estimateMemoryUsage() > 1000 * 8);
+    }
+
+    /**
+     * Test that the memory usage of a command is accounted as estimated when it was added, even if it changes later.
+     */
+    @Test
+    public void testMemoryUsageChanged() {
+        UndoRedoHandler handler = UndoRedoHandler.getInstance();
+        DataSet ds = new DataSet();
+        long[] memoryUsage = {1000};
+        handler.add(new Command(ds) {
+            @Override
+            public String getDescriptionText() {
+                return "";
+            }
+
+            @Override
+            public void fillModifiedData(Collection<OsmPrimitive> modified, Collection<OsmPrimitive> deleted,
+                    Collection<OsmPrimitive> added) {
+                // Do nothing
+            }
+
+            @Override
+            public long estimateMemoryUsage() {
+                return memoryUsage[0];
+            }
+        });
+        handler.add(newCommand(ds, 500));
+        assertEquals(1500, handler.getCommandsMemoryUsage());
+        memoryUsage[0] = 3000;
+        handler.undo(2);
+        assertEquals(0, handler.getCommandsMemoryUsage());
+        handler.redo(2);
+        assertEquals(3500, handler.getCommandsMemoryUsage());
+        handler.clean(ds);
+        assertEquals(0, handler.getCommandsMemoryUsage());
+    }
+}
@@ -1053,4 +1053,109 @@ public class DataSetMergerTest {
         assertEquals(new LatLon(1, 1), n.getCoor());
         assertTrue(n.isModified());
     }
+
+    /**
+     * Test that new source primitives are merged onto the first semantically equal new target primitive,
+     * including nodes with equal coordinates in neighbouring cells of the candidate index.
+     */
+    @Test
+    public void testNewPrimitivesCandidateIndex() {
+        Node myOther = new Node(new LatLon(1e-4 - 2e-8, 0));
+        myOther.put("amenity", "bench");
+        Node myFirst = new Node(new LatLon(1e-4 - 2e-8, 0));
+        myFirst.put("amenity", "cafe");
+        Node mySecond = new Node(new LatLon(1e-4 - 2e-8, 0));
+        mySecond.put("amenity", "cafe");
+        my.addPrimitive(myOther);
+        my.addPrimitive(myFirst);
+        my.addPrimitive(mySecond);
+        Way myWay = new Way();
+        myWay.setNodes(Arrays.asList(myOther, myFirst));
+        myWay.put("highway", "path");
+        my.addPrimitive(myWay);
+
+        // equal coordinates, but in the next grid cell of the index
+        Node theirNode = new Node(new LatLon(1e-4 + 2e-8, 0));
+        theirNode.put("amenity", "cafe");
+        Node theirOther = new Node(new LatLon(1e-4, 0));
+        theirOther.put("amenity", "bench");
+        their.addPrimitive(theirNode);
+        their.addPrimitive(theirOther);
+        // same tags, different number of nodes
+        Way theirWay = new Way();
+        theirWay.setNodes(Arrays.asList(theirOther, theirNode, theirOther));
+        theirWay.put("highway", "path");
+        their.addPrimitive(theirWay);
+
+        DataSetMerger visitor = new DataSetMerger(my, their);
+        visitor.merge();
+
+        assertEquals(0, visitor.getConflicts().size());
+        assertSame(myFirst, visitor.getMergeTarget(theirNode));
+        assertEquals(3, my.getNodes().size());
+        assertEquals(2, my.getWays().size());
+        assertNotSame(myWay, visitor.getMergeTarget(theirWay));
+    }
+
+    /**
+     * Test that a new source way is merged onto a new target way which only became semantically equal while merging,
+     * because one of its nodes was updated from the source.
+     */
+    @Test
+    public void testNewWayEqualAfterNodeUpdate() {
+        Node myNode = new Node(1, 1);
+        myNode.setCoor(LatLon.ZERO);
+        Node myNode2 = new Node(2, 1);
+        myNode2.setCoor(LatLon.NORTH_POLE);
+        my.addPrimitive(myNode);
+        my.addPrimitive(myNode2);
+        Way myWay = new Way();
+        myWay.setNodes(Arrays.asList(myNode, myNode2));
+        myWay.put("highway", "path");
+        my.addPrimitive(myWay);
+
+        // newer version of node 1, moved
+        Node theirNode = new Node(1, 2);
+        theirNode.setCoor(new LatLon(1, 1));
+        Node theirNode2 = new Node(2, 1);
+        theirNode2.setCoor(LatLon.NORTH_POLE);
+        their.addPrimitive(theirNode);
+        their.addPrimitive(theirNode2);
+        Way theirWay = new Way();
+        theirWay.setNodes(Arrays.asList(theirNode, theirNode2));
+        theirWay.put("highway", "path");
+        their.addPrimitive(theirWay);
+
+        DataSetMerger visitor = new DataSetMerger(my, their);
+        visitor.merge();
+
+        assertEquals(0, visitor.getConflicts().size());
+        assertEquals(new LatLon(1, 1), myNode.getCoor());
+        assertEquals(1, my.getWays().size());
+        assertSame(myWay, visitor.getMergeTarget(theirWay));
+    }
+
+    /**
+     * Test that copies of new source primitives get their ids in the order of the source primitives,
+     * even when the merge is prepared in parallel.
+     */
+    @Test
+    public void testNewPrimitivesIdOrder() {
+        for (int i = 0; i < 5000; i++) {
+            Node n = new Node(new LatLon(i * 1e-3, 0));
+            n.put("ref", Integer.toString(i));
+            their.addPrimitive(n);
+        }
+        DataSetMerger visitor = new DataSetMerger(my, their);
+        visitor.merge();
+
+        assertEquals(5000, my.getNodes().size());
+        long previousId = 0;
+        for (Node source : their.getNodes()) {
+            OsmPrimitive target = visitor.getMergeTarget(source);
+            assertEquals(source.get("ref"), target.get("ref"));
+            assertTrue(target.getUniqueId() < previousId);
+            previousId = target.getUniqueId();
+        }
+    }
 }
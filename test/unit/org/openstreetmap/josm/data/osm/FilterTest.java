@@ -7,8 +7,10 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -20,6 +22,8 @@ import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.Filter.FilterPreferenceEntry;
 import org.openstreetmap.josm.data.osm.search.SearchMode;
 import org.openstreetmap.josm.data.osm.search.SearchParseError;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.io.OsmReader;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
@@ -237,6 +241,107 @@ public class FilterTest {
         assertEquals(fpe, new Filter(fpe).getPreferenceEntry());
     }
 
+    /**
+     * Test that the parallel evaluation of filters gives the same result as the evaluation primitive by primitive.
+     * @throws SearchParseError never
+     */
+    @Test
+    public void testParallel() throws SearchParseError {
+        DataSet ds = new DataSet();
+        List<Way> ways = new ArrayList<>();
+        for (int i = 0; i < 2 * FilterWorker.PARALLEL_THRESHOLD; i++) {
+            Node n1 = new Node(new LatLon(i, 0));
+            Node n2 = new Node(new LatLon(i, 1));
+            if (i % 7 == 0) {
+                n1.put("amenity", "bench");
+            }
+            Way w = new Way();
+            w.setNodes(Arrays.asList(n1, n2));
+            w.put(i % 3 == 0 ? "highway" : "building", "yes");
+            ds.addPrimitive(n1);
+            ds.addPrimitive(n2);
+            ds.addPrimitive(w);
+            ways.add(w);
+        }
+        Filter f1 = new Filter();
+        f1.text = "highway";
+        f1.hiding = true;
+        Filter f2 = new Filter();
+        f2.text = "amenity";
+        FilterMatcher filterMatcher = FilterMatcher.of(f1, f2);
+
+        assertTrue(FilterWorker.executeFilters(ds.allPrimitives(), filterMatcher));
+        List<OsmPrimitive> all = new ArrayList<>(ds.allPrimitives());
+        List<Boolean> disabled = new ArrayList<>();
+        List<Boolean> hidden = new ArrayList<>();
+        for (OsmPrimitive p : all) {
+            disabled.add(p.isDisabled());
+            hidden.add(p.isDisabledAndHidden());
+        }
+        assertTrue(ways.get(0).isDisabledAndHidden());
+        assertTrue(ways.get(0).firstNode().isDisabled());
+        assertFalse(ways.get(0).firstNode().isDisabledAndHidden());
+        assertTrue(ways.get(0).lastNode().isDisabledAndHidden());
+        assertFalse(ways.get(1).isDisabled());
+        assertFalse(ways.get(1).lastNode().isDisabled());
+
+        FilterWorker.clearFilterFlags(all);
+        for (Way w : ways) {
+            FilterWorker.executeFilters(w, filterMatcher);
+        }
+        for (Node n : ds.getNodes()) {
+            FilterWorker.executeFilters(n, filterMatcher);
+        }
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(disabled.get(i), all.get(i).isDisabled());
+            assertEquals(hidden.get(i), all.get(i).isDisabledAndHidden());
+        }
+    }
+
+    /**
+     * Test the incremental update of {@link FilterModel} when primitives are added and removed.
+     */
+    @Test
+    public void testFilterModelIncremental() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(LatLon.ZERO);
+        Node n2 = new Node(LatLon.NORTH_POLE);
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        w.put("highway", "residential");
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(w);
+        MainApplication.getLayerManager().addLayer(new OsmDataLayer(ds, "test", null));
+        try {
+            FilterModel model = new FilterModel();
+            Filter f = new Filter();
+            f.text = "highway";
+            f.hiding = true;
+            model.addFilter(f);
+            model.executeFilters();
+            assertEquals(3, model.getDisabledAndHiddenCount());
+            assertTrue(n1.isDisabledAndHidden());
+
+            Node n3 = new Node(LatLon.SOUTH_POLE);
+            ds.addPrimitive(n3);
+            w.addNode(n3);
+            model.executeFilters(FilterModel.getAffectedPrimitives(Collections.singleton(n3)));
+            assertEquals(4, model.getDisabledAndHiddenCount());
+            assertTrue(n3.isDisabledAndHidden());
+
+            w.setDeleted(true);
+            model.removePrimitives(Collections.singleton(w));
+            assertFalse(w.isDisabled());
+            assertFalse(n1.isDisabled());
+            assertFalse(n3.isDisabled());
+            assertEquals(0, model.getDisabledAndHiddenCount());
+            assertEquals(0, model.getDisabledCount());
+        } finally {
+            MainApplication.getLayerManager().resetState();
+        }
+    }
+
     /**
      * Unit test of methods {@link FilterPreferenceEntry#equals} and {@link FilterPreferenceEntry#hashCode}.
      */
@@ -32,4 +32,49 @@ public class WayDataTest {
         }
         Assert.assertEquals(data.toString(), readData.toString());
     }
+
+    /**
+     * Test that the node id list can be modified like a {@code java.util.List}.
+     */
+    @Test
+    public void testNodeIds() {
+        final WayData data = new WayData();
+        for (long i = 0; i < 100; i++) {
+            data.getNodeIds().add(1000000000000L + i);
+        }
+        Assert.assertEquals(100, data.getNodesCount());
+        Assert.assertEquals(1000000000042L, data.getNodeId(42));
+        data.getNodeIds().add(0, 5L);
+        data.getNodeIds().remove(1);
+        data.getNodeIds().set(99, 5L);
+        Assert.assertEquals(5L, data.getNodeId(0));
+        Assert.assertEquals(1000000000001L, data.getNodeId(1));
+        Assert.assertTrue(data.isClosed());
+        data.getNodeIds().subList(10, 100).clear();
+        Assert.assertEquals(10, data.getNodesCount());
+        Assert.assertEquals(data.getNodeIds(), new WayData(data).getNodeIds());
+        data.getNodeIds().clear();
+        Assert.assertTrue(data.getNodeIds().isEmpty());
+    }
+
+    /**
+     * Test that the node id list rejects {@code null} ids.
+     */
+    @Test
+    public void testNullNodeId() {
+        final WayData data = new WayData();
+        data.getNodeIds().add(1L);
+        try {
+            data.getNodeIds().set(0, null);
+            Assert.fail("NullPointerException expected");
+        } catch (NullPointerException e) {
+            Assert.assertEquals(1L, data.getNodeId(0));
+        }
+        try {
+            data.getNodeIds().add(null);
+            Assert.fail("NullPointerException expected");
+        } catch (NullPointerException e) {
+            Assert.assertEquals(1, data.getNodesCount());
+        }
+    }
 }
@@ -0,0 +1,113 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link DatasetEventBatch} class.
+ */
+public class DatasetEventBatchTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().projection();
+
+    /**
+     * Test the coalescing of events.
+     */
+    @Test
+    public void testCoalescing() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(LatLon.ZERO);
+        Node n2 = new Node(LatLon.ZERO);
+        DatasetEventBatch batch = new DatasetEventBatch(ds);
+        assertTrue(batch.isEmpty());
+        batch.add(new PrimitivesAddedEvent(ds, Collections.singleton(n1), false));
+        batch.add(new PrimitivesAddedEvent(ds, Collections.singleton(n2), false));
+        TagsChangedEvent tagsChanged = new TagsChangedEvent(ds, n1, Collections.emptyMap());
+        batch.add(tagsChanged);
+        batch.add(new TagsChangedEvent(ds, n1, Collections.singletonMap("a", "b")));
+        batch.add(new NodeMovedEvent(ds, n1));
+        batch.add(new NodeMovedEvent(ds, n2));
+        batch.add(new NodeMovedEvent(ds, n1));
+        assertEquals(4, batch.size());
+
+        List<AbstractDatasetChangedEvent> events = batch.drain();
+        assertTrue(batch.isEmpty());
+        assertEquals(4, events.size());
+        assertEquals(Arrays.asList(n1, n2), events.get(0).getPrimitives());
+        assertSame(tagsChanged, events.get(1));
+        assertEquals(Collections.singletonList(n1), events.get(2).getPrimitives());
+        assertEquals(Collections.singletonList(n2), events.get(3).getPrimitives());
+    }
+
+    /**
+     * Test that changes after an addition or removal are reported again, and that nested events are flattened.
+     */
+    @Test
+    public void testAddedAgain() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(LatLon.ZERO);
+        DatasetEventBatch batch = new DatasetEventBatch(ds);
+        List<AbstractDatasetChangedEvent> nested = new ArrayList<>();
+        nested.add(new NodeMovedEvent(ds, n1));
+        nested.add(new PrimitivesRemovedEvent(ds, Collections.singleton(n1), true));
+        nested.add(new PrimitivesAddedEvent(ds, Collections.singleton(n1), false));
+        nested.add(new NodeMovedEvent(ds, n1));
+        batch.add(new DataChangedEvent(ds, nested));
+        List<AbstractDatasetChangedEvent> events = batch.drain();
+        assertEquals(4, events.size());
+        assertTrue(events.get(1) instanceof PrimitivesRemovedEvent);
+        assertTrue(events.get(2) instanceof PrimitivesAddedEvent);
+        assertTrue(events.get(3) instanceof NodeMovedEvent);
+    }
+
+    /**
+     * Test that {@link DataSet#endUpdate()} delivers coalesced events.
+     */
+    @Test
+    public void testDataSetUpdate() {
+        DataSet ds = new DataSet();
+        List<AbstractDatasetChangedEvent> fired = new ArrayList<>();
+        ds.addDataSetListener(new DataSetListenerAdapter(fired::add));
+        List<Node> nodes = new ArrayList<>();
+        ds.beginUpdate();
+        try {
+            for (int i = 0; i < 2000; i++) {
+                Node n = new Node(LatLon.ZERO);
+                ds.addPrimitive(n);
+                nodes.add(n);
+            }
+            for (int i = 0; i < 3; i++) {
+                for (int j = 0; j < 100; j++) {
+                    nodes.get(j).setCoor(new LatLon(i, j));
+                }
+            }
+        } finally {
+            ds.endUpdate();
+        }
+        assertEquals(1, fired.size());
+        List<AbstractDatasetChangedEvent> events = ((DataChangedEvent) fired.get(0)).getEvents();
+        assertEquals(101, events.size());
+        assertEquals(2000, events.get(0).getPrimitives().size());
+    }
+}
@@ -4,6 +4,7 @@ package org.openstreetmap.josm.data.osm.search;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.lang.reflect.Field;
@@ -728,4 +729,24 @@ public class SearchCompilerTest {
         result.name = name;
         return result;
     }
+
+    /**
+     * Unit test of {@link SearchCompiler#getRequiredLiteral}.
+     */
+    @Test
+    public void testRequiredLiteral() {
+        assertEquals("primary", SearchCompiler.getRequiredLiteral("primary"));
+        assertEquals("primary", SearchCompiler.getRequiredLiteral("^primary$"));
+        assertEquals("stra", SearchCompiler.getRequiredLiteral(".*straße"));
+        assertEquals("bar", SearchCompiler.getRequiredLiteral("(foo)?bar"));
+        assertEquals("Foo", SearchCompiler.getRequiredLiteral("Foo+bar"));
+        assertEquals("oba", SearchCompiler.getRequiredLiteral("fo*obar?"));
+        assertEquals("a.b", SearchCompiler.getRequiredLiteral("a\\.b.c"));
+        assertEquals("bcd", SearchCompiler.getRequiredLiteral("a{2,3}bcd"));
+        assertEquals("efg", SearchCompiler.getRequiredLiteral("[abc]d+efg\\d"));
+        assertNull(SearchCompiler.getRequiredLiteral("foo|bar"));
+        assertNull(SearchCompiler.getRequiredLiteral("(?i)foobar"));
+        assertNull(SearchCompiler.getRequiredLiteral("\\x41bcd"));
+        assertNull(SearchCompiler.getRequiredLiteral("ab.cd"));
+    }
 }
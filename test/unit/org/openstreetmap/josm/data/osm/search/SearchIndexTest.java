@@ -0,0 +1,133 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.search.SearchCompiler.Match;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link SearchIndex} class.
+ */
+public class SearchIndexTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    private static final String[] KEYS = {"highway", "building", "name", "Name", "amenity"};
+    private static final String[] VALUES = {"primary", "yes", "foo", "Foobar", "bench", "Straße", "\u017Ftraße", "\u212Aelvin",
+        "e\u0301cole", "École"};
+
+    private static DataSet createDataSet() {
+        Random random = new Random(42);
+        DataSet ds = new DataSet();
+        for (int i = 0; i < 500; i++) {
+            Node n1 = new Node(new LatLon(random.nextDouble(), random.nextDouble()));
+            Node n2 = new Node(new LatLon(random.nextDouble(), random.nextDouble()));
+            Way w = new Way();
+            w.setNodes(Arrays.asList(n1, n2));
+            for (OsmPrimitive p : new OsmPrimitive[] {n1, n2, w}) {
+                for (int j = random.nextInt(3); j > 0; j--) {
+                    p.put(KEYS[random.nextInt(KEYS.length)], VALUES[random.nextInt(VALUES.length)]);
+                }
+            }
+            ds.addPrimitive(n1);
+            ds.addPrimitive(n2);
+            ds.addPrimitive(w);
+        }
+        return ds;
+    }
+
+    /**
+     * Test that the index is maintained from the data set events.
+     */
+    @Test
+    public void testIncrementalUpdate() {
+        SearchIndex.MIN_SIZE.put(0);
+        DataSet ds = new DataSet();
+        Node n1 = new Node(LatLon.ZERO);
+        n1.put("highway", "primary");
+        ds.addPrimitive(n1);
+        SearchIndex index = SearchIndex.get(ds);
+        assertNotNull(index);
+        assertEquals(Collections.singleton(n1), index.get("highway", "primary"));
+
+        Node n2 = new Node(LatLon.ZERO);
+        n2.put("highway", "primary");
+        ds.addPrimitive(n2);
+        assertEquals(2, index.get("highway", "primary").size());
+
+        n1.put("highway", "secondary");
+        assertEquals(Collections.singleton(n2), index.get("highway", "primary"));
+        assertEquals(Collections.singleton(n1), index.get("highway", "secondary"));
+
+        // deleted primitives are still part of the data set
+        n1.setDeleted(true);
+        assertEquals(Collections.singleton(n1), index.get("highway", "secondary"));
+        ds.removePrimitive(n1);
+        assertTrue(index.get("highway", "secondary").isEmpty());
+
+        // primitives are tracked by identity, even if their id changes
+        n2.setOsmId(1, 1);
+        n2.remove("highway");
+        assertTrue(index.get("highway", v -> true).isEmpty());
+
+        SearchIndex.USE_INDEX.put(false);
+        assertNull(SearchIndex.get(ds));
+    }
+
+    /**
+     * Test that {@link SearchCompiler#getCandidates} returns all the matching primitives.
+     * @throws SearchParseError never
+     */
+    @Test
+    public void testCandidates() throws SearchParseError {
+        SearchIndex.MIN_SIZE.put(0);
+        DataSet ds = createDataSet();
+        String[] queries = {"highway=primary", "type:way name:foo", "highway=* amenity=bench", "building=yes | name=foo",
+            "name=Foo", "stra", "NAME:FOO", "*=bench", "-highway=primary", "-amenity=bench | amenity=bench", "highway=primary OR untagged",
+            "name:oob", "name:Fo+bar", "name:\"^Foo.*\"", "name:\"straße\"", "kelvin", "name:kelvin", "*=\"[Kk]elvin\"", "name=\"F.*bar\"",
+            "école", "name:cole", "name:\"e\u0301co\"", "name:\"(Foo)?bar\""};
+        for (String query : queries) {
+            for (boolean caseSensitive : new boolean[] {false, true}) {
+                for (boolean regex : new boolean[] {false, true}) {
+                    SearchSetting setting = new SearchSetting();
+                    setting.text = query;
+                    setting.caseSensitive = caseSensitive;
+                    setting.regexSearch = regex;
+                    Match m = SearchCompiler.compile(setting);
+                    Set<OsmPrimitive> expected = ds.allPrimitives().stream().filter(m).collect(Collectors.toSet());
+                    Set<OsmPrimitive> candidates = SearchCompiler.getCandidates(m, ds);
+                    if (query.startsWith("-") || query.contains("untagged")) {
+                        assertNull(query, candidates);
+                    } else {
+                        assertNotNull(query, candidates);
+                        assertEquals(query, expected, candidates.stream().filter(m).collect(Collectors.toSet()));
+                    }
+                }
+            }
+        }
+    }
+}
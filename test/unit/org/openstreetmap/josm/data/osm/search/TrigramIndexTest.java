@@ -0,0 +1,64 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link TrigramIndex} class.
+ */
+public class TrigramIndexTest {
+
+    /**
+     * Test adding, finding and removing strings.
+     */
+    @Test
+    public void testAddRemove() {
+        TrigramIndex index = new TrigramIndex();
+        index.add("Hauptstraße");
+        index.add("Bahnhofstraße");
+        index.add("Hauptstraße");
+        index.add("Main Street");
+        assertEquals(3, index.size());
+        assertNull(index.getCandidates("st"));
+        assertEquals(new HashSet<>(Arrays.asList("Hauptstraße", "Bahnhofstraße")), index.getCandidates("straße"));
+        assertEquals(Collections.singleton("Hauptstraße"), index.getCandidates("AUPT"));
+        assertTrue(index.getCandidates("avenue").isEmpty());
+
+        // strings are reference-counted
+        index.remove("Hauptstraße");
+        assertEquals(new HashSet<>(Arrays.asList("Hauptstraße", "Bahnhofstraße")), index.getCandidates("straße"));
+        index.remove("Hauptstraße");
+        assertEquals(Collections.singleton("Bahnhofstraße"), index.getCandidates("straße"));
+        assertEquals(2, index.size());
+
+        // ids of removed strings are reused
+        for (int i = 0; i < 10_000; i++) {
+            index.add("value " + i);
+            index.remove("value " + i);
+        }
+        assertEquals(Collections.singleton("Bahnhofstraße"), index.getCandidates("straße"));
+        assertEquals(Collections.singleton("Main Street"), index.getCandidates("main street"));
+    }
+
+    /**
+     * Test that the folded and normalized forms of the strings are indexed.
+     */
+    @Test
+    public void testFolding() {
+        TrigramIndex index = new TrigramIndex();
+        index.add("\u212Aelvin");
+        index.add("e\u0301cole");
+        assertEquals(Collections.singleton("\u212Aelvin"), index.getCandidates("kelvin"));
+        assertEquals(Collections.singleton("e\u0301cole"), index.getCandidates("\u00E9co"));
+        assertEquals(Collections.singleton("e\u0301cole"), index.getCandidates("e\u0301co"));
+        assertEquals("kelvin", TrigramIndex.fold("KELVIN"));
+    }
+}
@@ -0,0 +1,138 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint.relations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link MultipolygonCache} class.
+ */
+public class MultipolygonCacheTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    /**
+     * Clears the cache.
+     */
+    @After
+    public void tearDown() {
+        MultipolygonCache.getInstance().clear();
+    }
+
+    private static List<Relation> createMultipolygons(DataSet ds, int count) {
+        List<Relation> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Node n1 = new Node(new LatLon(i, 0));
+            Node n2 = new Node(new LatLon(i, 0.5));
+            Node n3 = new Node(new LatLon(i + 0.5, 0.5));
+            Way w = new Way();
+            w.setNodes(Arrays.asList(n1, n2, n3, n1));
+            w.put("natural", "water");
+            Relation r = new Relation();
+            r.put("type", "multipolygon");
+            r.put("landuse", "forest");
+            r.addMember(new RelationMember("outer", w));
+            ds.addPrimitive(n1);
+            ds.addPrimitive(n2);
+            ds.addPrimitive(n3);
+            ds.addPrimitive(w);
+            ds.addPrimitive(r);
+            result.add(r);
+        }
+        return result;
+    }
+
+    /**
+     * Test that the multipolygons of a data set are built in the background.
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testPrebuild() throws InterruptedException {
+        DataSet ds = new DataSet();
+        List<Relation> relations = createMultipolygons(ds, 100);
+        MultipolygonCache cache = MultipolygonCache.getInstance();
+        assertNull(cache.getIfPresent(relations.get(0)));
+        cache.prebuild(ds);
+        for (int i = 0; i < 600 && relations.stream().anyMatch(r -> cache.getIfPresent(r) == null); i++) {
+            Thread.sleep(100);
+        }
+        for (Relation r : relations) {
+            Multipolygon mp = cache.getIfPresent(r);
+            assertNotNull(mp);
+            assertSame(mp, cache.get(r));
+            assertEquals(1, mp.getCombinedPolygons().size());
+        }
+    }
+
+    /**
+     * Test that the least recently used multipolygons are evicted when the cache is full.
+     * @throws InterruptedException if interrupted
+     */
+    @Test
+    public void testEviction() throws InterruptedException {
+        MultipolygonCache.MAX_NODES.put(40);
+        try {
+            DataSet ds = new DataSet();
+            List<Relation> relations = createMultipolygons(ds, 20);
+            MultipolygonCache cache = MultipolygonCache.getInstance();
+            Relation first = relations.get(0);
+            Multipolygon mp = cache.get(first);
+            for (Relation r : relations.subList(1, relations.size())) {
+                cache.get(r);
+                // keep the first one recently used
+                assertSame(mp, cache.get(first));
+            }
+            // eviction happens in the background
+            for (int i = 0; i < 600 && cache.getIfPresent(relations.get(1)) != null; i++) {
+                Thread.sleep(100);
+            }
+            assertSame(mp, cache.getIfPresent(first));
+            assertNull(cache.getIfPresent(relations.get(1)));
+            assertNotNull(cache.getIfPresent(relations.get(relations.size() - 1)));
+        } finally {
+            MultipolygonCache.MAX_NODES.remove();
+        }
+    }
+
+    /**
+     * Test that changing the tags of a member way keeps the multipolygon, but changing the relation does not.
+     */
+    @Test
+    public void testTagsChanged() {
+        DataSet ds = new DataSet();
+        ds.addDataSetListener(MultipolygonCache.getInstance());
+        Relation r = createMultipolygons(ds, 1).get(0);
+        MultipolygonCache cache = MultipolygonCache.getInstance();
+        Multipolygon mp = cache.get(r);
+        r.getMember(0).getWay().put("natural", "wood");
+        assertSame(mp, cache.getIfPresent(r));
+        r.put("landuse", "meadow");
+        assertNull(cache.getIfPresent(r));
+        assertNotSame(mp, cache.get(r));
+    }
+}
@@ -0,0 +1,198 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.preferences;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.spi.preferences.ListListSetting;
+import org.openstreetmap.josm.spi.preferences.ListSetting;
+import org.openstreetmap.josm.spi.preferences.MapListSetting;
+import org.openstreetmap.josm.spi.preferences.Setting;
+import org.openstreetmap.josm.spi.preferences.StringSetting;
+
+/**
+ * Unit tests of {@link PreferencesBinaryStore} class.
+ */
+public class PreferencesBinaryStoreTest {
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static SortedMap<String, Setting<?>> createSettings() {
+        SortedMap<String, Setting<?>> settings = new TreeMap<>();
+        settings.put("string", new StringSetting("välue"));
+        settings.put("list", new ListSetting(Arrays.asList("a", "b")));
+        settings.put("lists", new ListListSetting(Arrays.asList(Arrays.asList("a"), Collections.<String>emptyList())));
+        settings.put("maps", new MapListSetting(Arrays.asList(Collections.singletonMap("k", "v"))));
+        settings.put("empty", new ListSetting(Collections.<String>emptyList()));
+        return settings;
+    }
+
+    private PreferencesBinaryStore reload(PreferencesBinaryStore store) {
+        PreferencesBinaryStore reloaded = new PreferencesBinaryStore(store.getFile());
+        assertTrue(reloaded.load());
+        return reloaded;
+    }
+
+    /**
+     * Test writing and reading settings of all types.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testWriteLoad() throws IOException {
+        PreferencesBinaryStore store = new PreferencesBinaryStore(new File(folder.getRoot(), "prefs.bin"));
+        assertFalse(store.load());
+        SortedMap<String, Setting<?>> settings = createSettings();
+        StringSetting nullDefault = new StringSetting(null);
+        nullDefault.setTime(123L);
+        settings.put("null", nullDefault);
+        store.write(settings, "stamp");
+
+        PreferencesBinaryStore reloaded = reload(store);
+        assertEquals("stamp", reloaded.getStamp());
+        assertEquals(settings.keySet(), reloaded.getKeys());
+        assertEquals(settings, reloaded.getAll());
+        assertNull(reloaded.get("null").getValue());
+        assertEquals(Long.valueOf(123L), reloaded.get("null").getTime());
+        assertNull(reloaded.get("string").getTime());
+        assertNull(reloaded.get("unknown"));
+    }
+
+    /**
+     * Test that updates are appended and that uncommitted records are ignored.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testUpdate() throws IOException {
+        PreferencesBinaryStore store = new PreferencesBinaryStore(new File(folder.getRoot(), "prefs.bin"));
+        SortedMap<String, Setting<?>> settings = createSettings();
+        store.update(settings, "1");
+        long length = store.getFile().length();
+
+        settings.put("string", new StringSetting("other"));
+        settings.remove("list");
+        store.update(settings, "2");
+        assertTrue(store.getFile().length() > length);
+        assertEquals(settings, store.getAll());
+
+        PreferencesBinaryStore reloaded = reload(store);
+        assertEquals("2", reloaded.getStamp());
+        assertEquals(settings, reloaded.getAll());
+
+        // a partially written change is ignored
+        byte[] content = Files.readAllBytes(store.getFile().toPath());
+        try (FileOutputStream out = new FileOutputStream(store.getFile(), true)) {
+            out.write(content, 8, 12);
+        }
+        reloaded = reload(store);
+        assertEquals("2", reloaded.getStamp());
+        assertEquals(settings, reloaded.getAll());
+    }
+
+    /**
+     * Test that an update after a truncated commit is appended to the last valid commit.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testUpdateAfterTruncation() throws IOException {
+        PreferencesBinaryStore store = new PreferencesBinaryStore(new File(folder.getRoot(), "prefs.bin"));
+        SortedMap<String, Setting<?>> settings = createSettings();
+        store.update(settings, "1");
+        SortedMap<String, Setting<?>> committed = new TreeMap<>(settings);
+        settings.put("string", new StringSetting("lost"));
+        store.update(settings, "2");
+
+        // crash while writing the second commit
+        byte[] content = Files.readAllBytes(store.getFile().toPath());
+        Files.write(store.getFile().toPath(), Arrays.copyOf(content, content.length - 3));
+        PreferencesBinaryStore reloaded = reload(store);
+        assertEquals("1", reloaded.getStamp());
+        assertEquals(committed, reloaded.getAll());
+
+        settings.put("string", new StringSetting("other"));
+        reloaded.update(settings, "3");
+        reloaded = reload(reloaded);
+        assertEquals("3", reloaded.getStamp());
+        assertEquals(settings, reloaded.getAll());
+    }
+
+    /**
+     * Test that a corrupted commit is detected at load time.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testCorruption() throws IOException {
+        PreferencesBinaryStore store = new PreferencesBinaryStore(new File(folder.getRoot(), "prefs.bin"));
+        SortedMap<String, Setting<?>> settings = createSettings();
+        store.update(settings, "1");
+        long length = store.getFile().length();
+        SortedMap<String, Setting<?>> changed = new TreeMap<>();
+        changed.put("string", new StringSetting("other"));
+        store.update(changed, "2");
+
+        // damage the first character of the value "other" in the second commit, the records remain readable
+        byte[] content = Files.readAllBytes(store.getFile().toPath());
+        content[(int) length + 27] ^= 0x01;
+        Files.write(store.getFile().toPath(), content);
+        PreferencesBinaryStore reloaded = reload(store);
+        assertEquals("1", reloaded.getStamp());
+        assertEquals(settings, reloaded.getAll());
+    }
+
+    /**
+     * Test that the file is rewritten once it contains too many outdated records.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testCompaction() throws IOException {
+        PreferencesBinaryStore store = new PreferencesBinaryStore(new File(folder.getRoot(), "prefs.bin"));
+        SortedMap<String, Setting<?>> settings = createSettings();
+        store.update(settings, "0");
+        long length = store.getFile().length();
+        for (int i = 1; i <= 2000; i++) {
+            settings.put("string", new StringSetting(Integer.toString(i % 10)));
+            store.update(settings, Integer.toString(i));
+        }
+        // each update is less than 64 bytes, at most 256 outdated records are kept
+        assertTrue(store.getFile().length() < length + 256 * 64);
+        PreferencesBinaryStore reloaded = reload(store);
+        assertEquals("2000", reloaded.getStamp());
+        assertEquals(settings, reloaded.getAll());
+    }
+
+    /**
+     * Test {@link PreferencesBinaryStore#removeOlderThan}.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testRemoveOlderThan() throws IOException {
+        PreferencesBinaryStore store = new PreferencesBinaryStore(new File(folder.getRoot(), "defaults.bin"));
+        SortedMap<String, Setting<?>> settings = new TreeMap<>();
+        for (long time = 1; time <= 3; time++) {
+            StringSetting setting = new StringSetting(Long.toString(time));
+            setting.setTime(time);
+            settings.put("key" + time, setting);
+        }
+        store.write(settings, "defaults");
+        PreferencesBinaryStore reloaded = reload(store);
+        reloaded.removeOlderThan(2);
+        assertEquals(new TreeMap<>(settings.tailMap("key2")), reloaded.getAll());
+    }
+}
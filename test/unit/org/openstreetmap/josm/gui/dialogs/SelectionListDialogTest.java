@@ -0,0 +1,88 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.dialogs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.swing.DefaultListSelectionModel;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.gui.dialogs.SelectionListDialog.SelectionListModel;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link SelectionListDialog} class.
+ */
+public class SelectionListDialogTest {
+
+    /**
+     * Setup tests
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    /**
+     * Test that {@link SelectionListModel} keeps the selected rows and fires one event per update.
+     */
+    @Test
+    public void testSelectionListModel() {
+        List<OsmPrimitive> nodes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Node n = new Node(i + 1);
+            n.setCoor(LatLon.ZERO);
+            nodes.add(n);
+        }
+        DefaultListSelectionModel selectionModel = new DefaultListSelectionModel();
+        SelectionListModel model = new SelectionListModel(selectionModel);
+        List<ListDataEvent> events = new ArrayList<>();
+        model.addListDataListener(new ListDataListener() {
+            @Override
+            public void intervalRemoved(ListDataEvent e) {
+                events.add(e);
+            }
+
+            @Override
+            public void intervalAdded(ListDataEvent e) {
+                events.add(e);
+            }
+
+            @Override
+            public void contentsChanged(ListDataEvent e) {
+                events.add(e);
+            }
+        });
+        model.setJOSMSelection(nodes);
+        assertEquals(1000, model.getSize());
+        assertEquals(1, events.size());
+
+        List<OsmPrimitive> selected = Arrays.asList(nodes.get(10), nodes.get(500), nodes.get(999));
+        model.setSelected(selected);
+        assertEquals(new HashSet<>(selected), model.getSelected());
+
+        events.clear();
+        model.update(Arrays.asList(nodes.get(20), nodes.get(30), nodes.get(700)));
+        assertEquals(1, events.size());
+        assertEquals(20, events.get(0).getIndex0());
+        assertEquals(700, events.get(0).getIndex1());
+        assertEquals(new HashSet<>(selected), model.getSelected());
+
+        model.setJOSMSelection(nodes.subList(0, 100));
+        assertEquals(100, model.getSize());
+        assertEquals(new HashSet<>(Arrays.asList(nodes.get(10))), model.getSelected());
+        assertTrue(model.getJOSMSelectionSummary().contains("100"));
+    }
+}
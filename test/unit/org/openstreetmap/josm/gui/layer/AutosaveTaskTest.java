@@ -9,7 +9,9 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
@@ -17,6 +19,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -28,6 +31,7 @@ import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.layer.AutosaveTask.AutosaveLayerInfo;
+import org.openstreetmap.josm.io.OsmBinaryReader;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -106,16 +110,16 @@ public class AutosaveTaskTest {
                 assertTrue(pid.exists());
                 assertTrue(f.exists());
                 if (i == 0) {
-                    assertEquals("null_20160101_010203456.osm", f.getName());
+                    assertEquals("null_20160101_010203456.osmb", f.getName());
                     assertEquals("null_20160101_010203456.pid", pid.getName());
                 } else {
-                    assertEquals("null_20160101_010203456_" + i + ".osm", f.getName());
+                    assertEquals("null_20160101_010203456_" + i + ".osmb", f.getName());
                     assertEquals("null_20160101_010203456_" + i + ".pid", pid.getName());
                 }
             }
         }
         // cleanup
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(task.getAutosaveDir(), "*.{osm,pid}")) {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(task.getAutosaveDir(), "*.{osm,osmb,pid}")) {
             for (Path entry : stream) {
                 Files.delete(entry);
             }
@@ -153,7 +157,7 @@ public class AutosaveTaskTest {
     }
 
     private int countFiles() {
-        String[] files = task.getAutosaveDir().toFile().list((dir, name) -> name.endsWith(".osm"));
+        String[] files = task.getAutosaveDir().toFile().list((dir, name) -> name.endsWith(".osm") || name.endsWith(".osmb"));
         return files != null ? files.length : 0;
     }
 
@@ -171,9 +175,61 @@ public class AutosaveTaskTest {
     @Test
     public void testAutosaveSavesLayerMultipleTimes() {
         AutosaveTask.PROP_FILES_PER_LAYER.put(3);
+        // Write a new snapshot each time
+        AutosaveTask.PROP_COMPACTION_DELTAS.put(0);
         runAutosaveTaskSeveralTimes(5);
     }
 
+    /**
+     * Tests that {@link AutosaveTask#run()} appends changes to the last file, and starts a new one after compaction.
+     * @throws Exception in case of error
+     */
+    @Test
+    public void testAutosaveAppendsDeltas() throws Exception {
+        AutosaveTask.PROP_FILES_PER_LAYER.put(3);
+        AutosaveTask.PROP_COMPACTION_DELTAS.put(2);
+        DataSet data = new DataSet();
+        OsmDataLayer layer = new OsmDataLayer(data, "OsmData", null);
+        MainApplication.getLayerManager().addLayer(layer);
+        try {
+            task.schedule();
+            Node removed = new Node(new LatLon(20, 20));
+            data.addPrimitive(removed);
+            task.run();
+            assertEquals(1, countFiles());
+
+            for (int i = 0; i < 2; i++) {
+                data.addPrimitive(new Node(new LatLon(10, 10 + i)));
+                task.run();
+                assertEquals(1, countFiles());
+            }
+            data.removePrimitive(removed);
+            Node modified = data.getNodes().iterator().next();
+            modified.put("name", "modified");
+            task.run();
+            assertEquals(2, countFiles());
+
+            // The last delta is applied on the snapshot of the older file
+            File[] files = task.getAutosaveDir().toFile().listFiles((dir, name) -> name.endsWith(".osmb"));
+            assertNotNull(files);
+            Arrays.sort(files);
+            try (InputStream in = new FileInputStream(files[0])) {
+                DataSet read = OsmBinaryReader.parseDataSet(in, null);
+                assertEquals(3, read.getNodes().size());
+            }
+            data.addPrimitive(new Node(new LatLon(30, 30)));
+            task.run();
+            assertEquals(2, countFiles());
+            try (InputStream in = new FileInputStream(files[1])) {
+                DataSet read = OsmBinaryReader.parseDataSet(in, null);
+                assertEquals(3, read.getNodes().size());
+                assertEquals(1, read.getNodes().stream().filter(n -> "modified".equals(n.get("name"))).count());
+            }
+        } finally {
+            task.cancel();
+        }
+    }
+
     private void runAutosaveTaskSeveralTimes(int times) {
         DataSet data = new DataSet();
         OsmDataLayer layer = new OsmDataLayer(data, "OsmData", null);
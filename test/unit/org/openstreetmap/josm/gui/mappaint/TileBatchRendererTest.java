@@ -0,0 +1,193 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.mappaint.RenderingHelper.StyleData;
+import org.openstreetmap.josm.gui.mappaint.TileBatchRenderer.Tile;
+import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link TileBatchRenderer} class.
+ */
+public class TileBatchRendererTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    /**
+     * Temporary folder.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String TEST_DIR = TestUtils.getTestDataRoot() + "renderer/area-fill-color/";
+
+    private static DataSet loadData() throws IOException, IllegalDataException {
+        try (InputStream in = Files.newInputStream(Paths.get(TEST_DIR, "data.osm"))) {
+            return OsmReader.parseDataSet(in, null);
+        }
+    }
+
+    private static ElemStyles loadStyles() throws IOException, IllegalDataException {
+        StyleData style = new StyleData();
+        style.styleUrl = TEST_DIR + "style.mapcss";
+        return RenderingHelper.loadStyles(Collections.singletonList(style));
+    }
+
+    private static TileBatchRenderer createRenderer() throws IOException, IllegalDataException {
+        return new TileBatchRenderer(loadData(), loadStyles(), 2);
+    }
+
+    /**
+     * Test of {@link Tile#parse} and {@link Tile#getBounds}.
+     */
+    @Test
+    public void testTile() {
+        Tile tile = Tile.parse("1/1/0");
+        assertEquals(new Tile(1, 1, 0), tile);
+        assertEquals("1/1/0", tile.toString());
+        Bounds bounds = tile.getBounds();
+        assertEquals(0, bounds.getMinLat(), 1e-9);
+        assertEquals(0, bounds.getMinLon(), 1e-9);
+        assertEquals(180, bounds.getMaxLon(), 1e-9);
+    }
+
+    /**
+     * Test that invalid tiles are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTile() {
+        Tile.parse("1/2/0");
+    }
+
+    /**
+     * Test of {@link Tile#covering}.
+     */
+    @Test
+    public void testCovering() {
+        Bounds bounds = new Bounds(0.1, 0.1, 0.5, 0.5);
+        assertEquals(Collections.singletonList(new Tile(8, 128, 127)), Tile.covering(bounds, 8));
+        assertEquals(Arrays.asList(new Tile(10, 512, 510), new Tile(10, 513, 510), new Tile(10, 512, 511), new Tile(10, 513, 511)),
+                Tile.covering(bounds, 10));
+        assertEquals(Collections.singletonList(new Tile(0, 0, 0)), Tile.covering(new Bounds(-90, -180, 90, 180), 0));
+    }
+
+    /**
+     * Test of {@link RenderingCLI#determineTiles}.
+     * @throws IOException never
+     */
+    @Test
+    public void testDetermineTiles() throws IOException {
+        RenderingCLI cli = new RenderingCLI();
+        cli.parseArguments(new String[] {"--tiles", "8-10", "--bounds", "0.1,0.1,0.5,0.5"});
+        assertTrue(cli.isTileMode());
+        List<Tile> tiles = cli.determineTiles(new DataSet());
+        assertEquals(1 + 1 + 4, tiles.size());
+
+        File list = folder.newFile("tiles.txt");
+        Files.write(list.toPath(), Arrays.asList("# tiles", "10/512/510", "", "12/2048/2045"));
+        cli = new RenderingCLI();
+        cli.parseArguments(new String[] {"--tile-list", list.getPath()});
+        assertEquals(Arrays.asList(new Tile(10, 512, 510), new Tile(12, 2048, 2045)), cli.determineTiles(new DataSet()));
+    }
+
+    /**
+     * Test rendering tiles to a directory.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testRenderToDirectory() throws Exception {
+        File dir = folder.newFolder();
+        List<Tile> tiles = Tile.covering(new Bounds(0.1, 0.1, 0.5, 0.5), 10);
+        try (TileBatchRenderer.TileOutput output = TileBatchRenderer.toDirectory(dir)) {
+            assertEquals(4, createRenderer().render(tiles, output));
+        }
+        for (Tile tile : tiles) {
+            BufferedImage image = ImageIO.read(new File(dir, tile.getZoom() + "/" + tile.getX() + "/" + tile.getY() + ".png"));
+            assertEquals(256, image.getWidth());
+            assertEquals(256, image.getHeight());
+        }
+    }
+
+    /**
+     * Test rendering tiles to a zip archive.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testRenderToZipArchive() throws Exception {
+        File file = new File(folder.getRoot(), "tiles.zip");
+        List<Tile> tiles = Arrays.asList(new Tile(8, 128, 127), new Tile(10, 512, 511), new Tile(10, 512, 511));
+        try (TileBatchRenderer.TileOutput output = TileBatchRenderer.toZipArchive(file)) {
+            assertEquals(2, createRenderer().render(tiles, output));
+        }
+        try (ZipFile zip = new ZipFile(file)) {
+            assertEquals(2, zip.size());
+            ZipEntry entry = zip.getEntry("10/512/511.png");
+            try (InputStream in = zip.getInputStream(entry)) {
+                BufferedImage image = ImageIO.read(in);
+                assertEquals(256, image.getWidth());
+                assertEquals(256, image.getHeight());
+            }
+        }
+    }
+
+    /**
+     * Test that a tile rendered in parallel with its neighbours is drawn like a single rendering of its bounds.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testRenderSameAsRenderingHelper() throws Exception {
+        File dir = folder.newFolder();
+        List<Tile> tiles = Tile.covering(new Bounds(0.1, 0.1, 0.5, 0.5), 10);
+        try (TileBatchRenderer.TileOutput output = TileBatchRenderer.toDirectory(dir)) {
+            createRenderer().render(tiles, output);
+        }
+        Tile tile = new Tile(10, 512, 511);
+        BufferedImage actual = ImageIO.read(new File(dir, "10/512/511.png"));
+        BufferedImage expected = new RenderingHelper(loadData(), tile.getBounds(), Tile.getScale(10), new ArrayList<>())
+                .render(loadStyles());
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        Set<Integer> colors = new HashSet<>();
+        for (int y = 0; y < actual.getHeight(); y++) {
+            for (int x = 0; x < actual.getWidth(); x++) {
+                assertEquals("pixel " + x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+                colors.add(actual.getRGB(x, y));
+            }
+        }
+        assertTrue(colors.toString(), colors.size() > 1);
+    }
+}
@@ -0,0 +1,71 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint.styleelement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Image;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link MapImageLoader} class.
+ */
+public class MapImageLoaderTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    private static MapImage createMapImage(MapCSSStyleSource source, int size) {
+        MapImage image = new MapImage("presets/vehicle/parking/parking.svg", source);
+        image.width = size;
+        image.height = size;
+        return image;
+    }
+
+    /**
+     * Test that map images of the same icon share the loaded image, and that images are loaded synchronously
+     * when the map view is not displayed.
+     */
+    @Test
+    public void testLoad() {
+        MapCSSStyleSource source = new MapCSSStyleSource("node { icon-image: \"presets/vehicle/parking/parking.svg\"; }");
+        source.loadStyleSource();
+        MapImage image1 = createMapImage(source, 20);
+        MapImage image2 = createMapImage(source, 20);
+        MapImage image3 = createMapImage(source, 30);
+        MapImageLoader.preload(Arrays.asList(image1, image3));
+        Image img = image1.getImage(false);
+        assertFalse(image1.isTemporary());
+        assertEquals(20, img.getWidth(null));
+        assertSame(img, image2.getImage(false));
+        assertEquals(30, image3.getImage(false).getWidth(null));
+    }
+
+    /**
+     * Test that the loaded images of a style source are discarded by {@link MapImageLoader#forget}.
+     */
+    @Test
+    public void testForget() {
+        MapCSSStyleSource source = new MapCSSStyleSource("node { icon-image: \"presets/vehicle/parking/parking.svg\"; }");
+        source.loadStyleSource();
+        MapImage image = createMapImage(source, 20);
+        assertNotNull(image.getImage(false));
+        assertTrue(MapImageLoader.isRequested(image));
+        MapImageLoader.forget(source);
+        assertFalse(MapImageLoader.isRequested(image));
+    }
+}
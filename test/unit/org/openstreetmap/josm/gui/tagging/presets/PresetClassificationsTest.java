@@ -1,14 +1,18 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.gui.tagging.presets;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.stream.Collectors;
 
 import org.junit.BeforeClass;
@@ -77,4 +81,27 @@ public class PresetClassificationsTest {
                 .contains("Public Transport Route (Rail)"));
         assertFalse("railway=tram should not match 'Bus'", getMatchingPresetNames("route", tram).toString().contains("Bus"));
     }
+
+    /**
+     * Test that the word index computes the same results as {@link PresetClassification#isMatchingName}.
+     */
+    @Test
+    public void testIndexedSearch() {
+        for (String search : new String[] {"", "bus", "stop bus", "s", "estacao", "ation", "xyzzy"}) {
+            String[] words = search.split("\\s");
+            List<PresetClassification> expected = new ArrayList<>();
+            for (PresetClassification pc : classifications) {
+                int name = pc.isMatchingName(words);
+                int group = pc.isMatchingGroup(words);
+                int tags = pc.isMatchingTags(words);
+                if (name > 0 || group > 0 || tags > 0) {
+                    expected.add(pc);
+                }
+            }
+            List<PresetClassification> result = classifications.getMatchingPresets(search, false, true, null, Collections.emptyList());
+            assertEquals(search, new HashSet<>(expected), new HashSet<>(result));
+        }
+        assertTrue(classifications.getMatchingPresets("bus", false, false, null, Collections.emptyList()).get(0).preset.name
+                .toLowerCase(Locale.ENGLISH).contains("bus"));
+    }
 }
@@ -0,0 +1,69 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.tagging.presets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.gui.tagging.presets.items.Key;
+import org.openstreetmap.josm.gui.tagging.presets.items.KeyedItem;
+import org.xml.sax.SAXException;
+
+/**
+ * Unit tests of {@link TaggingPresetIndex} class.
+ */
+public class TaggingPresetIndexTest {
+
+    private static Collection<TaggingPreset> presets;
+
+    /**
+     * Setup test.
+     * @throws SAXException if any XML error occurs
+     * @throws IOException if any I/O error occurs
+     */
+    @BeforeClass
+    public static void setUp() throws IOException, SAXException {
+        JOSMFixture.createUnitTestFixture().init();
+        presets = TaggingPresetReader.readAll("resource://data/defaultpresets.xml", true);
+    }
+
+    private static List<TaggingPreset> getMatchingPresets(Collection<TaggingPreset> candidates, Map<String, String> tags) {
+        return candidates.stream().filter(p -> p.matches(null, tags, false)).collect(Collectors.toList());
+    }
+
+    /**
+     * Test that the index returns the same presets as testing all presets, for the tags of each preset.
+     */
+    @Test
+    public void testGetCandidates() {
+        TaggingPresetIndex index = new TaggingPresetIndex(presets);
+        int matching = 0;
+        for (TaggingPreset preset : presets) {
+            Map<String, String> tags = new HashMap<>();
+            for (TaggingPresetItem item : preset.data) {
+                if (item instanceof Key) {
+                    tags.put(((Key) item).key, ((Key) item).value);
+                } else if (item instanceof KeyedItem) {
+                    tags.put(((KeyedItem) item).key, "yes");
+                }
+            }
+            List<TaggingPreset> expected = getMatchingPresets(presets, tags);
+            List<TaggingPreset> candidates = index.getCandidates(tags);
+            assertTrue(candidates.size() <= presets.size());
+            assertEquals(tags.toString(), expected, getMatchingPresets(candidates, tags));
+            matching += expected.size();
+        }
+        assertTrue(matching > presets.size() / 2);
+        assertEquals(new ArrayList<>(), index.getCandidates(new HashMap<>()));
+    }
+}
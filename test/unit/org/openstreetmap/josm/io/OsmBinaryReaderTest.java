@@ -0,0 +1,195 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.UploadPolicy;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link OsmBinaryReader} and {@link OsmBinaryWriter} classes.
+ */
+public class OsmBinaryReaderTest {
+
+    /**
+     * Setup rule
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    private static byte[] write(DataSet ds) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OsmBinaryWriter writer = new OsmBinaryWriter(out)) {
+            writer.write(ds);
+        }
+        return out.toByteArray();
+    }
+
+    private static DataSet read(byte[] data) throws IllegalDataException {
+        return OsmBinaryReader.parseDataSet(new ByteArrayInputStream(data), null);
+    }
+
+    /**
+     * Describes a primitive independently of the ids assigned to new primitives when reading a file.
+     */
+    private static String describe(OsmPrimitive p) {
+        StringBuilder sb = new StringBuilder()
+                .append(p.getType()).append(' ').append(p.isNew() ? "new" : Long.toString(p.getUniqueId()))
+                .append(" v").append(p.getVersion()).append(p.isModified() ? " M" : "").append(p.isDeleted() ? " D" : "")
+                .append(' ').append(p.getUser()).append(' ').append(new TreeMap<>(p.getKeys()));
+        if (p instanceof Node) {
+            sb.append(' ').append(((Node) p).getCoor().getRoundedToOsmPrecision());
+        } else if (p instanceof Way) {
+            for (Node n : ((Way) p).getNodes()) {
+                sb.append(' ').append(n.getCoor().getRoundedToOsmPrecision());
+            }
+        } else {
+            for (RelationMember m : ((Relation) p).getMembers()) {
+                sb.append(' ').append(m.getRole()).append('=').append(m.getType())
+                  .append(m.getMember().isNew() ? "new" : Long.toString(m.getUniqueId()));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void assertSameContent(DataSet expected, DataSet actual) {
+        assertEquals(
+                expected.allPrimitives().stream().map(OsmBinaryReaderTest::describe).sorted().collect(Collectors.toList()),
+                actual.allPrimitives().stream().map(OsmBinaryReaderTest::describe).sorted().collect(Collectors.toList()));
+    }
+
+    /**
+     * Test that a data set read from an OSM XML file survives a round trip through the binary format.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        DataSet ds;
+        try (InputStream in = new FileInputStream(TestUtils.getTestDataRoot() + "multipolygon.osm")) {
+            ds = OsmReader.parseDataSet(in, null);
+        }
+        ds.setUploadPolicy(UploadPolicy.DISCOURAGED);
+        DataSet result = read(write(ds));
+        assertSameContent(ds, result);
+        assertEquals(UploadPolicy.DISCOURAGED, result.getUploadPolicy());
+        assertEquals(ds.getDataSources().size(), result.getDataSources().size());
+    }
+
+    /**
+     * Test that new, modified and deleted primitives keep their state.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testModifiedPrimitives() throws Exception {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(10.123456789, -20.5));
+        Node n2 = new Node(1, 3);
+        n2.setCoor(new LatLon(-45, 170));
+        n2.setUser(User.createOsmUser(42, "mapper"));
+        n2.put("name", "Ünïcödé");
+        Way w = new Way();
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        w.setNodes(Arrays.asList(n1, n2));
+        w.put("highway", "residential");
+        ds.addPrimitive(w);
+        n2.setModified(true);
+        Node deleted = new Node(5, 1);
+        deleted.setCoor(LatLon.ZERO);
+        ds.addPrimitive(deleted);
+        deleted.setDeleted(true);
+        ds.lock();
+
+        DataSet result = read(write(ds));
+        assertSameContent(ds, result);
+        assertTrue(result.isLocked());
+    }
+
+    /**
+     * Test that delta sections update the data set of a previous snapshot.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testDelta() throws Exception {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(1, 1));
+        Node n2 = new Node(new LatLon(2, 2));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OsmBinaryWriter writer = new OsmBinaryWriter(out);
+        writer.write(ds);
+
+        n1.setCoor(new LatLon(3, 3));
+        n1.put("amenity", "bench");
+        ds.removePrimitive(n2);
+        Node n3 = new Node(new LatLon(4, 4));
+        ds.addPrimitive(n3);
+        writer.writeDelta(ds, Arrays.asList(n1, n2, n3));
+        writer.close();
+
+        DataSet result = read(out.toByteArray());
+        assertSameContent(ds, result);
+        assertEquals(2, result.getNodes().size());
+    }
+
+    /**
+     * Test that a truncated trailing section is ignored.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testTruncatedDelta() throws Exception {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(1, 1));
+        ds.addPrimitive(n1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OsmBinaryWriter writer = new OsmBinaryWriter(out);
+        writer.write(ds);
+        int snapshotLength = out.size();
+        n1.put("name", "changed");
+        writer.writeDelta(ds, Collections.singleton(n1));
+        writer.close();
+
+        byte[] data = Arrays.copyOf(out.toByteArray(), snapshotLength + 10);
+        DataSet result = read(data);
+        assertEquals(1, result.getNodes().size());
+        assertFalse(result.getNodes().iterator().next().hasKeys());
+    }
+
+    /**
+     * Test that invalid data is rejected.
+     * @throws Exception always
+     */
+    @Test(expected = IllegalDataException.class)
+    public void testInvalidData() throws Exception {
+        read("<osm version='0.6'/>".getBytes("UTF-8"));
+    }
+}
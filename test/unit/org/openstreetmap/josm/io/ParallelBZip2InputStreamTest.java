@@ -0,0 +1,195 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.TestUtils;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Unit tests of {@link ParallelBZip2InputStream} class.
+ */
+public class ParallelBZip2InputStreamTest {
+
+    private static ForkJoinPool pool;
+
+    /**
+     * Setup test.
+     */
+    @BeforeClass
+    public static void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    /**
+     * Cleanup test.
+     */
+    @AfterClass
+    public static void tearDown() {
+        pool.shutdown();
+    }
+
+    private static byte[] compress(byte[] data, int blockSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BZip2CompressorOutputStream bz = new BZip2CompressorOutputStream(out, blockSize)) {
+            bz.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        return Utils.readBytesFromStream(new ParallelBZip2InputStream(new ByteArrayInputStream(compressed), pool));
+    }
+
+    private static byte[] sampleData(int size) {
+        // Mix of compressible text and random bytes, so that blocks have different sizes and bit alignments
+        Random random = new Random(42);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        while (out.size() < size) {
+            if (random.nextBoolean()) {
+                byte[] line = ("<node id='" + random.nextInt() + "' lat='" + random.nextDouble() + "'/>\n")
+                        .getBytes(StandardCharsets.UTF_8);
+                out.write(line, 0, line.length);
+            } else {
+                out.write(random.nextInt(256));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Test decoding of a stream made of many blocks.
+     * @throws IOException if an error occurs
+     */
+    @Test
+    public void testMultipleBlocks() throws IOException {
+        byte[] data = sampleData(1_500_000);
+        assertArrayEquals(data, decompress(compress(data, 1)));
+    }
+
+    /**
+     * Test decoding of a single block and of an empty stream.
+     * @throws IOException if an error occurs
+     */
+    @Test
+    public void testSmallStreams() throws IOException {
+        byte[] data = "JOSM".getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(data, decompress(compress(data, 9)));
+        assertEquals(0, decompress(compress(new byte[0], 9)).length);
+    }
+
+    /**
+     * Test decoding of concatenated streams (see #9537).
+     * @throws IOException if an error occurs
+     */
+    @Test
+    public void testConcatenatedStreams() throws IOException {
+        byte[] data1 = sampleData(250_000);
+        byte[] data2 = "second stream".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        compressed.write(compress(data1, 1));
+        compressed.write(compress(data2, 5));
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(data1);
+        expected.write(data2);
+        assertArrayEquals(expected.toByteArray(), decompress(compressed.toByteArray()));
+    }
+
+    /**
+     * Test that the output matches the sequential decoder on a real file.
+     * @throws IOException if an error occurs
+     */
+    @Test
+    public void testRealFile() throws IOException {
+        File file = new File(TestUtils.getRegressionDataFile(14891, "14891.osm.bz2"));
+        byte[] expected;
+        try (InputStream in = new FileInputStream(file)) {
+            expected = Utils.readBytesFromStream(new BZip2CompressorInputStream(in, true));
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            assertArrayEquals(expected, Utils.readBytesFromStream(new ParallelBZip2InputStream(in, pool)));
+        }
+    }
+
+    /**
+     * Test decoding of blocks containing the block magic and the end of stream magic by chance.
+     * <p>
+     * The header of a block contains a 16 bit map of the byte values used in each range of 16 values. Data using
+     * byte values of consecutive ranges according to the three 16 bit parts of a magic number thus contains that
+     * magic number in the header of each block.
+     * @throws IOException if an error occurs
+     */
+    @Test
+    public void testFakeMagic() throws IOException {
+        int[] maps = {0x3141, 0x5926, 0x5359, 0x1772, 0x4538, 0x5090};
+        ByteArrayOutputStream values = new ByteArrayOutputStream();
+        for (int range = 0; range < maps.length; range++) {
+            for (int i = 0; i < 16; i++) {
+                if ((maps[range] & (0x8000 >>> i)) != 0) {
+                    values.write(16 * (range + 1) + i);
+                }
+            }
+        }
+        byte[] alphabet = values.toByteArray();
+        Random random = new Random(42);
+        byte[] data = new byte[350_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        byte[] compressed = compress(data, 1);
+        assertTrue(containsBits(compressed, 0x314159265359L));
+        assertTrue(containsBits(compressed, 0x177245385090L));
+        assertArrayEquals(data, decompress(compressed));
+    }
+
+    private static boolean containsBits(byte[] bytes, long magic) {
+        // the first occurrence is the first block magic or the end of stream magic
+        int count = 0;
+        long register = 0;
+        for (int bit = 0; bit < bytes.length * 8; bit++) {
+            register = ((register << 1) | ((bytes[bit >>> 3] >>> (7 - (bit & 7))) & 1)) & 0xffffffffffffL;
+            if (bit >= 47 && register == magic) {
+                count++;
+            }
+        }
+        return count > 1;
+    }
+
+    /**
+     * Test that invalid data is rejected.
+     * @throws IOException always
+     */
+    @Test(expected = IOException.class)
+    public void testInvalidHeader() throws IOException {
+        decompress("not bzip2".getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Test that truncated data is rejected.
+     * @throws IOException always
+     */
+    @Test(expected = IOException.class)
+    public void testTruncated() throws IOException {
+        byte[] compressed = compress(sampleData(300_000), 1);
+        byte[] truncated = new byte[compressed.length / 2];
+        System.arraycopy(compressed, 0, truncated, 0, truncated.length);
+        decompress(truncated);
+    }
+}
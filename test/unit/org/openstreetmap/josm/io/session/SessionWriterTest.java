@@ -187,6 +187,20 @@ public class SessionWriterTest {
         testWrite(Collections.<Layer>singletonList(createOsmLayer()), true);
     }
 
+    /**
+     * Tests to write a .joz file containing OSM data in binary format.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testWriteOsmJozBinary() throws IOException {
+        OsmDataSessionExporter.PROP_BINARY.put(true);
+        try {
+            testWrite(Collections.<Layer>singletonList(createOsmLayer()), true);
+        } finally {
+            OsmDataSessionExporter.PROP_BINARY.put(false);
+        }
+    }
+
     /**
      * Tests to write a .jos file containing GPX data.
      * @throws IOException if an I/O error occurs
@@ -0,0 +1,169 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.actions.ExtensionFileFilter;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.io.importexport.AllFormatsImporter;
+import org.openstreetmap.josm.gui.io.importexport.FileImporter;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link LazyPlugin} class.
+ */
+public class LazyPluginTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().main().projection();
+
+    /**
+     * Plugin declaring lazy activation, registering an importer for {@code .lazytest} files.
+     */
+    public static class TestPlugin extends Plugin {
+        static final List<String> instances = new ArrayList<>();
+        static final List<File> imported = new ArrayList<>();
+
+        /**
+         * Constructs a new {@code TestPlugin}.
+         * @param info plugin information
+         */
+        public TestPlugin(PluginInformation info) {
+            super(info);
+            instances.add(info.name);
+            ExtensionFileFilter.addImporter(new FileImporter(new ExtensionFileFilter("lazytest", "lazytest", "Lazy test files")) {
+                @Override
+                public void importData(File file, ProgressMonitor progressMonitor) {
+                    imported.add(file);
+                }
+            });
+        }
+    }
+
+    /**
+     * Cleanup test.
+     */
+    @After
+    public void tearDown() {
+        PluginHandler.pluginList.removeIf(proxy -> proxy.getPlugin() instanceof TestPlugin);
+        PluginHandler.lazyPluginList.clear();
+        for (FileImporter importer : new ArrayList<>(ExtensionFileFilter.getImporters())) {
+            if (importer.filter.acceptName("a.lazytest")) {
+                ExtensionFileFilter.removeImporter(importer);
+            }
+        }
+        TestPlugin.instances.clear();
+        TestPlugin.imported.clear();
+    }
+
+    private static PluginInformation createPluginInformation(String name, String... attributes) throws PluginException {
+        StringBuilder manifest = new StringBuilder("Manifest-Version: 1.0\n")
+                .append("Plugin-Class: ").append(TestPlugin.class.getName()).append('\n')
+                .append("Plugin-Mainversion: 1\n")
+                .append("Plugin-Lazy: true\n");
+        for (String attribute : attributes) {
+            manifest.append(attribute).append('\n');
+        }
+        return new PluginInformation(new ByteArrayInputStream(manifest.toString().getBytes(StandardCharsets.UTF_8)), name, null);
+    }
+
+    private static FileImporter getImporter(File file) {
+        for (FileImporter importer : ExtensionFileFilter.getImporters()) {
+            if (!(importer instanceof AllFormatsImporter) && importer.acceptFile(file)) {
+                return importer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Test that the manifest attributes are read.
+     * @throws PluginException never
+     */
+    @Test
+    public void testManifest() throws PluginException {
+        PluginInformation info = createPluginInformation("lazy", "Plugin-Lazy-Extensions: LazyTest, lt");
+        assertTrue(info.lazy);
+        assertEquals(Arrays.asList("lazytest", "lt"), info.lazyExtensions);
+    }
+
+    /**
+     * Test that a lazy plugin is activated by opening a file it declares.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testActivationByImporter() throws Exception {
+        PluginHandler.loadPlugins(null, Collections.singletonList(
+                createPluginInformation("lazy", "Plugin-Lazy-Extensions: lazytest")), null);
+        assertTrue(TestPlugin.instances.isEmpty());
+        assertNull(PluginHandler.getPlugin("lazy"));
+        assertNotNull(PluginHandler.getLazyPlugin("lazy"));
+
+        File file = new File("a.lazytest");
+        FileImporter placeholder = getImporter(file);
+        assertNotNull(placeholder);
+        placeholder.importData(file, NullProgressMonitor.INSTANCE);
+
+        assertEquals(Collections.singletonList("lazy"), TestPlugin.instances);
+        assertEquals(Collections.singletonList(file), TestPlugin.imported);
+        assertTrue(PluginHandler.getPlugin("lazy") instanceof TestPlugin);
+        assertNull(PluginHandler.getLazyPlugin("lazy"));
+        assertFalse(ExtensionFileFilter.getImporters().contains(placeholder));
+    }
+
+    /**
+     * Test that a lazy plugin is activated when a map frame is shown, and not twice.
+     * @throws PluginException never
+     */
+    @Test
+    public void testActivationByMapFrame() throws PluginException {
+        PluginHandler.loadPlugins(null, Collections.singletonList(createPluginInformation("lazy")), null);
+        assertTrue(TestPlugin.instances.isEmpty());
+
+        MainApplication.getLayerManager().addLayer(new OsmDataLayer(new DataSet(), "", null));
+        assertEquals(Collections.singletonList("lazy"), TestPlugin.instances);
+        MainApplication.getLayerManager().addLayer(new OsmDataLayer(new DataSet(), "", null));
+        assertEquals(Collections.singletonList("lazy"), TestPlugin.instances);
+        assertNull(PluginHandler.getLazyPlugin("lazy"));
+    }
+
+    /**
+     * Test that a lazy plugin required by a plugin activated immediately is activated immediately too.
+     * @throws PluginException never
+     */
+    @Test
+    public void testRequiredByEagerPlugin() throws PluginException {
+        PluginInformation eager = createPluginInformation("eager");
+        eager.lazy = false;
+        eager.localrequires = "lazy";
+        PluginHandler.loadPlugins(null, Arrays.asList(createPluginInformation("lazy"), eager), null);
+        assertEquals(2, TestPlugin.instances.size());
+        assertTrue(TestPlugin.instances.contains("lazy"));
+        assertNull(PluginHandler.getLazyPlugin("lazy"));
+    }
+}
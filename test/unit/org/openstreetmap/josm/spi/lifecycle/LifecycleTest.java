@@ -1,12 +1,22 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.spi.lifecycle;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.openstreetmap.josm.tools.JosmRuntimeException;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
@@ -20,7 +30,7 @@ public class LifecycleTest {
      */
     @Rule
     @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
-    public JOSMTestRules test = new JOSMTestRules().https().devAPI().main().projection();
+    public JOSMTestRules test = new JOSMTestRules().https().fakeAPI().main().projection();
 
     private static class InitStatusListenerStub implements InitStatusListener {
 
@@ -52,4 +62,70 @@ public class LifecycleTest {
         assertTrue(listener.updated);
         assertTrue(listener.finished);
     }
+
+    /**
+     * Unit test of {@link Lifecycle#initialize} with dependent parallel tasks.
+     */
+    @Test
+    public void testInitializeDependencies() {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        InitializationTask before = new InitializationTask("before", () -> events.add("before"));
+        InitializationTask a = new InitializationTask("a", () -> events.add("a"), before);
+        InitializationTask b = new InitializationTask("b", () -> events.add("b"), a);
+        InitializationTask c = new InitializationTask("c", () -> events.add("c"));
+        InitializationTask after = new InitializationTask("after", () -> events.add("after"));
+        Lifecycle.initialize(new InitializationSequence() {
+            @Override
+            public List<InitializationTask> beforeInitializationTasks() {
+                return Collections.singletonList(before);
+            }
+
+            @Override
+            public Collection<InitializationTask> parallelInitializationTasks() {
+                // b is listed before its dependency
+                return Arrays.asList(b, c, a);
+            }
+
+            @Override
+            public List<InitializationTask> afterInitializationTasks() {
+                return Collections.singletonList(after);
+            }
+        });
+        assertEquals(5, events.size());
+        assertEquals("before", events.get(0));
+        assertTrue(events.indexOf("a") < events.indexOf("b"));
+        assertTrue(events.contains("c"));
+        assertEquals("after", events.get(4));
+        for (InitializationTask task : Arrays.asList(before, a, b, c, after)) {
+            assertTrue(task.getEndNanos() >= task.getStartNanos());
+            assertNotNull(task.getThreadName());
+        }
+        assertTrue(b.getStartNanos() >= a.getEndNanos());
+    }
+
+    /**
+     * Unit test of {@link Lifecycle#initialize} with a failing parallel task.
+     */
+    @Test
+    public void testInitializeFailedDependency() {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        InitializationTask failing = new InitializationTask("failing", () -> {
+            throw new IllegalStateException("failing");
+        });
+        InitializationTask dependent = new InitializationTask("dependent", () -> events.add("dependent"), failing);
+        InitializationTask other = new InitializationTask("other", () -> events.add("other"));
+        try {
+            Lifecycle.initialize(new InitializationSequence() {
+                @Override
+                public Collection<InitializationTask> parallelInitializationTasks() {
+                    return Arrays.asList(failing, dependent, other);
+                }
+            });
+            fail("Expected JosmRuntimeException");
+        } catch (JosmRuntimeException e) {
+            assertTrue(e.getCause().getCause() instanceof IllegalStateException);
+        }
+        assertEquals(Collections.singletonList("other"), events);
+        assertEquals(0, dependent.getStartNanos());
+    }
 }
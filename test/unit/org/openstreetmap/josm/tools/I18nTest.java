@@ -3,6 +3,19 @@ package org.openstreetmap.josm.tools;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
 import org.junit.Test;
 
 /**
@@ -19,4 +32,50 @@ public class I18nTest {
         assertEquals("'{'foo''bar'}'", I18n.escape(foobar));
         assertEquals(foobar, I18n.tr(I18n.escape(foobar)));
     }
+
+    private static byte[] lang(String... strings) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (String string : strings) {
+                byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(utf8.length);
+                out.write(utf8);
+            }
+            out.writeShort(0xFFFF);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static File createPluginJar(String translation) throws IOException {
+        File file = File.createTempFile("i18n_plugin", ".jar");
+        file.deleteOnExit();
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+            zip.putNextEntry(new ZipEntry("data/en.lang"));
+            zip.write(lang("I18nTest plugin string"));
+            zip.putNextEntry(new ZipEntry("data/de.lang"));
+            zip.write(lang(translation));
+        }
+        return file;
+    }
+
+    /**
+     * Unit test of {@link I18n#addTexts(List, java.util.concurrent.Executor)}.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testAddTexts() throws IOException {
+        List<File> jars = Arrays.asList(createPluginJar("Erste"), createPluginJar("Zweite"), createPluginJar("Dritte"));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            I18n.set("de");
+            assertEquals("Abbrechen", I18n.tr("Cancel"));
+            I18n.addTexts(jars, executor);
+            // the first translation is kept, like for successive calls of addTexts(File)
+            assertEquals("Erste", I18n.tr("I18nTest plugin string"));
+            assertEquals("Abbrechen", I18n.tr("Cancel"));
+        } finally {
+            executor.shutdown();
+            I18n.set("en");
+        }
+    }
 }
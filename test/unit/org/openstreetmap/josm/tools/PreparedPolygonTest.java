@@ -0,0 +1,150 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import java.awt.geom.Path2D;
+import java.util.Random;
+
+import org.junit.Test;
+import org.openstreetmap.josm.tools.Geometry.PolygonIntersection;
+
+/**
+ * Unit tests of {@link PreparedPolygon} class.
+ */
+public class PreparedPolygonTest {
+
+    private static Area star(Random random, double cx, double cy, double radius, int corners) {
+        Path2D path = new Path2D.Double();
+        for (int i = 0; i < corners; i++) {
+            double angle = 2 * Math.PI * i / corners;
+            double r = radius * (0.5 + random.nextDouble() / 2);
+            if (i == 0) {
+                path.moveTo(cx + r * Math.cos(angle), cy + r * Math.sin(angle));
+            } else {
+                path.lineTo(cx + r * Math.cos(angle), cy + r * Math.sin(angle));
+            }
+        }
+        path.closePath();
+        return new Area(path);
+    }
+
+    private static Area rectangle(double x1, double y1, double x2, double y2) {
+        return new Area(new Path2D.Double(new java.awt.geom.Rectangle2D.Double(x1, y1, x2 - x1, y2 - y1)));
+    }
+
+    /**
+     * The result of {@link Geometry#polygonIntersection(Area, Area, double)} computed with constructive area geometry only.
+     */
+    private static PolygonIntersection expected(Area a1, Area a2, double eps) {
+        Area inter = new Area(a1);
+        inter.intersect(a2);
+        Rectangle bounds = inter.getBounds();
+        if (inter.isEmpty() || bounds.getHeight()*bounds.getWidth() <= eps) {
+            return PolygonIntersection.OUTSIDE;
+        } else if (a2.getBounds2D().contains(a1.getBounds2D()) && inter.equals(a1)) {
+            return PolygonIntersection.FIRST_INSIDE_SECOND;
+        } else if (a1.getBounds2D().contains(a2.getBounds2D()) && inter.equals(a2)) {
+            return PolygonIntersection.SECOND_INSIDE_FIRST;
+        } else {
+            return PolygonIntersection.CROSSING;
+        }
+    }
+
+    /**
+     * Test that the results match constructive area geometry for random polygons.
+     */
+    @Test
+    public void testIntersectionRandom() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            Area a1 = star(random, random.nextDouble() * 100, random.nextDouble() * 100, 1 + random.nextDouble() * 50,
+                    3 + random.nextInt(30));
+            Area a2 = star(random, random.nextDouble() * 100, random.nextDouble() * 100, 1 + random.nextDouble() * 50,
+                    3 + random.nextInt(30));
+            PolygonIntersection result = PreparedPolygon.of(a1).intersection(PreparedPolygon.of(a2), 1.0);
+            if (result != null) {
+                assertEquals(expected(a1, a2, 1.0), result);
+            }
+            assertEquals(expected(a1, a2, 1.0), Geometry.polygonIntersection(a1, a2, 1.0));
+        }
+    }
+
+    /**
+     * Test nested, disjoint and touching polygons, and polygons with holes.
+     */
+    @Test
+    public void testIntersection() {
+        Area outer = rectangle(0, 0, 100, 100);
+        Area inner = rectangle(10, 10, 20, 20);
+        PreparedPolygon pOuter = PreparedPolygon.of(outer);
+        PreparedPolygon pInner = PreparedPolygon.of(inner);
+        assertEquals(PolygonIntersection.FIRST_INSIDE_SECOND, pInner.intersection(pOuter, 1.0));
+        assertEquals(PolygonIntersection.SECOND_INSIDE_FIRST, pOuter.intersection(pInner, 1.0));
+        // too small intersection
+        assertEquals(PolygonIntersection.OUTSIDE, pInner.intersection(pOuter, 1000));
+        assertEquals(PolygonIntersection.OUTSIDE, pInner.intersection(PreparedPolygon.of(rectangle(30, 30, 40, 40)), 1.0));
+        // touching boundaries need constructive area geometry
+        assertNull(pInner.intersection(PreparedPolygon.of(rectangle(20, 10, 30, 20)), 1.0));
+        assertNull(pOuter.intersection(PreparedPolygon.of(rectangle(0, 0, 10, 10)), 1.0));
+
+        // polygon in the hole of another one
+        Area withHole = new Area(outer);
+        withHole.subtract(rectangle(5, 5, 50, 50));
+        PreparedPolygon pWithHole = PreparedPolygon.of(withHole);
+        assertEquals(PolygonIntersection.OUTSIDE, pInner.intersection(pWithHole, 1.0));
+        assertEquals(PolygonIntersection.FIRST_INSIDE_SECOND,
+                PreparedPolygon.of(rectangle(60, 60, 70, 70)).intersection(pWithHole, 1.0));
+        // polygon containing the hole
+        assertNull(PreparedPolygon.of(rectangle(2, 2, 60, 60)).intersection(pWithHole, 1.0));
+    }
+
+    /**
+     * Test {@link PreparedPolygon#contains}.
+     */
+    @Test
+    public void testContains() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100; i++) {
+            Area a = star(random, 50, 50, 50, 3 + random.nextInt(300));
+            PreparedPolygon p = PreparedPolygon.of(a);
+            for (int j = 0; j < 100; j++) {
+                double x = random.nextDouble() * 110 - 5;
+                double y = random.nextDouble() * 110 - 5;
+                assertEquals(a.contains(x, y), p.contains(x, y));
+            }
+        }
+    }
+
+    /**
+     * Test {@link PreparedPolygon#containsRectangle}.
+     */
+    @Test
+    public void testContainsRectangle() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100; i++) {
+            Area a = star(random, 50, 50, 50, 3 + random.nextInt(300));
+            PreparedPolygon p = PreparedPolygon.of(a);
+            for (int j = 0; j < 100; j++) {
+                double x = random.nextDouble() * 110 - 5;
+                double y = random.nextDouble() * 110 - 5;
+                double size = random.nextDouble() * 20;
+                Boolean result = p.containsRectangle(x, y, x + size, y + size);
+                if (result != null) {
+                    Area inter = rectangle(x, y, x + size, y + size);
+                    inter.intersect(a);
+                    assertTrue(result ? inter.equals(rectangle(x, y, x + size, y + size)) : inter.isEmpty());
+                }
+            }
+        }
+        PreparedPolygon outer = PreparedPolygon.of(rectangle(0, 0, 100, 100));
+        assertEquals(Boolean.TRUE, outer.containsRectangle(10, 10, 20, 20));
+        assertEquals(Boolean.FALSE, outer.containsRectangle(110, 10, 120, 20));
+        assertNull(outer.containsRectangle(90, 10, 110, 20));
+        assertNull(outer.containsRectangle(-10, -10, 110, 110));
+    }
+}
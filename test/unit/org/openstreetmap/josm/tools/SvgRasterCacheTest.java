@@ -0,0 +1,90 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link SvgRasterCache} class.
+ */
+public class SvgRasterCacheTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    private static final Dimension DIM = new Dimension(24, 24);
+
+    private static BufferedImage getImage(ImageResource resource) {
+        // a copy of the resource does not share the in-memory cache of the rendered images
+        return (BufferedImage) new ImageResource(resource, null).getImageIcon(DIM, false).getImage();
+    }
+
+    private static File renderAndStore() {
+        SvgRasterCache.clearPrewarmed();
+        ImageResource resource = new ImageProvider("addnode").getResource();
+        assertNotNull(getImage(resource));
+        SvgRasterCache.flush();
+        File[] files = SvgRasterCache.getDirectory().listFiles();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        return files[0];
+    }
+
+    private static void fill(File file, Color color) throws IOException {
+        BufferedImage img = ImageIO.read(file);
+        Graphics2D g = img.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, img.getWidth(), img.getHeight());
+        g.dispose();
+        ImageIO.write(img, "png", file);
+    }
+
+    /**
+     * Test that rendered images are stored and read from the cache directory.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testCache() throws IOException {
+        File file = renderAndStore();
+        fill(file, Color.RED);
+        BufferedImage img = getImage(new ImageProvider("addnode").getResource());
+        assertEquals(DIM.width, img.getWidth());
+        assertEquals(BufferedImage.TYPE_INT_ARGB, img.getType());
+        assertEquals(Color.RED.getRGB(), img.getRGB(12, 12));
+    }
+
+    /**
+     * Test {@link SvgRasterCache#prewarm}.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testPrewarm() throws IOException {
+        File file = renderAndStore();
+        fill(file, Color.BLUE);
+        SvgRasterCache.prewarm();
+        assertTrue(file.delete());
+        BufferedImage img = getImage(new ImageProvider("addnode").getResource());
+        assertEquals(Color.BLUE.getRGB(), img.getRGB(12, 12));
+        SvgRasterCache.clearPrewarmed();
+    }
+}
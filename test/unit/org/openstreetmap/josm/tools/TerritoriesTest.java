@@ -1,8 +1,17 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.tools;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.junit.Rule;
 import org.junit.Test;
 import org.openstreetmap.josm.data.coor.LatLon;
@@ -39,6 +48,44 @@ public class TerritoriesTest {
         check("Paris", new LatLon(48.8567, 2.3508), "EU", "FR", "FX");
     }
 
+    /**
+     * Test that the binary index of territories gives the same results as the boundaries file.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testIndex() throws IOException {
+        File file = Territories.getIndexFile(false);
+        Files.deleteIfExists(file.toPath());
+        Territories.initialize();
+        assertTrue(file.isFile());
+        List<String> computed = getCodes();
+        Territories.initialize();
+        assertEquals(computed, getCodes());
+
+        // a stale index is ignored
+        Files.write(file.toPath(), new byte[] {0, 1, 'x'});
+        Territories.initialize();
+        assertEquals(computed, getCodes());
+    }
+
+    private static List<String> getCodes() {
+        List<String> result = new ArrayList<>();
+        List<String> codes = new ArrayList<>(Territories.getKnownIso3166Codes());
+        Collections.sort(codes);
+        for (double lat = -60; lat < 80; lat += 7.3) {
+            for (double lon = -180; lon < 180; lon += 7.7) {
+                LatLon ll = new LatLon(lat, lon);
+                for (String code : codes) {
+                    if (Territories.isIso3166Code(code, ll)) {
+                        result.add(ll + " " + code);
+                    }
+                }
+            }
+        }
+        assertFalse(result.isEmpty());
+        return result;
+    }
+
     private static void check(String name, LatLon ll, String... expectedCodes) {
         for (String e : expectedCodes) {
             assertTrue(name + " " + e, Territories.isIso3166Code(e, ll));